@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.elastos.did;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parse and serialize throughput of the DID entities.
+ *
+ * <p>
+ * The *Uncached benchmarks create a new ObjectMapper for every operation,
+ * which is the behavior before the shared mapper, keep them as the baseline.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DIDEntityBenchmark {
+	@Param({ "document", "credential", "presentation" })
+	private String entity;
+
+	private String json;
+	private Class<? extends DIDEntity<?>> clazz;
+	private DIDEntity<?> object;
+
+	static String loadJson(String name) throws IOException {
+		try (InputStream in = DIDEntityBenchmark.class.getResourceAsStream(
+				"/v2/testdata/" + name)) {
+			if (in == null)
+				throw new IOException("Missing test data: " + name);
+
+			byte[] buf = new byte[4096];
+			StringBuilder sb = new StringBuilder();
+			int len;
+			while ((len = in.read(buf)) > 0)
+				sb.append(new String(buf, 0, len, StandardCharsets.UTF_8));
+
+			return sb.toString();
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		switch (entity) {
+		case "document":
+			json = loadJson("user1.id.json");
+			clazz = DIDDocument.class;
+			break;
+
+		case "credential":
+			json = loadJson("user1.vc.passport.json");
+			clazz = VerifiableCredential.class;
+			break;
+
+		case "presentation":
+			json = loadJson("user1.vp.nonempty.json");
+			clazz = VerifiablePresentation.class;
+			break;
+
+		default:
+			throw new IllegalArgumentException("Unknown entity: " + entity);
+		}
+
+		object = DIDEntity.parse(json, clazz);
+	}
+
+	@Benchmark
+	public Object parse() throws Exception {
+		return DIDEntity.parse(json, clazz);
+	}
+
+	@Benchmark
+	public Object parseUncached() throws Exception {
+		ObjectMapper mapper = DIDEntity.createObjectMapper();
+		DIDEntity<?> o = mapper.readValue(json, clazz);
+		o.sanitize();
+		return o;
+	}
+
+	@Benchmark
+	public String serialize() {
+		return object.serialize(true);
+	}
+
+	@Benchmark
+	public String serializeUncached() throws Exception {
+		ObjectMapper mapper = DIDEntity.createObjectMapper();
+		return mapper.writer().withAttribute(DIDEntity.CONTEXT_KEY,
+				new DIDEntity.SerializeContext(true, object.getSerializeContextDid()))
+				.writeValueAsString(object);
+	}
+}
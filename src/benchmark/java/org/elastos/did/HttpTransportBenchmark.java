@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+package org.elastos.did;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.elastos.did.backend.DIDResolveRequest;
+import org.elastos.did.backend.SimulatedIDChain;
+import org.elastos.did.backend.SimulatedIDChainAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolve throughput and latency of the HTTP transports against the
+ * SimulatedIDChain HTTP server.
+ *
+ * <p>
+ * The Throughput mode reports the resolves per second, and the SampleTime
+ * mode reports the latency percentiles include p99. The 'legacy' transport
+ * opens a new HttpURLConnection for every request without timeouts, which is
+ * the behavior before the HttpTransport, keep it as the baseline.
+ * </p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class HttpTransportBenchmark {
+	private static final int PORT = 9223;
+	private static final String STOREPASS = "passwd";
+
+	@Param({ "legacy", "pooled", "http2" })
+	private String transport;
+
+	private SimulatedIDChain simChain;
+	private Path storeRoot;
+	private DIDStore store;
+
+	private HttpTransport httpTransport;
+	private DIDAdapter adapter;
+	private String request;
+
+	private static class LegacyTransport implements HttpTransport {
+		@Override
+		public InputStream post(URL url, String body) throws IOException {
+			HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "application/json");
+			connection.setRequestProperty("Accept", "application/json");
+			connection.setDoOutput(true);
+			connection.connect();
+
+			OutputStream os = connection.getOutputStream();
+			os.write(body.getBytes());
+			os.close();
+
+			int code = connection.getResponseCode();
+			if (code < 200 || code > 299)
+				throw new IOException("HTTP error with status: " + code);
+
+			return connection.getInputStream();
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		simChain = new SimulatedIDChain(PORT);
+		simChain.start();
+
+		DIDBackend.initialize(simChain.getAdapter());
+
+		storeRoot = Files.createTempDirectory("DIDStore");
+		store = DIDStore.open(storeRoot.toFile());
+		String mnemonic = Mnemonic.getInstance().generate();
+		RootIdentity identity = RootIdentity.create(mnemonic, "", store, STOREPASS);
+		DIDDocument doc = identity.newDid(STOREPASS);
+		doc.publish(STOREPASS);
+
+		DIDResolveRequest drr = new DIDResolveRequest("benchmark");
+		drr.setParameters(doc.getSubject(), false);
+		request = drr.serialize(true);
+
+		switch (transport) {
+		case "legacy":
+			httpTransport = new LegacyTransport();
+			break;
+
+		case "pooled":
+			httpTransport = new PooledHttpTransport();
+			break;
+
+		case "http2":
+			if (!HttpTransport.isHttp2Available())
+				throw new IllegalStateException("HTTP/2 transport requires Java 11+");
+
+			httpTransport = HttpTransport.newHttp2Transport();
+			break;
+
+		default:
+			throw new IllegalArgumentException("Unknown transport: " + transport);
+		}
+
+		adapter = new SimulatedIDChainAdapter(new URL("http", "localhost", PORT, "/"),
+				httpTransport);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		httpTransport.close();
+		store.close();
+		simChain.stop();
+
+		try (Stream<Path> paths = Files.walk(storeRoot)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int resolve() throws Exception {
+		int total = 0;
+		try (InputStream is = adapter.resolve(request)) {
+			byte[] buf = new byte[4096];
+			int len;
+			while ((len = is.read(buf)) != -1)
+				total += len;
+		}
+
+		return total;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.elastos.did.backend.SimulatedIDChain;
+import org.elastos.did.jwt.Claims;
+import org.elastos.did.jwt.Jws;
+import org.elastos.did.jwt.JwtBuilder;
+import org.elastos.did.jwt.JwtParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JWS verification throughput of the DIDDocument parser, in tokens per
+ * second.
+ *
+ * <p>
+ * With the key cache, the JCE public key of the issuer is built once.
+ * Without the cache, the cache is cleared before every token, which is the
+ * behavior before the cache, keep it as the baseline.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+	private static final String MNEMONIC = "pact reject sick voyage foster fence warm luggage cabbage any subject carbon";
+	private static final String STOREPASS = "passwd";
+	private static final int PORT = 9225;
+
+	@Param({ "false", "true" })
+	private boolean cached;
+
+	private SimulatedIDChain simChain;
+	private Path storeRoot;
+	private DIDStore store;
+	private JwtParser parser;
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		simChain = new SimulatedIDChain(PORT);
+		simChain.start();
+
+		DIDBackend.initialize(simChain.getAdapter());
+
+		storeRoot = Files.createTempDirectory("DIDStore");
+		store = DIDStore.open(storeRoot.toFile());
+
+		RootIdentity identity = RootIdentity.create(MNEMONIC, "", true,
+				store, STOREPASS);
+		DIDDocument doc = identity.newDid(STOREPASS);
+
+		Claims claims = JwtBuilder.createClaims();
+		claims.setSubject("JwtParseBenchmark")
+			.setIssuedAt(new Date())
+			.setExpiration(new Date(System.currentTimeMillis() +
+					TimeUnit.DAYS.toMillis(1)))
+			.put("foo", "bar");
+
+		token = doc.jwtBuilder()
+				.setClaims(claims)
+				.sign(STOREPASS)
+				.compact();
+		parser = doc.jwtParserBuilder().build();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		store.close();
+		simChain.stop();
+
+		try (Stream<Path> paths = Files.walk(storeRoot)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public Jws<Claims> parseClaimsJws() throws Exception {
+		if (!cached)
+			PublicKeyCache.clear();
+
+		return parser.parseClaimsJws(token);
+	}
+}
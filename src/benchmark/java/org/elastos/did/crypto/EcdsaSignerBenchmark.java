@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.crypto;
+
+import static org.bitcoinj.core.ECKey.CURVE;
+import static org.bitcoinj.core.ECKey.CURVE_PARAMS;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spongycastle.crypto.params.ECPublicKeyParameters;
+import org.spongycastle.crypto.signers.ECDSASigner;
+
+/**
+ * Signature verification throughput of the EcdsaSigner.
+ *
+ * <p>
+ * The benchmark verifies the signatures of a small set of keys in turn, like
+ * a verifier that checks the credentials of a handful of issuers. The
+ * verifyUncached benchmark decodes the public key for every operation, which
+ * is the behavior before the public key cache, keep it as the baseline.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EcdsaSignerBenchmark {
+	private static final String MNEMONIC = "pact reject sick voyage foster fence warm luggage cabbage any subject carbon";
+
+	@Param({ "1", "8" })
+	private int keys;
+
+	private byte[][] publicKeys;
+	private byte[][] sigs;
+	private byte[] digest;
+	private int next;
+
+	@Setup
+	public void setup() {
+		HDKey root = new HDKey(MNEMONIC, "");
+		digest = EcdsaSigner.sha256Digest(
+				"The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8));
+
+		publicKeys = new byte[keys][];
+		sigs = new byte[keys][];
+		for (int i = 0; i < keys; i++) {
+			HDKey key = root.derive(HDKey.DERIVE_PATH_PREFIX + i);
+			publicKeys[i] = key.getPublicKeyBytes();
+			sigs[i] = EcdsaSigner.sign(key.getPrivateKeyBytes(), digest);
+		}
+	}
+
+	private int nextKey() {
+		int i = next;
+		next = (i + 1) % keys;
+		return i;
+	}
+
+	@Benchmark
+	public boolean verify() {
+		int i = nextKey();
+		return EcdsaSigner.verify(publicKeys[i], sigs[i], digest);
+	}
+
+	@Benchmark
+	public boolean verifyUncached() {
+		int i = nextKey();
+		byte[] sig = sigs[i];
+
+		ECPublicKeyParameters keyParams = new ECPublicKeyParameters(
+				CURVE_PARAMS.getCurve().decodePoint(publicKeys[i]), CURVE);
+
+		ECDSASigner signer = new ECDSASigner();
+		signer.init(false, keyParams);
+
+		byte rb[] = new byte[sig.length / 2];
+		byte sb[] = new byte[sig.length / 2];
+		System.arraycopy(sig, 0, rb, 0, rb.length);
+		System.arraycopy(sig, sb.length, sb, 0, sb.length);
+
+		return signer.verifySignature(digest, new BigInteger(1, rb), new BigInteger(1, sb));
+	}
+}
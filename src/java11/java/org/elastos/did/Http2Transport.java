@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The HTTP/2 capable transport based on the java.net.http.HttpClient.
+ *
+ * <p>
+ * The requests to the same server are multiplexed over one connection when
+ * the server supports HTTP/2, otherwise fall back to HTTP/1.1 with the
+ * connection pool of the HttpClient.
+ * </p>
+ *
+ * <p>
+ * NOTICE: This transport requires Java 11 or later. It's built separately
+ * from the Java 8 library sources, the applications should create it with
+ * HttpTransport.newHttp2Transport() after checking
+ * HttpTransport.isHttp2Available().
+ * </p>
+ */
+public class Http2Transport implements HttpTransport {
+	private HttpClient client;
+	private Duration readTimeout;
+	private boolean gzip;
+
+	private static final Logger log = LoggerFactory.getLogger(Http2Transport.class);
+
+	/**
+	 * Create a Http2Transport instance with the given options.
+	 *
+	 * @param connectTimeout the connect timeout in milliseconds, 0 means
+	 * 		  infinite
+	 * @param readTimeout the timeout of each request in milliseconds, 0 means
+	 * 		  infinite
+	 * @param gzip request and decode the gzip compressed response or not
+	 */
+	public Http2Transport(int connectTimeout, int readTimeout, boolean gzip) {
+		checkArgument(connectTimeout >= 0, "Invalid connect timeout");
+		checkArgument(readTimeout >= 0, "Invalid read timeout");
+
+		HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL);
+		if (connectTimeout > 0)
+			builder.connectTimeout(Duration.ofMillis(connectTimeout));
+
+		this.client = builder.build();
+		this.readTimeout = readTimeout > 0 ? Duration.ofMillis(readTimeout) : null;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Create a Http2Transport instance with the default options.
+	 */
+	public Http2Transport() {
+		this(PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+				PooledHttpTransport.DEFAULT_READ_TIMEOUT, true);
+	}
+
+	private HttpRequest newRequest(URL url, String body) throws IOException {
+		HttpRequest.Builder builder;
+		try {
+			builder = HttpRequest.newBuilder(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid URL: " + url, e);
+		}
+
+		builder.header("Content-Type", "application/json")
+				.header("Accept", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (gzip)
+			builder.header("Accept-Encoding", "gzip");
+		if (readTimeout != null)
+			builder.timeout(readTimeout);
+
+		return builder.build();
+	}
+
+	private InputStream getBody(HttpResponse<byte[]> response)
+			throws IOException {
+		int code = response.statusCode();
+		if (code < 200 || code > 299) {
+			log.error("HTTP request error, status: {}", code);
+			throw new IOException("HTTP error with status: " + code);
+		}
+
+		InputStream is = new ByteArrayInputStream(response.body());
+		if (response.headers().firstValue("Content-Encoding")
+				.map((v) -> v.equalsIgnoreCase("gzip")).orElse(false))
+			is = new GZIPInputStream(is);
+
+		return is;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream post(URL url, String body) throws IOException {
+		HttpResponse<byte[]> response;
+		try {
+			response = client.send(newRequest(url, body),
+					HttpResponse.BodyHandlers.ofByteArray());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		}
+
+		return getBody(response);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * The request is sent by the non-blocking HttpClient.sendAsync(), the
+	 * executor is not used.
+	 * </p>
+	 */
+	@Override
+	public CompletableFuture<InputStream> postAsync(URL url, String body,
+			Executor executor) {
+		HttpRequest request;
+		try {
+			request = newRequest(url, body);
+		} catch (IOException e) {
+			CompletableFuture<InputStream> future = new CompletableFuture<InputStream>();
+			future.completeExceptionally(e);
+			return future;
+		}
+
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+				.thenApply((response) -> {
+					try {
+						return getBody(response);
+					} catch (IOException e) {
+						throw new CompletionException(e);
+					}
+				});
+	}
+}
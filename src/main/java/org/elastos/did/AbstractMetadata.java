@@ -27,6 +27,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
@@ -46,6 +47,9 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 
 	private TreeMap<String, String> props;
 	private DIDStore store;
+	// The nesting depth of the edits, and the changes not saved yet
+	private int editing;
+	private boolean dirty;
 
 	/**
 	 * Constructs an AbstractMetadata and attach with a DID store.
@@ -119,8 +123,12 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 	 */
 	@JsonAnySetter
 	protected void put(String name, String value) {
-		props.put(name, value);
-		save();
+		boolean exists = props.containsKey(name);
+		String old = props.put(name, value);
+		if (exists && Objects.equals(old, value))
+			return;
+
+		changed();
 	}
 
 	/**
@@ -207,7 +215,7 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 	 * @param value value to be associated with the property name
 	 */
 	protected void put(String name, Date value) {
-		put(name, dateFormat.format(value));
+		put(name, formatDate(value));
 	}
 
 	/**
@@ -226,7 +234,7 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 
 		if (strValue != null) {
 			try {
-				value = dateFormat.parse(strValue);
+				value = parseDate(strValue);
 			} catch (ParseException ignore) {
 			}
 		}
@@ -242,11 +250,61 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 	 *         {@code null} if there was no mapping for {@code name}.
 	 */
 	protected String remove(String name) {
+		if (!props.containsKey(name))
+			return null;
+
 		String value = props.remove(name);
-		save();
+		changed();
 		return value;
 	}
 
+	// Save the changes now, or when the outermost edit finished
+	private void changed() {
+		if (editing > 0)
+			dirty = true;
+		else
+			save();
+	}
+
+	/**
+	 * Begin a batch of modifications, the changes are saved once when the
+	 * outermost batch ends. The batches can be nested.
+	 */
+	protected void beginEdit() {
+		editing++;
+	}
+
+	/**
+	 * End a batch of modifications, save the changes if this is the
+	 * outermost batch and there are changes.
+	 */
+	protected void endEdit() {
+		if (editing == 0)
+			throw new IllegalStateException("Not in editing");
+
+		if (--editing == 0 && dirty) {
+			dirty = false;
+			save();
+		}
+	}
+
+	/**
+	 * Apply a batch of modifications to this metadata object, the changes
+	 * are saved to the attached store once after all modifications.
+	 *
+	 * @param edits the modifications to this metadata object
+	 */
+	public void edit(Runnable edits) {
+		checkArgument(edits != null, "Invalid edits");
+
+		beginEdit();
+		try {
+			edits.run();
+		} finally {
+			endEdit();
+		}
+	}
+
 	/**
 	 * Returns {@code true} if this metadata contains no properties.
 	 *
@@ -440,6 +498,8 @@ public abstract class AbstractMetadata extends DIDEntity<AbstractMetadata>
 	protected Object clone() throws CloneNotSupportedException {
 		AbstractMetadata result = (AbstractMetadata)super.clone();
 		result.store = store;
+		result.editing = 0;
+		result.dirty = false;
 		result.props = (TreeMap<String, String>) props.clone();
 
 		return result;
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.elastos.did.exception.DIDResolveException;
+import org.elastos.did.exception.DIDTransactionException;
+
+/**
+ * The non-blocking variant of the DIDAdapter.
+ *
+ * <p>
+ * The DIDBackend routes all the asynchronous APIs through this interface
+ * when the adapter implements it, so the in-flight requests do not hold a
+ * thread each. The blocking methods are implemented on top of the
+ * asynchronous ones by default.
+ * </p>
+ */
+public interface AsyncDIDAdapter extends DIDAdapter {
+	/**
+	 * Perform the resolve request in asynchronous mode.
+	 *
+	 * <p>
+	 * The implementation should not block the caller, the returned future
+	 * completes with the resolve result, or completes exceptionally with a
+	 * DIDResolveException if error occurred when resolving.
+	 * </p>
+	 *
+	 * @param request a string representation of resolve request
+	 * @return a new CompletableStage, the result is the resolve result
+	 */
+	public CompletableFuture<InputStream> resolveAsync(String request);
+
+	/**
+	 * Create and publish a ID chain transaction with the given ID request as
+	 * payload and the memo in asynchronous mode.
+	 *
+	 * <p>
+	 * The returned future completes when the transaction published, or
+	 * completes exceptionally with a DIDTransactionException if an error
+	 * occurred when publishing the transaction.
+	 * </p>
+	 *
+	 * @param payload a string representation of the ID request
+	 * @param memo a memorandum string
+	 * @return a new CompletableStage
+	 */
+	public CompletableFuture<Void> createIdTransactionAsync(String payload,
+			String memo);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public default InputStream resolve(String request)
+			throws DIDResolveException {
+		try {
+			return resolveAsync(request).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof DIDResolveException)
+				throw (DIDResolveException)e.getCause();
+			else
+				throw new DIDResolveException(e.getCause());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public default void createIdTransaction(String payload, String memo)
+			throws DIDTransactionException {
+		try {
+			createIdTransactionAsync(payload, memo).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof DIDTransactionException)
+				throw (DIDTransactionException)e.getCause();
+			else
+				throw new DIDTransactionException(e.getCause());
+		}
+	}
+}
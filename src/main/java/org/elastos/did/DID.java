@@ -27,15 +27,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 
 import org.elastos.did.backend.DIDBiography;
-import org.elastos.did.exception.DIDBackendException;
 import org.elastos.did.exception.DIDResolveException;
 import org.elastos.did.exception.MalformedDIDException;
-import org.elastos.did.parser.DIDURLBaseListener;
-import org.elastos.did.parser.DIDURLParser;
-import org.elastos.did.parser.ParserHelper;
+import org.elastos.did.parser.DIDURLScanner;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
@@ -68,6 +64,10 @@ public class DID implements Comparable<DID> {
 	private String method;
 	private String methodSpecificId;
 
+	// The cached hash code and string representation
+	private int hash;
+	private String repr;
+
 	private DIDMetadata metadata;
 
 	/**
@@ -81,8 +81,8 @@ public class DID implements Comparable<DID> {
 		checkArgument(methodSpecificId != null && !methodSpecificId.isEmpty(),
 				"Invalid methodSpecificId");
 
-		this.method = method;
-		this.methodSpecificId = methodSpecificId;
+		this.method = method.equals(METHOD) ? METHOD : method;
+		this.methodSpecificId = IdentifierPool.intern(methodSpecificId);
 	}
 
 	/**
@@ -98,7 +98,7 @@ public class DID implements Comparable<DID> {
 		checkArgument(did != null && !did.isEmpty(), "Invalid DID string");
 
 		try {
-			ParserHelper.parse(did, true, new Listener());
+			DIDURLScanner.scan(did, true, new Listener());
 		} catch(IllegalArgumentException e) {
 			throw new MalformedDIDException(did, e);
 		}
@@ -224,12 +224,15 @@ public class DID implements Comparable<DID> {
 	 * 			object if success; null otherwise
 	 */
 	public CompletableFuture<DIDDocument> resolveAsync(boolean force) {
-		CompletableFuture<DIDDocument> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolve(force);
-			} catch (DIDBackendException e) {
-				throw new CompletionException(e);
+		CompletableFuture<DIDDocument> future = DIDBackend.getInstance()
+				.resolveDidAsync(this, force).thenApply((doc) -> {
+			if (doc != null) {
+				if (metadata != null)
+					doc.getMetadata().merge(metadata);
+				setMetadata(doc.getMetadata());
 			}
+
+			return doc;
 		});
 
 		return future;
@@ -266,15 +269,7 @@ public class DID implements Comparable<DID> {
 	 * 			object if success; null otherwise
 	 */
 	public CompletableFuture<DIDBiography> resolveBiographyAsync() {
-		CompletableFuture<DIDBiography> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolveBiography();
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return DIDBackend.getInstance().resolveDidBiographyAsync(this);
 	}
 
 	/**
@@ -284,13 +279,17 @@ public class DID implements Comparable<DID> {
 	 */
 	@Override
 	public String toString() {
-		StringBuilder builder = new StringBuilder(64);
-		builder.append("did:")
-			.append(method)
-			.append(":")
-			.append(methodSpecificId);
+		if (repr == null) {
+			StringBuilder builder = new StringBuilder(64);
+			builder.append("did:")
+				.append(method)
+				.append(":")
+				.append(methodSpecificId);
+
+			repr = IdentifierPool.intern(builder.toString());
+		}
 
-		return builder.toString();
+		return repr;
 	}
 
 	/**
@@ -300,7 +299,13 @@ public class DID implements Comparable<DID> {
 	 */
 	@Override
 	public int hashCode() {
-		return METHOD.hashCode() + methodSpecificId.hashCode();
+		int h = hash;
+		if (h == 0) {
+			h = METHOD.hashCode() + methodSpecificId.hashCode();
+			hash = h;
+		}
+
+		return h;
 	}
 
 	/**
@@ -393,20 +398,14 @@ public class DID implements Comparable<DID> {
 
 	}
 
-	class Listener extends DIDURLBaseListener {
+	class Listener implements DIDURLScanner.Handler {
 		@Override
-		public void exitMethod(DIDURLParser.MethodContext ctx) {
-			String method = ctx.getText();
+		public void did(String method, String methodSpecificId) {
 			if (!method.equals(DID.METHOD))
 				throw new IllegalArgumentException("Unknown method: " + method);
 
-			DID.this.method = method;
-		}
-
-		@Override
-		public void exitMethodSpecificString(
-				DIDURLParser.MethodSpecificStringContext ctx) {
-			DID.this.methodSpecificId = ctx.getText();
+			DID.this.method = METHOD;
+			DID.this.methodSpecificId = IdentifierPool.intern(methodSpecificId);
 		}
 	}
 }
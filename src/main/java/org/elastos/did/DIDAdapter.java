@@ -22,10 +22,22 @@
 
 package org.elastos.did;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.elastos.did.exception.DIDResolveException;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
 /**
  * An interface for publishing and resolving the DID Entities.
  *
@@ -45,4 +57,116 @@ public interface DIDAdapter extends DIDTransactionAdapter {
 	 */
 	public InputStream resolve(String request)
 			throws DIDResolveException;
+
+	/**
+	 * Perform a batch of resolve requests.
+	 *
+	 * <p>
+	 * The request is a JSON-RPC batch, a JSON array of the resolve requests,
+	 * and the result should be a JSON array of the responses, the order of
+	 * the responses is not significant, they are matched with the requests
+	 * by the id.
+	 * </p>
+	 *
+	 * <p>
+	 * The default implementation splits the batch and performs the single
+	 * resolve calls in parallel on the DIDBackend async executor, see
+	 * {@link #resolveBatch(String, Executor)}. The adapter that can talk
+	 * with a batch capable resolver should override this method.
+	 * </p>
+	 *
+	 * @param request a string representation of the batch resolve request
+	 * @return the batch resolve result
+	 * @throws DIDResolveException if error occurred when resolving
+	 */
+	public default InputStream resolveBatch(String request)
+			throws DIDResolveException {
+		Executor executor = DIDBackend.isInitialized() ?
+				DIDBackend.getInstance().getAsyncExecutor() : null;
+
+		return resolveBatch(request, executor);
+	}
+
+	/**
+	 * Perform a batch of resolve requests by the single resolve calls.
+	 *
+	 * <p>
+	 * The batch is split and the single resolve calls are performed in
+	 * parallel on the given executor, the calling thread also runs the
+	 * calls that have not started yet, or that the executor rejected. The
+	 * wrapper adapters can use this method with their own executor.
+	 * </p>
+	 *
+	 * @param request a string representation of the batch resolve request
+	 * @param executor the executor for the single resolve calls, or null to
+	 * 		  perform them on the calling thread
+	 * @return the batch resolve result
+	 * @throws DIDResolveException if error occurred when resolving
+	 */
+	public default InputStream resolveBatch(String request, Executor executor)
+			throws DIDResolveException {
+		ObjectMapper mapper = DIDEntity.getObjectMapper();
+
+		JsonNode requests;
+		try {
+			requests = mapper.readTree(request);
+		} catch (IOException e) {
+			throw new DIDResolveException("Invalid batch request", e);
+		}
+
+		if (!requests.isArray())
+			throw new DIDResolveException("Invalid batch request, should be an array");
+
+		Executor exec = executor;
+		List<FutureTask<JsonNode>> tasks =
+				new ArrayList<FutureTask<JsonNode>>(requests.size());
+		for (JsonNode node : requests) {
+			FutureTask<JsonNode> task = new FutureTask<JsonNode>(() -> {
+				try (InputStream is = resolve(node.toString())) {
+					if (is == null)
+						throw new DIDResolveException("Unknown error, got null result.");
+
+					return mapper.readTree(is);
+				}
+			});
+
+			tasks.add(task);
+			if (exec != null) {
+				try {
+					exec.execute(task);
+				} catch (RejectedExecutionException e) {
+					// The calling thread runs this and the remaining calls
+					exec = null;
+				}
+			}
+		}
+
+		ArrayNode responses = mapper.createArrayNode();
+		try {
+			for (FutureTask<JsonNode> task : tasks) {
+				// Run it here if the executor not started it yet, the caller
+				// may be a thread of the same executor
+				task.run();
+				responses.add(task.get());
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DIDResolveException)
+				throw (DIDResolveException)cause;
+			else
+				throw new DIDResolveException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DIDResolveException(e);
+		} finally {
+			for (FutureTask<JsonNode> task : tasks)
+				task.cancel(false);
+		}
+
+		try {
+			return new ByteArrayInputStream(mapper.writeValueAsBytes(responses));
+		} catch (IOException e) {
+			throw new DIDResolveException(e);
+		}
+	}
 }
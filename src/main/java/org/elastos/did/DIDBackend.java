@@ -26,10 +26,23 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.elastos.did.backend.CredentialBiography;
 import org.elastos.did.backend.CredentialList;
@@ -45,6 +58,7 @@ import org.elastos.did.backend.DIDResolveRequest;
 import org.elastos.did.backend.DIDResolveResponse;
 import org.elastos.did.backend.DIDTransaction;
 import org.elastos.did.backend.IDChainRequest;
+import org.elastos.did.backend.PersistentResolveCache;
 import org.elastos.did.backend.ResolveRequest;
 import org.elastos.did.backend.ResolveResponse;
 import org.elastos.did.backend.ResolveResult;
@@ -56,9 +70,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
 /**
  * The class is an abstraction for the ID chain.
@@ -76,13 +93,26 @@ public class DIDBackend {
 	 * The default cache TTL.
 	 */
 	public static final int DEFAULT_CACHE_TTL = 10 * 60 * 1000;
+	/**
+	 * The time window that a completed forced resolve can be shared with
+	 * the later forced resolves of the same request.
+	 */
+	public static final int FORCE_RESOLVE_WINDOW = 1000;
 
 	private static Random random = new Random();
 
 	private DIDAdapter adapter;
 	private LocalResolveHandle resolveHandle;
 
-	private LoadingCache<ResolveRequest<?, ?>, ResolveResult<?>> cache;
+	private CachePolicy policy;
+	private LoadingCache<ResolveRequest<?, ?>, CacheEntry> cache;
+	private ConcurrentHashMap<ResolveRequest<?, ?>, Refresh> refreshes;
+	private ConcurrentHashMap<ResolveRequest<?, ?>, CompletableFuture<ResolveResult<?>>> loadings;
+
+	private volatile Executor asyncExecutor;
+
+	private LongAdder joinedRefreshes;
+	private LongAdder crossVariantHits;
 
 	private static final Logger log = LoggerFactory.getLogger(DIDBackend.class);
 
@@ -103,44 +133,298 @@ public class DIDBackend {
 	}
 
 	/**
-	 * Construct a DIDBackend instance with the adapter and the cache
-	 * specification.
+	 * The background refresh executor for the stale-while-revalidate mode,
+	 * shared by all the DIDBackend instances and created on first use.
+	 */
+	private static class RefreshExecutorHolder {
+		private static final Executor executor;
+
+		static {
+			ThreadPoolExecutor tpe = new ThreadPoolExecutor(2, 2,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (r) -> {
+						Thread t = new Thread(r, "DIDBackend-refresh");
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+		}
+	}
+
+	/**
+	 * The default executor of the asynchronous APIs, should not starve the
+	 * common pool. Shared by all the DIDBackend instances and created on
+	 * first use.
+	 */
+	private static class AsyncExecutorHolder {
+		private static final Executor executor;
+
+		static {
+			int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+			ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (r) -> {
+						Thread t = new Thread(r, "DIDBackend-async");
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+		}
+	}
+
+	/**
+	 * The in-flight or recently completed forced resolve of a request.
+	 */
+	private static class Refresh {
+		private final CompletableFuture<ResolveResult<?>> future;
+		// The completion time, 0 if still in flight
+		private volatile long completed;
+
+		Refresh() {
+			future = new CompletableFuture<ResolveResult<?>>();
+		}
+
+		boolean isJoinable(long now) {
+			long t = completed;
+			return t == 0 || now - t < FORCE_RESOLVE_WINDOW;
+		}
+
+		void complete(ResolveResult<?> result) {
+			completed = System.currentTimeMillis();
+			future.complete(result);
+		}
+
+		void completeExceptionally(Throwable e) {
+			completed = System.currentTimeMillis();
+			future.completeExceptionally(e);
+		}
+
+		ResolveResult<?> join() throws DIDResolveException {
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof DIDResolveException)
+					throw (DIDResolveException)e.getCause();
+				else
+					throw new DIDResolveException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * The specification of the resolve cache.
 	 *
-	 * @param adapter a DIDAdapter implementation
-	 * @param initialCacheCapacity the initial cache size
-	 * @param maxCacheCapacity the maximum cache capacity
-	 * @param cacheTtl the live time for the cached entries
+	 * <p>
+	 * All the time values are in milliseconds. By default every kind of
+	 * result lives DEFAULT_CACHE_TTL, and the expired entries are loaded
+	 * synchronously.
+	 * </p>
+	 */
+	public static class CachePolicy {
+		private int initialCapacity;
+		private int maxCapacity;
+		private int didTtl;
+		private int credentialTtl;
+		private int credentialListTtl;
+		private int negativeTtl;
+		private int staleTtl;
+		private PersistentResolveCache persistentCache;
+
+		/**
+		 * Create a CachePolicy object with the default values.
+		 */
+		public CachePolicy() {
+			initialCapacity = DEFAULT_CACHE_INITIAL_CAPACITY;
+			maxCapacity = DEFAULT_CACHE_MAX_CAPACITY;
+			ttl(DEFAULT_CACHE_TTL);
+			staleTtl = 0;
+		}
+
+		/**
+		 * Set the initial and the maximum capacity of the cache.
+		 *
+		 * @param initialCapacity the initial cache size
+		 * @param maxCapacity the maximum cache capacity
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy capacity(int initialCapacity, int maxCapacity) {
+			checkArgument(initialCapacity <= maxCapacity, "Invalid cache capacity");
+
+			this.initialCapacity = initialCapacity < 0 ? 0 : initialCapacity;
+			this.maxCapacity = maxCapacity < 0 ? 0 : maxCapacity;
+			return this;
+		}
+
+		/**
+		 * Set the live time of all kinds of the resolve results.
+		 *
+		 * @param ttl the live time for the cached entries
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy ttl(int ttl) {
+			didTtl = credentialTtl = credentialListTtl = negativeTtl =
+					ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Set the live time of the DID biographies.
+		 *
+		 * @param ttl the live time for the cached entries
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy didTtl(int ttl) {
+			didTtl = ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Set the live time of the credential biographies.
+		 *
+		 * @param ttl the live time for the cached entries
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy credentialTtl(int ttl) {
+			credentialTtl = ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Set the live time of the credential lists.
+		 *
+		 * @param ttl the live time for the cached entries
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy credentialListTtl(int ttl) {
+			credentialListTtl = ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Set the live time of the NOT_FOUND and DEACTIVATED DID biographies
+		 * and the NOT_FOUND credential biographies. It's used only when it is
+		 * shorter than the live time of the request method.
+		 *
+		 * @param ttl the live time for the cached entries
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy negativeTtl(int ttl) {
+			negativeTtl = ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Enable the stale-while-revalidate mode: in the given time after
+		 * an entry expired, the stale result is still returned to the
+		 * caller, and the entry is refreshed in background.
+		 *
+		 * @param ttl the time that the stale entries can be served, 0 to
+		 * 		  disable the stale-while-revalidate mode
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy staleWhileRevalidate(int ttl) {
+			staleTtl = ttl < 0 ? 0 : ttl;
+			return this;
+		}
+
+		/**
+		 * Set the persistent second level cache. The resolve results are
+		 * written through to it, and the in-memory cache misses are looked
+		 * up from it before resolving from the ID chain.
+		 *
+		 * @param cache the PersistentResolveCache object, null to disable
+		 * @return the CachePolicy instance for method chaining
+		 */
+		public CachePolicy persistentCache(PersistentResolveCache cache) {
+			persistentCache = cache;
+			return this;
+		}
+
+		private int getTtl(ResolveResult<?> result) {
+			int ttl;
+
+			if (result instanceof DIDBiography) {
+				ttl = didTtl;
+				DIDBiography.Status status = ((DIDBiography)result).getStatus();
+				if (status == DIDBiography.Status.NOT_FOUND ||
+						status == DIDBiography.Status.DEACTIVATED)
+					ttl = Math.min(ttl, negativeTtl);
+			} else if (result instanceof CredentialBiography) {
+				ttl = credentialTtl;
+				if (((CredentialBiography)result).getStatus() == CredentialBiography.Status.NOT_FOUND)
+					ttl = Math.min(ttl, negativeTtl);
+			} else {
+				ttl = credentialListTtl;
+			}
+
+			return ttl;
+		}
+
+		private int getMaxTtl() {
+			return Math.max(Math.max(didTtl, credentialTtl), credentialListTtl);
+		}
+	}
+
+	/**
+	 * The cached resolve result with its expiration time.
 	 */
-	private DIDBackend(DIDAdapter adapter, int initialCacheCapacity,
-			int maxCacheCapacity, int cacheTtl) {
-		if (initialCacheCapacity < 0)
-			initialCacheCapacity = 0;
+	private static class CacheEntry {
+		private final ResolveResult<?> result;
+		private final long expires;
 
-		if (maxCacheCapacity < 0)
-			maxCacheCapacity = 0;
+		CacheEntry(ResolveResult<?> result, long expires) {
+			this.result = result;
+			this.expires = expires;
+		}
 
-		if (cacheTtl < 0)
-			cacheTtl = 0;
+		boolean isFresh(long now) {
+			return now < expires;
+		}
+	}
 
+	/**
+	 * Construct a DIDBackend instance with the adapter and the cache
+	 * specification.
+	 *
+	 * @param adapter a DIDAdapter implementation
+	 * @param policy the cache policy
+	 */
+	private DIDBackend(DIDAdapter adapter, CachePolicy policy) {
 		this.adapter = adapter;
+		this.policy = policy;
 
-		CacheLoader<ResolveRequest<?, ?>, ResolveResult<?>> loader;
-		loader = new CacheLoader<ResolveRequest<?, ?>, ResolveResult<?>>() {
+		CacheLoader<ResolveRequest<?, ?>, CacheEntry> loader;
+		loader = new CacheLoader<ResolveRequest<?, ?>, CacheEntry>() {
 			@Override
-			public ResolveResult<?> load(ResolveRequest<?, ?> key)
+			public CacheEntry load(ResolveRequest<?, ?> key)
 					throws DIDResolveException {
 				log.trace("Cache loading {}...", key);
-				return resolve(key);
+
+				CacheEntry entry = loadPersistent(key);
+				if (entry != null)
+					return entry;
+
+				return newCacheEntry(key, resolve(key));
+			}
+
+			@Override
+			public ListenableFuture<CacheEntry> reload(ResolveRequest<?, ?> key,
+					CacheEntry oldValue) {
+				log.trace("Cache refreshing {}...", key);
+				ListenableFutureTask<CacheEntry> task =
+						ListenableFutureTask.create(() -> load(key));
+				RefreshExecutorHolder.executor.execute(task);
+				return task;
 			}
 		};
 
 		// The RemovalListener used for debug purpose.
 		/*
-		RemovalListener<ResolveRequest<?, ?>, ResolveResult<?>> listener;
-		listener = new RemovalListener<ResolveRequest<?, ?>, ResolveResult<?>>() {
+		RemovalListener<ResolveRequest<?, ?>, CacheEntry> listener;
+		listener = new RemovalListener<ResolveRequest<?, ?>, CacheEntry>() {
 			@Override
 			public void onRemoval(
-					RemovalNotification<ResolveRequest<?, ?>, ResolveResult<?>> n) {
+					RemovalNotification<ResolveRequest<?, ?>, CacheEntry> n) {
 				if (n.wasEvicted()) {
 					String cause = n.getCause().name();
 					log.trace("Cache removed {} cause {}", n.getKey(), cause);
@@ -149,17 +433,67 @@ public class DIDBackend {
 		};
 		*/
 
+		// The entries expire by their own TTL, the cache keeps them for
+		// the longest TTL plus the stale window.
 		cache = CacheBuilder.newBuilder()
-				.initialCapacity(initialCacheCapacity)
-				.maximumSize(maxCacheCapacity)
-				.expireAfterWrite(cacheTtl, TimeUnit.MILLISECONDS)
+				.initialCapacity(policy.initialCapacity)
+				.maximumSize(policy.maxCapacity)
+				.expireAfterWrite((long)policy.getMaxTtl() + policy.staleTtl,
+						TimeUnit.MILLISECONDS)
 				.softValues()
 				// .removalListener(listener)
 				// .recordStats()
 				.build(loader);
 
-		log.info("DID backend initialized, cache(init:{}, max:{}, ttl:{})",
-				initialCacheCapacity, maxCacheCapacity, cacheTtl / 1000);
+		refreshes = new ConcurrentHashMap<ResolveRequest<?, ?>, Refresh>();
+		loadings = new ConcurrentHashMap<ResolveRequest<?, ?>, CompletableFuture<ResolveResult<?>>>();
+		joinedRefreshes = new LongAdder();
+		crossVariantHits = new LongAdder();
+
+		log.info("DID backend initialized, cache(init:{}, max:{}, ttl:{}, stale:{})",
+				policy.initialCapacity, policy.maxCapacity,
+				policy.getMaxTtl() / 1000, policy.staleTtl / 1000);
+	}
+
+	private CacheEntry loadPersistent(ResolveRequest<?, ?> request) {
+		if (policy.persistentCache == null)
+			return null;
+
+		PersistentResolveCache.Entry entry = policy.persistentCache.get(request);
+		return entry == null ? null :
+			new CacheEntry(entry.getResult(), entry.getExpires());
+	}
+
+	private CacheEntry newCacheEntry(ResolveRequest<?, ?> request,
+			ResolveResult<?> result) {
+		CacheEntry entry = new CacheEntry(result,
+				System.currentTimeMillis() + policy.getTtl(result));
+
+		if (policy.persistentCache != null)
+			policy.persistentCache.put(request, result, entry.expires);
+
+		return entry;
+	}
+
+	/**
+	 * Prefill the in-memory resolve cache with the unexpired results in the
+	 * persistent cache, normally called once after the initialization.
+	 *
+	 * @return the number of the loaded results
+	 */
+	public int warmUp() {
+		if (policy.persistentCache == null)
+			return 0;
+
+		int count = 0;
+		for (PersistentResolveCache.Entry entry : policy.persistentCache.entries()) {
+			cache.put(entry.getRequest(),
+					new CacheEntry(entry.getResult(), entry.getExpires()));
+			count++;
+		}
+
+		log.info("Resolve cache warmed up with {} results", count);
+		return count;
 	}
 
 	/*
@@ -168,6 +502,26 @@ public class DIDBackend {
 	}
 	*/
 
+	/**
+	 * Get the number of the forced resolves that joined an in-flight or
+	 * recently completed refresh instead of calling the adapter.
+	 *
+	 * @return the joined refresh count
+	 */
+	public long getJoinedRefreshCount() {
+		return joinedRefreshes.sum();
+	}
+
+	/**
+	 * Get the number of the non-all DID resolves that served from the cached
+	 * full DID biography.
+	 *
+	 * @return the cross-variant hit count
+	 */
+	public long getCrossVariantHitCount() {
+		return crossVariantHits.sum();
+	}
+
 	/**
 	 * Initialize the DIDBackend with the given adapter and the cache
 	 * specification.
@@ -177,16 +531,28 @@ public class DIDBackend {
 	 * @param maxCacheCapacity the maximum cache capacity
 	 * @param cacheTtl the live time for the cached entries
 	 */
-	public static synchronized void initialize(DIDAdapter adapter,
+	public static void initialize(DIDAdapter adapter,
 			int initialCacheCapacity, int maxCacheCapacity, int cacheTtl) {
-		checkArgument(adapter != null, "Invalid adapter");
 		checkArgument(initialCacheCapacity <= maxCacheCapacity, "Invalid cache capacity");
 
-		initialCacheCapacity = initialCacheCapacity < maxCacheCapacity ?
-				initialCacheCapacity : maxCacheCapacity;
+		initialize(adapter, new CachePolicy()
+				.capacity(initialCacheCapacity, maxCacheCapacity)
+				.ttl(cacheTtl));
+	}
 
-		instance = new DIDBackend(adapter, initialCacheCapacity,
-				maxCacheCapacity, cacheTtl);
+	/**
+	 * Initialize the DIDBackend with the given adapter and the cache
+	 * policy.
+	 *
+	 * @param adapter a DIDAdapter implementation
+	 * @param policy the cache policy
+	 */
+	public static synchronized void initialize(DIDAdapter adapter,
+			CachePolicy policy) {
+		checkArgument(adapter != null, "Invalid adapter");
+		checkArgument(policy != null, "Invalid cache policy");
+
+		instance = new DIDBackend(adapter, policy);
 	}
 
 	/**
@@ -266,34 +632,80 @@ public class DIDBackend {
 		resolveHandle = handle;
 	}
 
+	/**
+	 * Set the executor for the asynchronous APIs.
+	 *
+	 * <p>
+	 * The executor runs the verification of the asynchronous resolves, the
+	 * asynchronous operations that composed by the blocking steps, and the
+	 * blocking calls when the adapter is not an AsyncDIDAdapter. The
+	 * DIDBackend uses an internal daemon thread pool if the executor is NULL.
+	 * </p>
+	 *
+	 * @param executor an Executor object or null to use the default one
+	 */
+	public void setAsyncExecutor(Executor executor) {
+		asyncExecutor = executor;
+	}
+
+	/**
+	 * Get the executor for the asynchronous APIs.
+	 *
+	 * @return the Executor object
+	 */
+	public Executor getAsyncExecutor() {
+		Executor executor = asyncExecutor;
+		return executor != null ? executor : AsyncExecutorHolder.executor;
+	}
+
+	private Class<? extends ResolveResponse<?, ?>> getResponseClass(
+			ResolveRequest<?, ?> request) throws DIDResolveException {
+		switch (request.getMethod()) {
+		case DIDResolveRequest.METHOD_NAME:
+			return DIDResolveResponse.class;
+
+		case CredentialResolveRequest.METHOD_NAME:
+			return CredentialResolveResponse.class;
+
+		case CredentialListRequest.METHOD_NAME:
+			return CredentialListResponse.class;
+
+		default:
+			log.error("INTERNAL - unknown resolve method '{}'", request.getMethod());
+			throw new DIDResolveException("Unknown resolve method: " + request.getMethod());
+		}
+	}
+
+	private ResolveResult<?> getResult(ResolveRequest<?, ?> request,
+			ResolveResponse<?, ?> response) throws DIDResolveException {
+		if (response.getResponseId() == null ||
+				!response.getResponseId().equals(request.getRequestId()))
+			throw new DIDResolveException("Mismatched resolve result with request.");
+
+		if (response.getResult() != null)
+			return response.getResult();
+		else
+			throw new DIDResolveException("Server error(" + response.getErrorCode()
+					+ "): " + response.getErrorMessage());
+	}
+
 	private ResolveResult<?> resolve(ResolveRequest<?, ?> request)
 			throws DIDResolveException {
 		log.debug("Resolving request {}...", request);
 
 		String requestJson = request.serialize(true);
 		InputStream is = getAdapter().resolve(requestJson);
+		return parseResult(request, is);
+	}
+
+	private ResolveResult<?> parseResult(ResolveRequest<?, ?> request,
+			InputStream is) throws DIDResolveException {
 		if (is == null)
 			throw new DIDResolveException("Unknown error, got null result.");
 
 		ResolveResponse<?, ?> response = null;
 		try {
-			switch (request.getMethod()) {
-			case DIDResolveRequest.METHOD_NAME:
-				response = DIDResolveResponse.parse(is, DIDResolveResponse.class);
-				break;
-
-			case CredentialResolveRequest.METHOD_NAME:
-				response = CredentialResolveResponse.parse(is, CredentialResolveResponse.class);
-				break;
-
-			case CredentialListRequest.METHOD_NAME:
-				response = CredentialListResponse.parse(is, CredentialListResponse.class);
-				break;
-
-			default:
-				log.error("INTERNAL - unknown resolve method '{}'", request.getMethod());
-				throw new DIDResolveException("Unknown resolve method: " + request.getMethod());
-			}
+			response = DIDEntity.parse(is, getResponseClass(request));
 		} catch (DIDSyntaxException | IOException e) {
 			throw new DIDResolveException(e);
 		} finally {
@@ -303,15 +715,346 @@ public class DIDBackend {
 			}
 		}
 
-		if (response.getResponseId() == null ||
-				!response.getResponseId().equals(request.getRequestId()))
-			throw new DIDResolveException("Mismatched resolve result with request.");
+		return getResult(request, response);
+	}
 
-		if (response.getResult() != null)
-			return response.getResult();
+	/**
+	 * Resolve the request in asynchronous mode. The request is sent through
+	 * AsyncDIDAdapter.resolveAsync() if the adapter supports it, otherwise
+	 * the blocking resolve runs on the async executor.
+	 */
+	private CompletableFuture<ResolveResult<?>> resolveAsync(
+			ResolveRequest<?, ?> request) {
+		log.debug("Resolving request {} in asynchronous mode...", request);
+
+		DIDAdapter adapter = getAdapter();
+		String requestJson = request.serialize(true);
+
+		CompletableFuture<InputStream> future;
+		if (adapter instanceof AsyncDIDAdapter) {
+			future = ((AsyncDIDAdapter)adapter).resolveAsync(requestJson);
+		} else {
+			future = CompletableFuture.supplyAsync(() -> {
+				try {
+					return adapter.resolve(requestJson);
+				} catch (DIDResolveException e) {
+					throw new CompletionException(e);
+				}
+			}, getAsyncExecutor());
+		}
+
+		// Parse in the completion thread, the waiters on the async executor
+		// should not be blocked by a queued parsing task
+		return future.thenApply((is) -> {
+			try {
+				return parseResult(request, is);
+			} catch (DIDResolveException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * Resolve a batch of requests in one adapter call. The results are
+	 * populated to the resolve cache, and returned to the caller directly,
+	 * so the caller never depends on the cache. The requests that already
+	 * cached will be served from the cache if not forced.
+	 *
+	 * @param requests the resolve requests, with the distinct request ids
+	 * @param force ignore the local cache and resolve from the ID chain if true
+	 * @return a map of the request to the resolve result
+	 * @throws DIDResolveException if an error occurred when resolving
+	 */
+	private Map<ResolveRequest<?, ?>, ResolveResult<?>> resolveBatch(
+			Collection<? extends ResolveRequest<?, ?>> requests, boolean force)
+			throws DIDResolveException {
+		Map<ResolveRequest<?, ?>, ResolveResult<?>> results =
+				new HashMap<ResolveRequest<?, ?>, ResolveResult<?>>();
+		Map<String, ResolveRequest<?, ?>> pending = new LinkedHashMap<String, ResolveRequest<?, ?>>();
+		Set<ResolveRequest<?, ?>> distinct = new HashSet<ResolveRequest<?, ?>>();
+		for (ResolveRequest<?, ?> request : requests) {
+			if (!distinct.add(request))
+				continue;
+
+			ResolveResult<?> result = force ? null : getCached(request);
+			if (result != null)
+				results.put(request, result);
+			else
+				pending.put(request.getRequestId(), request);
+		}
+
+		if (pending.isEmpty())
+			return results;
+
+		if (pending.size() == 1) {
+			ResolveRequest<?, ?> request = pending.values().iterator().next();
+			results.put(request, cachedResolve(request, force));
+			if (force)
+				supersede(request);
+
+			return results;
+		}
+
+		log.debug("Resolving {} requests in batch...", pending.size());
+
+		// JSON-RPC batch: an array of the request objects
+		StringBuilder batch = new StringBuilder(256 * pending.size());
+		batch.append('[');
+		for (ResolveRequest<?, ?> request : pending.values()) {
+			if (batch.length() > 1)
+				batch.append(',');
+			batch.append(request.serialize(true));
+		}
+		batch.append(']');
+
+		InputStream is = getAdapter().resolveBatch(batch.toString());
+		if (is == null)
+			throw new DIDResolveException("Unknown error, got null result.");
+
+		JsonNode responses;
+		try {
+			responses = DIDEntity.getObjectMapper().readTree(is);
+		} catch (IOException e) {
+			throw new DIDResolveException(e);
+		} finally {
+			try {
+				is.close();
+			} catch (IOException ignore) {
+			}
+		}
+
+		if (!responses.isArray())
+			throw new DIDResolveException("Invalid batch resolve result, should be an array.");
+
+		for (JsonNode response : responses) {
+			JsonNode id = response.get("id");
+			ResolveRequest<?, ?> request = id == null ? null : pending.remove(id.asText());
+			if (request == null)
+				throw new DIDResolveException("Mismatched resolve result with request.");
+
+			ResolveResponse<?, ?> rr;
+			try {
+				rr = DIDEntity.parse(response, getResponseClass(request));
+			} catch (DIDSyntaxException e) {
+				throw new DIDResolveException(e);
+			}
+
+			ResolveResult<?> result = getResult(request, rr);
+			cache.put(request, newCacheEntry(request, result));
+			if (force)
+				supersede(request);
+
+			results.put(request, result);
+		}
+
+		if (!pending.isEmpty())
+			throw new DIDResolveException("Missing resolve result for "
+					+ pending.size() + " requests.");
+
+		return results;
+	}
+
+	/**
+	 * Get the fresh cached result of the request, the non-all DID resolve
+	 * can be answered from the cached full DID biography.
+	 */
+	private ResolveResult<?> getCached(ResolveRequest<?, ?> request) {
+		ResolveResult<?> result = getFresh(request);
+		if (result == null && request instanceof DIDResolveRequest &&
+				!((DIDResolveRequest)request).isResolveAll())
+			result = getFreshHead(((DIDResolveRequest)request).getDid());
+
+		return result;
+	}
+
+	/**
+	 * Get the head of the fresh cached full DID biography, for answering
+	 * the non-all DID resolves.
+	 */
+	private DIDBiography getFreshHead(DID did) {
+		DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
+		request.setParameters(did, true);
+		DIDBiography bio = (DIDBiography)getFresh(request);
+		if (bio == null)
+			return null;
+
+		crossVariantHits.increment();
+		return bio.getHead();
+	}
+
+	/**
+	 * Register the refresh of the request, or return the joinable one that
+	 * already registered by others.
+	 */
+	private Refresh beginRefresh(ResolveRequest<?, ?> request, Refresh refresh) {
+		while (true) {
+			long now = System.currentTimeMillis();
+			Refresh current = refreshes.putIfAbsent(request, refresh);
+			if (current == null)
+				return refresh;
+
+			if (current.isJoinable(now)) {
+				log.trace("Joined the refresh of {}", request);
+				joinedRefreshes.increment();
+				return current;
+			}
+
+			if (refreshes.replace(request, current, refresh))
+				return refresh;
+		}
+	}
+
+	private void endRefresh(ResolveRequest<?, ?> request, Refresh refresh,
+			ResolveResult<?> result, Throwable error) {
+		if (error == null) {
+			// Not cache the result if the request was invalidated during the
+			// refresh, the invalidation removes the registered refresh first
+			refreshes.computeIfPresent(request, (k, registered) -> {
+				if (registered == refresh)
+					cache.put(request, newCacheEntry(request, result));
+
+				return registered;
+			});
+			refresh.complete(result);
+		} else {
+			refreshes.remove(request, refresh);
+			refresh.completeExceptionally(error);
+		}
+
+		if (refreshes.size() > DEFAULT_CACHE_MAX_CAPACITY) {
+			long now = System.currentTimeMillis();
+			refreshes.values().removeIf((r) -> !r.isJoinable(now));
+		}
+	}
+
+	/**
+	 * Resolve the request from the ID chain ignore the cached result, and
+	 * update the cache. The concurrent forced resolves of the same request,
+	 * and the ones in FORCE_RESOLVE_WINDOW after it completed, share the
+	 * same result.
+	 */
+	private ResolveResult<?> refresh(ResolveRequest<?, ?> request)
+			throws DIDResolveException {
+		Refresh refresh = new Refresh();
+		Refresh current = beginRefresh(request, refresh);
+		if (current != refresh)
+			return current.join();
+
+		try {
+			ResolveResult<?> result = resolve(request);
+			endRefresh(request, refresh, result, null);
+			return result;
+		} catch (DIDResolveException | RuntimeException e) {
+			endRefresh(request, refresh, null, e);
+			throw e;
+		}
+	}
+
+	private ResolveResult<?> getFresh(ResolveRequest<?, ?> request) {
+		CacheEntry entry = cache.getIfPresent(request);
+		if (entry != null && entry.isFresh(System.currentTimeMillis()))
+			return entry.result;
 		else
-			throw new DIDResolveException("Server error(" + response.getErrorCode()
-					+ "): " + response.getErrorMessage());
+			return null;
+	}
+
+	private ResolveResult<?> cachedResolve(ResolveRequest<?, ?> request,
+			boolean force) throws DIDResolveException {
+		if (force)
+			return refresh(request);
+
+		CacheEntry entry = cache.getIfPresent(request);
+		if (entry != null) {
+			long now = System.currentTimeMillis();
+			if (entry.isFresh(now))
+				return entry.result;
+
+			if (now < entry.expires + policy.staleTtl) {
+				// Stale-while-revalidate, the refresh runs in background
+				log.trace("Serving stale {}, refreshing...", request);
+				cache.refresh(request);
+				return entry.result;
+			}
+
+			cache.asMap().remove(request, entry);
+		}
+
+		try {
+			return cache.get(request).result;
+		} catch (ExecutionException e) {
+			throw new DIDResolveException(e);
+		}
+	}
+
+	private CompletableFuture<ResolveResult<?>> refreshAsync(
+			ResolveRequest<?, ?> request) {
+		Refresh refresh = new Refresh();
+		Refresh current = beginRefresh(request, refresh);
+		if (current != refresh)
+			return current.future;
+
+		resolveAsync(request).whenComplete((result, e) -> {
+			endRefresh(request, refresh, result,
+					e instanceof CompletionException ? e.getCause() : e);
+		});
+
+		return refresh.future;
+	}
+
+	/**
+	 * The asynchronous version of the cachedResolve, the concurrent loads of
+	 * the same request share one resolve.
+	 */
+	private CompletableFuture<ResolveResult<?>> cachedResolveAsync(
+			ResolveRequest<?, ?> request, boolean force) {
+		if (force)
+			return refreshAsync(request);
+
+		CacheEntry entry = cache.getIfPresent(request);
+		if (entry != null) {
+			long now = System.currentTimeMillis();
+			if (entry.isFresh(now))
+				return CompletableFuture.completedFuture(entry.result);
+
+			if (now < entry.expires + policy.staleTtl) {
+				log.trace("Serving stale {}, refreshing...", request);
+				cache.refresh(request);
+				return CompletableFuture.completedFuture(entry.result);
+			}
+
+			cache.asMap().remove(request, entry);
+		}
+
+		entry = loadPersistent(request);
+		if (entry != null) {
+			cache.put(request, entry);
+			return CompletableFuture.completedFuture(entry.result);
+		}
+
+		CompletableFuture<ResolveResult<?>> loading = new CompletableFuture<ResolveResult<?>>();
+		CompletableFuture<ResolveResult<?>> current = loadings.putIfAbsent(request, loading);
+		if (current != null)
+			return current;
+
+		resolveAsync(request).whenComplete((result, e) -> {
+			if (e == null) {
+				// Same as the refresh, skip the invalidated one
+				loadings.computeIfPresent(request, (k, registered) -> {
+					if (registered != loading)
+						return registered;
+
+					cache.put(request, newCacheEntry(request, result));
+					return null;
+				});
+				loading.complete(result);
+			} else {
+				loadings.remove(request, loading);
+				loading.completeExceptionally(
+						e instanceof CompletionException ? e.getCause() : e);
+			}
+		});
+
+		return loading;
 	}
 
 	private DIDBiography resolveDidBiography(DID did, boolean all, boolean force)
@@ -321,13 +1064,57 @@ public class DIDBackend {
 		DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
 		request.setParameters(did, all);
 
+		if (!force && !all) {
+			// The full biography can answer the non-all query
+			DIDBiography head = getFreshHead(did);
+			if (head != null)
+				return head;
+		}
+
+		DIDBiography bio = (DIDBiography)cachedResolve(request, force);
 		if (force)
-			cache.invalidate(request);
+			supersede(did, all);
 
-		try {
-			return (DIDBiography)cache.get(request);
-		} catch (ExecutionException e) {
-			throw new DIDResolveException(e);
+		return bio;
+	}
+
+	private CompletableFuture<DIDBiography> resolveDidBiographyAsync(DID did,
+			boolean all, boolean force) {
+		log.info("Resolving DID {}, all={} in asynchronous mode...", did.toString(), all);
+
+		DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
+		request.setParameters(did, all);
+
+		if (!force && !all) {
+			DIDBiography head = getFreshHead(did);
+			if (head != null)
+				return CompletableFuture.completedFuture(head);
+		}
+
+		return cachedResolveAsync(request, force).thenApply((rr) -> {
+			if (force)
+				supersede(did, all);
+
+			return (DIDBiography)rr;
+		});
+	}
+
+	/**
+	 * Drop the cached entry of the other variant after a forced resolve.
+	 * The stale non-all entry will be served from the new full biography,
+	 * and the older full biography must not answer the later non-all
+	 * resolves with a head older than the refreshed one.
+	 */
+	private void supersede(DID did, boolean all) {
+		DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
+		request.setParameters(did, !all);
+		cache.invalidate(request);
+	}
+
+	private void supersede(ResolveRequest<?, ?> request) {
+		if (request instanceof DIDResolveRequest) {
+			DIDResolveRequest r = (DIDResolveRequest)request;
+			supersede(r.getDid(), r.isResolveAll());
 		}
 	}
 
@@ -346,6 +1133,18 @@ public class DIDBackend {
 		return rr;
 	}
 
+	/**
+	 * Resolve all transactions for a specific DID in asynchronous mode.
+	 *
+	 * @param did the DID object to be resolve
+	 * @return a new CompletableStage, the result is the DIDBiography object,
+	 * 		   or null if the DID not exists
+	 */
+	protected CompletableFuture<DIDBiography> resolveDidBiographyAsync(DID did) {
+		return resolveDidBiographyAsync(did, true, false).thenApply((rr) ->
+			rr.getStatus() == DIDBiography.Status.NOT_FOUND ? null : rr);
+	}
+
 	/**
 	 * Resolve the specific DID.
 	 *
@@ -366,7 +1165,38 @@ public class DIDBackend {
 		}
 
 		DIDBiography bio = resolveDidBiography(did, false, force);
+		return getDocument(bio);
+	}
 
+	/**
+	 * Resolve the specific DID in asynchronous mode.
+	 *
+	 * @param did the DID object to be resolve
+	 * @param force ignore the local cache and resolve from the ID chain if true;
+	 * 		  		try to use cache first if false.
+	 * @return a new CompletableStage, the result is the DIDDocument object,
+	 * 		   or null if the DID not exists
+	 */
+	protected CompletableFuture<DIDDocument> resolveDidAsync(DID did, boolean force) {
+		log.debug("Resolving DID {} in asynchronous mode...", did.toString());
+
+		if (resolveHandle != null) {
+			DIDDocument doc = resolveHandle.resolve(did);
+			if (doc != null)
+				return CompletableFuture.completedFuture(doc);
+		}
+
+		return resolveDidBiographyAsync(did, false, force).thenApplyAsync((bio) -> {
+			try {
+				return getDocument(bio);
+			} catch (DIDResolveException e) {
+				throw new CompletionException(e);
+			}
+		}, getAsyncExecutor());
+	}
+
+	// Verify the DID biography and get the current document
+	private DIDDocument getDocument(DIDBiography bio) throws DIDResolveException {
 		DIDTransaction tx = null;
 		switch (bio.getStatus()) {
 		case VALID:
@@ -443,14 +1273,17 @@ public class DIDBackend {
 		CredentialResolveRequest request = new CredentialResolveRequest(generateRequestId());
 		request.setParameters(id, issuer);
 
-		if (force)
-			cache.invalidate(request);
+		return (CredentialBiography)cachedResolve(request, force);
+	}
 
-		try {
-			return (CredentialBiography)cache.get(request);
-		} catch (ExecutionException e) {
-			throw new DIDResolveException(e);
-		}
+	private CompletableFuture<CredentialBiography> resolveCredentialBiographyAsync(
+			DIDURL id, DID issuer, boolean force) {
+		log.info("Resolving credential {}, issuer={} in asynchronous mode...", id, issuer);
+
+		CredentialResolveRequest request = new CredentialResolveRequest(generateRequestId());
+		request.setParameters(id, issuer);
+
+		return cachedResolveAsync(request, force).thenApply((rr) -> (CredentialBiography)rr);
 	}
 
 	/**
@@ -501,6 +1334,146 @@ public class DIDBackend {
 		return resolveCredentialBiography(id, null, false);
 	}
 
+	/**
+	 * Resolve the all the credential transactions in asynchronous mode.
+	 *
+	 * @param id the credential id
+	 * @param issuer an optional issuer'd DID
+	 * @return a new CompletableStage, the result is the CredentialBiography
+	 * 		   object
+	 */
+	protected CompletableFuture<CredentialBiography> resolveCredentialBiographyAsync(
+			DIDURL id, DID issuer) {
+		return resolveCredentialBiographyAsync(id, issuer, false);
+	}
+
+	/**
+	 * Resolve a batch of DIDs.
+	 *
+	 * <p>
+	 * The DIDs that not cached will be resolved in one batch request through
+	 * DIDAdapter.resolveBatch(), the results populate the resolve cache.
+	 * </p>
+	 *
+	 * @param dids the DIDs to be resolve
+	 * @param force ignore the local cache and resolve from the ID chain if true;
+	 * 		  		try to use cache first if false.
+	 * @return a map of the DID to the DIDDocument object, the value is null
+	 * 		   if the DID not exists
+	 * @throws DIDResolveException if an error occurred when resolving DIDs
+	 */
+	public Map<DID, DIDDocument> resolveDids(Collection<DID> dids, boolean force)
+			throws DIDResolveException {
+		checkArgument(dids != null, "Invalid dids");
+
+		Map<DID, DIDDocument> docs = new LinkedHashMap<DID, DIDDocument>();
+		Map<DID, DIDResolveRequest> requests = new HashMap<DID, DIDResolveRequest>();
+		for (DID did : dids) {
+			DIDDocument doc = resolveHandle != null ? resolveHandle.resolve(did) : null;
+			docs.put(did, doc);
+			if (doc != null)
+				continue;
+
+			DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
+			request.setParameters(did, false);
+			requests.put(did, request);
+		}
+
+		Map<ResolveRequest<?, ?>, ResolveResult<?>> results =
+				resolveBatch(requests.values(), force);
+		for (Map.Entry<DID, DIDResolveRequest> request : requests.entrySet())
+			docs.put(request.getKey(),
+					getDocument((DIDBiography)results.get(request.getValue())));
+
+		return docs;
+	}
+
+	/**
+	 * Resolve a batch of DIDs.
+	 *
+	 * @param dids the DIDs to be resolve
+	 * @return a map of the DID to the DIDDocument object, the value is null
+	 * 		   if the DID not exists
+	 * @throws DIDResolveException if an error occurred when resolving DIDs
+	 */
+	public Map<DID, DIDDocument> resolveDids(Collection<DID> dids)
+			throws DIDResolveException {
+		return resolveDids(dids, false);
+	}
+
+	/**
+	 * Resolve a batch of credentials.
+	 *
+	 * <p>
+	 * The credentials that not cached will be resolved in one batch request
+	 * through DIDAdapter.resolveBatch(), the results populate the resolve
+	 * cache.
+	 * </p>
+	 *
+	 * @param ids the credential ids
+	 * @param force ignore the local cache and resolve from the ID chain if true;
+	 * 		  		try to use cache first if false.
+	 * @return a map of the credential id to the VerifiableCredential object,
+	 * 		   the value is null if the credential not exists or revoked
+	 * @throws DIDResolveException if an error occurred when resolving the credentials
+	 */
+	public Map<DIDURL, VerifiableCredential> resolveCredentials(
+			Collection<DIDURL> ids, boolean force) throws DIDResolveException {
+		checkArgument(ids != null, "Invalid credential ids");
+
+		Map<DIDURL, DID> issuers = new LinkedHashMap<DIDURL, DID>();
+		for (DIDURL id : ids)
+			issuers.put(id, null);
+
+		return resolveCredentials(issuers, force);
+	}
+
+	/**
+	 * Resolve a batch of credentials with the optional issuers.
+	 *
+	 * @param ids a map of the credential id to the optional issuer's DID
+	 * @param force ignore the local cache and resolve from the ID chain if true;
+	 * 		  		try to use cache first if false.
+	 * @return a map of the credential id to the VerifiableCredential object,
+	 * 		   the value is null if the credential not exists or revoked
+	 * @throws DIDResolveException if an error occurred when resolving the credentials
+	 */
+	protected Map<DIDURL, VerifiableCredential> resolveCredentials(
+			Map<DIDURL, DID> ids, boolean force) throws DIDResolveException {
+		checkArgument(ids != null, "Invalid credential ids");
+
+		Map<DIDURL, CredentialResolveRequest> requests =
+				new LinkedHashMap<DIDURL, CredentialResolveRequest>();
+		for (Map.Entry<DIDURL, DID> id : ids.entrySet()) {
+			CredentialResolveRequest request = new CredentialResolveRequest(generateRequestId());
+			request.setParameters(id.getKey(), id.getValue());
+			requests.put(id.getKey(), request);
+		}
+
+		Map<ResolveRequest<?, ?>, ResolveResult<?>> results =
+				resolveBatch(requests.values(), force);
+
+		Map<DIDURL, VerifiableCredential> vcs = new LinkedHashMap<DIDURL, VerifiableCredential>();
+		for (Map.Entry<DIDURL, CredentialResolveRequest> request : requests.entrySet())
+			vcs.put(request.getKey(),
+					getCredential((CredentialBiography)results.get(request.getValue())));
+
+		return vcs;
+	}
+
+	/**
+	 * Resolve a batch of credentials.
+	 *
+	 * @param ids the credential ids
+	 * @return a map of the credential id to the VerifiableCredential object,
+	 * 		   the value is null if the credential not exists or revoked
+	 * @throws DIDResolveException if an error occurred when resolving the credentials
+	 */
+	public Map<DIDURL, VerifiableCredential> resolveCredentials(Collection<DIDURL> ids)
+			throws DIDResolveException {
+		return resolveCredentials(ids, false);
+	}
+
 	/**
 	 * Resolve the specific credential.
 	 *
@@ -516,7 +1489,35 @@ public class DIDBackend {
 		log.debug("Resolving credential {}...", id);
 
 		CredentialBiography bio = resolveCredentialBiography(id, issuer, force);
+		return getCredential(bio);
+	}
 
+	/**
+	 * Resolve the specific credential in asynchronous mode.
+	 *
+	 * @param id the credential id
+	 * @param issuer an optional issuer'd DID
+	 * @param force ignore the local cache and resolve from the ID chain if true;
+	 * 		  		try to use cache first if false.
+	 * @return a new CompletableStage, the result is the VerifiableCredential
+	 * 		   object, or null if the credential not exists
+	 */
+	protected CompletableFuture<VerifiableCredential> resolveCredentialAsync(
+			DIDURL id, DID issuer, boolean force) {
+		log.debug("Resolving credential {} in asynchronous mode...", id);
+
+		return resolveCredentialBiographyAsync(id, issuer, force).thenApplyAsync((bio) -> {
+			try {
+				return getCredential(bio);
+			} catch (DIDResolveException e) {
+				throw new CompletionException(e);
+			}
+		}, getAsyncExecutor());
+	}
+
+	// Verify the credential biography and get the declared credential
+	private VerifiableCredential getCredential(CredentialBiography bio)
+			throws DIDResolveException {
 		CredentialTransaction tx = null;
 		switch (bio.getStatus()) {
 		case VALID:
@@ -642,6 +1643,34 @@ public class DIDBackend {
 		return list.getCredentialIds();
 	}
 
+	/**
+	 * List the declared credentials that owned by the specific DID from
+	 * the ID chain in asynchronous mode.
+	 *
+	 * @param did the target DID
+	 * @param skip set to skip N credentials ahead in this request
+	 * 		  (useful for pagination).
+	 * @param limit set the limit of credentials returned in the request
+	 * 		  (useful for pagination).
+	 * @return a new CompletableStage, the result is an array of DIDURL
+	 * 		   denoting the credentials
+	 */
+	protected CompletableFuture<List<DIDURL>> listCredentialsAsync(DID did,
+			int skip, int limit) {
+		log.info("List credentials for {} in asynchronous mode", did);
+
+		CredentialListRequest request = new CredentialListRequest(generateRequestId());
+		request.setParameters(did, skip, limit);
+
+		return resolveAsync(request).thenApply((rr) -> {
+			CredentialList list = (CredentialList)rr;
+			if (list == null || list.size() == 0)
+				return null;
+
+			return list.getCredentialIds();
+		});
+	}
+
 	private void createTransaction(IDChainRequest<?> request,
 			DIDTransactionAdapter adapter) throws DIDTransactionException {
 		log.info("Create ID transaction...");
@@ -657,23 +1686,61 @@ public class DIDBackend {
 		log.info("ID transaction complete.");
 	}
 
+	private CompletableFuture<Void> createTransactionAsync(IDChainRequest<?> request,
+			DIDTransactionAdapter adapter) {
+		log.info("Create ID transaction in asynchronous mode...");
+
+		String payload = request.serialize(true);
+		log.trace("Transaction paload: '{}', memo: {}", payload, "");
+
+		if (adapter == null)
+			adapter = getAdapter();
+
+		CompletableFuture<Void> future;
+		if (adapter instanceof AsyncDIDAdapter) {
+			future = ((AsyncDIDAdapter)adapter).createIdTransactionAsync(payload, payload);
+		} else {
+			DIDTransactionAdapter txAdapter = adapter;
+			future = CompletableFuture.runAsync(() -> {
+				try {
+					txAdapter.createIdTransaction(payload, payload);
+				} catch (DIDTransactionException e) {
+					throw new CompletionException(e);
+				}
+			}, getAsyncExecutor());
+		}
+
+		return future.thenRun(() -> log.info("ID transaction complete."));
+	}
+
+	private void invalidate(ResolveRequest<?, ?> request) {
+		// Remove the in-flight resolves first, then they will not put the
+		// results that resolved before the invalidation
+		refreshes.remove(request);
+		loadings.remove(request);
+		cache.invalidate(request);
+
+		if (policy.persistentCache != null)
+			policy.persistentCache.remove(request);
+	}
+
 	private void invalidDidCache(DID did) {
 		DIDResolveRequest request = new DIDResolveRequest(generateRequestId());
 		request.setParameters(did, true);
-		cache.invalidate(request);
+		invalidate(request);
 
 		request.setParameters(did, false);
-		cache.invalidate(request);
+		invalidate(request);
 	}
 
 	private void invalidCredentialCache(DIDURL id, DID signer) {
 		CredentialResolveRequest request = new CredentialResolveRequest(generateRequestId());
 		request.setParameters(id, signer);
-		cache.invalidate(request);
+		invalidate(request);
 
 		if (signer != null) {
 			request.setParameters(id, null);
-			cache.invalidate(request);
+			invalidate(request);
 		}
 	}
 
@@ -681,7 +1748,12 @@ public class DIDBackend {
 	 * Clear all data that cached by this DIDBackend instance.
 	 */
 	public void clearCache() {
+		refreshes.clear();
+		loadings.clear();
 		cache.invalidateAll();
+
+		if (policy.persistentCache != null)
+			policy.persistentCache.clear();
 	}
 
 	/**
@@ -702,6 +1774,25 @@ public class DIDBackend {
 		invalidDidCache(doc.getSubject());
 	}
 
+	/**
+	 * Publish a new DID creation transaction to the ID chain in asynchronous
+	 * mode.
+	 *
+	 * @param doc the DIDDocument object to be publish
+	 * @param signKey the key to sign the transaction
+	 * @param storepass the password for DIDStore
+	 * @param adapter a DIDTransactionAdapter instance or null for default
+	 * @return a new CompletableStage
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	protected CompletableFuture<Void> createDidAsync(DIDDocument doc,
+			DIDURL signKey, String storepass, DIDTransactionAdapter adapter)
+			throws DIDStoreException {
+		DIDRequest request = DIDRequest.create(doc, signKey, storepass);
+		return createTransactionAsync(request, adapter)
+				.thenRun(() -> invalidDidCache(doc.getSubject()));
+	}
+
 	/**
 	 * Publish a DID update transaction to the ID chain.
 	 *
@@ -721,6 +1812,25 @@ public class DIDBackend {
 		invalidDidCache(doc.getSubject());
 	}
 
+	/**
+	 * Publish a DID update transaction to the ID chain in asynchronous mode.
+	 *
+	 * @param doc the DIDDocument object to be update
+	 * @param previousTxid the previous transaction id string
+	 * @param signKey the key to sign the transaction
+	 * @param storepass the password for DIDStore
+	 * @param adapter a DIDTransactionAdapter instance or null for default
+	 * @return a new CompletableStage
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	protected CompletableFuture<Void> updateDidAsync(DIDDocument doc,
+			String previousTxid, DIDURL signKey, String storepass,
+			DIDTransactionAdapter adapter) throws DIDStoreException {
+		DIDRequest request = DIDRequest.update(doc, previousTxid, signKey, storepass);
+		return createTransactionAsync(request, adapter)
+				.thenRun(() -> invalidDidCache(doc.getSubject()));
+	}
+
 	/**
 	 * Publish a customized DID transfer transaction to the ID chain.
 	 *
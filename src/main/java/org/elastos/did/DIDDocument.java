@@ -41,6 +41,8 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.elastos.did.crypto.Base58;
 import org.elastos.did.crypto.Base64;
@@ -103,6 +105,7 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.ser.PropertyFilter;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.common.cache.CacheStats;
 
 /**
  * DID documents contain information associated with a DID.
@@ -196,8 +199,31 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 
 	private DIDMetadata metadata;
 
+	// The memoized isGenuine() verdict, bound to the proofs it verified.
+	private volatile GenuineVerdict genuineVerdict;
+
+	private static final LongAdder genuineHits = new LongAdder();
+	private static final LongAdder genuineMisses = new LongAdder();
+
 	private static final Logger log = LoggerFactory.getLogger(DIDDocument.class);
 
+	/**
+	 * The result of a genuineness check and the proofs that it verified.
+	 */
+	private static class GenuineVerdict {
+		private final List<Proof> proofs;
+		private final boolean genuine;
+
+		GenuineVerdict(List<Proof> proofs, boolean genuine) {
+			this.proofs = proofs;
+			this.genuine = genuine;
+		}
+
+		boolean isFor(List<Proof> proofs) {
+			return this.proofs == proofs;
+		}
+	}
+
 	/**
 	 * MultiSignature is a digital signature scheme which allows a group of
 	 * users to sign a single document.
@@ -323,6 +349,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 		private DID controller;
 		@JsonProperty(PUBLICKEY_BASE58)
 		private String keyBase58;
+		private volatile byte[] keyBytes;
 		private boolean authenticationKey;
 		private boolean authorizationKey;
 
@@ -389,7 +416,11 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 		 * @return a bytes array of binary public key
 		 */
 		public byte[] getPublicKeyBytes() {
-			return Base58.decode(keyBase58);
+			// The key is immutable, decode once and hand out copies
+			if (keyBytes == null)
+				keyBytes = Base58.decode(keyBase58);
+
+			return keyBytes.clone();
 		}
 
 		/**
@@ -565,7 +596,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			@Override
 			public void serialize(PublicKeyReference keyRef, JsonGenerator gen,
 					SerializerProvider provider) throws IOException {
-				gen.writeObject(keyRef.getId());
+				provider.defaultSerializeValue(keyRef.getId(), gen);
 			}
 		}
 
@@ -586,10 +617,10 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 					throws IOException, JsonProcessingException {
 				JsonToken token = p.getCurrentToken();
 				if (token.equals(JsonToken.VALUE_STRING)) {
-					DIDURL id = p.readValueAs(DIDURL.class);
+					DIDURL id = ctxt.readValue(p, DIDURL.class);
 					return new PublicKeyReference(id);
 				} else if (token.equals(JsonToken.START_OBJECT)) {
-					PublicKey key = p.readValueAs(PublicKey.class);
+					PublicKey key = ctxt.readValue(p, PublicKey.class);
 					return new PublicKeyReference(key);
 				} else
 					throw ctxt.weirdStringException(p.getText(),
@@ -1235,10 +1266,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 				throw new InvalidKeyException(id.toString());
 		}
 
-		HDKey key = HDKey.deserialize(HDKey.paddingToExtendedPublicKey(
-				pk.getPublicKeyBytes()));
-
-		return key.getJCEKeyPair();
+		return PublicKeyCache.get(pk);
 	}
 
 	/**
@@ -2149,6 +2177,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 	protected void setMetadata(DIDMetadata metadata) {
 		this.metadata = metadata;
 		subject.setMetadata(metadata);
+		genuineVerdict = null;
 	}
 
 	/**
@@ -2214,9 +2243,28 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 	/**
 	 * Check is this DIDDocument is genuine.
 	 *
+	 * <p>
+	 * The sealed document is immutable, so the verdict is memoized on this
+	 * object and reused until the proofs or the metadata are changed.
+	 * </p>
+	 *
 	 * @return true if genuine, false otherwise
 	 */
 	public boolean isGenuine() {
+		GenuineVerdict verdict = genuineVerdict;
+		if (verdict != null && verdict.isFor(_proofs)) {
+			genuineHits.increment();
+			return verdict.genuine;
+		}
+
+		genuineMisses.increment();
+		List<Proof> verified = _proofs;
+		boolean genuine = checkGenuine();
+		genuineVerdict = new GenuineVerdict(verified, genuine);
+		return genuine;
+	}
+
+	private boolean checkGenuine() {
 		// Proofs count should match with multisig
 		int expectedProofs = multisig == null ? 1 : multisig.m();
 		if (proofs.size() != expectedProofs)
@@ -2262,6 +2310,16 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 		}
 	}
 
+	/**
+	 * Get the hit-rate statistics of the memoized genuineness verdicts of
+	 * all the DIDDocument objects.
+	 *
+	 * @return a CacheStats object, only the hit and miss counts are recorded
+	 */
+	public static CacheStats getGenuineCacheStats() {
+		return new CacheStats(genuineHits.sum(), genuineMisses.sum(), 0, 0, 0, 0);
+	}
+
 	/**
 	 * Check if this DIDDocument is deactivated.
 	 *
@@ -3029,7 +3087,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -3119,6 +3177,32 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 	 */
 	public void publish(DIDURL signKey, boolean force, String storepass,
 			DIDTransactionAdapter adapter) throws DIDStoreException, DIDBackendException {
+		checkPublishable(signKey, force, storepass);
+
+		DIDDocument resolvedDoc = getSubject().resolve(true);
+		String lastTxid = checkChainCopy(resolvedDoc, force);
+		String resolvedSignature = resolvedDoc != null ?
+				resolvedDoc.getProof().getSignature() : null;
+
+		signKey = getPublishKey(signKey);
+
+		if (lastTxid == null || lastTxid.isEmpty()) {
+			log.info("Try to publish[create] {}...", getSubject());
+			DIDBackend.getInstance().createDid(this, signKey, storepass, adapter);
+		} else {
+			log.info("Try to publish[update] {}...", getSubject());
+			DIDBackend.getInstance().updateDid(this, lastTxid, signKey, storepass, adapter);
+		}
+
+		DIDMetadata metadata = getMetadata();
+		metadata.edit(() -> {
+			metadata.setPreviousSignature(resolvedSignature);
+			metadata.setSignature(getProof().getSignature());
+		});
+	}
+
+	// The local checks before publishing
+	private void checkPublishable(DIDURL signKey, boolean force, String storepass) {
 		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
 		checkAttachedStore();
 
@@ -3142,55 +3226,58 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			log.info("You can publish the expired document using force mode.");
 			throw new DIDExpiredException(getSubject().toString());
 		}
+	}
 
-		String lastTxid = null;
-		String reolvedSignautre = null;
-		DIDDocument resolvedDoc = getSubject().resolve(true);
-		if (resolvedDoc != null) {
-			if (resolvedDoc.isDeactivated()) {
-				getMetadata().setDeactivated(true);
+	// Check the local copy against the chain copy, returns the last txid
+	private String checkChainCopy(DIDDocument resolvedDoc, boolean force) {
+		if (resolvedDoc == null)
+			return null;
 
-				log.error("Publish failed because DID is deactivated.");
-				throw new DIDDeactivatedException(getSubject().toString());
-			}
+		if (resolvedDoc.isDeactivated()) {
+			getMetadata().setDeactivated(true);
 
-			if (isCustomizedDid()) {
-				List<DID> orgControllers = resolvedDoc.getControllers();
-				List<DID> curControllers = getControllers();
+			log.error("Publish failed because DID is deactivated.");
+			throw new DIDDeactivatedException(getSubject().toString());
+		}
 
-				if (!curControllers.equals(orgControllers))
-					throw new DIDControllersChangedException();
-			}
+		if (isCustomizedDid()) {
+			List<DID> orgControllers = resolvedDoc.getControllers();
+			List<DID> curControllers = getControllers();
 
-			reolvedSignautre = resolvedDoc.getProof().getSignature();
+			if (!curControllers.equals(orgControllers))
+				throw new DIDControllersChangedException();
+		}
 
-			if (!force) {
-				String localPrevSignature = getMetadata().getPreviousSignature();
-				String localSignature = getMetadata().getSignature();
+		String reolvedSignautre = resolvedDoc.getProof().getSignature();
 
-				if (localPrevSignature == null && localSignature == null) {
-					log.error("Missing signatures information, " +
-							"DID SDK dosen't know how to handle it, " +
-							"use force mode to ignore checks.");
+		if (!force) {
+			String localPrevSignature = getMetadata().getPreviousSignature();
+			String localSignature = getMetadata().getSignature();
+
+			if (localPrevSignature == null && localSignature == null) {
+				log.error("Missing signatures information, " +
+						"DID SDK dosen't know how to handle it, " +
+						"use force mode to ignore checks.");
+				throw new DIDNotUpToDateException(getSubject().toString());
+			} else if (localPrevSignature == null || localSignature == null) {
+				String ls = localPrevSignature != null ? localPrevSignature : localSignature;
+				if (!ls.equals(reolvedSignautre)) {
+					log.error("Current copy not based on the lastest on-chain copy, signature mismatch.");
+					throw new DIDNotUpToDateException(getSubject().toString());
+				}
+			} else {
+				if (!localSignature.equals(reolvedSignautre) &&
+					!localPrevSignature.equals(reolvedSignautre)) {
+					log.error("Current copy not based on the lastest on-chain copy, signature mismatch.");
 					throw new DIDNotUpToDateException(getSubject().toString());
-				} else if (localPrevSignature == null || localSignature == null) {
-					String ls = localPrevSignature != null ? localPrevSignature : localSignature;
-					if (!ls.equals(reolvedSignautre)) {
-						log.error("Current copy not based on the lastest on-chain copy, signature mismatch.");
-						throw new DIDNotUpToDateException(getSubject().toString());
-					}
-				} else {
-					if (!localSignature.equals(reolvedSignautre) &&
-						!localPrevSignature.equals(reolvedSignautre)) {
-						log.error("Current copy not based on the lastest on-chain copy, signature mismatch.");
-						throw new DIDNotUpToDateException(getSubject().toString());
-					}
 				}
 			}
-
-			lastTxid = resolvedDoc.getMetadata().getTransactionId();
 		}
 
+		return resolvedDoc.getMetadata().getTransactionId();
+	}
+
+	private DIDURL getPublishKey(DIDURL signKey) {
 		if (signKey == null) {
 			signKey = getDefaultPublicKeyId();
 		} else {
@@ -3198,16 +3285,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 				throw new InvalidKeyException(signKey.toString());
 		}
 
-		if (lastTxid == null || lastTxid.isEmpty()) {
-			log.info("Try to publish[create] {}...", getSubject());
-			DIDBackend.getInstance().createDid(this, signKey, storepass, adapter);
-		} else {
-			log.info("Try to publish[update] {}...", getSubject());
-			DIDBackend.getInstance().updateDid(this, lastTxid, signKey, storepass, adapter);
-		}
-
-		getMetadata().setPreviousSignature(reolvedSignautre);
-		getMetadata().setSignature(getProof().getSignature());
+		return signKey;
 	}
 
 	/**
@@ -3353,13 +3431,41 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 	 */
 	public CompletableFuture<Void> publishAsync(DIDURL signKey, boolean force,
 			String storepass, DIDTransactionAdapter adapter) {
+		DIDBackend backend = DIDBackend.getInstance();
+		Executor executor = backend.getAsyncExecutor();
+
 		CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+			checkPublishable(signKey, force, storepass);
+		}, executor).thenCompose((v) -> {
+			return getSubject().resolveAsync(true);
+		}).thenComposeAsync((resolvedDoc) -> {
+			String lastTxid = checkChainCopy(resolvedDoc, force);
+			String resolvedSignature = resolvedDoc != null ?
+					resolvedDoc.getProof().getSignature() : null;
+
+			DIDURL key = getPublishKey(signKey);
+
+			CompletableFuture<Void> tx;
 			try {
-				publish(signKey, force, storepass, adapter);
-			} catch (DIDException e) {
+				if (lastTxid == null || lastTxid.isEmpty()) {
+					log.info("Try to publish[create] {}...", getSubject());
+					tx = backend.createDidAsync(this, key, storepass, adapter);
+				} else {
+					log.info("Try to publish[update] {}...", getSubject());
+					tx = backend.updateDidAsync(this, lastTxid, key, storepass, adapter);
+				}
+			} catch (DIDStoreException e) {
 				throw new CompletionException(e);
 			}
-		});
+
+			return tx.thenRun(() -> {
+				DIDMetadata metadata = getMetadata();
+				metadata.edit(() -> {
+					metadata.setPreviousSignature(resolvedSignature);
+					metadata.setSignature(getProof().getSignature());
+				});
+			});
+		}, executor);
 
 		return future;
 	}
@@ -3391,15 +3497,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 	 */
 	public CompletableFuture<Void> publishAsync(String signKey, boolean force,
 			String storepass, DIDTransactionAdapter adapter) {
-		CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-			try {
-				publish(signKey, force, storepass, adapter);
-			} catch (DIDException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return publishAsync(canonicalId(signKey), force, storepass, adapter);
 	}
 
 	/**
@@ -3626,7 +3724,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -3659,7 +3757,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -3878,7 +3976,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -3916,7 +4014,7 @@ public class DIDDocument extends DIDEntity<DIDDocument> {
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
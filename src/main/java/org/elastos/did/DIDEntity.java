@@ -33,6 +33,8 @@ import java.io.Writer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.elastos.did.exception.DIDSyntaxException;
 import org.elastos.did.exception.UnknownInternalException;
@@ -50,6 +52,8 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonObjectFormatVisitor;
@@ -95,6 +99,33 @@ public abstract class DIDEntity<T> {
 		isoDateFormat.setTimeZone(Constants.UTC);
 	}
 
+	/**
+	 * Format the date with the default data format. SimpleDateFormat is not
+	 * thread safe, all the direct use of the shared formats should go
+	 * through these helpers.
+	 *
+	 * @param date the date to be formatted
+	 * @return the formatted datetime string
+	 */
+	protected static String formatDate(Date date) {
+		synchronized (dateFormat) {
+			return dateFormat.format(date);
+		}
+	}
+
+	/**
+	 * Parse the datetime string with the default data format.
+	 *
+	 * @param date the datetime string
+	 * @return the Date object
+	 * @throws ParseException if the string is not a valid datetime
+	 */
+	protected static Date parseDate(String date) throws ParseException {
+		synchronized (dateFormat) {
+			return dateFormat.parse(date);
+		}
+	}
+
 	/**
 	 * The DID serialization context class.
 	 */
@@ -106,7 +137,7 @@ public abstract class DIDEntity<T> {
 			this(false, null);
 		}
 
-		private SerializeContext(boolean normalized, DID did) {
+		SerializeContext(boolean normalized, DID did) {
 			this.normalized = normalized;
 			this.did = did;
 		}
@@ -241,13 +272,15 @@ public abstract class DIDEntity<T> {
 
 			String dateStr = p.getValueAsString();
 			try {
-				return dateFormat.parse(dateStr);
+				return parseDate(dateStr);
 			} catch (ParseException ignore) {
 			}
 
 			// Fail-back to ISO 8601 format.
 			try {
-				return isoDateFormat.parse(dateStr);
+				synchronized (isoDateFormat) {
+					return isoDateFormat.parse(dateStr);
+				}
 			} catch (ParseException e) {
 				throw ctxt.weirdStringException(p.getText(),
 						Date.class, "Invalid datetime string");
@@ -273,11 +306,17 @@ public abstract class DIDEntity<T> {
 	}
 
 	/**
-	 * Get the ObjectMapper for serialization or deserialization.
+	 * Create a new ObjectMapper configured for DID entities.
 	 *
-	 * @return a ObjectMapper instance
+	 * <p>
+	 * The mapper creation and the class introspection are expensive, the
+	 * SDK internally use the shared instance from {@link #getObjectMapper()},
+	 * this method only for the callers who need a private mapper instance.
+	 * </p>
+	 *
+	 * @return a new ObjectMapper instance
 	 */
-	protected static ObjectMapper getObjectMapper() {
+	static ObjectMapper createObjectMapper() {
 		JsonFactory jsonFactory = new JsonFactory();
 		jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 		jsonFactory.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
@@ -298,29 +337,83 @@ public abstract class DIDEntity<T> {
 
 		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
+		SimpleFilterProvider filters = new SimpleFilterProvider();
+		filters.addFilter("publicKeyFilter", DIDDocument.PublicKey.getFilter());
+		filters.addFilter("didDocumentProofFilter", DIDDocument.Proof.getFilter());
+		filters.addFilter("credentialFilter", VerifiableCredential.getFilter());
+		filters.addFilter("credentialProofFilter", VerifiableCredential.Proof.getFilter());
+		mapper.setFilterProvider(filters);
+
 		return mapper;
 	}
 
 	/**
-	 * Get the ObjectMapper for serialization with normalized option.
+	 * The shared ObjectMapper and the per-class readers and writers.
 	 *
-	 * @param normalized true for normalized output, false otherwise
-	 * @return a ObjectMapper instance
+	 * <p>
+	 * The ObjectMapper is fully configured before publishing and never
+	 * changed after that, the ObjectReader and ObjectWriter are immutable,
+	 * so all of them are safe to share between threads. The holder class
+	 * make the initialization lazy, avoid the class initialization cycle
+	 * between DIDEntity and it's subclasses that provide the filters.
+	 * </p>
 	 */
-	private ObjectMapper getObjectMapper(boolean normalized) {
-		ObjectMapper mapper = getObjectMapper();
+	private static class Mappers {
+		private static final ObjectMapper mapper = createObjectMapper();
 
-		mapper.setConfig(mapper.getSerializationConfig().withAttribute(CONTEXT_KEY,
-				new SerializeContext(normalized, getSerializeContextDid())));
+		private static final ConcurrentMap<Class<?>, ObjectReader> readers =
+				new ConcurrentHashMap<Class<?>, ObjectReader>();
 
-		SimpleFilterProvider filters = new SimpleFilterProvider();
-		filters.addFilter("publicKeyFilter", DIDDocument.PublicKey.getFilter());
-		filters.addFilter("didDocumentProofFilter", DIDDocument.Proof.getFilter());
-		filters.addFilter("credentialFilter", VerifiableCredential.getFilter());
-		filters.addFilter("credentialProofFilter", VerifiableCredential.Proof.getFilter());
-		mapper.setFilterProvider(filters);
+		private static final ConcurrentMap<Class<?>, ObjectWriter> writers =
+				new ConcurrentHashMap<Class<?>, ObjectWriter>();
 
-		return mapper;
+		static ObjectReader reader(Class<?> clazz) {
+			return readers.computeIfAbsent(clazz, mapper::readerFor);
+		}
+
+		static ObjectWriter writer(Class<?> clazz) {
+			return writers.computeIfAbsent(clazz, mapper::writerFor);
+		}
+	}
+
+	/**
+	 * Get the shared ObjectMapper for serialization or deserialization.
+	 *
+	 * <p>
+	 * The returned mapper is shared by all the DID entities, the caller
+	 * should never change the configuration of it.
+	 * </p>
+	 *
+	 * @return a ObjectMapper instance
+	 */
+	protected static ObjectMapper getObjectMapper() {
+		return Mappers.mapper;
+	}
+
+	/**
+	 * Get the cached ObjectReader for the given DID entity class.
+	 *
+	 * @param clazz the class object for the target DID entity
+	 * @return a ObjectReader instance
+	 */
+	protected static ObjectReader getObjectReader(Class<?> clazz) {
+		return Mappers.reader(clazz);
+	}
+
+	/**
+	 * Get the ObjectWriter for serialization with normalized option.
+	 *
+	 * <p>
+	 * The writer is derived from the cached writer of this entity class,
+	 * the serialization context is passed as a writer attribute.
+	 * </p>
+	 *
+	 * @param normalized true for normalized output, false otherwise
+	 * @return a ObjectWriter instance
+	 */
+	private ObjectWriter getObjectWriter(boolean normalized) {
+		return Mappers.writer(getClass()).withAttribute(CONTEXT_KEY,
+				new SerializeContext(normalized, getSerializeContextDid()));
 	}
 
 	/**
@@ -334,10 +427,10 @@ public abstract class DIDEntity<T> {
 	 */
 	protected static<T extends DIDEntity<?>> T parse(JsonNode content, Class<T> clazz)
 			throws DIDSyntaxException {
-		ObjectMapper mapper = getObjectMapper();
+		ObjectReader reader = getObjectReader(clazz);
 
 		try {
-			T o = mapper.treeToValue(content, clazz);
+			T o = reader.treeToValue(content, clazz);
 			o.sanitize();
 			return o;
 		} catch (JsonProcessingException e) {
@@ -360,10 +453,10 @@ public abstract class DIDEntity<T> {
 		checkArgument(content != null && !content.isEmpty(), "Invalid JSON content");
 		checkArgument(clazz != null, "Invalid result class object");
 
-		ObjectMapper mapper = getObjectMapper();
+		ObjectReader reader = getObjectReader(clazz);
 
 		try {
-			T o = mapper.readValue(content, clazz);
+			T o = reader.readValue(content);
 			o.sanitize();
 			return o;
 		} catch (JsonProcessingException e) {
@@ -386,10 +479,10 @@ public abstract class DIDEntity<T> {
 		checkArgument(src != null, "Invalid src reader");
 		checkArgument(clazz != null, "Invalid result class object");
 
-		ObjectMapper mapper = getObjectMapper();
+		ObjectReader reader = getObjectReader(clazz);
 
 		try {
-			T o = mapper.readValue(src, clazz);
+			T o = reader.readValue(src);
 			o.sanitize();
 			return o;
 		} catch (JsonParseException | JsonMappingException e) {
@@ -412,10 +505,10 @@ public abstract class DIDEntity<T> {
 		checkArgument(src != null, "Invalid src input stream");
 		checkArgument(clazz != null, "Invalid result class object");
 
-		ObjectMapper mapper = getObjectMapper();
+		ObjectReader reader = getObjectReader(clazz);
 
 		try {
-			T o = mapper.readValue(src, clazz);
+			T o = reader.readValue(src);
 			o.sanitize();
 			return o;
 		} catch (JsonParseException | JsonMappingException e) {
@@ -438,10 +531,10 @@ public abstract class DIDEntity<T> {
 		checkArgument(src != null, "Invalid src file");
 		checkArgument(clazz != null, "Invalid result class object");
 
-		ObjectMapper mapper = getObjectMapper();
+		ObjectReader reader = getObjectReader(clazz);
 
 		try {
-			T o = mapper.readValue(src, clazz);
+			T o = reader.readValue(src);
 			o.sanitize();
 			return o;
 		} catch (JsonParseException | JsonMappingException e) {
@@ -457,7 +550,7 @@ public abstract class DIDEntity<T> {
 	 */
 	public String serialize(boolean normalized) {
 		try {
-			return getObjectMapper(normalized).writeValueAsString(this);
+			return getObjectWriter(normalized).writeValueAsString(this);
 		} catch (JsonProcessingException e) {
 			throw new UnknownInternalException(e);
 		}
@@ -483,7 +576,7 @@ public abstract class DIDEntity<T> {
 		checkArgument(out != null, "Invalid out writer");
 
 		try {
-			getObjectMapper(normalized).writeValue(out, this);
+			getObjectWriter(normalized).writeValue(out, this);
 		} catch (JsonGenerationException | JsonMappingException e) {
 			throw new UnknownInternalException(e);
 		}
@@ -510,7 +603,7 @@ public abstract class DIDEntity<T> {
 		checkArgument(out != null, "Invalid out stream");
 
 		try {
-			getObjectMapper(normalized).writeValue(out, this);
+			getObjectWriter(normalized).writeValue(out, this);
 		} catch (JsonGenerationException | JsonMappingException e) {
 			throw new UnknownInternalException(e);
 		}
@@ -537,7 +630,7 @@ public abstract class DIDEntity<T> {
 		checkArgument(out != null, "Invalid out file");
 
 		try {
-			getObjectMapper(normalized).writeValue(out, this);
+			getObjectWriter(normalized).writeValue(out, this);
 		} catch (JsonGenerationException | JsonMappingException e) {
 			throw new UnknownInternalException(e);
 		}
@@ -348,4 +348,43 @@ public interface DIDStorage {
 	 */
 	public void changePassword(ReEncryptor reEncryptor)
 			throws DIDStorageException;
+
+	/**
+	 * Change the password of the DIDStore, and report the progress. The
+	 * storage that can not report the progress ignores the callback.
+	 *
+	 * @param reEncryptor the data re-encrypt handler
+	 * @param callback the progress callback, or null
+	 * @throws DIDStorageException if an error occurred when re-encrypting data
+	 */
+	public default void changePassword(ReEncryptor reEncryptor,
+			DIDStore.ProgressCallback callback) throws DIDStorageException {
+		changePassword(reEncryptor);
+	}
+
+	/**
+	 * Set the durability mode of the writes. The storage that can not
+	 * flush to the disk ignores it.
+	 *
+	 * @param durability the durability mode
+	 */
+	public default void setDurability(DIDStore.Durability durability) {
+	}
+
+	/**
+	 * Get the durability mode of the writes.
+	 *
+	 * @return the durability mode
+	 */
+	public default DIDStore.Durability getDurability() {
+		return DIDStore.Durability.NONE;
+	}
+
+	/**
+	 * Flush all the pending writes to the disk.
+	 *
+	 * @throws DIDStorageException if an error occurred when flushing the writes
+	 */
+	public default void sync() throws DIDStorageException {
+	}
 }
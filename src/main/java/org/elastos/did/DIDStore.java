@@ -24,6 +24,7 @@ package org.elastos.did;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -37,12 +38,13 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.zip.ZipEntry;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -103,14 +105,20 @@ public final class DIDStore {
 	private Cache<Key, Object> cache;
 
 	private DIDStorage storage;
+	private DIDStoreIndex index;
 	private Metadata metadata;
+	private final AtomicReference<KeySession> session =
+			new AtomicReference<KeySession>();
 
 	/**
 	 * the default conflict handle implementation.
 	 */
 	protected static final ConflictHandle defaultConflictHandle = (c, l) -> {
-		l.getMetadata().setPublishTime(c.getMetadata().getPublishTime());
-		l.getMetadata().setSignature(c.getMetadata().getSignature());
+		DIDMetadata metadata = l.getMetadata();
+		metadata.edit(() -> {
+			metadata.setPublishTime(c.getMetadata().getPublishTime());
+			metadata.setSignature(c.getMetadata().getSignature());
+		});
 		return l;
 	};
 
@@ -253,6 +261,59 @@ public final class DIDStore {
 		DIDDocument merge(DIDDocument chainCopy, DIDDocument localCopy);
 	}
 
+	/**
+	 * The callback to report the progress of a long running store operation.
+	 */
+	@FunctionalInterface
+	public interface ProgressCallback {
+		/**
+		 * Report the progress, called in the thread that runs the operation.
+		 *
+		 * @param processed the number of the processed items
+		 * @param total the total number of the items
+		 */
+		void onProgress(int processed, int total);
+	}
+
+	/**
+	 * The storage backends of the DIDStore.
+	 */
+	public enum StorageType {
+		/**
+		 * The store is a directory, each document, credential, metadata and
+		 * private key is a file in it.
+		 */
+		FILESYSTEM,
+		/**
+		 * The store is a single embedded log-structured file, suitable for
+		 * the large stores with many DIDs.
+		 */
+		EMBEDDED
+	}
+
+	/**
+	 * The durability modes of the store writes. The writes are always
+	 * atomic, a crash never leaves a truncated document or private key, the
+	 * mode decides how many of the latest writes could be lost.
+	 */
+	public enum Durability {
+		/**
+		 * Never flush to the disk explicitly, the system crash may lose the
+		 * latest writes.
+		 */
+		NONE,
+		/**
+		 * Flush every write to the disk before it returns.
+		 */
+		PER_OPERATION,
+		/**
+		 * Journal the writes and flush them together, on every few hundred
+		 * writes, a short delay after the write, sync() and close(). The
+		 * bulk operations pay one flush per group instead of one per file.
+		 */
+		GROUP
+	}
+
 	/**
 	 * A filter for DIDs.
 	 *
@@ -293,6 +354,179 @@ public final class DIDStore {
 		public boolean accept(DIDURL id);
 	}
 
+	/**
+	 * An indexed query for the DIDs in the store.
+	 *
+	 * <p>
+	 * All the given conditions must be satisfied, a query without any
+	 * condition matches all DIDs. Instances of this class may be passed to
+	 * the queryDids(DIDQuery) method of the DIDStore class.
+	 * </p>
+	 */
+	public static class DIDQuery {
+		String alias;
+		String rootIdentity;
+		Date expiresAfter;
+		Date expiresBefore;
+
+		/**
+		 * Match the DIDs with the given alias.
+		 *
+		 * @param alias the alias of the DID
+		 * @return the DIDQuery instance for method chaining
+		 */
+		public DIDQuery alias(String alias) {
+			checkArgument(alias != null && !alias.isEmpty(), "Invalid alias");
+			this.alias = alias;
+			return this;
+		}
+
+		/**
+		 * Match the DIDs derived from the given root identity.
+		 *
+		 * @param id the id of the root identity
+		 * @return the DIDQuery instance for method chaining
+		 */
+		public DIDQuery rootIdentity(String id) {
+			checkArgument(id != null && !id.isEmpty(), "Invalid root identity id");
+			this.rootIdentity = id;
+			return this;
+		}
+
+		/**
+		 * Match the DIDs that expire after the given date.
+		 *
+		 * @param date the date, exclusive
+		 * @return the DIDQuery instance for method chaining
+		 */
+		public DIDQuery expiresAfter(Date date) {
+			checkArgument(date != null, "Invalid date");
+			this.expiresAfter = date;
+			return this;
+		}
+
+		/**
+		 * Match the DIDs that expire before the given date.
+		 *
+		 * @param date the date, exclusive
+		 * @return the DIDQuery instance for method chaining
+		 */
+		public DIDQuery expiresBefore(Date date) {
+			checkArgument(date != null, "Invalid date");
+			this.expiresBefore = date;
+			return this;
+		}
+	}
+
+	/**
+	 * An indexed query for the credentials in the store.
+	 *
+	 * <p>
+	 * All the given conditions must be satisfied, a query without any
+	 * condition matches all credentials. Instances of this class may be
+	 * passed to the queryCredentials(CredentialQuery) method of the DIDStore
+	 * class.
+	 * </p>
+	 */
+	public static class CredentialQuery {
+		DID owner;
+		List<String> types = new ArrayList<String>();
+		DID issuer;
+		DID subject;
+		String alias;
+		Date expiresAfter;
+		Date expiresBefore;
+
+		/**
+		 * Match the credentials owned by the given DID.
+		 *
+		 * @param did the owner's DID
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery owner(DID did) {
+			checkArgument(did != null, "Invalid owner");
+			this.owner = did;
+			return this;
+		}
+
+		/**
+		 * Match the credentials that have all the given types.
+		 *
+		 * @param types the credential types
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery type(String ... types) {
+			checkArgument(types != null && types.length > 0, "Invalid types");
+
+			for (String type : types) {
+				checkArgument(type != null && !type.isEmpty(), "Invalid type");
+				this.types.add(type);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Match the credentials issued by the given DID.
+		 *
+		 * @param did the issuer's DID
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery issuer(DID did) {
+			checkArgument(did != null, "Invalid issuer");
+			this.issuer = did;
+			return this;
+		}
+
+		/**
+		 * Match the credentials about the given subject.
+		 *
+		 * @param did the subject's DID
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery subject(DID did) {
+			checkArgument(did != null, "Invalid subject");
+			this.subject = did;
+			return this;
+		}
+
+		/**
+		 * Match the credentials with the given alias.
+		 *
+		 * @param alias the alias of the credential
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery alias(String alias) {
+			checkArgument(alias != null && !alias.isEmpty(), "Invalid alias");
+			this.alias = alias;
+			return this;
+		}
+
+		/**
+		 * Match the credentials that expire after the given date.
+		 *
+		 * @param date the date, exclusive
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery expiresAfter(Date date) {
+			checkArgument(date != null, "Invalid date");
+			this.expiresAfter = date;
+			return this;
+		}
+
+		/**
+		 * Match the credentials that expire before the given date.
+		 *
+		 * @param date the date, exclusive
+		 * @return the CredentialQuery instance for method chaining
+		 */
+		public CredentialQuery expiresBefore(Date date) {
+			checkArgument(date != null, "Invalid date");
+			this.expiresBefore = date;
+			return this;
+		}
+	}
+
 	private DIDStore(int initialCacheCapacity, int maxCacheCapacity,
 			DIDStorage storage) throws DIDStoreException {
 		if (initialCacheCapacity < 0)
@@ -325,6 +559,7 @@ public final class DIDStore {
 				.build();
 
 		this.storage = storage;
+		this.index = new DIDStoreIndex();
 		this.metadata = storage.loadMetadata();
 		this.metadata.attachStore(this);
 
@@ -333,17 +568,20 @@ public final class DIDStore {
 	}
 
 	/**
-	 * Open a DIDStore instance with given storage location.
+	 * Open a DIDStore instance with given storage location and storage type.
 	 *
-	 * @param location the storage location for the DIDStore
+	 * @param location the storage location for the DIDStore, a directory for
+	 * 		  the FILESYSTEM storage or a file for the EMBEDDED storage
+	 * @param type the storage type
 	 * @param initialCacheCapacity the initial cache capacity
 	 * @param maxCacheCapacity the maximum cache capacity
 	 * @return the DIDStore object
 	 * @throws DIDStoreException if an error occurred when opening the store
 	 */
-	public static DIDStore open(File location,
+	public static DIDStore open(File location, StorageType type,
 			int initialCacheCapacity, int maxCacheCapacity) throws DIDStoreException {
 		checkArgument(location != null, "Invalid store location");
+		checkArgument(type != null, "Invalid storage type");
 		checkArgument(maxCacheCapacity >= initialCacheCapacity, "Invalid cache capacity spec");
 
 		try {
@@ -352,10 +590,68 @@ public final class DIDStore {
 			throw new IllegalArgumentException("Invalid store location", e);
 		}
 
-		DIDStorage storage = new FileSystemStorage(location);
+		DIDStorage storage;
+		switch (type) {
+		case EMBEDDED:
+			storage = new EmbeddedStorage(location);
+			break;
+
+		default:
+			storage = new FileSystemStorage(location);
+			break;
+		}
+
 		return new DIDStore(initialCacheCapacity, maxCacheCapacity, storage);
 	}
 
+	/**
+	 * Open a DIDStore instance with given storage location and storage type.
+	 *
+	 * @param location the storage location for the DIDStore
+	 * @param type the storage type
+	 * @return the DIDStore object
+	 * @throws DIDStoreException if an error occurred when opening the store
+	 */
+	public static DIDStore open(File location, StorageType type)
+			throws DIDStoreException {
+		return open(location, type, CACHE_INITIAL_CAPACITY, CACHE_MAX_CAPACITY);
+	}
+
+	/**
+	 * Open a DIDStore instance with given storage location and storage type.
+	 *
+	 * @param location the storage location for the DIDStore
+	 * @param type the storage type
+	 * @return the DIDStore object
+	 * @throws DIDStoreException if an error occurred when opening the store
+	 */
+	public static DIDStore open(String location, StorageType type)
+			throws DIDStoreException {
+		checkArgument(location != null && !location.isEmpty(), "Invalid store location");
+
+		return open(new File(location), type);
+	}
+
+	/**
+	 * Open a DIDStore instance with given storage location. An existing
+	 * regular file is opened as the EMBEDDED storage, otherwise the
+	 * FILESYSTEM storage.
+	 *
+	 * @param location the storage location for the DIDStore
+	 * @param initialCacheCapacity the initial cache capacity
+	 * @param maxCacheCapacity the maximum cache capacity
+	 * @return the DIDStore object
+	 * @throws DIDStoreException if an error occurred when opening the store
+	 */
+	public static DIDStore open(File location,
+			int initialCacheCapacity, int maxCacheCapacity) throws DIDStoreException {
+		checkArgument(location != null, "Invalid store location");
+
+		StorageType type = location.isFile() ?
+				StorageType.EMBEDDED : StorageType.FILESYSTEM;
+		return open(location, type, initialCacheCapacity, maxCacheCapacity);
+	}
+
 	/**
 	 * Open a DIDStore instance with given storage location.
 	 *
@@ -394,17 +690,158 @@ public final class DIDStore {
 		return open(location, CACHE_INITIAL_CAPACITY, CACHE_MAX_CAPACITY);
 	}
 
+	/**
+	 * Open a DIDStore instance on the given in-memory storage.
+	 *
+	 * @param storage the InMemoryStorage object, an empty one or a restored
+	 * 		  one from a snapshot
+	 * @return the DIDStore object
+	 * @throws DIDStoreException if an error occurred when opening the store
+	 */
+	public static DIDStore openInMemory(InMemoryStorage storage)
+			throws DIDStoreException {
+		checkArgument(storage != null, "Invalid storage");
+
+		return new DIDStore(CACHE_INITIAL_CAPACITY, CACHE_MAX_CAPACITY, storage);
+	}
+
+	/**
+	 * Open a DIDStore instance that keeps everything in the memory.
+	 *
+	 * @return the DIDStore object
+	 * @throws DIDStoreException if an error occurred when opening the store
+	 */
+	public static DIDStore openInMemory() throws DIDStoreException {
+		return openInMemory(new InMemoryStorage());
+	}
+
+	/**
+	 * Set the durability mode of the store writes.
+	 *
+	 * @param durability the durability mode
+	 * @throws DIDStoreException if an error occurred when flushing the
+	 * 		   pending writes
+	 */
+	public void setDurability(Durability durability) throws DIDStoreException {
+		checkArgument(durability != null, "Invalid durability");
+
+		storage.sync();
+		storage.setDurability(durability);
+	}
+
+	/**
+	 * Get the durability mode of the store writes.
+	 *
+	 * @return the durability mode
+	 */
+	public Durability getDurability() {
+		return storage.getDurability();
+	}
+
+	/**
+	 * Flush all the pending writes to the disk.
+	 *
+	 * @throws DIDStoreException if an error occurred when flushing the writes
+	 */
+	public void sync() throws DIDStoreException {
+		storage.sync();
+	}
+
 	/**
 	 * Close this DIDStore object.
 	 */
 	public void close() {
 		// log.verbose("Cache statistics: {}", cache.stats().toString());
+		lock();
 		cache.invalidateAll();
 		cache = null;
 		metadata = null;
+
+		try {
+			storage.sync();
+		} catch (DIDStorageException e) {
+			log.error("Flush the pending writes of the store failed", e);
+		}
+
+		if (storage instanceof Closeable) {
+			try {
+				((Closeable)storage).close();
+			} catch (IOException ignore) {
+			}
+		}
 		storage = null;
 	}
 
+	/**
+	 * Unlock this store for signing with the given password.
+	 *
+	 * <p>
+	 * In the unlocked session, the decrypted private keys are kept in a
+	 * bounded in-memory cache, the signing with the same password will skip
+	 * the decryption. The cached keys are wiped when the session expired,
+	 * or the store locked or closed. Unlock again will replace the current
+	 * session.
+	 * </p>
+	 *
+	 * @param storepass the password for this store
+	 * @param ttl the time to live of the session in milliseconds
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	public void unlock(String storepass, long ttl) throws DIDStoreException {
+		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
+		checkArgument(ttl > 0, "Invalid ttl");
+
+		String fingerprint = metadata.getFingerprint();
+		if (fingerprint != null && !fingerprint.isEmpty() &&
+				!calcFingerprint(storepass).equals(fingerprint))
+			throw new WrongPasswordException("Password mismatched with previous password.");
+
+		KeySession old = session.getAndSet(new KeySession(storepass, ttl));
+		if (old != null)
+			old.close();
+	}
+
+	/**
+	 * Lock this store, wipe the decrypted private keys of the unlocked
+	 * session if exists.
+	 */
+	public void lock() {
+		KeySession s = session.getAndSet(null);
+		if (s != null)
+			s.close();
+	}
+
+	/**
+	 * Check if this store is unlocked and the session not expired.
+	 *
+	 * @return true if the store is unlocked, false otherwise
+	 */
+	public boolean isUnlocked() {
+		return getSession() != null;
+	}
+
+	private KeySession getSession() {
+		KeySession s = session.get();
+		if (s == null)
+			return null;
+
+		// The session closes itself when expired, only drop the reference
+		// here, and never the new session that another thread unlocked
+		if (s.isExpired()) {
+			if (session.compareAndSet(s, null))
+				s.close();
+
+			return null;
+		}
+
+		return s;
+	}
+
+	private KeySession getSession(String storepass) {
+		KeySession s = getSession();
+		return s != null && s.accepts(storepass) ? s : null;
+	}
+
 	private static String calcFingerprint(String password) throws DIDStoreException {
 		// Here should use Argon2, better to avoid the password attack.
 		// But spongycastle library not include the Argon2 implementation,
@@ -777,12 +1214,15 @@ public final class DIDStore {
 		checkArgument(doc != null, "Invalid doc");
 
 		storage.storeDid(doc);
+		index.putDid(doc);
 		if (doc.getStore() != this) {
 			DIDMetadata metadata = loadDidMetadata(doc.getSubject());
 			doc.getMetadata().merge(metadata);
 			storeDidMetadata(doc.getSubject(), doc.getMetadata());
 
 			doc.getMetadata().attachStore(this);
+		} else {
+			index.putDidMetadata(doc.getSubject(), doc.getMetadata());
 		}
 
 		for (VerifiableCredential vc : doc.getCredentials())
@@ -868,6 +1308,7 @@ public final class DIDStore {
 		checkArgument(metadata != null, "Invalid metadata");
 
 		storage.storeDidMetadata(did, metadata);
+		index.putDidMetadata(did, metadata);
 		metadata.attachStore(this);
 
 		cache.put(Key.forDidMetadata(did), metadata);
@@ -923,6 +1364,11 @@ public final class DIDStore {
 		boolean success = storage.deleteDid(did);
 
 		if (success) {
+			index.removeDid(did);
+			KeySession s = session.get();
+			if (s != null)
+				s.invalidate(did);
+
 			cache.invalidate(Key.forDidDocument(did));
 			cache.invalidate(Key.forDidMetadata(did));
 
@@ -1010,6 +1456,7 @@ public final class DIDStore {
 		checkArgument(credential != null, "Invalid credential");
 
 		storage.storeCredential(credential);
+		index.putCredential(credential);
 		if (credential.getMetadata().getStore() != this) {
 			CredentialMetadata metadata = loadCredentialMetadata(credential.getId());
 			credential.getMetadata().merge(metadata);
@@ -1127,6 +1574,7 @@ public final class DIDStore {
 		checkArgument(metadata != null, "Invalid credential metadata");
 
 		storage.storeCredentialMetadata(id, metadata);
+		index.putCredentialMetadata(id, metadata);
 		metadata.attachStore(this);
 
 		cache.put(Key.forCredentialMetadata(id), metadata);
@@ -1177,6 +1625,7 @@ public final class DIDStore {
 
 		boolean success = storage.deleteCredential(id);
 		if (success) {
+			index.removeCredential(id);
 			cache.invalidate(Key.forCredential(id));
 			cache.invalidate(Key.forCredentialMetadata(id));
 		}
@@ -1272,6 +1721,66 @@ public final class DIDStore {
 		return listCredentials(DID.valueOf(did), filter);
 	}
 
+	/**
+	 * Query the DIDs with the secondary indexes of this store.
+	 *
+	 * <p>
+	 * The indexes cover the alias, the root identity and the expiration of
+	 * the DIDs. They are built from the storage on the first query, then
+	 * kept up to date by the store and delete methods of this DIDStore.
+	 * </p>
+	 *
+	 * @param query the query conditions
+	 * @return a sorted list of the matched DIDs
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	public List<DID> queryDids(DIDQuery query) throws DIDStoreException {
+		checkArgument(query != null, "Invalid query");
+
+		index.build(storage);
+
+		List<DID> dids = index.query(query);
+		List<DID> results = new ArrayList<DID>(dids.size());
+		for (DID did : dids) {
+			DID result = new DID(did.getMethod(), did.getMethodSpecificId());
+			result.setMetadata(loadDidMetadata(did));
+			results.add(result);
+		}
+
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Query the credentials with the secondary indexes of this store.
+	 *
+	 * <p>
+	 * The indexes cover the owner, the types, the issuer, the subject, the
+	 * alias and the expiration of the credentials. They are built from the
+	 * storage on the first query, then kept up to date by the store and
+	 * delete methods of this DIDStore.
+	 * </p>
+	 *
+	 * @param query the query conditions
+	 * @return a sorted list of DIDURL denoting the matched credentials
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	public List<DIDURL> queryCredentials(CredentialQuery query)
+			throws DIDStoreException {
+		checkArgument(query != null, "Invalid query");
+
+		index.build(storage);
+
+		List<DIDURL> ids = index.query(query);
+		List<DIDURL> results = new ArrayList<DIDURL>(ids.size());
+		for (DIDURL id : ids) {
+			DIDURL result = new DIDURL(id.getDid(), id);
+			result.setMetadata(loadCredentialMetadata(id));
+			results.add(result);
+		}
+
+		return Collections.unmodifiableList(results);
+	}
+
 	/**
 	 * Save the DID's lazy private key string to the store.
 	 *
@@ -1283,6 +1792,7 @@ public final class DIDStore {
 
 		storage.storePrivateKey(id, DID_LAZY_PRIVATEKEY);
 		cache.put(Key.forDidPrivateKey(id), DID_LAZY_PRIVATEKEY);
+		invalidateSessionKey(id);
 	}
 
 	/**
@@ -1304,6 +1814,13 @@ public final class DIDStore {
 		storage.storePrivateKey(id, encryptedKey);
 
 		cache.put(Key.forDidPrivateKey(id), encryptedKey);
+		invalidateSessionKey(id);
+	}
+
+	private void invalidateSessionKey(DIDURL id) {
+		KeySession s = session.get();
+		if (s != null)
+			s.invalidate(id);
 	}
 
 	/**
@@ -1415,8 +1932,10 @@ public final class DIDStore {
 		checkArgument(id != null, "Invalid private key id");
 
 		boolean success = storage.deletePrivateKey(id);
-		if (success)
+		if (success) {
 			cache.invalidate(Key.forDidPrivateKey(id));
+			invalidateSessionKey(id);
+		}
 
 		return success;
 	}
@@ -1435,6 +1954,11 @@ public final class DIDStore {
 	/**
 	 * Sign the digest using the specified key.
 	 *
+	 * <p>
+	 * If the store is unlocked with the same password, the decrypted key
+	 * will be taken from or kept in the unlocked session.
+	 * </p>
+	 *
 	 * @param id the key id
 	 * @param storepass the password for this store
 	 * @param digest the binary digest in bytes array
@@ -1447,9 +1971,19 @@ public final class DIDStore {
 		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
 		checkArgument(digest != null && digest.length > 0, "Invalid digest");
 
-		HDKey key = HDKey.deserialize(loadPrivateKey(id, storepass));
-		byte[] sig = EcdsaSigner.sign(key.getPrivateKeyBytes(), digest);
-		key.wipe();
+		KeySession s = getSession(storepass);
+		byte[] sk = s != null ? s.get(id) : null;
+		if (sk == null) {
+			HDKey key = HDKey.deserialize(loadPrivateKey(id, storepass));
+			sk = key.getPrivateKeyBytes();
+			key.wipe();
+
+			if (s != null)
+				s.put(id, sk);
+		}
+
+		byte[] sig = EcdsaSigner.sign(sk, digest);
+		Arrays.fill(sk, (byte)0);
 
 		return Base64.encodeToString(sig,
 				Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
@@ -1464,15 +1998,35 @@ public final class DIDStore {
 	 */
 	public void changePassword(String oldPassword, String newPassword)
 			throws DIDStoreException {
+		changePassword(oldPassword, newPassword, null);
+	}
+
+	/**
+	 * Change the password for this store, and report the progress of the
+	 * re-encryption.
+	 *
+	 * <p>
+	 * If the change is interrupted, retry it with the same passwords to
+	 * resume from the entries that already re-encrypted.
+	 * </p>
+	 *
+	 * @param oldPassword the old password
+	 * @param newPassword the new password
+	 * @param callback the progress callback, or null
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	public void changePassword(String oldPassword, String newPassword,
+			ProgressCallback callback) throws DIDStoreException {
 		checkArgument(oldPassword != null && !oldPassword.isEmpty(), "Invalid old password");
 		checkArgument(newPassword != null && !newPassword.isEmpty(), "Invalid new password");
 
 		storage.changePassword((data) -> {
 			return DIDStore.reEncrypt(data, oldPassword, newPassword);
-		});
+		}, callback);
 
 		metadata.setFingerprint(calcFingerprint(newPassword));
 		cache.invalidateAll();
+		lock();
 	}
 
 	/**
@@ -1492,6 +2046,12 @@ public final class DIDStore {
 	 * update the local metadata with the chain copy.
 	 * </p>
 	 *
+	 * <p>
+	 * The DIDs are synchronized in parallel batches by a DIDStoreSynchronizer
+	 * with the default settings, use the DIDStoreSynchronizer directly to
+	 * tune the parallelism, or to get the progress and the checkpoint.
+	 * </p>
+	 *
 	 * @param handle an application defined handle to process the conflict
 	 * 				 between the chain copy and the local copy
 	 * @throws DIDResolveException if an error occurred when resolving DIDs
@@ -1499,64 +2059,126 @@ public final class DIDStore {
 	 */
 	public void synchronize(ConflictHandle handle)
 			throws DIDResolveException, DIDStoreException {
+		new DIDStoreSynchronizer(this).conflictHandle(handle).synchronize();
+	}
+
+	/**
+	 * List the DIDs in the storage, without loading the metadata.
+	 *
+	 * @return a list of the DIDs
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	protected List<DID> listStoredDids() throws DIDStoreException {
+		return storage.listDids();
+	}
 
+	/**
+	 * Synchronize a batch of DIDs and their credentials.
+	 *
+	 * <p>
+	 * The customized DIDs and the credentials of the batch are resolved in
+	 * one batch request each, then merged into the store one by one.
+	 * </p>
+	 *
+	 * @param dids the DIDs to be synchronized
+	 * @param handle an application defined handle to process the conflict
+	 * 				 between the chain copy and the local copy
+	 * @throws DIDResolveException if an error occurred when resolving DIDs
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	protected void synchronize(List<DID> dids, ConflictHandle handle)
+			throws DIDResolveException, DIDStoreException {
 		if (handle == null)
 			handle = defaultConflictHandle;
 
-		List<RootIdentity> identities = listRootIdentities();
-		for (RootIdentity identity : identities) {
-			identity.synchronize(handle);
-		}
-
-		List<DID> dids = storage.listDids();
+		Map<DID, DIDDocument> localDocs = new LinkedHashMap<DID, DIDDocument>();
+		List<DID> customized = new ArrayList<DID>();
 		for (DID did : dids) {
 			DIDDocument localDoc = storage.loadDid(did);
-			if (localDoc.isCustomizedDid()) {
-				DIDDocument resolvedDoc = did.resolve();
-				if (resolvedDoc == null)
-					continue;
+			// Deleted after listed
+			if (localDoc == null)
+				continue;
 
-				DIDDocument finalDoc = resolvedDoc;
-
-				localDoc.getMetadata().detachStore();
-
-				if (localDoc.getSignature().equals(resolvedDoc.getSignature()) ||
-						(localDoc.getMetadata().getSignature() != null &&
-						localDoc.getProof().getSignature().equals(
-								localDoc.getMetadata().getSignature()))) {
-					finalDoc.getMetadata().merge(localDoc.getMetadata());
-				} else {
-					log.debug("{} on-chain copy conflict with local copy.",
-							did.toString());
-
-					// Local copy was modified
-					finalDoc = handle.merge(resolvedDoc, localDoc);
-					if (finalDoc == null || !finalDoc.getSubject().equals(did)) {
-						localDoc.getMetadata().attachStore(this);
-						log.error("Conflict handle merge the DIDDocument error.");
-						throw new DIDStoreException("deal with local modification error.");
-					} else {
-						log.debug("Conflict handle return the final copy.");
-					}
-				}
+			localDocs.put(did, localDoc);
+			if (localDoc.isCustomizedDid())
+				customized.add(did);
+		}
 
-				localDoc.getMetadata().attachStore(this);
+		if (!customized.isEmpty()) {
+			Map<DID, DIDDocument> resolvedDocs =
+					DIDBackend.getInstance().resolveDids(customized);
+
+			for (DID did : customized) {
+				DIDDocument resolvedDoc = resolvedDocs.get(did);
+				if (resolvedDoc == null)
+					continue;
 
-				storage.storeDid(finalDoc);
+				synchronize(localDocs.get(did), resolvedDoc, handle);
 			}
+		}
 
+		Map<DIDURL, VerifiableCredential> localVcs =
+				new LinkedHashMap<DIDURL, VerifiableCredential>();
+		Map<DIDURL, DID> issuers = new LinkedHashMap<DIDURL, DID>();
+		for (DID did : localDocs.keySet()) {
 			List<DIDURL> vcIds = storage.listCredentials(did);
 			for (DIDURL vcId : vcIds) {
 				VerifiableCredential localVc = storage.loadCredential(vcId);
-
-				VerifiableCredential resolvedVc = VerifiableCredential.resolve(vcId, localVc.getIssuer());
-				if (resolvedVc == null)
+				if (localVc == null)
 					continue;
 
-				resolvedVc.getMetadata().merge(localVc.getMetadata());
-				storage.storeCredential(resolvedVc);
+				localVcs.put(vcId, localVc);
+				issuers.put(vcId, localVc.getIssuer());
+			}
+		}
+
+		if (issuers.isEmpty())
+			return;
+
+		Map<DIDURL, VerifiableCredential> resolvedVcs =
+				DIDBackend.getInstance().resolveCredentials(issuers, false);
+		for (DIDURL vcId : localVcs.keySet()) {
+			VerifiableCredential resolvedVc = resolvedVcs.get(vcId);
+			if (resolvedVc == null)
+				continue;
+
+			resolvedVc.getMetadata().merge(localVcs.get(vcId).getMetadata());
+			storage.storeCredential(resolvedVc);
+			index.putCredential(resolvedVc);
+		}
+	}
+
+	private void synchronize(DIDDocument localDoc, DIDDocument resolvedDoc,
+			ConflictHandle handle) throws DIDStoreException {
+		DID did = localDoc.getSubject();
+		DIDDocument finalDoc = resolvedDoc;
+
+		localDoc.getMetadata().detachStore();
+
+		if (localDoc.getSignature().equals(resolvedDoc.getSignature()) ||
+				(localDoc.getMetadata().getSignature() != null &&
+				localDoc.getProof().getSignature().equals(
+						localDoc.getMetadata().getSignature()))) {
+			finalDoc.getMetadata().merge(localDoc.getMetadata());
+		} else {
+			log.debug("{} on-chain copy conflict with local copy.",
+					did.toString());
+
+			// Local copy was modified
+			finalDoc = handle.merge(resolvedDoc, localDoc);
+			if (finalDoc == null || !finalDoc.getSubject().equals(did)) {
+				localDoc.getMetadata().attachStore(this);
+				log.error("Conflict handle merge the DIDDocument error.");
+				throw new DIDStoreException("deal with local modification error.");
+			} else {
+				log.debug("Conflict handle return the final copy.");
 			}
 		}
+
+		localDoc.getMetadata().attachStore(this);
+
+		storage.storeDid(finalDoc);
+		index.putDid(finalDoc);
 	}
 
 	/**
@@ -1585,15 +2207,8 @@ public final class DIDStore {
 	 * @return a new CompletableStage
 	 */
 	public CompletableFuture<Void> synchronizeAsync(ConflictHandle handle) {
-		CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-			try {
-				synchronize(handle);
-			} catch (DIDResolveException | DIDStoreException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return new DIDStoreSynchronizer(this).conflictHandle(handle)
+				.synchronizeAsync();
 	}
 
 	/**
@@ -1732,6 +2347,15 @@ public final class DIDStore {
 			return privatekeys != null ? privatekeys : Collections.emptyList();
 		}
 
+		public void reEncryptPrivateKeys(String exportpass, String storepass)
+				throws DIDStoreException {
+			if (privatekeys == null)
+				return;
+
+			for (PrivateKey sk : privatekeys)
+				sk.key = reEncrypt(sk.key, exportpass, storepass);
+		}
+
 		public void addPrivatekey(DIDURL id, String privatekey, String storepass,
 				String exportpass) throws DIDStoreException {
 			if (this.privatekeys == null)
@@ -1783,7 +2407,7 @@ public final class DIDStore {
 				}
 			}
 
-			bytes = dateFormat.format(created).getBytes();
+			bytes = formatDate(created).getBytes();
 			sha256.update(bytes, 0, bytes.length);
 
 			byte digest[] = new byte[32];
@@ -1849,7 +2473,7 @@ public final class DIDStore {
 		}
 	}
 
-	private DIDExport exportDid(DID did, String password, String storepass)
+	DIDExport exportDid(DID did, String password, String storepass)
 			throws DIDStoreException, IOException {
 		// All objects should load directly from storage,
 		// avoid affects the cached objects.
@@ -2043,24 +2667,33 @@ public final class DIDStore {
 	private void importDid(DIDExport de, String password, String storepass)
 			throws MalformedExportDataException, DIDStoreException, IOException {
 		de.verify(password);
+		de.reEncryptPrivateKeys(password, storepass);
+		importDid(de);
+	}
 
-		// Save
+	// Save the verified export data, the private keys already re-encrypted
+	// with the store password
+	void importDid(DIDExport de) throws DIDStoreException {
 		log.debug("Importing document...");
 		DIDDocument doc = de.document.content;
 		storage.storeDid(doc);
 		storage.storeDidMetadata(doc.getSubject(), doc.getMetadata());
+		index.putDid(doc);
+		index.putDidMetadata(doc.getSubject(), doc.getMetadata());
 
 		List<VerifiableCredential> vcs =  de.getCredentials();
 		for (VerifiableCredential vc : vcs) {
 			log.debug("Importing credential {}...", vc.getId().toString());
 			storage.storeCredential(vc);
 			storage.storeCredentialMetadata(vc.getId(), vc.getMetadata());
+			index.putCredential(vc);
+			index.putCredentialMetadata(vc.getId(), vc.getMetadata());
 		}
 
 		List<DIDExport.PrivateKey> sks = de.getPrivateKeys();
 		for (DIDExport.PrivateKey sk : sks) {
 			log.debug("Importing private key {}...", sk.getId().toString());
-			storage.storePrivateKey(sk.getId(), sk.getKey(password, storepass));
+			storage.storePrivateKey(sk.getId(), sk.key);
 		}
 	}
 
@@ -2261,7 +2894,7 @@ public final class DIDStore {
 			bytes = Boolean.toString(isDefault()).getBytes();
 			sha256.update(bytes, 0, bytes.length);
 
-			bytes = dateFormat.format(created).getBytes();
+			bytes = formatDate(created).getBytes();
 			sha256.update(bytes, 0, bytes.length);
 
 			byte digest[] = new byte[32];
@@ -2304,7 +2937,7 @@ public final class DIDStore {
 		}
 	}
 
-	private RootIdentityExport exportRootIdentity(String id,
+	RootIdentityExport exportRootIdentity(String id,
 			String password, String storepass)
 			throws DIDStoreException {
 		RootIdentityExport rie = new RootIdentityExport(DID_EXPORT);
@@ -2414,7 +3047,7 @@ public final class DIDStore {
 		exportRootIdentity(id, new File(file), password, storepass);
 	}
 
-	private void importRootIdentity(RootIdentityExport rie, String password, String storepass)
+	void importRootIdentity(RootIdentityExport rie, String password, String storepass)
 			throws MalformedExportDataException, DIDStoreException, IOException {
 		rie.verify(password);
 
@@ -2538,23 +3171,7 @@ public final class DIDStore {
 		checkArgument(password != null && !password.isEmpty(), "Invalid password");
 		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
 
-		ZipEntry ze;
-
-		List<RootIdentity> ris = listRootIdentities();
-		for (RootIdentity ri : ris) {
-			ze = new ZipEntry("rootIdentity-" + ri.getId());
-			out.putNextEntry(ze);
-			exportRootIdentity(ri.getId(), out, password, storepass);
-			out.closeEntry();
-		}
-
-		List<DID> dids = listDids();
-		for (DID did : dids) {
-			ze = new ZipEntry(did.getMethodSpecificId());
-			out.putNextEntry(ze);
-			exportDid(did, out, password, storepass);
-			out.closeEntry();
-		}
+		new DIDStoreArchive(this).exportStore(out, password, storepass);
 	}
 
 	/**
@@ -2611,21 +3228,23 @@ public final class DIDStore {
 		checkArgument(password != null && !password.isEmpty(), "Invalid password");
 		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
 
+		new DIDStoreArchive(this).importStore(in, password, storepass);
+	}
+
+	/**
+	 * Check the store password before importing the exported data, and
+	 * take it as the store password if the store has no password yet.
+	 *
+	 * @param storepass the password for this store
+	 * @throws DIDStoreException if the password mismatched
+	 */
+	void checkStorepass(String storepass) throws DIDStoreException {
 		String fingerprint = metadata.getFingerprint();
 		String currentFingerprint = calcFingerprint(storepass);
 
 		if (fingerprint != null && !currentFingerprint.equals(fingerprint))
 			throw new WrongPasswordException("Password mismatched with previous password.");
 
-		ZipEntry ze;
-		while ((ze = in.getNextEntry()) != null) {
-			if (ze.getName().startsWith("rootIdentity"))
-				importRootIdentity(in, password, storepass);
-			else
-				importDid(in, password, storepass);
-			in.closeEntry();
-		}
-
 		if (fingerprint == null || fingerprint.isEmpty())
 			metadata.setFingerprint(currentFingerprint);
 	}
@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.elastos.did.DIDStore.DIDExport;
+import org.elastos.did.DIDStore.RootIdentityExport;
+import org.elastos.did.crypto.EcdsaSigner;
+import org.elastos.did.exception.DIDStoreException;
+import org.elastos.did.exception.DIDSyntaxException;
+import org.elastos.did.exception.MalformedExportDataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * The streaming exporter and importer of a whole DIDStore.
+ *
+ * <p>
+ * The archive has the same format as DIDStore.exportStore(): one zip entry
+ * for each root identity and each DID. The entries are exported or
+ * imported in a bounded window: the workers load, re-encrypt and
+ * serialize (or parse, verify and re-encrypt) the entries in parallel,
+ * while the calling thread writes the entries to the zip (or the store)
+ * in order. So the memory usage is bounded by the window, not the size
+ * of the store.
+ * </p>
+ *
+ * <p>
+ * With a checkpoint file, the importer records the number of the entries
+ * that imported, and a digest chained over the names and the contents of
+ * them. An interrupted import of the same archive resumes from the
+ * checkpoint next time, the checkpoint is deleted when finished. The
+ * skipped entries are checked against the digest when resuming, the
+ * checkpoint is discarded if the archive is a different one: the import
+ * from a zip file starts over, and the import from a zip stream fails,
+ * the retry with a new stream starts over.
+ * </p>
+ */
+public class DIDStoreArchive {
+	private static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	// The in-flight entries for each worker
+	private static final int WINDOW_FACTOR = 4;
+	private static final int CHECKPOINT_INTERVAL = 256;
+	private static final String ROOT_IDENTITY_PREFIX = "rootIdentity-";
+
+	private DIDStore store;
+	private int parallelism;
+	private int level;
+	private DIDStore.ProgressCallback callback;
+	private File checkpoint;
+
+	private static final Logger log = LoggerFactory.getLogger(DIDStoreArchive.class);
+
+	/**
+	 * The entry that is being prepared by the workers, with the chained
+	 * digest of the entries up to it.
+	 */
+	private static class Pending {
+		private final Future<DIDEntity<?>> future;
+		private final byte[] digest;
+
+		Pending(Future<DIDEntity<?>> future, byte[] digest) {
+			this.future = future;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * The checkpoint of an import, the number and the chained digest of
+	 * the imported entries.
+	 */
+	private static class Checkpoint {
+		private final int imported;
+		private final byte[] digest;
+
+		Checkpoint(int imported, byte[] digest) {
+			this.imported = imported;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * The checkpoint is not of the archive that importing.
+	 */
+	private static class CheckpointMismatchException extends DIDStoreException {
+		private static final long serialVersionUID = 5108461286457521563L;
+
+		CheckpointMismatchException() {
+			super("The import checkpoint does not match the archive, discarded");
+		}
+	}
+
+	/**
+	 * Create a DIDStoreArchive for the given store.
+	 *
+	 * @param store the store to export to or import from the archive
+	 */
+	public DIDStoreArchive(DIDStore store) {
+		checkArgument(store != null, "Invalid store");
+
+		this.store = store;
+		this.parallelism = DEFAULT_PARALLELISM;
+		this.level = Deflater.DEFAULT_COMPRESSION;
+	}
+
+	/**
+	 * Set the number of the workers.
+	 *
+	 * @param parallelism the parallelism
+	 * @return this DIDStoreArchive instance for method chaining
+	 */
+	public DIDStoreArchive parallelism(int parallelism) {
+		checkArgument(parallelism > 0, "Invalid parallelism");
+
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Set the deflate compression level of the exported archive.
+	 *
+	 * @param level the compression level, 0-9, or Deflater.DEFAULT_COMPRESSION
+	 * @return this DIDStoreArchive instance for method chaining
+	 */
+	public DIDStoreArchive compressionLevel(int level) {
+		checkArgument(level == Deflater.DEFAULT_COMPRESSION ||
+				(level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+				"Invalid compression level");
+
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * Set the callback to report the number of the exported or imported
+	 * entries.
+	 *
+	 * <p>
+	 * The callback is called from the calling thread. The total is -1 when
+	 * importing from a zip stream, the number of entries is unknown.
+	 * </p>
+	 *
+	 * @param callback the progress callback, or null
+	 * @return this DIDStoreArchive instance for method chaining
+	 */
+	public DIDStoreArchive progress(DIDStore.ProgressCallback callback) {
+		this.callback = callback;
+		return this;
+	}
+
+	/**
+	 * Set the checkpoint file to resume an interrupted import.
+	 *
+	 * @param checkpoint the checkpoint file, or null to always start over
+	 * @return this DIDStoreArchive instance for method chaining
+	 */
+	public DIDStoreArchive checkpoint(File checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+
+	private void report(int processed, int total) {
+		if (callback != null)
+			callback.onProgress(processed, total);
+	}
+
+	private ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(parallelism, (r) -> {
+			Thread t = new Thread(r, "DIDStore-archive");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	private static <T> T get(Future<T> future)
+			throws DIDStoreException, IOException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DIDStoreException("Interrupted while processing the archive", e);
+		}
+	}
+
+	private static DIDEntity<?> getPrepared(Future<DIDEntity<?>> future)
+			throws MalformedExportDataException, DIDStoreException, IOException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MalformedExportDataException)
+				throw (MalformedExportDataException)e.getCause();
+
+			throw rethrow(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DIDStoreException("Interrupted while processing the archive", e);
+		}
+	}
+
+	private static DIDStoreException rethrow(Throwable cause)
+			throws DIDStoreException, IOException {
+		if (cause instanceof DIDStoreException)
+			throw (DIDStoreException)cause;
+		else if (cause instanceof IOException)
+			throw (IOException)cause;
+		else if (cause instanceof RuntimeException)
+			throw (RuntimeException)cause;
+		else if (cause instanceof Error)
+			throw (Error)cause;
+		else
+			return new DIDStoreException(cause);
+	}
+
+	/**
+	 * Export all DID objects of the store to the zip stream.
+	 *
+	 * @param out the zip output stream that the data export to
+	 * @param password the password to encrypt the private keys in the exported data
+	 * @param storepass the password for the store
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 * @throws IOException if an IO error occurred when writing the exported data
+	 */
+	public void exportStore(ZipOutputStream out, String password, String storepass)
+			throws DIDStoreException, IOException {
+		checkArgument(out != null, "Invalid zip output stream");
+		checkArgument(password != null && !password.isEmpty(), "Invalid password");
+		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
+
+		if (level != Deflater.DEFAULT_COMPRESSION)
+			out.setLevel(level);
+
+		List<RootIdentity> ris = store.listRootIdentities();
+		List<DID> dids = store.listStoredDids();
+		int total = ris.size() + dids.size();
+		int processed = 0;
+
+		for (RootIdentity ri : ris) {
+			String json = store.exportRootIdentity(ri.getId(), password, storepass)
+					.serialize();
+			writeEntry(out, ROOT_IDENTITY_PREFIX + ri.getId(), json);
+			report(++processed, total);
+		}
+
+		ExecutorService executor = createExecutor();
+		try {
+			Deque<Future<String>> window = new ArrayDeque<Future<String>>();
+			int next = 0;
+			for (DID did : dids) {
+				while (next < dids.size() && window.size() < parallelism * WINDOW_FACTOR) {
+					DID d = dids.get(next++);
+					window.add(executor.submit(() -> {
+						return store.exportDid(d, password, storepass).serialize(true);
+					}));
+				}
+
+				writeEntry(out, did.getMethodSpecificId(), get(window.poll()));
+				report(++processed, total);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Export all DID objects of the store to the zip file.
+	 *
+	 * @param zipFile the zip file that the data export to
+	 * @param password the password to encrypt the private keys in the exported data
+	 * @param storepass the password for the store
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 * @throws IOException if an IO error occurred when writing the exported data
+	 */
+	public void exportStore(File zipFile, String password, String storepass)
+			throws DIDStoreException, IOException {
+		checkArgument(zipFile != null, "Invalid zip output file");
+
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			exportStore(out, password, storepass);
+		}
+	}
+
+	private static void writeEntry(ZipOutputStream out, String name, String json)
+			throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		out.write(json.getBytes(StandardCharsets.UTF_8));
+		out.closeEntry();
+	}
+
+	/**
+	 * Import the exported DID objects from the zip stream to the store.
+	 *
+	 * @param in the zip input stream for the exported data
+	 * @param password the password for the exported data
+	 * @param storepass the password for the store
+	 * @throws MalformedExportDataException if the exported data is invalid
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 * @throws IOException if an IO error occurred when reading the exported data
+	 */
+	public void importStore(ZipInputStream in, String password, String storepass)
+			throws MalformedExportDataException, DIDStoreException, IOException {
+		importStore(in, -1, password, storepass);
+	}
+
+	/**
+	 * Import the exported DID objects from the zip file to the store.
+	 *
+	 * @param zipFile the zip file for the exported data
+	 * @param password the password for the exported data
+	 * @param storepass the password for the store
+	 * @throws MalformedExportDataException if the exported data is invalid
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 * @throws IOException if an IO error occurred when reading the exported data
+	 */
+	public void importStore(File zipFile, String password, String storepass)
+			throws MalformedExportDataException, DIDStoreException, IOException {
+		checkArgument(zipFile != null, "Invalid zip input file");
+
+		int total;
+		try (ZipFile zip = new ZipFile(zipFile)) {
+			total = zip.size();
+		}
+
+		try (ZipInputStream in = new ZipInputStream(new FileInputStream(zipFile))) {
+			importStore(in, total, password, storepass);
+			return;
+		} catch (CheckpointMismatchException e) {
+			log.warn("The import checkpoint does not match {}, start over", zipFile);
+		}
+
+		// The checkpoint is discarded, read the file again from the start
+		try (ZipInputStream in = new ZipInputStream(new FileInputStream(zipFile))) {
+			importStore(in, total, password, storepass);
+		}
+	}
+
+	// Chain the digest of the previous entries with the entry
+	private static byte[] chain(byte[] digest, String name, byte[] content) {
+		return EcdsaSigner.sha256Digest(digest, name.getBytes(StandardCharsets.UTF_8),
+				new byte[] { 0 }, content);
+	}
+
+	private void importStore(ZipInputStream in, int total, String password,
+			String storepass) throws MalformedExportDataException,
+			DIDStoreException, IOException {
+		checkArgument(in != null, "Invalid zip input stream");
+		checkArgument(password != null && !password.isEmpty(), "Invalid password");
+		checkArgument(storepass != null && !storepass.isEmpty(), "Invalid storepass");
+
+		store.checkStorepass(storepass);
+
+		Checkpoint cp = readCheckpoint();
+		int skip = cp != null ? cp.imported : 0;
+		if (skip > 0)
+			log.info("Resume the import from the entry {}", skip);
+
+		ExecutorService executor = createExecutor();
+		int imported = skip;
+		byte[] digest = new byte[0];
+		byte[] importedDigest = cp != null ? cp.digest : digest;
+		try {
+			Deque<Pending> window = new ArrayDeque<Pending>();
+			int read = 0;
+
+			ZipEntry ze;
+			while ((ze = in.getNextEntry()) != null) {
+				byte[] content = ByteStreams.toByteArray(in);
+				in.closeEntry();
+
+				digest = chain(digest, ze.getName(), content);
+				if (read++ < skip) {
+					// Check the skipped entries are the imported ones
+					if (read == skip && !MessageDigest.isEqual(digest, cp.digest))
+						throw discardCheckpoint();
+
+					continue;
+				}
+
+				boolean rootIdentity = ze.getName().startsWith(ROOT_IDENTITY_PREFIX);
+				String json = new String(content, StandardCharsets.UTF_8);
+
+				window.add(new Pending(executor.submit(
+						prepare(rootIdentity, json, password, storepass)), digest));
+				if (window.size() >= parallelism * WINDOW_FACTOR) {
+					Pending entry = window.poll();
+					imported = importEntry(getPrepared(entry.future), imported,
+							entry.digest, password, storepass);
+					importedDigest = entry.digest;
+					report(imported, total);
+				}
+			}
+
+			if (read < skip)
+				throw discardCheckpoint();
+
+			while (!window.isEmpty()) {
+				Pending entry = window.poll();
+				imported = importEntry(getPrepared(entry.future), imported,
+						entry.digest, password, storepass);
+				importedDigest = entry.digest;
+				report(imported, total);
+			}
+		} catch (CheckpointMismatchException e) {
+			throw e;
+		} catch (MalformedExportDataException | DIDStoreException |
+				IOException | RuntimeException e) {
+			// Keep the imported entries for the resume
+			if (checkpoint != null && imported > skip) {
+				try {
+					store.sync();
+					writeCheckpoint(new Checkpoint(imported, importedDigest));
+				} catch (DIDStoreException ex) {
+					log.error("Save the import checkpoint error", ex);
+				}
+			}
+
+			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// One group commit for the whole import
+		store.sync();
+
+		if (checkpoint != null)
+			checkpoint.delete();
+	}
+
+	// Parse, verify and re-encrypt the entry in the workers
+	private static Callable<DIDEntity<?>> prepare(boolean rootIdentity,
+			String json, String password, String storepass) {
+		return () -> {
+			try {
+				if (rootIdentity)
+					return RootIdentityExport.parse(json, RootIdentityExport.class);
+
+				DIDExport de = DIDExport.parse(json, DIDExport.class);
+				de.verify(password);
+				de.reEncryptPrivateKeys(password, storepass);
+				return de;
+			} catch (DIDSyntaxException e) {
+				throw (MalformedExportDataException)e;
+			}
+		};
+	}
+
+	// Save the prepared entry in order, returns the number of the imported entries
+	private int importEntry(DIDEntity<?> entry, int imported, byte[] digest,
+			String password, String storepass)
+			throws MalformedExportDataException, DIDStoreException, IOException {
+		if (entry instanceof RootIdentityExport)
+			store.importRootIdentity((RootIdentityExport)entry, password, storepass);
+		else
+			store.importDid((DIDExport)entry);
+
+		imported++;
+		if (checkpoint != null && imported % CHECKPOINT_INTERVAL == 0) {
+			// The checkpoint never goes ahead of the imported data
+			store.sync();
+			writeCheckpoint(new Checkpoint(imported, digest));
+		}
+
+		return imported;
+	}
+
+	private CheckpointMismatchException discardCheckpoint() {
+		checkpoint.delete();
+		return new CheckpointMismatchException();
+	}
+
+	// Format: the number of the imported entries, and the hex digest
+	private Checkpoint readCheckpoint() throws DIDStoreException {
+		if (checkpoint == null || !checkpoint.exists())
+			return null;
+
+		String[] values;
+		try {
+			values = new String(Files.readAllBytes(checkpoint.toPath()),
+					StandardCharsets.UTF_8).trim().split(" ");
+		} catch (IOException e) {
+			throw new DIDStoreException("Read the import checkpoint error", e);
+		}
+
+		try {
+			if (values.length == 2)
+				return new Checkpoint(Integer.parseInt(values[0]), Hex.decode(values[1]));
+		} catch (RuntimeException ignore) {
+		}
+
+		// Nothing skipped yet, just start over
+		log.warn("Invalid import checkpoint {}, discarded", checkpoint);
+		checkpoint.delete();
+		return null;
+	}
+
+	private void writeCheckpoint(Checkpoint cp) throws DIDStoreException {
+		try {
+			File tmp = new File(checkpoint.getPath() + ".tmp");
+			String value = cp.imported + " " + Hex.toHexString(cp.digest);
+			Files.write(tmp.toPath(), value.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), checkpoint.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new DIDStoreException("Write the import checkpoint error", e);
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.elastos.did.exception.DIDStoreException;
+
+/**
+ * The in-memory secondary indexes of a DIDStore.
+ *
+ * <p>
+ * The indexes are built from the storage on the first query, then kept
+ * consistent by the DIDStore on every store and delete. All the methods
+ * except the queries are no-op before the indexes are built.
+ * </p>
+ */
+class DIDStoreIndex {
+	private static class DIDEntry {
+		private Date expires;
+		private String alias;
+		private String rootIdentity;
+	}
+
+	private static class CredentialEntry {
+		private List<String> types;
+		private DID issuer;
+		private DID subject;
+		private Date expires;
+		private String alias;
+	}
+
+	private boolean ready;
+
+	private Map<DID, DIDEntry> dids;
+	private Map<String, Set<DID>> didAliases;
+	private Map<String, Set<DID>> rootIdentities;
+	private TreeMap<Date, Set<DID>> didExpirations;
+
+	private Map<DIDURL, CredentialEntry> credentials;
+	private Map<DID, Set<DIDURL>> owners;
+	private Map<String, Set<DIDURL>> types;
+	private Map<DID, Set<DIDURL>> issuers;
+	private Map<DID, Set<DIDURL>> subjects;
+	private Map<String, Set<DIDURL>> credentialAliases;
+	private TreeMap<Date, Set<DIDURL>> credentialExpirations;
+
+	protected DIDStoreIndex() {
+		clear();
+	}
+
+	private void clear() {
+		dids = new HashMap<DID, DIDEntry>();
+		didAliases = new HashMap<String, Set<DID>>();
+		rootIdentities = new HashMap<String, Set<DID>>();
+		didExpirations = new TreeMap<Date, Set<DID>>();
+
+		credentials = new HashMap<DIDURL, CredentialEntry>();
+		owners = new HashMap<DID, Set<DIDURL>>();
+		types = new HashMap<String, Set<DIDURL>>();
+		issuers = new HashMap<DID, Set<DIDURL>>();
+		subjects = new HashMap<DID, Set<DIDURL>>();
+		credentialAliases = new HashMap<String, Set<DIDURL>>();
+		credentialExpirations = new TreeMap<Date, Set<DIDURL>>();
+	}
+
+	private static <K, V> void add(Map<K, Set<V>> index, K key, V value) {
+		if (key != null)
+			index.computeIfAbsent(key, (k) -> new HashSet<V>()).add(value);
+	}
+
+	private static <K, V> void remove(Map<K, Set<V>> index, K key, V value) {
+		if (key == null)
+			return;
+
+		Set<V> values = index.get(key);
+		if (values != null) {
+			values.remove(value);
+			if (values.isEmpty())
+				index.remove(key);
+		}
+	}
+
+	/**
+	 * Build the indexes from the storage if not built yet.
+	 *
+	 * @param storage the storage of the DIDStore
+	 * @throws DIDStoreException if an error occurred when reading the storage
+	 */
+	protected synchronized void build(DIDStorage storage) throws DIDStoreException {
+		if (ready)
+			return;
+
+		clear();
+		ready = true;
+
+		try {
+			for (DID did : storage.listDids()) {
+				DIDDocument doc = storage.loadDid(did);
+				if (doc == null)
+					continue;
+
+				putDid(doc);
+				putDidMetadata(did, storage.loadDidMetadata(did));
+
+				for (DIDURL id : storage.listCredentials(did)) {
+					VerifiableCredential vc = storage.loadCredential(id);
+					if (vc == null)
+						continue;
+
+					putCredential(vc);
+					putCredentialMetadata(id, storage.loadCredentialMetadata(id));
+				}
+			}
+		} catch (DIDStoreException | RuntimeException e) {
+			invalidate();
+			throw e;
+		}
+	}
+
+	/**
+	 * Drop the indexes, they will be rebuilt on the next query.
+	 */
+	protected synchronized void invalidate() {
+		ready = false;
+		clear();
+	}
+
+	protected synchronized void putDid(DIDDocument doc) {
+		if (!ready)
+			return;
+
+		DIDEntry entry = dids.computeIfAbsent(doc.getSubject(), (k) -> new DIDEntry());
+		remove(didExpirations, entry.expires, doc.getSubject());
+		entry.expires = doc.getExpires();
+		add(didExpirations, entry.expires, doc.getSubject());
+	}
+
+	protected synchronized void putDidMetadata(DID did, DIDMetadata metadata) {
+		if (!ready)
+			return;
+
+		DIDEntry entry = dids.get(did);
+		if (entry == null)
+			return;
+
+		remove(didAliases, entry.alias, did);
+		remove(rootIdentities, entry.rootIdentity, did);
+
+		entry.alias = metadata != null ? metadata.getAlias() : null;
+		entry.rootIdentity = metadata != null ? metadata.getRootIdentityId() : null;
+
+		add(didAliases, entry.alias, did);
+		add(rootIdentities, entry.rootIdentity, did);
+	}
+
+	protected synchronized void removeDid(DID did) {
+		if (!ready)
+			return;
+
+		DIDEntry entry = dids.remove(did);
+		if (entry != null) {
+			remove(didExpirations, entry.expires, did);
+			remove(didAliases, entry.alias, did);
+			remove(rootIdentities, entry.rootIdentity, did);
+		}
+
+		Set<DIDURL> ids = owners.get(did);
+		if (ids != null) {
+			for (DIDURL id : new ArrayList<DIDURL>(ids))
+				removeCredential(id);
+		}
+	}
+
+	protected synchronized void putCredential(VerifiableCredential vc) {
+		if (!ready)
+			return;
+
+		DIDURL id = vc.getId();
+		CredentialEntry entry = credentials.get(id);
+		if (entry == null) {
+			entry = new CredentialEntry();
+			credentials.put(id, entry);
+			add(owners, id.getDid(), id);
+		} else {
+			if (entry.types != null) {
+				for (String type : entry.types)
+					remove(types, type, id);
+			}
+			remove(issuers, entry.issuer, id);
+			remove(subjects, entry.subject, id);
+			remove(credentialExpirations, entry.expires, id);
+		}
+
+		entry.types = vc.getType();
+		entry.issuer = vc.getIssuer();
+		entry.subject = vc.getSubject().getId();
+		entry.expires = vc.getExpirationDate();
+
+		for (String type : entry.types)
+			add(types, type, id);
+		add(issuers, entry.issuer, id);
+		add(subjects, entry.subject, id);
+		add(credentialExpirations, entry.expires, id);
+	}
+
+	protected synchronized void putCredentialMetadata(DIDURL id,
+			CredentialMetadata metadata) {
+		if (!ready)
+			return;
+
+		CredentialEntry entry = credentials.get(id);
+		if (entry == null)
+			return;
+
+		remove(credentialAliases, entry.alias, id);
+		entry.alias = metadata != null ? metadata.getAlias() : null;
+		add(credentialAliases, entry.alias, id);
+	}
+
+	protected synchronized void removeCredential(DIDURL id) {
+		if (!ready)
+			return;
+
+		CredentialEntry entry = credentials.remove(id);
+		if (entry == null)
+			return;
+
+		remove(owners, id.getDid(), id);
+		for (String type : entry.types)
+			remove(types, type, id);
+		remove(issuers, entry.issuer, id);
+		remove(subjects, entry.subject, id);
+		remove(credentialExpirations, entry.expires, id);
+		remove(credentialAliases, entry.alias, id);
+	}
+
+	private static <K, V> Set<V> lookup(Map<K, Set<V>> index, K key) {
+		Set<V> values = index.get(key);
+		return values != null ? values : Collections.<V>emptySet();
+	}
+
+	private static <V> Set<V> range(TreeMap<Date, Set<V>> index,
+			Date after, Date before) {
+		NavigableMap<Date, Set<V>> map = index;
+		if (after != null)
+			map = map.tailMap(after, false);
+		if (before != null)
+			map = map.headMap(before, false);
+
+		Set<V> values = new HashSet<V>();
+		for (Set<V> v : map.values())
+			values.addAll(v);
+
+		return values;
+	}
+
+	// Intersect the candidates, start from the smallest one
+	private static <V extends Comparable<V>> List<V> intersect(
+			Collection<V> all, List<Set<V>> candidates) {
+		Set<V> result;
+		if (candidates.isEmpty()) {
+			result = new HashSet<V>(all);
+		} else {
+			candidates.sort((a, b) -> Integer.compare(a.size(), b.size()));
+			result = new HashSet<V>(candidates.get(0));
+			for (int i = 1; i < candidates.size() && !result.isEmpty(); i++)
+				result.retainAll(candidates.get(i));
+		}
+
+		List<V> sorted = new ArrayList<V>(result);
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	protected synchronized List<DID> query(DIDStore.DIDQuery query) {
+		List<Set<DID>> candidates = new ArrayList<Set<DID>>();
+
+		if (query.alias != null)
+			candidates.add(lookup(didAliases, query.alias));
+		if (query.rootIdentity != null)
+			candidates.add(lookup(rootIdentities, query.rootIdentity));
+		if (query.expiresAfter != null || query.expiresBefore != null)
+			candidates.add(range(didExpirations, query.expiresAfter,
+					query.expiresBefore));
+
+		return intersect(dids.keySet(), candidates);
+	}
+
+	protected synchronized List<DIDURL> query(DIDStore.CredentialQuery query) {
+		List<Set<DIDURL>> candidates = new ArrayList<Set<DIDURL>>();
+
+		if (query.owner != null)
+			candidates.add(lookup(owners, query.owner));
+		for (String type : query.types)
+			candidates.add(lookup(types, type));
+		if (query.issuer != null)
+			candidates.add(lookup(issuers, query.issuer));
+		if (query.subject != null)
+			candidates.add(lookup(subjects, query.subject));
+		if (query.alias != null)
+			candidates.add(lookup(credentialAliases, query.alias));
+		if (query.expiresAfter != null || query.expiresBefore != null)
+			candidates.add(range(credentialExpirations, query.expiresAfter,
+					query.expiresBefore));
+
+		return intersect(credentials.keySet(), candidates);
+	}
+}
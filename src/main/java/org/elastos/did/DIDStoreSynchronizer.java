@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.elastos.did.exception.DIDResolveException;
+import org.elastos.did.exception.DIDStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pipelined synchronizer of a DIDStore.
+ *
+ * <p>
+ * The synchronizer first synchronizes the root identities in parallel,
+ * then splits the DIDs of the store into batches. The workers take the
+ * batches one by one, resolve the customized DIDs and the credentials of a
+ * batch in one batch request each, and merge them into the store with the
+ * same rules as DIDStore.synchronize(). The number of the workers is
+ * bounded by the parallelism, the conflict handle is never called
+ * concurrently.
+ * </p>
+ *
+ * <p>
+ * With a checkpoint file, the synchronizer records the DIDs that finished
+ * in order. A cancelled or failed synchronization resumes from the
+ * checkpoint next time, the checkpoint is deleted when finished.
+ * </p>
+ *
+ * <p>
+ * By default the workers run on a thread pool of the synchronizers, not
+ * on the DIDBackend's async executor that the resolves may wait for. The
+ * blocking synchronize() runs the work in the calling thread if called
+ * from a worker of that pool.
+ * </p>
+ */
+public class DIDStoreSynchronizer {
+	private static final int DEFAULT_PARALLELISM = 4;
+	private static final int DEFAULT_BATCH_SIZE = 32;
+
+	private DIDStore store;
+	private Executor executor;
+	private int parallelism;
+	private int batchSize;
+	private DIDStore.ConflictHandle handle;
+	private DIDStore.ProgressCallback callback;
+	private File checkpoint;
+	private volatile boolean cancelled;
+
+	private static final Logger log = LoggerFactory.getLogger(DIDStoreSynchronizer.class);
+
+	// Marks the threads of the default pool
+	private static final ThreadLocal<Boolean> worker =
+			ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+	private static class DefaultExecutorHolder {
+		private static final Executor executor;
+
+		static {
+			int threads = Math.max(DEFAULT_PARALLELISM,
+					Runtime.getRuntime().availableProcessors());
+			ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (r) -> {
+						Thread t = new Thread(() -> {
+							worker.set(Boolean.TRUE);
+							r.run();
+						}, "DIDStoreSynchronizer-worker");
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Work {
+		void run(int index) throws DIDResolveException, DIDStoreException;
+	}
+
+	/**
+	 * Create a DIDStoreSynchronizer that runs on the given executor.
+	 *
+	 * @param store the store to be synchronized
+	 * @param executor the executor for the workers, null to use the
+	 * 		  default pool of the synchronizers
+	 */
+	public DIDStoreSynchronizer(DIDStore store, Executor executor) {
+		checkArgument(store != null, "Invalid store");
+
+		this.store = store;
+		this.executor = executor;
+		this.parallelism = DEFAULT_PARALLELISM;
+		this.batchSize = DEFAULT_BATCH_SIZE;
+	}
+
+	/**
+	 * Create a DIDStoreSynchronizer that runs on the default pool of the
+	 * synchronizers.
+	 *
+	 * @param store the store to be synchronized
+	 */
+	public DIDStoreSynchronizer(DIDStore store) {
+		this(store, null);
+	}
+
+	/**
+	 * Set the maximum number of the concurrent workers.
+	 *
+	 * @param parallelism the parallelism
+	 * @return this DIDStoreSynchronizer instance for method chaining
+	 */
+	public DIDStoreSynchronizer parallelism(int parallelism) {
+		checkArgument(parallelism > 0, "Invalid parallelism");
+
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Set the number of the DIDs that resolved in one batch.
+	 *
+	 * @param batchSize the batch size
+	 * @return this DIDStoreSynchronizer instance for method chaining
+	 */
+	public DIDStoreSynchronizer batchSize(int batchSize) {
+		checkArgument(batchSize > 0, "Invalid batch size");
+
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Set the handle to merge the conflicted chain copy and local copy.
+	 *
+	 * @param handle the conflict handle, null to use the default one that
+	 * 		  keeps the local copy
+	 * @return this DIDStoreSynchronizer instance for method chaining
+	 */
+	public DIDStoreSynchronizer conflictHandle(DIDStore.ConflictHandle handle) {
+		this.handle = handle;
+		return this;
+	}
+
+	/**
+	 * Set the callback to report the number of the synchronized DIDs.
+	 *
+	 * <p>
+	 * The callback is called from the workers, but never concurrently.
+	 * </p>
+	 *
+	 * @param callback the progress callback, or null
+	 * @return this DIDStoreSynchronizer instance for method chaining
+	 */
+	public DIDStoreSynchronizer progress(DIDStore.ProgressCallback callback) {
+		this.callback = callback;
+		return this;
+	}
+
+	/**
+	 * Set the checkpoint file to resume an interrupted synchronization.
+	 *
+	 * @param checkpoint the checkpoint file, or null to always start over
+	 * @return this DIDStoreSynchronizer instance for method chaining
+	 */
+	public DIDStoreSynchronizer checkpoint(File checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+
+	/**
+	 * Cancel the running synchronization. The workers stop after the
+	 * batches in progress, the finished DIDs are kept in the checkpoint.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Check whether the synchronization was cancelled.
+	 *
+	 * @return true if cancelled, false otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private Executor getExecutor() {
+		return executor != null ? executor : DefaultExecutorHolder.executor;
+	}
+
+	/**
+	 * Synchronize the store, and wait for the finish.
+	 *
+	 * <p>
+	 * The caller should not be a thread of the executor that given to this
+	 * synchronizer, waiting there for the work queued to the same executor
+	 * may deadlock.
+	 * </p>
+	 *
+	 * @throws DIDResolveException if an error occurred when resolving DIDs
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 * @throws CancellationException if the synchronization was cancelled
+	 */
+	public void synchronize() throws DIDResolveException, DIDStoreException {
+		// Waiting in a worker for the work queued to the same pool may
+		// deadlock, run the work in the calling thread then
+		Executor runner = executor == null && worker.get() ? Runnable::run : getExecutor();
+
+		try {
+			start(runner).get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DIDResolveException)
+				throw (DIDResolveException)cause;
+			else if (cause instanceof DIDStoreException)
+				throw (DIDStoreException)cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if (cause instanceof Error)
+				throw (Error)cause;
+			else
+				throw new DIDStoreException(cause);
+		} catch (InterruptedException e) {
+			cancel();
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while synchronizing");
+		}
+	}
+
+	/**
+	 * Synchronize the store in asynchronous mode. Cancel the returned
+	 * future to cancel the synchronization.
+	 *
+	 * @return a new CompletableStage
+	 */
+	public CompletableFuture<Void> synchronizeAsync() {
+		return start(getExecutor());
+	}
+
+	private CompletableFuture<Void> start(Executor executor) {
+		cancelled = false;
+
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		future.whenComplete((v, e) -> {
+			if (future.isCancelled())
+				cancel();
+		});
+
+		new Run(future, executor).start();
+		return future;
+	}
+
+	private class Run {
+		private final CompletableFuture<Void> future;
+		private final Executor executor;
+		private final AtomicReference<Throwable> error;
+		// The conflict handle that never called concurrently
+		private final DIDStore.ConflictHandle handle;
+
+		private List<DID> dids;
+		private int batches;
+		private int total;
+		// Guarded by this
+		private boolean[] finished;
+		private int checkpointed;
+		private int processed;
+
+		private Run(CompletableFuture<Void> future, Executor executor) {
+			DIDStore.ConflictHandle h = DIDStoreSynchronizer.this.handle;
+			if (h == null)
+				h = DIDStore.defaultConflictHandle;
+			DIDStore.ConflictHandle merger = h;
+
+			this.future = future;
+			this.executor = executor;
+			this.error = new AtomicReference<Throwable>();
+			this.handle = (c, l) -> {
+				synchronized (this) {
+					return merger.merge(c, l);
+				}
+			};
+		}
+
+		private boolean isStopped() {
+			return cancelled || error.get() != null;
+		}
+
+		private void fail(Throwable e) {
+			if (error.compareAndSet(null, e))
+				log.error("Synchronize DID store error", e);
+		}
+
+		private void execute(Runnable task) {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				fail(e);
+				task.run();
+			}
+		}
+
+		private void start() {
+			execute(() -> {
+				try {
+					String last = readCheckpoint();
+					if (last == null) {
+						List<RootIdentity> identities = store.listRootIdentities();
+						parallel(identities.size(),
+								(i) -> identities.get(i).synchronize(handle),
+								() -> synchronizeDids(null));
+					} else {
+						log.info("Resume the synchronization after {}",
+								last.isEmpty() ? "root identities" : last);
+						synchronizeDids(last);
+					}
+				} catch (Throwable e) {
+					fail(e);
+					finish();
+				}
+			});
+		}
+
+		/*
+		 * Run the work on up to parallelism workers, the last finished
+		 * worker runs the next step, or finishes if failed or cancelled.
+		 */
+		private void parallel(int count, Work work, Runnable next) {
+			if (count == 0 || isStopped()) {
+				if (isStopped())
+					finish();
+				else
+					next.run();
+
+				return;
+			}
+
+			AtomicInteger index = new AtomicInteger();
+			int workers = Math.min(parallelism, count);
+			AtomicInteger running = new AtomicInteger(workers);
+
+			Runnable worker = () -> {
+				int i;
+				while (!isStopped() && (i = index.getAndIncrement()) < count) {
+					try {
+						work.run(i);
+					} catch (Throwable e) {
+						fail(e);
+					}
+				}
+
+				if (running.decrementAndGet() == 0) {
+					if (isStopped())
+						finish();
+					else
+						next.run();
+				}
+			};
+
+			for (int i = 0; i < workers; i++)
+				execute(worker);
+		}
+
+		private void synchronizeDids(String last) {
+			try {
+				// Record the root identities finished, keep the resume point
+				// if resuming
+				if (last == null)
+					writeCheckpoint("");
+
+				List<DID> all = store.listStoredDids();
+				Collections.sort(all);
+
+				dids = new ArrayList<DID>(all.size());
+				if (last == null || last.isEmpty()) {
+					dids.addAll(all);
+				} else {
+					DID lastDid = DID.valueOf(last);
+					for (DID did : all) {
+						if (did.compareTo(lastDid) > 0)
+							dids.add(did);
+					}
+				}
+
+				total = all.size();
+				processed = total - dids.size();
+				batches = (dids.size() + batchSize - 1) / batchSize;
+				finished = new boolean[batches];
+				checkpointed = 0;
+
+				log.info("Synchronizing {} DIDs in {} batches...", dids.size(), batches);
+				parallel(batches, this::synchronizeBatch, this::finish);
+			} catch (Throwable e) {
+				fail(e);
+				finish();
+			}
+		}
+
+		private void synchronizeBatch(int batch)
+				throws DIDResolveException, DIDStoreException {
+			int from = batch * batchSize;
+			int to = Math.min(from + batchSize, dids.size());
+
+			store.synchronize(dids.subList(from, to), handle);
+
+			synchronized (this) {
+				finished[batch] = true;
+				processed += to - from;
+
+				// Advance the checkpoint over the finished batches in order
+				int last = checkpointed;
+				while (checkpointed < batches && finished[checkpointed])
+					checkpointed++;
+
+				if (checkpointed > last) {
+					int end = Math.min(checkpointed * batchSize, dids.size());
+					writeCheckpoint(dids.get(end - 1).toString());
+				}
+
+				if (callback != null)
+					callback.onProgress(processed, total);
+			}
+		}
+
+		private void finish() {
+			Throwable e = error.get();
+			if (e == null && cancelled)
+				e = new CancellationException("Synchronization cancelled");
+
+			if (e == null) {
+				if (checkpoint != null)
+					checkpoint.delete();
+
+				future.complete(null);
+			} else {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private String readCheckpoint() throws DIDStoreException {
+		if (checkpoint == null || !checkpoint.exists())
+			return null;
+
+		try {
+			return new String(Files.readAllBytes(checkpoint.toPath()),
+					StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			throw new DIDStoreException("Read the synchronize checkpoint error", e);
+		}
+	}
+
+	private void writeCheckpoint(String last) throws DIDStoreException {
+		if (checkpoint == null)
+			return;
+
+		try {
+			File tmp = new File(checkpoint.getPath() + ".tmp");
+			Files.write(tmp.toPath(), last.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), checkpoint.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new DIDStoreException("Write the synchronize checkpoint error", e);
+		}
+	}
+}
@@ -33,9 +33,7 @@ import java.util.Map;
 import org.elastos.did.DIDEntity.SerializeContext;
 import org.elastos.did.VerifiableCredential.Proof;
 import org.elastos.did.exception.MalformedDIDURLException;
-import org.elastos.did.parser.DIDURLBaseListener;
-import org.elastos.did.parser.DIDURLParser;
-import org.elastos.did.parser.ParserHelper;
+import org.elastos.did.parser.DIDURLScanner;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
@@ -65,6 +63,10 @@ public class DIDURL implements Comparable<DIDURL> {
 	private Map<String, String> query;
 	private String fragment;
 
+	// The cached hash code and string representation
+	private int hash;
+	private String repr;
+
 	private AbstractMetadata metadata;
 
 	/**
@@ -93,7 +95,7 @@ public class DIDURL implements Comparable<DIDURL> {
 		}
 
 		try {
-			ParserHelper.parse(url, false, new Listener());
+			DIDURLScanner.scan(url, false, new Listener());
 
 			if (parameters == null || parameters.isEmpty())
 				parameters = Collections.emptyMap();
@@ -221,6 +223,8 @@ public class DIDURL implements Comparable<DIDURL> {
 	 */
 	protected void setDid(DID did) {
 		this.did = did;
+		this.hash = 0;
+		this.repr = null;
 	}
 
 	private String mapToString(Map<String, String> map, String sep) {
@@ -402,7 +406,10 @@ public class DIDURL implements Comparable<DIDURL> {
 	 */
 	@Override
 	public String toString() {
-		return toString(null);
+		if (repr == null)
+			repr = IdentifierPool.intern(toString(null));
+
+		return repr;
 	}
 
 	/**
@@ -465,13 +472,17 @@ public class DIDURL implements Comparable<DIDURL> {
 	 */
 	@Override
 	public int hashCode() {
-		int hash = did.hashCode();
-		hash += mapHashCode(parameters);
-		hash += path == null ? 0 : path.hashCode();
-		hash += mapHashCode(query);
-		hash += fragment == null ? 0 : fragment.hashCode();
+		int h = hash;
+		if (h == 0) {
+			h = did.hashCode();
+			h += mapHashCode(parameters);
+			h += path == null ? 0 : path.hashCode();
+			h += mapHashCode(query);
+			h += fragment == null ? 0 : fragment.hashCode();
+			hash = h;
+		}
 
-		return hash;
+		return h;
 	}
 
 	static class Serializer extends StdSerializer<DIDURL> {
@@ -540,90 +551,43 @@ public class DIDURL implements Comparable<DIDURL> {
 		}
 	}
 
-	class Listener extends DIDURLBaseListener {
-		private String name;
-		private String value;
-
+	class Listener implements DIDURLScanner.Handler {
 		@Override
-		public void exitMethod(DIDURLParser.MethodContext ctx) {
-			String method = ctx.getText();
+		public void did(String method, String methodSpecificId) {
 			if (!method.equals(DID.METHOD))
 				throw new IllegalArgumentException("Unknown method: " + method);
 
-			name = method;
-		}
-
-		@Override
-		public void exitMethodSpecificString(
-				DIDURLParser.MethodSpecificStringContext ctx) {
-			value = ctx.getText();
-		}
-
-		@Override
-		public void exitDid(DIDURLParser.DidContext ctx) {
-			did = new DID(name, value);
-			name = null;
-			value = null;
+			did = new DID(method, methodSpecificId);
 		}
 
 		@Override
-		public void exitParamMethod(DIDURLParser.ParamMethodContext ctx) {
-			String method = ctx.getText();
-			if (!method.equals(DID.METHOD))
+		public void param(String method, String name, String value) {
+			if (method != null && !method.equals(DID.METHOD))
 				throw new IllegalArgumentException(
 						"Unknown parameter method: " + method);
-		}
-
-		@Override
-		public void exitParamQName(DIDURLParser.ParamQNameContext ctx) {
-			name = ctx.getText();
-		}
 
-		@Override
-		public void exitParamValue(DIDURLParser.ParamValueContext ctx) {
-			value = ctx.getText();
-		}
-
-		@Override
-		public void exitParam(DIDURLParser.ParamContext ctx) {
 			if (parameters == null)
 				parameters = new LinkedHashMap<String, String>(8);
 
 			parameters.put(name, value);
-
-			name = null;
-			value = null;
 		}
 
 		@Override
-		public void exitPath(DIDURLParser.PathContext ctx) {
-			path = "/" + ctx.getText();
+		public void path(String path) {
+			DIDURL.this.path = IdentifierPool.intern(path);
 		}
 
 		@Override
-		public void exitQueryParamName(DIDURLParser.QueryParamNameContext ctx) {
-			name = ctx.getText();
-		}
-
-		@Override
-		public void exitQueryParamValue(DIDURLParser.QueryParamValueContext ctx) {
-			value = ctx.getText();
-		}
-
-		@Override
-		public void exitQueryParam(DIDURLParser.QueryParamContext ctx) {
+		public void query(String name, String value) {
 			if (query == null)
 				query = new LinkedHashMap<String, String>(8);
 
 			query.put(name, value);
-
-			name = null;
-			value = null;
 		}
 
 		@Override
-		public void exitFrag(DIDURLParser.FragContext ctx) {
-			fragment = ctx.getText();
+		public void fragment(String fragment) {
+			DIDURL.this.fragment = IdentifierPool.intern(fragment);
 		}
 	}
 
@@ -26,16 +26,18 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.elastos.did.exception.DIDResolveException;
 import org.elastos.did.exception.DIDTransactionException;
 import org.elastos.did.exception.NetworkException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * The default DIDAdapter implementation for the Elastos ID chain.
@@ -45,22 +47,65 @@ import org.slf4j.LoggerFactory;
  * ID transactions with this adapter. The sub class can implement the
  * createIdTransaction method to support publish capability.
  * </p>
+ *
+ * <p>
+ * The HTTP requests are sent through a HttpTransport, the default is a
+ * keep-alive PooledHttpTransport. Use HttpTransport.newHttp2Transport() on
+ * Java 11 or later for the HTTP/2 capable resolvers.
+ * </p>
+ *
+ * <p>
+ * The asynchronous resolves are non-blocking with the Http2Transport. The
+ * blocking transports perform the asynchronous requests on the adapter's
+ * executor, which is a shared daemon thread pool by default.
+ * </p>
+ *
+ * <p>
+ * The sub classes that override resolve() or performRequest() are honored
+ * by the asynchronous resolves too: the overridden method runs on the
+ * adapter's executor instead of the transport's asynchronous request.
+ * </p>
  */
-public class DefaultDIDAdapter implements DIDAdapter {
+public class DefaultDIDAdapter implements AsyncDIDAdapter {
 	private static final String MAINNET_RESOLVER = "https://api.elastos.io/eid";
 	private static final String TESTNET_RESOLVER = "https://api-testnet.elastos.io/eid";
 
+	private static final int DEFAULT_EXECUTOR_THREADS = 16;
+
 	private URL resolver;
+	private HttpTransport transport;
+	private volatile Executor executor;
 
-	private static final Logger log = LoggerFactory.getLogger(DefaultDIDAdapter.class);
+	// The sub class customized the blocking requests
+	private final boolean customResolve;
+	private final boolean customRequest;
+
+	private static class DefaultExecutorHolder {
+		private static final Executor executor;
+
+		static {
+			ThreadPoolExecutor tpe = new ThreadPoolExecutor(
+					DEFAULT_EXECUTOR_THREADS, DEFAULT_EXECUTOR_THREADS,
+					60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (r) -> {
+						Thread t = new Thread(r, "DefaultDIDAdapter-request");
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+		}
+	}
 
 	/**
-	 * Create a DefaultDIDAdapter instance with given resolver endpoint.
+	 * Create a DefaultDIDAdapter instance with given resolver endpoint and
+	 * HTTP transport.
 	 *
 	 * @param resolver the resolver url string
+	 * @param transport the HttpTransport object
 	 */
-	public DefaultDIDAdapter(String resolver) {
+	public DefaultDIDAdapter(String resolver, HttpTransport transport) {
 		checkArgument(resolver != null && !resolver.isEmpty(), "Invalid resolver URL");
+		checkArgument(transport != null, "Invalid transport");
 
 		switch (resolver.toLowerCase()) {
 		case "mainnet":
@@ -77,16 +122,88 @@ public class DefaultDIDAdapter implements DIDAdapter {
 		} catch (MalformedURLException e) {
 			throw new IllegalArgumentException("Invalid resolver URL", e);
 		}
+
+		this.transport = transport;
+		this.customResolve = isOverridden("resolve", String.class);
+		this.customRequest = isOverridden("performRequest", URL.class, String.class);
 	}
 
 	/**
 	 * Create a DefaultDIDAdapter instance with given resolver endpoint.
 	 *
+	 * @param resolver the resolver url string
+	 */
+	public DefaultDIDAdapter(String resolver) {
+		this(resolver, new PooledHttpTransport());
+	}
+
+	/**
+	 * Create a DefaultDIDAdapter instance with given resolver endpoint and
+	 * HTTP transport.
+	 *
 	 * @param resolver the resolver URL object
+	 * @param transport the HttpTransport object
 	 */
-	public DefaultDIDAdapter(URL resolver) {
+	public DefaultDIDAdapter(URL resolver, HttpTransport transport) {
 		checkArgument(resolver != null, "Invalid resolver URL");
+		checkArgument(transport != null, "Invalid transport");
+
 		this.resolver = resolver;
+		this.transport = transport;
+		this.customResolve = isOverridden("resolve", String.class);
+		this.customRequest = isOverridden("performRequest", URL.class, String.class);
+	}
+
+	/**
+	 * Create a DefaultDIDAdapter instance with given resolver endpoint.
+	 *
+	 * @param resolver the resolver URL object
+	 */
+	public DefaultDIDAdapter(URL resolver) {
+		this(resolver, new PooledHttpTransport());
+	}
+
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		for (Class<?> clazz = getClass(); clazz != DefaultDIDAdapter.class;
+				clazz = clazz.getSuperclass()) {
+			try {
+				clazz.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException ignore) {
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Get the HTTP transport of this adapter.
+	 *
+	 * @return the HttpTransport object
+	 */
+	public HttpTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Set the executor that performs the asynchronous requests when the
+	 * transport is blocking.
+	 *
+	 * @param executor the Executor object, null to use the default one
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Get the executor that performs the asynchronous requests when the
+	 * transport is blocking.
+	 *
+	 * @return the Executor object
+	 */
+	public Executor getExecutor() {
+		Executor e = executor;
+		return e != null ? e : DefaultExecutorHolder.executor;
 	}
 
 	/**
@@ -98,27 +215,36 @@ public class DefaultDIDAdapter implements DIDAdapter {
 	 * @throws IOException if an error occurred when processing the request
 	 */
 	protected InputStream performRequest(URL url, String body) throws IOException {
-		HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-		connection.setRequestMethod("POST");
-		connection.setRequestProperty("User-Agent",
-				"Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11");
-		connection.setRequestProperty("Content-Type", "application/json");
-		connection.setRequestProperty("Accept", "application/json");
-		connection.setDoOutput(true);
-		connection.connect();
-
-		OutputStream os = connection.getOutputStream();
-		os.write(body.getBytes());
-		os.close();
-
-		int code = connection.getResponseCode();
-		if (code < 200 || code > 299) {
-			log.error("HTTP request error, status: {}, message: {}",
-					code, connection.getResponseMessage());
-			throw new IOException("HTTP error with status: " + code);
-		}
+		return transport.post(url, body);
+	}
+
+	/**
+	 * Perform a HTTP POST request with given request body to the url in
+	 * asynchronous mode.
+	 *
+	 * <p>
+	 * The default implementation sends the request through the transport's
+	 * asynchronous request, or runs performRequest() on the adapter's
+	 * executor if the sub class overrides it.
+	 * </p>
+	 *
+	 * @param url the target HTTP endpoint
+	 * @param body the request body
+	 * @return a new CompletableStage, the result is the input stream object
+	 * 		   of the response body
+	 */
+	protected CompletableFuture<InputStream> performRequestAsync(URL url,
+			String body) {
+		if (!customRequest)
+			return transport.postAsync(url, body, getExecutor());
 
-		return connection.getInputStream();
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return performRequest(url, body);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, getExecutor());
 	}
 
 	/**
@@ -135,6 +261,33 @@ public class DefaultDIDAdapter implements DIDAdapter {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<InputStream> resolveAsync(String request) {
+		checkArgument(request != null && !request.isEmpty(), "Invalid request");
+
+		if (customResolve) {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return resolve(request);
+				} catch (DIDResolveException e) {
+					throw new CompletionException(e);
+				}
+			}, getExecutor());
+		}
+
+		return performRequestAsync(resolver, request).handle((is, e) -> {
+			if (e == null)
+				return is;
+
+			Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+			throw new CompletionException(cause instanceof IOException ?
+					new NetworkException("Network error.", cause) : cause);
+		});
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -143,4 +296,25 @@ public class DefaultDIDAdapter implements DIDAdapter {
 			throws DIDTransactionException {
 		throw new UnsupportedOperationException("Not implemented");
 	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * The default implementation performs the blocking createIdTransaction()
+	 * on the adapter's executor, so the sub classes which implemented the
+	 * publish capability support the asynchronous mode too.
+	 * </p>
+	 */
+	@Override
+	public CompletableFuture<Void> createIdTransactionAsync(String payload,
+			String memo) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				createIdTransaction(payload, memo);
+			} catch (DIDTransactionException e) {
+				throw new CompletionException(e);
+			}
+		}, getExecutor());
+	}
 }
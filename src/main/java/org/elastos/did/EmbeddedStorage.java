@@ -0,0 +1,958 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.elastos.did.exception.DIDStorageException;
+import org.elastos.did.exception.DIDStoreException;
+import org.elastos.did.exception.DIDSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Embedded DID Store: single file layout
+ *
+ *  - header							[magic(4) | version(4)]
+ *  - batch 0							[length(4) | crc32(4) | count(4) | ops]
+ *    - op 0							[type(1) | key length(4) | key | value length(4) | value]
+ *    - ...
+ *    - op N							[A delete op has no value length and value]
+ *  - ...
+ *  - batch N
+ *
+ * The keys follow the FileSystemStorage layout, as the relative file paths:
+ *
+ *  - .metadata							[DIDStore metadata]
+ *  - roots/xxxxxxx0/.metadata			[RootIdentity metadata]
+ *  - roots/xxxxxxx0/mnemonic			[Encrypted mnemonic, OPTIONAL]
+ *  - roots/xxxxxxx0/private			[Encrypted root private key]
+ *  - roots/xxxxxxx0/public				[Pre-derived public key]
+ *  - roots/xxxxxxx0/index				[Last derive index]
+ *  - ids/ixxxxxxxxxxxxxxx0/.metadata	[Meta for DID, json format, OPTIONAL]
+ *  - ids/ixxxxxxxxxxxxxxx0/document	[DID document, json format]
+ *  - ids/ixxxxxxxxxxxxxxx0/credentials/credential-id-0/.metadata
+ *  - ids/ixxxxxxxxxxxxxxx0/credentials/credential-id-0/credential
+ *  - ids/ixxxxxxxxxxxxxxx0/privatekeys/privatekey-id-0
+ *
+ * All the writes of one storage operation are appended as one batch, the
+ * batch is the unit of the crash recovery: a batch that is truncated or fails
+ * the CRC check is dropped with everything after it when opening the store.
+ * The keys are indexed in a sorted in-memory map that points to the values
+ * in the file, so the lookups are O(log n) and the DID or credential listings
+ * are prefix scans. The file is compacted to the live values when the stale
+ * values take more than half of it.
+ */
+class EmbeddedStorage implements DIDStorage, Closeable {
+	private static final int MAGIC = 0x0D1D0E5D;
+	private static final int VERSION = 1;
+
+	// magic + version
+	private static final int HEADER_SIZE = 8;
+	// length + crc + count
+	private static final int BATCH_HEADER_SIZE = 12;
+
+	private static final byte OP_PUT = 1;
+	private static final byte OP_DELETE = 2;
+
+	private static final long COMPACT_THRESHOLD = 4 * 1024 * 1024;
+
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private static final char SEPARATOR = '/';
+
+	private static final String ROOT_IDENTITIES_PREFIX = "roots/";
+
+	private static final String ROOT_IDENTITY_MNEMONIC = "mnemonic";
+	private static final String ROOT_IDENTITY_PRIVATEKEY = "private";
+	private static final String ROOT_IDENTITY_PUBLICKEY = "public";
+	private static final String ROOT_IDENTITY_INDEX = "index";
+
+	private static final String DIDS_PREFIX = "ids/";
+	private static final String DOCUMENT = "document";
+
+	private static final String CREDENTIALS = "credentials";
+	private static final String CREDENTIAL = "credential";
+
+	private static final String PRIVATEKEYS = "privatekeys";
+
+	private static final String METADATA = ".metadata";
+
+	private File file;
+	private DIDStore.Durability durability;
+	private GroupCommit groupCommit;
+	private FileChannel channel;
+	private long size;
+	private long live;
+	private TreeMap<String, Value> index;
+
+	private static final Logger log = LoggerFactory.getLogger(EmbeddedStorage.class);
+
+	/**
+	 * The location of a live value in the store file.
+	 */
+	private static class Value {
+		private final long offset;
+		private final int length;
+		// The bytes of the op that holds the value
+		private final int cost;
+
+		Value(long offset, int length, int cost) {
+			this.offset = offset;
+			this.length = length;
+			this.cost = cost;
+		}
+	}
+
+	/**
+	 * The writes that append to the store file together.
+	 */
+	private class Batch {
+		private Map<String, String> ops = new LinkedHashMap<String, String>();
+
+		void put(String key, String value) {
+			ops.put(key, value);
+		}
+
+		void delete(String key) {
+			if (index.containsKey(key))
+				ops.put(key, null);
+		}
+
+		boolean deletePrefix(String prefix) {
+			boolean deleted = false;
+			for (String key : scan(prefix).keySet()) {
+				ops.put(key, null);
+				deleted = true;
+			}
+
+			return deleted;
+		}
+
+		void commit() throws IOException {
+			if (ops.isEmpty())
+				return;
+
+			List<byte[]> keys = new ArrayList<byte[]>(ops.size());
+			List<byte[]> values = new ArrayList<byte[]>(ops.size());
+			int length = 4;
+			for (Map.Entry<String, String> op : ops.entrySet()) {
+				byte[] key = op.getKey().getBytes(StandardCharsets.UTF_8);
+				byte[] value = op.getValue() == null ? null :
+						op.getValue().getBytes(StandardCharsets.UTF_8);
+				keys.add(key);
+				values.add(value);
+				length += opSize(key, value);
+			}
+
+			ByteBuffer buf = ByteBuffer.allocate(BATCH_HEADER_SIZE - 4 + length);
+			buf.putInt(length);
+			buf.putInt(0); // crc placeholder
+			buf.putInt(ops.size());
+
+			long base = size;
+			Map<String, Value> updates = new LinkedHashMap<String, Value>();
+			int i = 0;
+			for (String k : ops.keySet()) {
+				byte[] key = keys.get(i);
+				byte[] value = values.get(i);
+				i++;
+
+				int start = buf.position();
+				buf.put(value == null ? OP_DELETE : OP_PUT);
+				buf.putInt(key.length);
+				buf.put(key);
+				if (value != null) {
+					buf.putInt(value.length);
+					long offset = base + buf.position();
+					buf.put(value);
+					updates.put(k, new Value(offset, value.length, buf.position() - start));
+				} else {
+					updates.put(k, null);
+				}
+			}
+
+			ByteBuffer body = buf.duplicate();
+			body.position(BATCH_HEADER_SIZE - 4);
+			body.limit(buf.capacity());
+			buf.putInt(4, crc32(body));
+			buf.flip();
+
+			try {
+				write(channel, buf, base);
+				if (durability == DIDStore.Durability.PER_OPERATION)
+					channel.force(false);
+				else if (durability == DIDStore.Durability.GROUP)
+					groupCommit.written();
+			} catch (IOException e) {
+				// Drop the partial or not committed batch, or the recovery
+				// will drop it, the size and the index are not updated yet
+				try {
+					channel.truncate(base);
+				} catch (IOException ignore) {
+				}
+
+				throw e;
+			}
+
+			size = base + buf.limit();
+
+			for (Map.Entry<String, Value> update : updates.entrySet()) {
+				Value old = update.getValue() != null ?
+						index.put(update.getKey(), update.getValue()) :
+						index.remove(update.getKey());
+				if (old != null)
+					live -= old.cost;
+				if (update.getValue() != null)
+					live += update.getValue().cost;
+			}
+
+			if (size - live > COMPACT_THRESHOLD && size - live > live) {
+				try {
+					rewrite(null);
+				} catch (IOException | DIDStoreException e) {
+					// The batch already committed, compact next time
+					log.warn("Compact DID store {} failed", file.getAbsolutePath(), e);
+				}
+			}
+		}
+	}
+
+	protected EmbeddedStorage(File file) throws DIDStorageException {
+		this(file, true);
+	}
+
+	/**
+	 * Open or create an embedded store file.
+	 *
+	 * @param file the store file
+	 * @param sync true to flush every batch to the disk, false to flush on
+	 * 		  close only, for the bulk loads that can restart from scratch
+	 * @throws DIDStorageException if the file is not a DID store or an error
+	 * 		   occurred when opening it
+	 */
+	EmbeddedStorage(File file, boolean sync) throws DIDStorageException {
+		this.file = file;
+		this.durability = sync ? DIDStore.Durability.PER_OPERATION :
+				DIDStore.Durability.NONE;
+		this.groupCommit = new GroupCommit(this, () -> {
+			if (channel != null)
+				channel.force(false);
+		});
+
+		if (file.isDirectory()) {
+			log.error("Path {} not a file", file.getAbsolutePath());
+			throw new DIDStorageException("Invalid DIDStore \""
+					+ file.getAbsolutePath() + "\".");
+		}
+
+		try {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null)
+				parent.mkdirs();
+
+			new File(file.getPath() + TMP_SUFFIX).delete();
+
+			open();
+		} catch (IOException e) {
+			close();
+			log.error("Open DID store error", e);
+			throw new DIDStorageException("Open DIDStore \""
+					+ file.getAbsolutePath() + "\" error.", e);
+		}
+
+		if (!index.containsKey(METADATA)) {
+			if (index.isEmpty()) {
+				log.debug("Initializing DID store at {}", file.getAbsolutePath());
+				storeMetadata(new DIDStore.Metadata());
+			} else {
+				close();
+				log.error("Path {} not a DID store, missing store metadata",
+						file.getAbsolutePath());
+				throw new DIDStorageException("Invalid DIDStore \""
+						+ file.getAbsolutePath() + "\".");
+			}
+		}
+
+		DIDStore.Metadata metadata = loadMetadata();
+		if (!metadata.getType().equals(DIDStore.DID_STORE_TYPE) ||
+				metadata.getVersion() != DIDStore.DID_STORE_VERSION) {
+			close();
+			throw new DIDStorageException("Unsupported DIDStore type or version");
+		}
+	}
+
+	private void open() throws IOException, DIDStorageException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		index = new TreeMap<String, Value>();
+		live = HEADER_SIZE;
+
+		long fileSize = channel.size();
+		if (fileSize == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.flip();
+			write(channel, header, 0);
+			channel.force(true);
+			size = HEADER_SIZE;
+			return;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(channel.position(0)), 64 * 1024));
+		if (fileSize < HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != VERSION) {
+			log.error("Path {} not a DID store, invalid header", file.getAbsolutePath());
+			throw new DIDStorageException("Invalid DIDStore \""
+					+ file.getAbsolutePath() + "\".");
+		}
+
+		size = HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		try {
+			while (size + BATCH_HEADER_SIZE <= fileSize) {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length < 4 || length > fileSize - size - (BATCH_HEADER_SIZE - 4))
+					break;
+
+				byte[] body = new byte[length];
+				in.readFully(body);
+				crc.reset();
+				crc.update(body, 0, length);
+				if (checksum != (int)crc.getValue())
+					break;
+
+				long base = size + BATCH_HEADER_SIZE - 4;
+				ByteBuffer buf = ByteBuffer.wrap(body);
+				int count = buf.getInt();
+				for (int i = 0; i < count; i++) {
+					int start = buf.position();
+					byte type = buf.get();
+					byte[] key = new byte[buf.getInt()];
+					buf.get(key);
+					String k = new String(key, StandardCharsets.UTF_8);
+
+					Value old;
+					if (type == OP_PUT) {
+						int valueLength = buf.getInt();
+						long offset = base + buf.position();
+						buf.position(buf.position() + valueLength);
+						Value v = new Value(offset, valueLength, buf.position() - start);
+						old = index.put(k, v);
+						live += v.cost;
+					} else {
+						old = index.remove(k);
+					}
+
+					if (old != null)
+						live -= old.cost;
+				}
+
+				size += BATCH_HEADER_SIZE - 4 + length;
+			}
+		} catch (EOFException ignore) {
+		}
+
+		if (size < fileSize) {
+			log.warn("DID store {} has an incomplete or corrupted batch at {}, truncated",
+					file.getAbsolutePath(), size);
+			channel.truncate(size);
+			channel.force(true);
+		}
+
+		log.debug("DID store {} opened, {} keys, {} of {} bytes live",
+				file.getAbsolutePath(), index.size(), live, size);
+	}
+
+	private static int opSize(byte[] key, byte[] value) {
+		return 1 + 4 + key.length + (value == null ? 0 : 4 + value.length);
+	}
+
+	private static int crc32(ByteBuffer buf) {
+		CRC32 crc = new CRC32();
+		crc.update(buf);
+		return (int)crc.getValue();
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buf, long position)
+			throws IOException {
+		int length = buf.remaining();
+		while (buf.hasRemaining())
+			channel.write(buf, position + (length - buf.remaining()));
+	}
+
+	private String read(Value value) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(value.length);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, value.offset + buf.position()) < 0)
+				throw new EOFException("Unexpected end of the DID store file");
+		}
+
+		return new String(buf.array(), StandardCharsets.UTF_8);
+	}
+
+	private void checkOpen() throws DIDStorageException {
+		if (channel == null)
+			throw new DIDStorageException("DIDStore \""
+					+ file.getAbsolutePath() + "\" already closed.");
+	}
+
+	private String get(String key) throws DIDStorageException {
+		checkOpen();
+
+		Value value = index.get(key);
+		if (value == null)
+			return null;
+
+		try {
+			return read(value);
+		} catch (IOException e) {
+			throw new DIDStorageException("Read DID store error: " + key, e);
+		}
+	}
+
+	private void put(String key, String value) throws DIDStorageException {
+		Batch batch = new Batch();
+		batch.put(key, value);
+		commit(batch, key);
+	}
+
+	private boolean delete(String key) throws DIDStorageException {
+		Batch batch = new Batch();
+		batch.delete(key);
+		commit(batch, key);
+		return !batch.ops.isEmpty();
+	}
+
+	private boolean deletePrefix(String prefix) throws DIDStorageException {
+		Batch batch = new Batch();
+		boolean deleted = batch.deletePrefix(prefix);
+		commit(batch, prefix);
+		return deleted;
+	}
+
+	private void commit(Batch batch, String what) throws DIDStorageException {
+		checkOpen();
+
+		try {
+			batch.commit();
+		} catch (IOException e) {
+			throw new DIDStorageException("Write DID store error: " + what, e);
+		}
+	}
+
+	private NavigableMap<String, Value> scan(String prefix) {
+		return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	private boolean contains(String prefix) {
+		String key = index.ceilingKey(prefix);
+		return key != null && key.startsWith(prefix);
+	}
+
+	// The distinct names of the next level under the prefix
+	private List<String> children(String prefix) {
+		List<String> names = new ArrayList<String>();
+
+		String key = index.ceilingKey(prefix);
+		while (key != null && key.startsWith(prefix)) {
+			int pos = key.indexOf(SEPARATOR, prefix.length());
+			if (pos < 0) {
+				names.add(key.substring(prefix.length()));
+				key = index.higherKey(key);
+			} else {
+				names.add(key.substring(prefix.length(), pos));
+				// Skip all the keys under this child
+				key = index.ceilingKey(key.substring(0, pos) + (char)(SEPARATOR + 1));
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * Rewrite the store file with the live values only, and re-encrypt the
+	 * encrypted values if the reEncryptor is not null. The new file replaces
+	 * the current one by an atomic move, a crash before that keeps the
+	 * current file.
+	 */
+	private void rewrite(ReEncryptor reEncryptor) throws IOException, DIDStoreException {
+		File tmp = new File(file.getPath() + TMP_SUFFIX);
+		TreeMap<String, Value> newIndex = new TreeMap<String, Value>();
+		long newSize = HEADER_SIZE;
+		long newLive = HEADER_SIZE;
+
+		try (FileChannel out = FileChannel.open(tmp.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.flip();
+			write(out, header, 0);
+
+			for (Map.Entry<String, Value> entry : index.entrySet()) {
+				String v = read(entry.getValue());
+				if (reEncryptor != null && isEncrypted(entry.getKey()))
+					v = reEncryptor.reEncrypt(v);
+
+				byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				byte[] value = v.getBytes(StandardCharsets.UTF_8);
+				int length = 4 + opSize(key, value);
+
+				ByteBuffer buf = ByteBuffer.allocate(BATCH_HEADER_SIZE - 4 + length);
+				buf.putInt(length);
+				buf.putInt(0); // crc placeholder
+				buf.putInt(1);
+				buf.put(OP_PUT);
+				buf.putInt(key.length);
+				buf.put(key);
+				buf.putInt(value.length);
+				long offset = newSize + buf.position();
+				buf.put(value);
+
+				ByteBuffer body = buf.duplicate();
+				body.position(BATCH_HEADER_SIZE - 4);
+				body.limit(buf.capacity());
+				buf.putInt(4, crc32(body));
+				buf.flip();
+
+				write(out, buf, newSize);
+				newIndex.put(entry.getKey(), new Value(offset, value.length,
+						length - 4));
+				newSize += buf.limit();
+				newLive += length - 4;
+			}
+
+			out.force(true);
+		} catch (IOException | DIDStoreException e) {
+			tmp.delete();
+			throw e;
+		}
+
+		log.debug("Rewriting DID store {}, {} -> {} bytes", file.getAbsolutePath(),
+				size, newSize);
+
+		channel.close();
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			// Reopen the new file, or the current one if the move failed
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+
+		index = newIndex;
+		size = newSize;
+		live = newLive;
+	}
+
+	private static boolean isEncrypted(String key) {
+		if (key.startsWith(ROOT_IDENTITIES_PREFIX))
+			return key.endsWith(SEPARATOR + ROOT_IDENTITY_PRIVATEKEY) ||
+					key.endsWith(SEPARATOR + ROOT_IDENTITY_MNEMONIC);
+		else if (key.startsWith(DIDS_PREFIX))
+			return key.contains(SEPARATOR + PRIVATEKEYS + SEPARATOR);
+		else
+			return false;
+	}
+
+	private static String key(String ... path) {
+		return String.join(String.valueOf(SEPARATOR), path);
+	}
+
+	@Override
+	public String getLocation() {
+		return file.toString();
+	}
+
+	@Override
+	public synchronized void storeMetadata(DIDStore.Metadata metadata)
+			throws DIDStorageException {
+		if (metadata == null || metadata.isEmpty())
+			delete(METADATA);
+		else
+			put(METADATA, metadata.serialize());
+	}
+
+	@Override
+	public synchronized DIDStore.Metadata loadMetadata() throws DIDStorageException {
+		try {
+			String value = get(METADATA);
+			return value == null ? null :
+					DIDStore.Metadata.parse(value, DIDStore.Metadata.class);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load DIDStore metadata error", e);
+		}
+	}
+
+	private static String getRootIdentityKey(String id, String name) {
+		return ROOT_IDENTITIES_PREFIX + key(id, name);
+	}
+
+	@Override
+	public synchronized void storeRootIdentityMetadata(String id,
+			RootIdentity.Metadata metadata) throws DIDStorageException {
+		String key = getRootIdentityKey(id, METADATA);
+		if (metadata == null || metadata.isEmpty())
+			delete(key);
+		else
+			put(key, metadata.serialize());
+	}
+
+	@Override
+	public synchronized RootIdentity.Metadata loadRootIdentityMetadata(String id)
+			throws DIDStorageException {
+		try {
+			String value = get(getRootIdentityKey(id, METADATA));
+			return value == null ? null :
+					RootIdentity.Metadata.parse(value, RootIdentity.Metadata.class);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load root identity metadata error: " + id, e);
+		}
+	}
+
+	@Override
+	public synchronized void storeRootIdentity(String id, String mnemonic,
+			String privateKey, String publicKey, int index)
+			throws DIDStorageException {
+		Batch batch = new Batch();
+
+		if (mnemonic != null)
+			batch.put(getRootIdentityKey(id, ROOT_IDENTITY_MNEMONIC), mnemonic);
+
+		if (privateKey != null)
+			batch.put(getRootIdentityKey(id, ROOT_IDENTITY_PRIVATEKEY), privateKey);
+
+		if (publicKey != null)
+			batch.put(getRootIdentityKey(id, ROOT_IDENTITY_PUBLICKEY), publicKey);
+
+		batch.put(getRootIdentityKey(id, ROOT_IDENTITY_INDEX), Integer.toString(index));
+
+		commit(batch, "root identity " + id);
+	}
+
+	@Override
+	public synchronized RootIdentity loadRootIdentity(String id)
+			throws DIDStorageException {
+		String publicKey = get(getRootIdentityKey(id, ROOT_IDENTITY_PUBLICKEY));
+		if (publicKey == null)
+			return null;
+
+		String index = get(getRootIdentityKey(id, ROOT_IDENTITY_INDEX));
+		return RootIdentity.create(publicKey, index == null ? 0 : Integer.valueOf(index));
+	}
+
+	@Override
+	public synchronized void updateRootIdentityIndex(String id, int index)
+			throws DIDStorageException {
+		put(getRootIdentityKey(id, ROOT_IDENTITY_INDEX), Integer.toString(index));
+	}
+
+	@Override
+	public synchronized String loadRootIdentityPrivateKey(String id)
+			throws DIDStorageException {
+		return get(getRootIdentityKey(id, ROOT_IDENTITY_PRIVATEKEY));
+	}
+
+	@Override
+	public synchronized String loadRootIdentityMnemonic(String id)
+			throws DIDStorageException {
+		return get(getRootIdentityKey(id, ROOT_IDENTITY_MNEMONIC));
+	}
+
+	@Override
+	public synchronized boolean deleteRootIdentity(String id)
+			throws DIDStorageException {
+		return deletePrefix(ROOT_IDENTITIES_PREFIX + id + SEPARATOR);
+	}
+
+	@Override
+	public synchronized List<RootIdentity> listRootIdentities()
+			throws DIDStorageException {
+		List<String> children = children(ROOT_IDENTITIES_PREFIX);
+		if (children.isEmpty())
+			return Collections.emptyList();
+
+		ArrayList<RootIdentity> ids = new ArrayList<RootIdentity>(children.size());
+		for (String id : children) {
+			RootIdentity identity = loadRootIdentity(id);
+			if (identity != null)
+				ids.add(identity);
+		}
+
+		return ids;
+	}
+
+	@Override
+	public synchronized boolean containsRootIdenities() {
+		return contains(ROOT_IDENTITIES_PREFIX);
+	}
+
+	private static String getDidPrefix(DID did) {
+		return DIDS_PREFIX + did.getMethodSpecificId() + SEPARATOR;
+	}
+
+	@Override
+	public synchronized void storeDidMetadata(DID did, DIDMetadata metadata)
+			throws DIDStorageException {
+		String key = getDidPrefix(did) + METADATA;
+		if (metadata == null || metadata.isEmpty())
+			delete(key);
+		else
+			put(key, metadata.serialize());
+	}
+
+	@Override
+	public synchronized DIDMetadata loadDidMetadata(DID did)
+			throws DIDStorageException {
+		try {
+			String value = get(getDidPrefix(did) + METADATA);
+			return value == null ? null : DIDMetadata.parse(value, DIDMetadata.class);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load DID metadata error: " + did, e);
+		}
+	}
+
+	@Override
+	public synchronized void storeDid(DIDDocument doc) throws DIDStorageException {
+		put(getDidPrefix(doc.getSubject()) + DOCUMENT, doc.serialize(true));
+	}
+
+	@Override
+	public synchronized DIDDocument loadDid(DID did) throws DIDStorageException {
+		try {
+			String value = get(getDidPrefix(did) + DOCUMENT);
+			return value == null ? null : DIDDocument.parse(value);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load DID document error: " + did, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean deleteDid(DID did) throws DIDStorageException {
+		return deletePrefix(getDidPrefix(did));
+	}
+
+	@Override
+	public synchronized List<DID> listDids() {
+		List<String> children = children(DIDS_PREFIX);
+		if (children.isEmpty())
+			return Collections.emptyList();
+
+		ArrayList<DID> dids = new ArrayList<DID>(children.size());
+		for (String id : children)
+			dids.add(new DID(DID.METHOD, id));
+
+		return dids;
+	}
+
+	private static String getCredentialsPrefix(DID did) {
+		return getDidPrefix(did) + CREDENTIALS + SEPARATOR;
+	}
+
+	private static String getCredentialPrefix(DIDURL id) {
+		return getCredentialsPrefix(id.getDid()) + FileSystemStorage.toPath(id) + SEPARATOR;
+	}
+
+	@Override
+	public synchronized void storeCredentialMetadata(DIDURL id,
+			CredentialMetadata metadata) throws DIDStorageException {
+		String key = getCredentialPrefix(id) + METADATA;
+		if (metadata == null || metadata.isEmpty())
+			delete(key);
+		else
+			put(key, metadata.serialize());
+	}
+
+	@Override
+	public synchronized CredentialMetadata loadCredentialMetadata(DIDURL id)
+			throws DIDStorageException {
+		try {
+			String value = get(getCredentialPrefix(id) + METADATA);
+			return value == null ? null :
+					CredentialMetadata.parse(value, CredentialMetadata.class);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load credential metadata error: " + id, e);
+		}
+	}
+
+	@Override
+	public synchronized void storeCredential(VerifiableCredential credential)
+			throws DIDStorageException {
+		put(getCredentialPrefix(credential.getId()) + CREDENTIAL,
+				credential.serialize(true));
+	}
+
+	@Override
+	public synchronized VerifiableCredential loadCredential(DIDURL id)
+			throws DIDStorageException {
+		try {
+			String value = get(getCredentialPrefix(id) + CREDENTIAL);
+			return value == null ? null : VerifiableCredential.parse(value);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load credential error: " + id, e);
+		}
+	}
+
+	@Override
+	public synchronized boolean containsCredentials(DID did) {
+		return contains(getCredentialsPrefix(did));
+	}
+
+	@Override
+	public synchronized boolean deleteCredential(DIDURL id)
+			throws DIDStorageException {
+		return deletePrefix(getCredentialPrefix(id));
+	}
+
+	@Override
+	public synchronized List<DIDURL> listCredentials(DID did) {
+		List<String> children = children(getCredentialsPrefix(did));
+		if (children.isEmpty())
+			return Collections.emptyList();
+
+		ArrayList<DIDURL> credentials = new ArrayList<DIDURL>(children.size());
+		for (String path : children)
+			credentials.add(FileSystemStorage.toDIDURL(did, path));
+
+		return credentials;
+	}
+
+	private static String getPrivateKeysPrefix(DID did) {
+		return getDidPrefix(did) + PRIVATEKEYS + SEPARATOR;
+	}
+
+	@Override
+	public synchronized void storePrivateKey(DIDURL id, String privateKey)
+			throws DIDStorageException {
+		put(getPrivateKeysPrefix(id.getDid()) + FileSystemStorage.toPath(id), privateKey);
+	}
+
+	@Override
+	public synchronized String loadPrivateKey(DIDURL id) throws DIDStorageException {
+		return get(getPrivateKeysPrefix(id.getDid()) + FileSystemStorage.toPath(id));
+	}
+
+	@Override
+	public synchronized boolean containsPrivateKeys(DID did) {
+		return contains(getPrivateKeysPrefix(did));
+	}
+
+	@Override
+	public synchronized boolean deletePrivateKey(DIDURL id) throws DIDStorageException {
+		return delete(getPrivateKeysPrefix(id.getDid()) + FileSystemStorage.toPath(id));
+	}
+
+	@Override
+	public synchronized List<DIDURL> listPrivateKeys(DID did) {
+		List<String> children = children(getPrivateKeysPrefix(did));
+		if (children.isEmpty())
+			return Collections.emptyList();
+
+		ArrayList<DIDURL> sks = new ArrayList<DIDURL>(children.size());
+		for (String path : children)
+			sks.add(FileSystemStorage.toDIDURL(did, path));
+
+		return sks;
+	}
+
+	@Override
+	public synchronized void changePassword(ReEncryptor reEncryptor)
+			throws DIDStorageException {
+		checkOpen();
+
+		try {
+			rewrite(reEncryptor);
+		} catch (DIDStoreException | IOException e) {
+			throw new DIDStorageException("Change store password failed.", e);
+		}
+	}
+
+	@Override
+	public synchronized void setDurability(DIDStore.Durability durability) {
+		try {
+			groupCommit.commit();
+		} catch (IOException e) {
+			log.warn("Flush DID store {} failed", file.getAbsolutePath(), e);
+		}
+
+		this.durability = durability;
+	}
+
+	@Override
+	public DIDStore.Durability getDurability() {
+		return durability;
+	}
+
+	@Override
+	public synchronized void sync() throws DIDStorageException {
+		try {
+			groupCommit.commit();
+		} catch (IOException e) {
+			throw new DIDStorageException("Flush DIDStore \""
+					+ file.getAbsolutePath() + "\" error.", e);
+		}
+	}
+
+	/**
+	 * Close the store file.
+	 */
+	@Override
+	public synchronized void close() {
+		if (channel == null)
+			return;
+
+		try {
+			groupCommit.commit();
+			channel.force(true);
+			channel.close();
+		} catch (IOException ignore) {
+		}
+
+		channel = null;
+	}
+}
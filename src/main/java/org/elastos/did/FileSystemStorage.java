@@ -22,19 +22,38 @@
 
 package org.elastos.did;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 import org.elastos.did.crypto.HDKey;
 import org.elastos.did.exception.DIDStorageException;
@@ -76,9 +95,28 @@ import org.slf4j.LoggerFactory;
  *            - privatekey-id-N
  *        + ...
  *        + ixxxxxxxxxxxxxxxN
+ *    + password.journal					[Re-encrypted keys of an unfinished password change]
+ *    + tmp								[Temporary files of the atomic writes]
+ *    - wal								[Write-ahead journal, GROUP durability]
+ *
+ * Every file is written to the tmp folder and renamed to the target, so a
+ * crash never leaves a truncated file. With the PER_OPERATION durability the
+ * file and the folder are flushed before the write returns. With the GROUP
+ * durability the writes and deletes are appended to the write-ahead journal
+ * first, the journal is flushed by the group commit, and replayed when
+ * opening the store after a crash. The journal is truncated at a checkpoint,
+ * after flushing the files written since the last checkpoint.
+ *
+ * Changing the password re-encrypts the mnemonics and the private keys into
+ * the password.journal folder, each entry is a file that is the journal
+ * record of it, and moves them to the data folder when all are done. A
+ * commit marker with the checksum of the data entry is written to the
+ * .committed folder of the journal after each entry. An interrupted change
+ * resumes from the entries with a matching marker if it is retried with the
+ * same passwords.
  */
 
-class FileSystemStorage implements DIDStorage {
+class FileSystemStorage implements DIDStorage, Closeable {
 	private static final String DATA_DIR = "data";
 
 	private static final String ROOT_IDENTITIES_DIR = "roots";
@@ -99,15 +137,41 @@ class FileSystemStorage implements DIDStorage {
 	private static final String METADATA = ".metadata";
 
 	private static final String JOURNAL_SUFFIX = ".journal";
+	private static final String PASSWORD_JOURNAL_DIR = "password" + JOURNAL_SUFFIX;
+	private static final String COMMIT_MARKERS_DIR = ".committed";
+
+	// Entries per re-encrypt task and progress report
+	private static final int REENCRYPT_BATCH_SIZE = 64;
+
+	private static final String TMP_DIR = "tmp";
+	private static final String WAL_FILE = "wal";
+
+	private static final byte WAL_WRITE = 1;
+	private static final byte WAL_DELETE = 2;
+
+	// length + crc
+	private static final int WAL_RECORD_HEADER_SIZE = 8;
+
+	private static final long CHECKPOINT_SIZE = 4 * 1024 * 1024;
 
 	private File storeRoot;
 	private String currentDataDir;
 
+	private volatile DIDStore.Durability durability;
+	// Guarded by this
+	private FileChannel wal;
+	private long walSize;
+	private Set<File> dirty;
+	private GroupCommit groupCommit;
+
 	private static final Logger log = LoggerFactory.getLogger(FileSystemStorage.class);
 
 	protected FileSystemStorage(File dir) throws DIDStorageException {
 		storeRoot = dir;
 		currentDataDir = DATA_DIR;
+		durability = DIDStore.Durability.GROUP;
+		dirty = new HashSet<File>();
+		groupCommit = new GroupCommit(this, this::commitWal);
 
 		if (storeRoot.exists())
 			checkStore();
@@ -124,7 +188,7 @@ class FileSystemStorage implements DIDStorage {
 			DIDStore.Metadata metadata = new DIDStore.Metadata();
 
 			File file = getFile(true, currentDataDir, METADATA);
-			metadata.serialize(file);
+			atomicWrite(file, metadata.serialize(), true);
 		} catch (IOException e) {
 			log.error("Initialize DID store error", e);
 			throw new DIDStorageException("Initialize DIDStore \""
@@ -141,6 +205,7 @@ class FileSystemStorage implements DIDStorage {
 					+ storeRoot.getAbsolutePath() + "\".");
 		}
 
+		replayWal();
 		postOperations();
 
 		File file = getDir(currentDataDir);
@@ -197,12 +262,12 @@ class FileSystemStorage implements DIDStorage {
 		}
 	}
 
-	private static String toPath(DIDURL id) {
+	static String toPath(DIDURL id) {
 		String path = id.toString(id.getDid());
 		return path.replace(';', '+').replace('/', '~').replace('?', '!');
 	}
 
-	private static DIDURL toDIDURL(DID did, String path) {
+	static DIDURL toDIDURL(DID did, String path) {
 		path = path.replace('+', ';').replace('~', '/').replace('!', '?');
 		return new DIDURL(did, path);
 	}
@@ -217,23 +282,6 @@ class FileSystemStorage implements DIDStorage {
 		file.delete();
 	}
 
-	private static void copyFile(File src, File dest) throws IOException {
-		FileInputStream in = null;
-		FileOutputStream out = null;
-		try {
-			in = new FileInputStream(src);
-			out = new FileOutputStream(dest);
-			out.getChannel().transferFrom(in.getChannel(), 0,
-					in.getChannel().size());
-		} finally {
-			if (in != null)
-				in.close();
-
-			if (out != null)
-				out.close();
-		}
-	}
-
 	private File getFile(String ... path) {
 		return getFile(false, path);
 	}
@@ -276,14 +324,288 @@ class FileSystemStorage implements DIDStorage {
 		return new File(relPath.toString());
 	}
 
-	private static void writeText(File file, String text) throws IOException {
-		FileWriter writer = null;
+	private static void fsync(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	private static void fsyncDir(File dir) {
 		try {
-			writer = new FileWriter(file);
-			writer.write(text);
+			fsync(dir);
+		} catch (IOException ignore) {
+			// Some platforms can not open or flush the directories
+		}
+	}
+
+	// Flush the files and all the folders up to the store root
+	private void fsyncAll(Set<File> files) throws IOException {
+		Set<File> dirs = new HashSet<File>();
+		for (File file : files) {
+			if (file.isFile())
+				fsync(file);
+
+			for (File dir = file.getParentFile(); dir != null && dirs.add(dir);
+					dir = dir.getParentFile()) {
+				if (dir.equals(storeRoot))
+					break;
+			}
+		}
+
+		for (File dir : dirs) {
+			if (dir.isDirectory())
+				fsyncDir(dir);
+		}
+	}
+
+	private void atomicWrite(File file, String text, boolean sync) throws IOException {
+		atomicWrite(file, text, sync, sync);
+	}
+
+	private void atomicWrite(File file, String text, boolean syncFile,
+			boolean syncDirs) throws IOException {
+		File tmpDir = getDir(TMP_DIR);
+		tmpDir.mkdirs();
+
+		// The prefix should be at least 3 characters, the key file name
+		// can be as short as "#1"
+		File tmp = File.createTempFile("tmp-" + file.getName(), ".tmp", tmpDir);
+		try {
+			try (FileOutputStream out = new FileOutputStream(tmp)) {
+				out.write(text.getBytes(StandardCharsets.UTF_8));
+				if (syncFile)
+					out.getFD().sync();
+			}
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
 		} finally {
-			if (writer != null)
-				writer.close();
+			tmp.delete();
+		}
+
+		if (syncDirs)
+			fsyncAll(Collections.singleton(file));
+	}
+
+	private void writeText(File file, String text) throws IOException {
+		switch (durability) {
+		case GROUP:
+			synchronized (this) {
+				appendWal(WAL_WRITE, file, text);
+				atomicWrite(file, text, false);
+				dirty.add(file);
+				groupCommit.written();
+			}
+			break;
+
+		case PER_OPERATION:
+			atomicWrite(file, text, true);
+			break;
+
+		default:
+			atomicWrite(file, text, false);
+			break;
+		}
+	}
+
+	private void removeFile(File file) throws IOException {
+		switch (durability) {
+		case GROUP:
+			synchronized (this) {
+				appendWal(WAL_DELETE, file, null);
+				deleteFile(file);
+				dirty.add(file);
+				groupCommit.written();
+			}
+			break;
+
+		case PER_OPERATION:
+			deleteFile(file);
+			fsyncAll(Collections.singleton(file));
+			break;
+
+		default:
+			deleteFile(file);
+			break;
+		}
+	}
+
+	private String getRelativePath(File file) {
+		return storeRoot.toPath().relativize(file.toPath()).toString()
+				.replace(File.separatorChar, '/');
+	}
+
+	// Must be called with this locked
+	private void appendWal(byte type, File file, String text) throws IOException {
+		if (wal == null) {
+			wal = FileChannel.open(getFile(WAL_FILE).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			walSize = wal.size();
+		}
+
+		byte[] path = getRelativePath(file).getBytes(StandardCharsets.UTF_8);
+		byte[] content = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+
+		int length = 1 + 4 + path.length + (content == null ? 0 : 4 + content.length);
+		ByteBuffer buf = ByteBuffer.allocate(WAL_RECORD_HEADER_SIZE + length);
+		buf.putInt(length);
+		buf.putInt(0); // crc placeholder
+		buf.put(type);
+		buf.putInt(path.length);
+		buf.put(path);
+		if (content != null) {
+			buf.putInt(content.length);
+			buf.put(content);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), WAL_RECORD_HEADER_SIZE, length);
+		buf.putInt(4, (int)crc.getValue());
+		buf.flip();
+
+		while (buf.hasRemaining())
+			walSize += wal.write(buf, walSize);
+	}
+
+	// The group commit, must be called with this locked
+	private void commitWal() throws IOException {
+		if (wal == null)
+			return;
+
+		wal.force(false);
+
+		if (walSize > CHECKPOINT_SIZE)
+			checkpoint();
+	}
+
+	// Must be called with this locked
+	private void checkpoint() throws IOException {
+		if (wal == null)
+			return;
+
+		fsyncAll(dirty);
+		dirty.clear();
+
+		wal.truncate(0);
+		wal.force(true);
+		walSize = 0;
+	}
+
+	private void replayWal() throws DIDStorageException {
+		File file = getFile(WAL_FILE);
+		if (!file.exists())
+			return;
+
+		Set<File> touched = new HashSet<File>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long pos = 0;
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel), 64 * 1024));
+			CRC32 crc = new CRC32();
+
+			try {
+				while (pos + WAL_RECORD_HEADER_SIZE <= size) {
+					int length = in.readInt();
+					int checksum = in.readInt();
+					if (length <= 0 || length > size - pos - WAL_RECORD_HEADER_SIZE)
+						break;
+
+					byte[] body = new byte[length];
+					in.readFully(body);
+					crc.reset();
+					crc.update(body, 0, length);
+					if (checksum != (int)crc.getValue())
+						break;
+
+					ByteBuffer buf = ByteBuffer.wrap(body);
+					byte type = buf.get();
+					byte[] path = new byte[buf.getInt()];
+					buf.get(path);
+					File target = new File(storeRoot, new String(path,
+							StandardCharsets.UTF_8).replace('/', File.separatorChar));
+
+					if (type == WAL_WRITE) {
+						byte[] content = new byte[buf.getInt()];
+						buf.get(content);
+						target.getParentFile().mkdirs();
+						atomicWrite(target, new String(content, StandardCharsets.UTF_8), false);
+					} else {
+						deleteFile(target);
+					}
+
+					touched.add(target);
+					pos += WAL_RECORD_HEADER_SIZE + length;
+				}
+			} catch (EOFException ignore) {
+			}
+
+			if (pos < size)
+				log.warn("Write-ahead journal of DID store {} has an incomplete record at {}",
+						storeRoot.getAbsolutePath(), pos);
+
+			fsyncAll(touched);
+		} catch (IOException e) {
+			log.error("Replay the write-ahead journal error", e);
+			throw new DIDStorageException("Replay the write-ahead journal of DIDStore \""
+					+ storeRoot.getAbsolutePath() + "\" error.", e);
+		}
+
+		file.delete();
+		fsyncDir(storeRoot);
+
+		log.info("Replayed {} writes from the write-ahead journal of DID store {}",
+				touched.size(), storeRoot.getAbsolutePath());
+	}
+
+	@Override
+	public synchronized void setDurability(DIDStore.Durability durability) {
+		if (this.durability == DIDStore.Durability.GROUP &&
+				durability != DIDStore.Durability.GROUP) {
+			try {
+				groupCommit.commit();
+				closeWal();
+			} catch (IOException e) {
+				log.warn("Checkpoint the write-ahead journal failed", e);
+			}
+		}
+
+		this.durability = durability;
+	}
+
+	@Override
+	public DIDStore.Durability getDurability() {
+		return durability;
+	}
+
+	@Override
+	public synchronized void sync() throws DIDStorageException {
+		try {
+			groupCommit.commit();
+		} catch (IOException e) {
+			throw new DIDStorageException("Commit the write-ahead journal error", e);
+		}
+	}
+
+	// Checkpoint and close the journal, must be called with this locked
+	private void closeWal() throws IOException {
+		if (wal == null)
+			return;
+
+		checkpoint();
+		wal.close();
+		wal = null;
+		getFile(WAL_FILE).delete();
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			groupCommit.commit();
+			closeWal();
+		} catch (IOException e) {
+			log.warn("Checkpoint the write-ahead journal failed", e);
 		}
 	}
 
@@ -308,10 +630,12 @@ class FileSystemStorage implements DIDStorage {
 		try {
 			File file = getFile(true, currentDataDir, METADATA);
 
-			if (metadata == null || metadata.isEmpty())
-				file.delete();
-			else
-				metadata.serialize(file);
+			if (metadata == null || metadata.isEmpty()) {
+				if (file.exists())
+					removeFile(file);
+			} else {
+				writeText(file, metadata.serialize());
+			}
 		} catch (IOException e) {
 			throw new DIDStorageException("Store DIDStore metadata error", e);
 		}
@@ -345,10 +669,12 @@ class FileSystemStorage implements DIDStorage {
 		try {
 			File file = getRootIdentityFile(id, METADATA, true);
 
-			if (metadata == null || metadata.isEmpty())
-				file.delete();
-			else
-				metadata.serialize(file);
+			if (metadata == null || metadata.isEmpty()) {
+				if (file.exists())
+					removeFile(file);
+			} else {
+				writeText(file, metadata.serialize());
+			}
 		} catch (IOException e) {
 			throw new DIDStorageException("Store root identity metadata error: " + id, e);
 		}
@@ -439,10 +765,14 @@ class FileSystemStorage implements DIDStorage {
 	}
 
 	@Override
-	public boolean deleteRootIdentity(String id) {
+	public boolean deleteRootIdentity(String id) throws DIDStorageException {
 		File dir = getRootIdentityDir(id);
 		if (dir.exists()) {
-			deleteFile(dir);
+			try {
+				removeFile(dir);
+			} catch (IOException e) {
+				throw new DIDStorageException("Delete root identity error: " + id, e);
+			}
 			return true;
 		} else {
 			return false;
@@ -512,10 +842,12 @@ class FileSystemStorage implements DIDStorage {
 		try {
 			File file = getDidMetadataFile(did, true);
 
-			if (metadata == null || metadata.isEmpty())
-				file.delete();
-			else
-				metadata.serialize(file);
+			if (metadata == null || metadata.isEmpty()) {
+				if (file.exists())
+					removeFile(file);
+			} else {
+				writeText(file, metadata.serialize());
+			}
 		} catch (IOException e) {
 			throw new DIDStorageException("Store DID metadata error: " + did, e);
 		}
@@ -539,7 +871,7 @@ class FileSystemStorage implements DIDStorage {
 	public void storeDid(DIDDocument doc) throws DIDStorageException {
 		try {
 			File file = getDidFile(doc.getSubject(), true);
-			doc.serialize(file, true);
+			writeText(file, doc.serialize(true));
 		} catch (IOException e) {
 			throw new DIDStorageException("Store DID document error: " +
 					doc.getSubject(), e);
@@ -560,10 +892,14 @@ class FileSystemStorage implements DIDStorage {
 	}
 
 	@Override
-	public boolean deleteDid(DID did) {
+	public boolean deleteDid(DID did) throws DIDStorageException {
 		File dir = getDidDir(did);
 		if (dir.exists()) {
-			deleteFile(dir);
+			try {
+				removeFile(dir);
+			} catch (IOException e) {
+				throw new DIDStorageException("Delete DID error: " + did, e);
+			}
 			return true;
 		} else {
 			return false;
@@ -617,10 +953,12 @@ class FileSystemStorage implements DIDStorage {
 		try {
 			File file = getCredentialMetadataFile(id, true);
 
-			if (metadata == null || metadata.isEmpty())
-				file.delete();
-			else
-				metadata.serialize(file);
+			if (metadata == null || metadata.isEmpty()) {
+				if (file.exists())
+					removeFile(file);
+			} else {
+				writeText(file, metadata.serialize());
+			}
 		} catch (IOException e) {
 			throw new DIDStorageException("Store credential metadata error: " + id, e);
 		}
@@ -645,7 +983,7 @@ class FileSystemStorage implements DIDStorage {
 			throws DIDStorageException {
 		try {
 			File file = getCredentialFile(credential.getId(), true);
-			credential.serialize(file, true);
+			writeText(file, credential.serialize(true));
 		} catch (IOException e) {
 			throw new DIDStorageException("Store credential error: " +
 					credential.getId(), e);
@@ -680,15 +1018,19 @@ class FileSystemStorage implements DIDStorage {
 	}
 
 	@Override
-	public boolean deleteCredential(DIDURL id) {
+	public boolean deleteCredential(DIDURL id) throws DIDStorageException {
 		File dir = getCredentialDir(id);
 		if (dir.exists()) {
-			deleteFile(dir);
-
-			// Remove the credentials directory is no credential exists.
-			dir = getCredentialsDir(id.getDid());
-			if (dir.list().length == 0)
-				dir.delete();
+			try {
+				removeFile(dir);
+
+				// Remove the credentials directory is no credential exists.
+				dir = getCredentialsDir(id.getDid());
+				if (dir.list().length == 0)
+					removeFile(dir);
+			} catch (IOException e) {
+				throw new DIDStorageException("Delete credential error: " + id, e);
+			}
 
 			return true;
 		} else {
@@ -763,15 +1105,19 @@ class FileSystemStorage implements DIDStorage {
 	}
 
 	@Override
-	public boolean deletePrivateKey(DIDURL id) {
+	public boolean deletePrivateKey(DIDURL id) throws DIDStorageException {
 		File file = getPrivateKeyFile(id, false);
 		if (file.exists()) {
-			file.delete();
-
-			// Remove the privatekeys directory is no privatekey exists.
-			File dir = getPrivateKeysDir(id.getDid());
-			if (dir.list().length == 0)
-				dir.delete();
+			try {
+				removeFile(file);
+
+				// Remove the privatekeys directory is no privatekey exists.
+				File dir = getPrivateKeysDir(id.getDid());
+				if (dir.list().length == 0)
+					removeFile(dir);
+			} catch (IOException e) {
+				throw new DIDStorageException("Delete private key error: " + id, e);
+			}
 
 			return true;
 		} else {
@@ -799,65 +1145,234 @@ class FileSystemStorage implements DIDStorage {
 		return sks;
 	}
 
-	private boolean needReencrypt(File file) {
-		String[] patterns = {
-				// Root identity's private key
-				"(.+)\\" + File.separator + DATA_DIR + "\\" + File.separator +
-				ROOT_IDENTITIES_DIR + "\\" + File.separator + "(.+)\\" +
-				File.separator + ROOT_IDENTITY_PRIVATEKEY_FILE,
-				// Root identity's mnemonic
-				"(.+)\\" + File.separator + DATA_DIR + "\\" + File.separator +
-				ROOT_IDENTITIES_DIR + "\\" + File.separator + "(.+)\\" +
-				File.separator + ROOT_IDENTITY_MNEMONIC_FILE,
-				// DID's private keys
-				"(.+)\\" + File.separator + DATA_DIR + "\\" + File.separator +
-				DID_DIR + "\\" + File.separator + "(.+)\\" + File.separator +
-				PRIVATEKEYS_DIR + "\\" + File.separator + "(.+)"
-		};
-
-		String path = file.getAbsolutePath();
-		for (String pattern : patterns) {
-			if (path.matches(pattern))
-				return true;
-		}
-
-		return false;
-	}
-
-	private void copy(File src, File dest, ReEncryptor reEncryptor)
-			throws IOException, DIDStoreException {
-		if (src.isDirectory()) {
-			if (!dest.exists()) {
-				dest.mkdir();
+	// The relative paths of the encrypted entries in the data folder
+	private List<String> listEncryptedEntries() {
+		List<String> entries = new ArrayList<String>();
+
+		File[] roots = getDir(DATA_DIR, ROOT_IDENTITIES_DIR).listFiles();
+		if (roots != null) {
+			for (File root : roots) {
+				for (String name : new String[] { ROOT_IDENTITY_PRIVATEKEY_FILE,
+						ROOT_IDENTITY_MNEMONIC_FILE }) {
+					if (new File(root, name).isFile())
+						entries.add(ROOT_IDENTITIES_DIR + File.separator +
+								root.getName() + File.separator + name);
+				}
 			}
+		}
+
+		File[] dids = getDir(DATA_DIR, DID_DIR).listFiles();
+		if (dids != null) {
+			for (File did : dids) {
+				File[] keys = new File(did, PRIVATEKEYS_DIR).listFiles();
+				if (keys == null)
+					continue;
 
-			String files[] = src.list();
-			for (String file : files) {
-				File srcFile = new File(src, file);
-				File destFile = new File(dest, file);
-				copy(srcFile, destFile, reEncryptor);
+				for (File key : keys) {
+					if (key.isFile())
+						entries.add(DID_DIR + File.separator + did.getName() +
+								File.separator + PRIVATEKEYS_DIR + File.separator +
+								key.getName());
+				}
 			}
-		} else {
-			if (needReencrypt(src)) {
-				String text = readText(src);
-				writeText(dest, reEncryptor.reEncrypt(text));
-			} else {
-				copyFile(src, dest);
+		}
+
+		return entries;
+	}
+
+	private static String checksum(String text) {
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		return Long.toHexString(crc.getValue());
+	}
+
+	/*
+	 * The journal entry is finished if its commit marker exists and records
+	 * the checksum of the current data entry, the marker is written after
+	 * the entry.
+	 */
+	private static boolean isFinished(File journalDir, String entry, String text)
+			throws IOException {
+		File marker = new File(new File(journalDir, COMMIT_MARKERS_DIR), entry);
+		return marker.exists() && new File(journalDir, entry).exists() &&
+				readText(marker).equals(checksum(text));
+	}
+
+	/*
+	 * The journal of an interrupted change is reusable if it's for the same
+	 * passwords. The encryption is deterministic, so re-encrypt one finished
+	 * entry and compare.
+	 */
+	private boolean isResumable(File journalDir, List<String> entries,
+			ReEncryptor reEncryptor) throws IOException, DIDStoreException {
+		File dataDir = getDir(DATA_DIR);
+
+		for (String entry : entries) {
+			String text = readText(new File(dataDir, entry));
+			if (!isFinished(journalDir, entry, text))
+				continue;
+
+			return reEncryptor.reEncrypt(text).equals(
+					readText(new File(journalDir, entry)));
+		}
+
+		return true;
+	}
+
+	private void reEncrypt(List<String> entries, int from, int to,
+			ReEncryptor reEncryptor) throws IOException, DIDStoreException {
+		File dataDir = getDir(DATA_DIR);
+		File journalDir = getDir(PASSWORD_JOURNAL_DIR);
+		File markersDir = new File(journalDir, COMMIT_MARKERS_DIR);
+		boolean sync = durability != DIDStore.Durability.NONE;
+
+		for (int i = from; i < to; i++) {
+			// Stop early when the password change is aborted
+			if (Thread.currentThread().isInterrupted())
+				throw new InterruptedIOException("Re-encrypt interrupted");
+
+			String entry = entries.get(i);
+			String text = readText(new File(dataDir, entry));
+			if (isFinished(journalDir, entry, text))
+				continue;
+
+			File staged = new File(journalDir, entry);
+			staged.getParentFile().mkdirs();
+			// The folders are flushed once before the commit
+			atomicWrite(staged, reEncryptor.reEncrypt(text), sync, false);
+
+			File marker = new File(markersDir, entry);
+			marker.getParentFile().mkdirs();
+			atomicWrite(marker, checksum(text), sync, false);
+		}
+	}
+
+	private void reEncrypt(List<String> entries, ReEncryptor reEncryptor,
+			DIDStore.ProgressCallback callback) throws IOException, DIDStoreException {
+		int total = entries.size();
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+				(total + REENCRYPT_BATCH_SIZE - 1) / REENCRYPT_BATCH_SIZE);
+
+		if (threads <= 1) {
+			for (int i = 0; i < total; i += REENCRYPT_BATCH_SIZE) {
+				int to = Math.min(i + REENCRYPT_BATCH_SIZE, total);
+				reEncrypt(entries, i, to, reEncryptor);
+				if (callback != null)
+					callback.onProgress(to, total);
 			}
+
+			return;
 		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads, (r) -> {
+			Thread t = new Thread(r, "DIDStore-reencrypt");
+			t.setDaemon(true);
+			return t;
+		});
+
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		try {
+			for (int i = 0; i < total; i += REENCRYPT_BATCH_SIZE) {
+				int from = i;
+				int to = Math.min(i + REENCRYPT_BATCH_SIZE, total);
+				futures.add(executor.submit(() -> {
+					reEncrypt(entries, from, to, reEncryptor);
+					return to;
+				}));
+			}
+
+			// Report the progress in the caller's thread
+			for (Future<Integer> future : futures) {
+				int processed = future.get();
+				if (callback != null)
+					callback.onProgress(processed, total);
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException)cause;
+			else if (cause instanceof DIDStoreException)
+				throw (DIDStoreException)cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else
+				throw new IOException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Re-encrypt interrupted", e);
+		} finally {
+			// No worker should write the journal after the password change
+			// returned, the retry may run with the other password
+			for (Future<Integer> future : futures)
+				future.cancel(false);
+
+			executor.shutdownNow();
+			awaitTermination(executor);
+		}
+	}
+
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false;
+
+		while (true) {
+			try {
+				if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+					break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
 	}
 
-	private void postChangePassword() {
+	private void postChangePassword() throws DIDStorageException {
 		File dataDir = getDir(DATA_DIR);
+		File journalDir = getDir(PASSWORD_JOURNAL_DIR);
+		// The full copy of the data folder from the previous versions
 		File dataJournal = getDir(DATA_DIR + JOURNAL_SUFFIX);
 
-		int timestamp = (int)(System.currentTimeMillis() / 1000);
-		File dataDeprecated = getDir(DATA_DIR + "_" + timestamp);
-
 		File stageFile = getFile("postChangePassword");
 
 		if (stageFile.exists()) {
+			if (journalDir.exists()) {
+				try {
+					// The moved entries leave the journal, so it's safe to
+					// resume from a crash in the middle
+					Set<String> entries = new HashSet<String>(listEncryptedEntries());
+					Set<File> files = new HashSet<File>();
+					listFiles(journalDir, files);
+
+					Set<File> moved = new HashSet<File>();
+					for (File staged : files) {
+						String entry = journalDir.toPath().relativize(staged.toPath()).toString();
+						// Skip the entries deleted after re-encrypted
+						if (!entries.contains(entry))
+							continue;
+
+						File dest = new File(dataDir, entry);
+						Files.move(staged.toPath(), dest.toPath(),
+								StandardCopyOption.REPLACE_EXISTING,
+								StandardCopyOption.ATOMIC_MOVE);
+						moved.add(dest);
+					}
+
+					if (durability != DIDStore.Durability.NONE)
+						fsyncAll(moved);
+				} catch (IOException e) {
+					log.error("Commit the password change error", e);
+					throw new DIDStorageException("Commit the password change of DIDStore \""
+							+ storeRoot.getAbsolutePath() + "\" error.", e);
+				}
+
+				deleteFile(journalDir);
+			}
+
 			if (dataJournal.exists()) {
+				int timestamp = (int)(System.currentTimeMillis() / 1000);
+				File dataDeprecated = getDir(DATA_DIR + "_" + timestamp);
+
 				if (dataDir.exists())
 					dataDir.renameTo(dataDeprecated);
 
@@ -865,28 +1380,69 @@ class FileSystemStorage implements DIDStorage {
 			}
 
 			stageFile.delete();
+			if (durability != DIDStore.Durability.NONE)
+				fsyncDir(storeRoot);
 		} else {
 			if (dataJournal.exists())
 				deleteFile(dataJournal);
 		}
 	}
 
+	private static void listFiles(File dir, Set<File> files) {
+		File[] children = dir.listFiles();
+		if (children == null)
+			return;
+
+		for (File child : children) {
+			if (child.isDirectory())
+				listFiles(child, files);
+			else
+				files.add(child);
+		}
+	}
+
 	@Override
 	public void changePassword(ReEncryptor reEncryptor)
 			throws DIDStorageException {
+		changePassword(reEncryptor, null);
+	}
+
+	@Override
+	public synchronized void changePassword(ReEncryptor reEncryptor,
+			DIDStore.ProgressCallback callback) throws DIDStorageException {
 		try {
-			File dataDir = getDir(DATA_DIR);
-			File dataJournal = getDir(DATA_DIR + JOURNAL_SUFFIX);
+			// Make the current data durable and empty the journal, the
+			// encrypted entries will be replaced
+			groupCommit.commit();
+			closeWal();
+
+			File journalDir = getDir(PASSWORD_JOURNAL_DIR);
+			List<String> entries = listEncryptedEntries();
+
+			if (journalDir.exists() && !isResumable(journalDir, entries, reEncryptor)) {
+				log.info("Discard the password change journal of DID store {}",
+						storeRoot.getAbsolutePath());
+				deleteFile(journalDir);
+			}
+
+			reEncrypt(entries, reEncryptor, callback);
 
-			copy(dataDir, dataJournal, reEncryptor);
+			if (durability != DIDStore.Durability.NONE) {
+				Set<File> files = new HashSet<File>();
+				listFiles(journalDir, files);
+				fsyncAll(files);
+			}
 
 			File stageFile = getFile(true, "postChangePassword");
 			stageFile.createNewFile();
+			if (durability != DIDStore.Durability.NONE)
+				fsyncDir(storeRoot);
 		} catch (DIDStoreException | IOException e) {
-			throw new DIDStorageException("Change store password failed.");
-		} finally {
-			postChangePassword();
+			// Keep the journal, retry with the same passwords to resume
+			throw new DIDStorageException("Change store password failed.", e);
 		}
+
+		postChangePassword();
 	}
 
 	// Dirty upgrade implementation
@@ -1125,11 +1681,18 @@ class FileSystemStorage implements DIDStorage {
 				}
 			}
 
+			// Make the upgraded data durable before the stage file
+			synchronized (this) {
+				groupCommit.commit();
+				closeWal();
+			}
+
 			currentDataDir = DATA_DIR;
 			File stageFile = getFile("postUpgrade");
 
 			int timestamp = (int)(System.currentTimeMillis() / 1000);
-			writeText(stageFile, DATA_DIR + "_" + timestamp);
+			atomicWrite(stageFile, DATA_DIR + "_" + timestamp,
+					durability != DIDStore.Durability.NONE);
 		} catch (IOException | DIDSyntaxException e) {
 			throw new DIDStorageException(e);
 		} finally {
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The group commit of a storage with the GROUP durability.
+ *
+ * <p>
+ * The storage writes without flushing and calls written() after each
+ * write. The pending writes are flushed together by one commit when they
+ * reach the group size, or after the commit delay since the first pending
+ * write, whichever comes first. All the methods must be called with the
+ * storage lock held, the delayed commit acquires the same lock.
+ * </p>
+ */
+class GroupCommit {
+	private static final int GROUP_SIZE = 256;
+	private static final long COMMIT_DELAY = 100; // milliseconds
+
+	/**
+	 * Flush the pending writes of the storage to the disk.
+	 */
+	@FunctionalInterface
+	interface Committer {
+		void commit() throws IOException;
+	}
+
+	private static final ScheduledExecutorService scheduler;
+
+	private final Object lock;
+	private final Committer committer;
+	private int pending;
+	private ScheduledFuture<?> scheduled;
+
+	private static final Logger log = LoggerFactory.getLogger(GroupCommit.class);
+
+	static {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (r) -> {
+			Thread t = new Thread(r, "DIDStorage-commit");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		scheduler = executor;
+	}
+
+	/**
+	 * Create a GroupCommit for a storage.
+	 *
+	 * @param lock the lock that guards the writes of the storage
+	 * @param committer the action that flushes the pending writes
+	 */
+	GroupCommit(Object lock, Committer committer) {
+		this.lock = lock;
+		this.committer = committer;
+	}
+
+	/**
+	 * Record a write, commit if the group is full.
+	 *
+	 * @throws IOException if the commit failed
+	 */
+	void written() throws IOException {
+		if (++pending >= GROUP_SIZE)
+			commit();
+		else if (scheduled == null)
+			scheduled = scheduler.schedule(this::delayedCommit,
+					COMMIT_DELAY, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get whether there are writes not committed yet.
+	 *
+	 * @return true if has the pending writes
+	 */
+	boolean isPending() {
+		return pending > 0;
+	}
+
+	/**
+	 * Commit the pending writes now.
+	 *
+	 * @throws IOException if the commit failed
+	 */
+	void commit() throws IOException {
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+
+		if (pending == 0)
+			return;
+
+		committer.commit();
+		pending = 0;
+	}
+
+	private void delayedCommit() {
+		synchronized (lock) {
+			scheduled = null;
+
+			try {
+				commit();
+			} catch (IOException e) {
+				log.warn("Group commit failed, retry on the next write", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The HTTP transport that used by the DefaultDIDAdapter to send the requests
+ * to the resolver or the ID chain.
+ *
+ * <p>
+ * The implementation should be thread safe, one transport instance will be
+ * shared by all the requests of the adapter.
+ * </p>
+ */
+public interface HttpTransport extends Closeable {
+	/**
+	 * The class name of the HTTP/2 transport, in the Java 11 source set.
+	 */
+	static final String HTTP2_TRANSPORT_CLASS = "org.elastos.did.Http2Transport";
+
+	/**
+	 * Perform a HTTP POST request with given JSON body to the url.
+	 *
+	 * @param url the target HTTP endpoint
+	 * @param body the request body
+	 * @return an input stream object of the response body
+	 * @throws IOException if an error occurred when processing the request
+	 */
+	public InputStream post(URL url, String body) throws IOException;
+
+	/**
+	 * Perform a HTTP POST request with given JSON body to the url in
+	 * asynchronous mode.
+	 *
+	 * <p>
+	 * The default implementation runs the blocking post() on the given
+	 * executor. The non-blocking transports should override this method,
+	 * the executor is not required by them.
+	 * </p>
+	 *
+	 * @param url the target HTTP endpoint
+	 * @param body the request body
+	 * @param executor the executor to perform the blocking request
+	 * @return a new CompletableStage, the result is the input stream object
+	 * 		   of the response body, or completes exceptionally with an
+	 * 		   IOException
+	 */
+	public default CompletableFuture<InputStream> postAsync(URL url,
+			String body, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return post(url, body);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Release the resources that held by this transport.
+	 */
+	@Override
+	default void close() {
+	}
+
+	/**
+	 * Check if the HTTP/2 transport is available on current Java runtime.
+	 * The HTTP/2 transport requires Java 11 or later.
+	 *
+	 * @return true if available, false otherwise
+	 */
+	public static boolean isHttp2Available() {
+		try {
+			Class.forName("java.net.http.HttpClient");
+			Class.forName(HTTP2_TRANSPORT_CLASS);
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Create a HTTP/2 transport with the given options. The HTTP/2
+	 * transport is built with Java 11 separately, this method loads it
+	 * reflectively, so the library still runs on Java 8.
+	 *
+	 * @param connectTimeout the connect timeout in milliseconds, 0 means
+	 * 		  infinite
+	 * @param readTimeout the timeout of each request in milliseconds, 0 means
+	 * 		  infinite
+	 * @param gzip request and decode the gzip compressed response or not
+	 * @return the HTTP/2 HttpTransport object
+	 * @throws UnsupportedOperationException if the HTTP/2 transport is not
+	 * 		   available on current Java runtime
+	 */
+	public static HttpTransport newHttp2Transport(int connectTimeout,
+			int readTimeout, boolean gzip) {
+		if (!isHttp2Available())
+			throw new UnsupportedOperationException("HTTP/2 transport requires Java 11 or later");
+
+		try {
+			return (HttpTransport)Class.forName(HTTP2_TRANSPORT_CLASS)
+					.getConstructor(int.class, int.class, boolean.class)
+					.newInstance(connectTimeout, readTimeout, gzip);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+
+			throw new UnsupportedOperationException("Can not create HTTP/2 transport", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Can not create HTTP/2 transport", e);
+		}
+	}
+
+	/**
+	 * Create a HTTP/2 transport with the default options.
+	 *
+	 * @return the HTTP/2 HttpTransport object
+	 * @throws UnsupportedOperationException if the HTTP/2 transport is not
+	 * 		   available on current Java runtime
+	 */
+	public static HttpTransport newHttp2Transport() {
+		return newHttp2Transport(PooledHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+				PooledHttpTransport.DEFAULT_READ_TIMEOUT, true);
+	}
+}
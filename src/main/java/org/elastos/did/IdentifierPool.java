@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * The weak interning pool of the DID and DIDURL components.
+ *
+ * <p>
+ * The DIDs and DIDURLs parsed from a set of documents repeat the same
+ * method specific ids, fragments and canonical strings many times. The
+ * DID and DIDURL objects keep the pooled strings, so the equal objects
+ * share one copy of each string, and the string comparisons in equals()
+ * mostly end with the reference check. The pool only holds the strings
+ * weakly, the entries are released with the last object that uses them.
+ * </p>
+ *
+ * <p>
+ * The pool canonicalizes the immutable components instead of the objects,
+ * because the DID and DIDURL objects carry their own metadata.
+ * </p>
+ */
+final class IdentifierPool {
+	private static final Interner<String> strings = Interners.newWeakInterner();
+
+	private IdentifierPool() {}
+
+	/**
+	 * Returns the canonical instance of the given string.
+	 *
+	 * @param str the string to intern
+	 * @return the pooled string equals to the given string, or null if the
+	 * 			given string is null
+	 */
+	static String intern(String str) {
+		return str == null ? null : strings.intern(str);
+	}
+}
@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.elastos.did.exception.DIDStorageException;
+import org.elastos.did.exception.DIDStoreException;
+import org.elastos.did.exception.DIDSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The DIDStorage implementation that keeps everything in the memory.
+ *
+ * <p>
+ * The storage is thread-safe and backed by the concurrent maps, it is
+ * suitable for the tests, the short-lived services and the benchmarks that
+ * should not pay the disk I/O. The objects are kept in the serialized form,
+ * the same as the other storages, so the objects that returned from the
+ * storage never share the state with the stored ones.
+ * </p>
+ *
+ * <p>
+ * The updates of the root identities and the private keys are serialized
+ * with changePassword(), so the password change is atomic against them.
+ * </p>
+ *
+ * <p>
+ * The content can be saved to a snapshot file and restored later, the
+ * snapshot file is an embedded DIDStore file that can also be opened by
+ * DIDStore.open() directly.
+ * </p>
+ */
+public class InMemoryStorage implements DIDStorage {
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+	private volatile String metadata;
+	private ConcurrentMap<String, RootIdentityEntry> roots;
+	private ConcurrentMap<DID, DIDEntry> dids;
+
+	private static final Logger log = LoggerFactory.getLogger(InMemoryStorage.class);
+
+	private static class RootIdentityEntry {
+		private final String mnemonic;
+		private final String privateKey;
+		private final String publicKey;
+		private final int index;
+		private final String metadata;
+
+		RootIdentityEntry(String mnemonic, String privateKey, String publicKey,
+				int index, String metadata) {
+			this.mnemonic = mnemonic;
+			this.privateKey = privateKey;
+			this.publicKey = publicKey;
+			this.index = index;
+			this.metadata = metadata;
+		}
+	}
+
+	private static class DIDEntry {
+		private volatile String document;
+		private volatile String metadata;
+		private final ConcurrentMap<DIDURL, CredentialEntry> credentials;
+		private final ConcurrentMap<DIDURL, String> privateKeys;
+
+		DIDEntry() {
+			credentials = new ConcurrentHashMap<DIDURL, CredentialEntry>();
+			privateKeys = new ConcurrentHashMap<DIDURL, String>();
+		}
+	}
+
+	private static class CredentialEntry {
+		private volatile String credential;
+		private volatile String metadata;
+	}
+
+	/**
+	 * Create an empty in-memory storage.
+	 */
+	public InMemoryStorage() {
+		roots = new ConcurrentHashMap<String, RootIdentityEntry>();
+		dids = new ConcurrentHashMap<DID, DIDEntry>();
+		metadata = new DIDStore.Metadata().serialize();
+	}
+
+	/**
+	 * Restore an in-memory storage from a snapshot file.
+	 *
+	 * @param snapshot the snapshot file that saved by snapshot(), or an
+	 * 		  embedded DIDStore file
+	 * @return the InMemoryStorage object
+	 * @throws DIDStorageException if an error occurred when reading the
+	 * 		   snapshot file
+	 */
+	public static InMemoryStorage restore(File snapshot) throws DIDStorageException {
+		checkArgument(snapshot != null, "Invalid snapshot file");
+
+		if (!snapshot.isFile())
+			throw new DIDStorageException("Snapshot \"" + snapshot.getAbsolutePath()
+					+ "\" not exists.");
+
+		InMemoryStorage storage = new InMemoryStorage();
+		EmbeddedStorage src = new EmbeddedStorage(snapshot, false);
+		try {
+			copy(src, storage);
+		} finally {
+			src.close();
+		}
+
+		log.debug("In-memory DID store restored from {}, {} DIDs",
+				snapshot.getAbsolutePath(), storage.dids.size());
+		return storage;
+	}
+
+	/**
+	 * Save the content of this storage to a snapshot file. The snapshot is
+	 * written to a temporary file and then moved to the target file, so the
+	 * existing snapshot stays intact if an error occurred.
+	 *
+	 * @param snapshot the snapshot file
+	 * @throws DIDStorageException if an error occurred when writing the
+	 * 		   snapshot file
+	 */
+	public synchronized void snapshot(File snapshot) throws DIDStorageException {
+		checkArgument(snapshot != null, "Invalid snapshot file");
+
+		File tmp = new File(snapshot.getPath() + SNAPSHOT_SUFFIX);
+		tmp.delete();
+
+		EmbeddedStorage dest = new EmbeddedStorage(tmp, false);
+		try {
+			copy(this, dest);
+		} catch (DIDStorageException e) {
+			dest.close();
+			tmp.delete();
+			throw e;
+		}
+		dest.close();
+
+		try {
+			Files.move(tmp.toPath(), snapshot.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tmp.delete();
+			throw new DIDStorageException("Save snapshot \""
+					+ snapshot.getAbsolutePath() + "\" error.", e);
+		}
+
+		log.debug("In-memory DID store saved to {}", snapshot.getAbsolutePath());
+	}
+
+	private static void copy(DIDStorage src, DIDStorage dest)
+			throws DIDStorageException {
+		dest.storeMetadata(src.loadMetadata());
+
+		for (RootIdentity identity : src.listRootIdentities()) {
+			String id = identity.getId();
+			dest.storeRootIdentity(id, src.loadRootIdentityMnemonic(id),
+					src.loadRootIdentityPrivateKey(id),
+					identity.getPreDerivedPublicKey().serializePublicKeyBase58(),
+					identity.getIndex());
+			dest.storeRootIdentityMetadata(id, src.loadRootIdentityMetadata(id));
+		}
+
+		for (DID did : src.listDids()) {
+			DIDDocument doc = src.loadDid(did);
+			if (doc != null)
+				dest.storeDid(doc);
+			dest.storeDidMetadata(did, src.loadDidMetadata(did));
+
+			for (DIDURL id : src.listCredentials(did)) {
+				VerifiableCredential vc = src.loadCredential(id);
+				if (vc != null)
+					dest.storeCredential(vc);
+				dest.storeCredentialMetadata(id, src.loadCredentialMetadata(id));
+			}
+
+			for (DIDURL id : src.listPrivateKeys(did))
+				dest.storePrivateKey(id, src.loadPrivateKey(id));
+		}
+	}
+
+	@Override
+	public String getLocation() {
+		return "memory:" + Integer.toHexString(System.identityHashCode(this));
+	}
+
+	@Override
+	public void storeMetadata(DIDStore.Metadata metadata) {
+		if (metadata == null || metadata.isEmpty())
+			this.metadata = null;
+		else
+			this.metadata = metadata.serialize();
+	}
+
+	@Override
+	public DIDStore.Metadata loadMetadata() throws DIDStorageException {
+		try {
+			String value = metadata;
+			return value == null ? null :
+					DIDStore.Metadata.parse(value, DIDStore.Metadata.class);
+		} catch (DIDSyntaxException e) {
+			throw new DIDStorageException("Load DIDStore metadata error", e);
+		}
+	}
+
+	@Override
+	public synchronized void storeRootIdentityMetadata(String id, RootIdentity.Metadata metadata) {
+		String value = (metadata == null || metadata.isEmpty()) ?
+				null : metadata.serialize();
+
+		roots.compute(id, (k, e) -> {
+			if (e == null)
+				return value == null ? null :
+						new RootIdentityEntry(null, null, null, 0, value);
+			else
+				return new RootIdentityEntry(e.mnemonic, e.privateKey,
+						e.publicKey, e.index, value);
+		});
+	}
+
+	@Override
+	public RootIdentity.Metadata loadRootIdentityMetadata(String id)
+			throws DIDStorageException {
+		RootIdentityEntry e = roots.get(id);
+		if (e == null || e.metadata == null)
+			return null;
+
+		try {
+			return RootIdentity.Metadata.parse(e.metadata, RootIdentity.Metadata.class);
+		} catch (DIDSyntaxException ex) {
+			throw new DIDStorageException("Load root identity metadata error: " + id, ex);
+		}
+	}
+
+	@Override
+	public synchronized void storeRootIdentity(String id, String mnemonic, String privateKey,
+			String publicKey, int index) {
+		roots.compute(id, (k, e) -> {
+			if (e == null)
+				return new RootIdentityEntry(mnemonic, privateKey, publicKey,
+						index, null);
+			else
+				return new RootIdentityEntry(
+						mnemonic != null ? mnemonic : e.mnemonic,
+						privateKey != null ? privateKey : e.privateKey,
+						publicKey != null ? publicKey : e.publicKey,
+						index, e.metadata);
+		});
+	}
+
+	@Override
+	public RootIdentity loadRootIdentity(String id) {
+		RootIdentityEntry e = roots.get(id);
+		if (e == null || e.publicKey == null)
+			return null;
+
+		return RootIdentity.create(e.publicKey, e.index);
+	}
+
+	@Override
+	public synchronized void updateRootIdentityIndex(String id, int index)
+			throws DIDStorageException {
+		RootIdentityEntry e = roots.computeIfPresent(id, (k, old) ->
+				new RootIdentityEntry(old.mnemonic, old.privateKey,
+						old.publicKey, index, old.metadata));
+
+		if (e == null)
+			throw new DIDStorageException("Update index for indentiy error: " + id);
+	}
+
+	@Override
+	public String loadRootIdentityPrivateKey(String id) {
+		RootIdentityEntry e = roots.get(id);
+		return e == null ? null : e.privateKey;
+	}
+
+	@Override
+	public String loadRootIdentityMnemonic(String id) {
+		RootIdentityEntry e = roots.get(id);
+		return e == null ? null : e.mnemonic;
+	}
+
+	@Override
+	public synchronized boolean deleteRootIdentity(String id) {
+		return roots.remove(id) != null;
+	}
+
+	@Override
+	public List<RootIdentity> listRootIdentities() {
+		ArrayList<RootIdentity> ids = new ArrayList<RootIdentity>(roots.size());
+		for (String id : roots.keySet()) {
+			RootIdentity identity = loadRootIdentity(id);
+			if (identity != null)
+				ids.add(identity);
+		}
+
+		return ids;
+	}
+
+	@Override
+	public boolean containsRootIdenities() {
+		for (RootIdentityEntry e : roots.values()) {
+			if (e.publicKey != null)
+				return true;
+		}
+
+		return false;
+	}
+
+	private DIDEntry getDidEntry(DID did, boolean create) {
+		return create ? dids.computeIfAbsent(did, (k) -> new DIDEntry()) :
+				dids.get(did);
+	}
+
+	@Override
+	public void storeDidMetadata(DID did, DIDMetadata metadata) {
+		boolean empty = metadata == null || metadata.isEmpty();
+		DIDEntry e = getDidEntry(did, !empty);
+		if (e != null)
+			e.metadata = empty ? null : metadata.serialize();
+	}
+
+	@Override
+	public DIDMetadata loadDidMetadata(DID did) throws DIDStorageException {
+		DIDEntry e = getDidEntry(did, false);
+		String value = e == null ? null : e.metadata;
+		if (value == null)
+			return null;
+
+		try {
+			return DIDMetadata.parse(value, DIDMetadata.class);
+		} catch (DIDSyntaxException ex) {
+			throw new DIDStorageException("Load DID metadata error: " + did, ex);
+		}
+	}
+
+	@Override
+	public void storeDid(DIDDocument doc) {
+		getDidEntry(doc.getSubject(), true).document = doc.serialize(true);
+	}
+
+	@Override
+	public DIDDocument loadDid(DID did) throws DIDStorageException {
+		DIDEntry e = getDidEntry(did, false);
+		String value = e == null ? null : e.document;
+		if (value == null)
+			return null;
+
+		try {
+			return DIDDocument.parse(value);
+		} catch (DIDSyntaxException ex) {
+			throw new DIDStorageException("Load DID document error: " + did, ex);
+		}
+	}
+
+	@Override
+	public synchronized boolean deleteDid(DID did) {
+		return dids.remove(did) != null;
+	}
+
+	@Override
+	public List<DID> listDids() {
+		return new ArrayList<DID>(dids.keySet());
+	}
+
+	private CredentialEntry getCredentialEntry(DIDURL id, boolean create) {
+		DIDEntry e = getDidEntry(id.getDid(), create);
+		if (e == null)
+			return null;
+
+		return create ? e.credentials.computeIfAbsent(id, (k) -> new CredentialEntry()) :
+				e.credentials.get(id);
+	}
+
+	@Override
+	public void storeCredentialMetadata(DIDURL id, CredentialMetadata metadata) {
+		boolean empty = metadata == null || metadata.isEmpty();
+		CredentialEntry e = getCredentialEntry(id, !empty);
+		if (e != null)
+			e.metadata = empty ? null : metadata.serialize();
+	}
+
+	@Override
+	public CredentialMetadata loadCredentialMetadata(DIDURL id)
+			throws DIDStorageException {
+		CredentialEntry e = getCredentialEntry(id, false);
+		String value = e == null ? null : e.metadata;
+		if (value == null)
+			return null;
+
+		try {
+			return CredentialMetadata.parse(value, CredentialMetadata.class);
+		} catch (DIDSyntaxException ex) {
+			throw new DIDStorageException("Load credential metadata error: " + id, ex);
+		}
+	}
+
+	@Override
+	public void storeCredential(VerifiableCredential credential) {
+		getCredentialEntry(credential.getId(), true).credential =
+				credential.serialize(true);
+	}
+
+	@Override
+	public VerifiableCredential loadCredential(DIDURL id)
+			throws DIDStorageException {
+		CredentialEntry e = getCredentialEntry(id, false);
+		String value = e == null ? null : e.credential;
+		if (value == null)
+			return null;
+
+		try {
+			return VerifiableCredential.parse(value);
+		} catch (DIDSyntaxException ex) {
+			throw new DIDStorageException("Load credential error: " + id, ex);
+		}
+	}
+
+	@Override
+	public boolean containsCredentials(DID did) {
+		DIDEntry e = getDidEntry(did, false);
+		return e != null && !e.credentials.isEmpty();
+	}
+
+	@Override
+	public boolean deleteCredential(DIDURL id) {
+		DIDEntry e = getDidEntry(id.getDid(), false);
+		return e != null && e.credentials.remove(id) != null;
+	}
+
+	@Override
+	public List<DIDURL> listCredentials(DID did) {
+		DIDEntry e = getDidEntry(did, false);
+		if (e == null)
+			return Collections.emptyList();
+
+		return new ArrayList<DIDURL>(e.credentials.keySet());
+	}
+
+	@Override
+	public synchronized void storePrivateKey(DIDURL id, String privateKey) {
+		getDidEntry(id.getDid(), true).privateKeys.put(id, privateKey);
+	}
+
+	@Override
+	public String loadPrivateKey(DIDURL id) {
+		DIDEntry e = getDidEntry(id.getDid(), false);
+		return e == null ? null : e.privateKeys.get(id);
+	}
+
+	@Override
+	public boolean containsPrivateKeys(DID did) {
+		DIDEntry e = getDidEntry(did, false);
+		return e != null && !e.privateKeys.isEmpty();
+	}
+
+	@Override
+	public synchronized boolean deletePrivateKey(DIDURL id) {
+		DIDEntry e = getDidEntry(id.getDid(), false);
+		return e != null && e.privateKeys.remove(id) != null;
+	}
+
+	@Override
+	public List<DIDURL> listPrivateKeys(DID did) {
+		DIDEntry e = getDidEntry(did, false);
+		if (e == null)
+			return Collections.emptyList();
+
+		return new ArrayList<DIDURL>(e.privateKeys.keySet());
+	}
+
+	@Override
+	public synchronized void changePassword(ReEncryptor reEncryptor)
+			throws DIDStorageException {
+		// Re-encrypt everything first, then apply, keep the storage
+		// unchanged if any of the re-encryption failed
+		Map<String, RootIdentityEntry> newRoots = new HashMap<String, RootIdentityEntry>();
+		Map<DIDURL, String> newKeys = new HashMap<DIDURL, String>();
+
+		try {
+			for (Map.Entry<String, RootIdentityEntry> entry : roots.entrySet()) {
+				RootIdentityEntry e = entry.getValue();
+				newRoots.put(entry.getKey(), new RootIdentityEntry(
+						e.mnemonic == null ? null : reEncryptor.reEncrypt(e.mnemonic),
+						e.privateKey == null ? null : reEncryptor.reEncrypt(e.privateKey),
+						e.publicKey, e.index, e.metadata));
+			}
+
+			for (DIDEntry e : dids.values()) {
+				for (Map.Entry<DIDURL, String> key : e.privateKeys.entrySet())
+					newKeys.put(key.getKey(), reEncryptor.reEncrypt(key.getValue()));
+			}
+		} catch (DIDStoreException e) {
+			throw new DIDStorageException("Change store password failed.", e);
+		}
+
+		// The root identities and the private keys can not change while
+		// holding the lock, so the re-encrypted values replace them as is
+		roots.putAll(newRoots);
+		for (Map.Entry<DIDURL, String> key : newKeys.entrySet()) {
+			DIDEntry e = getDidEntry(key.getKey().getDid(), false);
+			if (e != null)
+				e.privateKeys.put(key.getKey(), key.getValue());
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.spongycastle.crypto.digests.SHA256Digest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * The unlocked session of a DIDStore.
+ *
+ * <p>
+ * The session keeps the decrypted private keys in a bounded cache, the key
+ * bytes are wiped when the entries are evicted, invalidated, or the
+ * session closed. The session only serves the callers with the same store
+ * password that unlocked it, and closes itself when the ttl expired, so
+ * the keys never stay in the memory after the ttl.
+ * </p>
+ *
+ * <p>
+ * The key accesses are mutually exclusive with the wiping, so a concurrent
+ * lock never hands out a partly wiped key.
+ * </p>
+ */
+class KeySession {
+	private static final int MAX_KEYS = 256;
+
+	private final byte[] passwordHash;
+	private final long deadline;
+	private final Cache<DIDURL, byte[]> keys;
+	// Guarded by this
+	private ScheduledFuture<?> expiry;
+	private boolean closed;
+
+	private static final ScheduledExecutorService scheduler;
+
+	static {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (r) -> {
+			Thread t = new Thread(r, "DIDStore-session");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		scheduler = executor;
+	}
+
+	/**
+	 * Create a new session.
+	 *
+	 * @param storepass the store password that unlocked the session
+	 * @param ttl the time to live of the session in milliseconds
+	 */
+	KeySession(String storepass, long ttl) {
+		this.passwordHash = hash(storepass);
+		this.deadline = System.currentTimeMillis() + ttl;
+		this.keys = CacheBuilder.newBuilder()
+				.maximumSize(MAX_KEYS)
+				.<DIDURL, byte[]>removalListener((n) -> {
+					if (n.getValue() != null)
+						Arrays.fill(n.getValue(), (byte)0);
+				})
+				.build();
+
+		// The scheduled close waits for the construction
+		synchronized (this) {
+			expiry = scheduler.schedule(this::close, ttl, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static byte[] hash(String storepass) {
+		byte[] passwd = storepass.getBytes();
+		SHA256Digest sha256 = new SHA256Digest();
+		byte[] digest = new byte[sha256.getDigestSize()];
+		sha256.update(passwd, 0, passwd.length);
+		sha256.doFinal(digest, 0);
+		return digest;
+	}
+
+	boolean isExpired() {
+		return System.currentTimeMillis() >= deadline;
+	}
+
+	/**
+	 * Check the session is alive and unlocked by the given password.
+	 *
+	 * @param storepass the store password from the caller
+	 * @return true if the session can serve the caller
+	 */
+	boolean accepts(String storepass) {
+		return !isExpired() && MessageDigest.isEqual(passwordHash, hash(storepass));
+	}
+
+	/**
+	 * Get a copy of the cached private key bytes, the caller should wipe
+	 * the copy after use.
+	 *
+	 * @param id the key id
+	 * @return the private key bytes, or null if not cached
+	 */
+	synchronized byte[] get(DIDURL id) {
+		if (closed)
+			return null;
+
+		byte[] key = keys.getIfPresent(id);
+		return key != null ? key.clone() : null;
+	}
+
+	synchronized void put(DIDURL id, byte[] privateKey) {
+		// Never keep the keys in a closed session, nobody will wipe them
+		if (closed)
+			return;
+
+		keys.put(id, privateKey.clone());
+	}
+
+	synchronized void invalidate(DIDURL id) {
+		keys.invalidate(id);
+	}
+
+	synchronized void invalidate(DID did) {
+		for (DIDURL id : keys.asMap().keySet()) {
+			if (id.getDid().equals(did))
+				keys.invalidate(id);
+		}
+	}
+
+	/**
+	 * Wipe all the cached keys.
+	 */
+	synchronized void close() {
+		if (closed)
+			return;
+
+		expiry.cancel(false);
+		closed = true;
+		keys.invalidateAll();
+		keys.cleanUp();
+		Arrays.fill(passwordHash, (byte)0);
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The keep-alive HTTP/1.1 transport based on HttpURLConnection.
+ *
+ * <p>
+ * The response body is always consumed completely and the stream closed
+ * before returning, so the underlying connection goes back to the keep-alive
+ * cache of the Java runtime and will be reused by the following requests to
+ * the same route. The number of concurrent connections to each route
+ * (scheme, host and port) is bounded by maxConnectionsPerRoute.
+ * </p>
+ *
+ * <p>
+ * NOTICE: The Java runtime keeps at most 'http.maxConnections' (default 5)
+ * idle connections per route, set this system property at startup to keep
+ * more connections alive.
+ * </p>
+ */
+public class PooledHttpTransport implements HttpTransport {
+	/**
+	 * The default connect timeout in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	/**
+	 * The default read timeout in milliseconds.
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+	/**
+	 * The default max concurrent connections per route.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+
+	private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11";
+
+	private int connectTimeout;
+	private int readTimeout;
+	private int maxConnectionsPerRoute;
+	private boolean gzip;
+
+	private ConcurrentHashMap<String, Semaphore> routes;
+
+	private static final Logger log = LoggerFactory.getLogger(PooledHttpTransport.class);
+
+	/**
+	 * Create a PooledHttpTransport instance with the given options.
+	 *
+	 * @param connectTimeout the connect timeout in milliseconds, 0 means
+	 * 		  infinite
+	 * @param readTimeout the read timeout in milliseconds, 0 means infinite
+	 * @param maxConnectionsPerRoute the max concurrent connections per route
+	 * @param gzip request and decode the gzip compressed response or not
+	 */
+	public PooledHttpTransport(int connectTimeout, int readTimeout,
+			int maxConnectionsPerRoute, boolean gzip) {
+		checkArgument(connectTimeout >= 0, "Invalid connect timeout");
+		checkArgument(readTimeout >= 0, "Invalid read timeout");
+		checkArgument(maxConnectionsPerRoute > 0, "Invalid max connections");
+
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		this.gzip = gzip;
+		this.routes = new ConcurrentHashMap<String, Semaphore>();
+	}
+
+	/**
+	 * Create a PooledHttpTransport instance with the default options.
+	 */
+	public PooledHttpTransport() {
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+				DEFAULT_MAX_CONNECTIONS_PER_ROUTE, true);
+	}
+
+	private Semaphore getRoute(URL url) {
+		int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+		String route = url.getProtocol() + "://" + url.getHost() + ":" + port;
+		return routes.computeIfAbsent(route,
+				(k) -> new Semaphore(maxConnectionsPerRoute, true));
+	}
+
+	private static byte[] readFully(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream(4096);
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = is.read(buf)) != -1)
+			os.write(buf, 0, len);
+
+		return os.toByteArray();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream post(URL url, String body) throws IOException {
+		Semaphore route = getRoute(url);
+		try {
+			route.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for connection");
+		}
+
+		try {
+			return doPost(url, body);
+		} finally {
+			route.release();
+		}
+	}
+
+	private InputStream doPost(URL url, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setRequestProperty("User-Agent", USER_AGENT);
+		connection.setRequestProperty("Content-Type", "application/json");
+		connection.setRequestProperty("Accept", "application/json");
+		if (gzip)
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+		connection.setDoOutput(true);
+
+		byte[] data = body.getBytes(StandardCharsets.UTF_8);
+		connection.setFixedLengthStreamingMode(data.length);
+
+		try (OutputStream os = connection.getOutputStream()) {
+			os.write(data);
+		}
+
+		int code = connection.getResponseCode();
+		if (code < 200 || code > 299) {
+			log.error("HTTP request error, status: {}, message: {}",
+					code, connection.getResponseMessage());
+
+			// Drain the error body, so the connection can be reused
+			InputStream es = connection.getErrorStream();
+			if (es != null) {
+				try {
+					readFully(es);
+				} catch (IOException ignore) {
+				} finally {
+					es.close();
+				}
+			}
+
+			throw new IOException("HTTP error with status: " + code);
+		}
+
+		byte[] response;
+		try (InputStream is = connection.getInputStream()) {
+			response = readFully(is);
+		}
+
+		InputStream is = new ByteArrayInputStream(response);
+		if ("gzip".equalsIgnoreCase(connection.getContentEncoding()))
+			is = new GZIPInputStream(is);
+
+		return is;
+	}
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elastos.did.exception.DIDResolveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The verification engine for the VerifiablePresentation.
+ *
+ * <p>
+ * The verifier collects all the DIDs that the presentation depends on,
+ * resolves the distinct ones in one batch, then checks the presentation
+ * proof and the credentials in parallel with the resolved documents. By
+ * default the verification stops at the first failure, the remaining
+ * credentials are reported as SKIPPED.
+ * </p>
+ *
+ * <p>
+ * The checks keep the order of VerifiablePresentation.isGenuine(): the
+ * holder's document, the proof type and key, the credentials in order,
+ * then the proof signature. A credential whose issuer does not exist is
+ * reported as NOT_FOUND, with fail fast the credentials after it and the
+ * proof signature are not checked. VerifiablePresentation.isGenuine() and
+ * isValid() throw the DIDNotFoundException for it only if all the checks
+ * before it passed.
+ * </p>
+ *
+ * <p>
+ * The verifier is thread safe, one instance can be shared by the
+ * concurrent verifications.
+ * </p>
+ */
+public class PresentationVerifier {
+	private Executor executor;
+	private int parallelism;
+	private boolean failFast;
+
+	private static final Logger log = LoggerFactory.getLogger(PresentationVerifier.class);
+
+	/**
+	 * The verification status of the presentation or the credential.
+	 */
+	public enum Status {
+		/**
+		 * Passed all the checks.
+		 */
+		PASSED,
+		/**
+		 * The holder's or the issuer's DID document not exists.
+		 */
+		NOT_FOUND,
+		/**
+		 * The documents or the signatures are not genuine.
+		 */
+		NOT_GENUINE,
+		/**
+		 * The documents or the credential expired or deactivated, or not
+		 * genuine.
+		 */
+		INVALID,
+		/**
+		 * The credential not owned by the presentation holder.
+		 */
+		NOT_OWNED,
+		/**
+		 * Not checked because of the previous failure.
+		 */
+		SKIPPED
+	}
+
+	/**
+	 * The verdict of the presentation, includes the status of the
+	 * presentation itself and the status of each credential.
+	 */
+	public static class Verdict {
+		private Status status;
+		private Map<DIDURL, Status> credentials;
+
+		private Verdict(Status status, Map<DIDURL, Status> credentials) {
+			this.status = status;
+			this.credentials = Collections.unmodifiableMap(credentials);
+		}
+
+		/**
+		 * Get the status of the presentation itself, the holder's document
+		 * and the presentation proof.
+		 *
+		 * @return the status
+		 */
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * Get the status of the specified credential.
+		 *
+		 * @param id the credential id
+		 * @return the status, null if the credential not in the presentation
+		 */
+		public Status getCredentialStatus(DIDURL id) {
+			return credentials.get(id);
+		}
+
+		/**
+		 * Get the statuses of all the credentials, in the order of the
+		 * presentation.
+		 *
+		 * @return an unmodifiable map of the credential id to the status
+		 */
+		public Map<DIDURL, Status> getCredentialStatuses() {
+			return credentials;
+		}
+
+		/**
+		 * Check whether the presentation and all the credentials passed.
+		 *
+		 * @return true if passed, false otherwise
+		 */
+		public boolean isPassed() {
+			if (status != Status.PASSED)
+				return false;
+
+			for (Status s : credentials.values()) {
+				if (s != Status.PASSED)
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return status + " " + credentials;
+		}
+	}
+
+	/**
+	 * Create a PresentationVerifier that runs on the given executor.
+	 *
+	 * @param executor the executor for the parallel checks, null to use the
+	 * 		  DIDBackend's async executor
+	 */
+	public PresentationVerifier(Executor executor) {
+		this.executor = executor;
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+		this.failFast = true;
+	}
+
+	/**
+	 * Create a PresentationVerifier that runs on the DIDBackend's async
+	 * executor.
+	 */
+	public PresentationVerifier() {
+		this(null);
+	}
+
+	/**
+	 * Set the maximum number of the threads that check one presentation.
+	 *
+	 * @param parallelism the parallelism, 1 means checking in the caller
+	 * 		  thread
+	 * @return this PresentationVerifier instance for method chaining
+	 */
+	public PresentationVerifier parallelism(int parallelism) {
+		checkArgument(parallelism > 0, "Invalid parallelism");
+
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Set whether stop the verification at the first failure.
+	 *
+	 * @param failFast true to stop at the first failure, false to check all
+	 * 		  the credentials
+	 * @return this PresentationVerifier instance for method chaining
+	 */
+	public PresentationVerifier failFast(boolean failFast) {
+		this.failFast = failFast;
+		return this;
+	}
+
+	private Executor getExecutor() {
+		return executor != null ? executor : DIDBackend.getInstance().getAsyncExecutor();
+	}
+
+	/**
+	 * Check whether the presentation is genuine, the same checks as
+	 * VerifiablePresentation.isGenuine().
+	 *
+	 * @param vp the presentation to be verified
+	 * @return the Verdict object
+	 * @throws DIDResolveException if an error occurred when resolving the DIDs
+	 */
+	public Verdict verifyGenuine(VerifiablePresentation vp)
+			throws DIDResolveException {
+		return verify(vp, false);
+	}
+
+	/**
+	 * Check whether the presentation is valid, the same checks as
+	 * VerifiablePresentation.isValid().
+	 *
+	 * @param vp the presentation to be verified
+	 * @return the Verdict object
+	 * @throws DIDResolveException if an error occurred when resolving the DIDs
+	 */
+	public Verdict verifyValidity(VerifiablePresentation vp)
+			throws DIDResolveException {
+		return verify(vp, true);
+	}
+
+	/**
+	 * Check whether the presentation is genuine in asynchronous mode.
+	 *
+	 * @param vp the presentation to be verified
+	 * @return a new CompletableStage, the result is the Verdict object
+	 */
+	public CompletableFuture<Verdict> verifyGenuineAsync(VerifiablePresentation vp) {
+		return verifyAsync(vp, false);
+	}
+
+	/**
+	 * Check whether the presentation is valid in asynchronous mode.
+	 *
+	 * @param vp the presentation to be verified
+	 * @return a new CompletableStage, the result is the Verdict object
+	 */
+	public CompletableFuture<Verdict> verifyValidityAsync(VerifiablePresentation vp) {
+		return verifyAsync(vp, true);
+	}
+
+	private CompletableFuture<Verdict> verifyAsync(VerifiablePresentation vp,
+			boolean validity) {
+		checkArgument(vp != null, "Invalid presentation");
+
+		CompletableFuture<Verdict> future = CompletableFuture.supplyAsync(() -> {
+			try {
+				return verify(vp, validity);
+			} catch (DIDResolveException e) {
+				throw new CompletionException(e);
+			}
+		}, getExecutor());
+
+		return future;
+	}
+
+	private Verdict verify(VerifiablePresentation vp, boolean validity)
+			throws DIDResolveException {
+		checkArgument(vp != null, "Invalid presentation");
+
+		List<VerifiableCredential> vcs = vp.getCredentials();
+		Map<DIDURL, Status> statuses = new LinkedHashMap<DIDURL, Status>();
+		for (VerifiableCredential vc : vcs)
+			statuses.put(vc.getId(), Status.SKIPPED);
+
+		// All the distinct DIDs that the checks depend on
+		Set<DID> dids = new LinkedHashSet<DID>();
+		dids.add(vp.getHolder());
+		for (VerifiableCredential vc : vcs) {
+			dids.add(vc.getIssuer());
+			if (!vc.isSelfProclaimed())
+				dids.add(vc.getSubject().getId());
+		}
+
+		log.debug("Verifying presentation {} with {} credentials, {} DIDs...",
+				vp.getId(), vcs.size(), dids.size());
+
+		Map<DID, DIDDocument> docs = DIDBackend.getInstance().resolveDids(dids);
+
+		DIDDocument holderDoc = docs.get(vp.getHolder());
+		if (holderDoc == null)
+			return new Verdict(Status.NOT_FOUND, statuses);
+
+		if (validity ? !holderDoc.isValid() : !holderDoc.isGenuine())
+			return new Verdict(validity ? Status.INVALID : Status.NOT_GENUINE, statuses);
+
+		if (!vp.isProofSupported(holderDoc))
+			return new Verdict(Status.NOT_GENUINE, statuses);
+
+		// If fail fast, the checks end at the first credential whose issuer
+		// not exists, the proof signature is checked after the credentials
+		int missing = -1;
+		if (failFast) {
+			for (int i = 0; i < vcs.size() && missing < 0; i++) {
+				if (docs.get(vcs.get(i).getIssuer()) == null)
+					missing = i;
+			}
+		}
+
+		boolean checkProof = missing < 0;
+
+		// Task 0 is the presentation proof, others are the credentials
+		int count = (missing < 0 ? vcs.size() : missing + 1) + 1;
+		Status[] results = new Status[count];
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(count);
+		// Any failure will skip the unchecked tasks if fail fast
+		AtomicBoolean failed = new AtomicBoolean();
+
+		Runnable worker = () -> {
+			int i;
+			while ((i = next.getAndIncrement()) < count) {
+				try {
+					if ((i == 0 && !checkProof) || (failFast && failed.get())) {
+						results[i] = Status.SKIPPED;
+						continue;
+					}
+
+					Status status = i == 0 ?
+							(vp.isProofGenuine(holderDoc) ? Status.PASSED : Status.NOT_GENUINE) :
+							check(vp, vcs.get(i - 1), docs, validity);
+
+					results[i] = status;
+					// The missing issuer counts only if the credentials
+					// before it passed, they should not be skipped
+					if (status != Status.PASSED && status != Status.NOT_FOUND)
+						failed.set(true);
+				} catch (RuntimeException e) {
+					log.error("Verify presentation error", e);
+					results[i] = validity ? Status.INVALID : Status.NOT_GENUINE;
+					failed.set(true);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		// The caller thread works too, the helpers that started after all
+		// tasks were claimed exit immediately
+		Executor executor = getExecutor();
+		int helpers = Math.min(parallelism, count) - 1;
+		for (int i = 0; i < helpers; i++)
+			executor.execute(worker);
+
+		worker.run();
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DIDResolveException("Interrupted while verifying presentation", e);
+		}
+
+		for (int i = 1; i < count; i++)
+			statuses.put(vcs.get(i - 1).getId(), results[i]);
+
+		return new Verdict(results[0], statuses);
+	}
+
+	private Status check(VerifiablePresentation vp, VerifiableCredential vc,
+			Map<DID, DIDDocument> docs, boolean validity) {
+		if (!vc.getSubject().getId().equals(vp.getHolder()))
+			return Status.NOT_OWNED;
+
+		DIDDocument issuerDoc = docs.get(vc.getIssuer());
+		if (issuerDoc == null)
+			return Status.NOT_FOUND;
+
+		DIDDocument controllerDoc = vc.isSelfProclaimed() ? null :
+				docs.get(vc.getSubject().getId());
+
+		if (validity)
+			return vc.isValid(issuerDoc, controllerDoc) ? Status.PASSED : Status.INVALID;
+		else
+			return vc.isGenuine(issuerDoc, controllerDoc) ? Status.PASSED : Status.NOT_GENUINE;
+	}
+}
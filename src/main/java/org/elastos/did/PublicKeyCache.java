@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import java.security.KeyPair;
+import java.util.concurrent.ExecutionException;
+
+import org.elastos.did.crypto.HDKey;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * The process wide cache of the JCE public keys of the DID documents.
+ *
+ * <p>
+ * Building a JCE key from the base58 public key requires decoding the EC
+ * point and a round trip through the KeyFactory, this cache keeps the
+ * ready keys for the verifiers that check many JWTs from a few issuers.
+ * The entries are keyed by the base58 encoded public key itself, so a hit
+ * always returns the key decoded from the same key material, no matter
+ * which document, key id or document version it comes from. The cache
+ * never needs to be invalidated when the documents change.
+ * </p>
+ */
+class PublicKeyCache {
+	private static final int MAX_KEYS = 1024;
+
+	private static final Cache<String, KeyPair> keys = CacheBuilder.newBuilder()
+			.maximumSize(MAX_KEYS)
+			.build();
+
+	private PublicKeyCache() {}
+
+	private static KeyPair load(DIDDocument.PublicKey pk) {
+		HDKey key = HDKey.deserialize(HDKey.paddingToExtendedPublicKey(
+				pk.getPublicKeyBytes()));
+
+		return key.getJCEKeyPair();
+	}
+
+	/**
+	 * Get the JCE KeyPair object of the given public key, the KeyPair only
+	 * contains the public key.
+	 *
+	 * @param pk the public key from the document or its controllers
+	 * @return the JCE KeyPair object
+	 */
+	static KeyPair get(DIDDocument.PublicKey pk) {
+		try {
+			return keys.get(pk.getPublicKeyBase58(), () -> load(pk));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Drop all cached keys.
+	 */
+	static void clear() {
+		keys.invalidateAll();
+	}
+
+	/**
+	 * Returns the number of the cached keys, for testing purpose.
+	 *
+	 * @return the number of the cached keys
+	 */
+	static long size() {
+		return keys.size();
+	}
+}
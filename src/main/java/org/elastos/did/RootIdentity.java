@@ -2,6 +2,9 @@ package org.elastos.did;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,6 +44,10 @@ public final class RootIdentity {
 	private String id;
 	private Metadata metadata;
 
+	private static final int DEFAULT_SYNC_WINDOW = 20;
+	private static final int DEFAULT_SYNC_GAP_LIMIT = 20;
+	private static final int MAX_SYNC_WINDOW = 256;
+
 	private static final Logger log = LoggerFactory.getLogger(RootIdentity.class);
 
 	static class Metadata extends AbstractMetadata {
@@ -495,6 +502,25 @@ public final class RootIdentity {
 		return did;
 	}
 
+	/**
+	 * Get a range of DIDs that derived from the consecutive indexes.
+	 *
+	 * @param start the first derive index
+	 * @param count the number of the DIDs
+	 * @return a list of the DID objects in the index order
+	 */
+	public List<DID> getDids(int start, int count) {
+		checkArgument(start >= 0, "Invalid start index");
+		checkArgument(count >= 0, "Invalid count");
+
+		List<HDKey> keys = preDerivedPublicKey.deriveRange("0", start, count, true);
+		List<DID> dids = new ArrayList<DID>(keys.size());
+		for (HDKey key : keys)
+			dids.add(new DID(DID.METHOD, key.getAddress()));
+
+		return dids;
+	}
+
 	static byte[] lazyCreateDidPrivateKey(DIDURL id, DIDStore store, String storepass)
 			throws DIDStoreException {
 		DIDDocument doc = store.loadDid(id.getDid());
@@ -571,6 +597,11 @@ public final class RootIdentity {
 			DIDDocument.Builder db = new DIDDocument.Builder(did, getStore());
 			db.addAuthenticationKey(id, key.getPublicKeyBase58());
 			doc = db.seal(storepass);
+			DIDMetadata metadata = doc.getMetadata();
+			metadata.edit(() -> {
+				metadata.setRootIdentityId(getId());
+				metadata.setIndex(index);
+			});
 			getStore().storeDid(doc);
 
 			return doc;
@@ -675,6 +706,11 @@ public final class RootIdentity {
 		log.info("Synchronize {}/{}...", did.toString(), index);
 
 		DIDDocument resolvedDoc = did.resolve(true);
+		return synchronize(index, did, resolvedDoc, handle);
+	}
+
+	private boolean synchronize(int index, DID did, DIDDocument resolvedDoc,
+			ConflictHandle handle) throws DIDStoreException {
 		if (resolvedDoc == null) {
 			log.info("Synchronize {}/{}...not exists", did.toString(), index);
 			return false;
@@ -709,8 +745,10 @@ public final class RootIdentity {
 		}
 
 		DIDMetadata metadata = finalDoc.getMetadata();
-		metadata.setRootIdentityId(getId());
-		metadata.setIndex(index);
+		metadata.edit(() -> {
+			metadata.setRootIdentityId(getId());
+			metadata.setIndex(index);
+		});
 
 		if (localDoc != null)
 			localDoc.getMetadata().attachStore(getStore());
@@ -756,7 +794,7 @@ public final class RootIdentity {
 			} catch (DIDResolveException | DIDStoreException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -789,25 +827,74 @@ public final class RootIdentity {
 	 */
 	public void synchronize(ConflictHandle handle)
 			throws DIDResolveException, DIDStoreException {
+		synchronize(handle, DEFAULT_SYNC_WINDOW, DEFAULT_SYNC_GAP_LIMIT);
+	}
+
+	/**
+	 * Synchronize all DIDs that derived from this RootIdentity object.
+	 *
+	 * <p>
+	 * The DIDs are derived and resolved speculatively in windows: each
+	 * window of indexes is resolved from the ID chain in one batch request,
+	 * then the results are processed in index order. The scan stops after
+	 * gapLimit consecutive not existing DIDs beyond the last known index,
+	 * the resolved results past the stop point are discarded.
+	 * </p>
+	 *
+	 * <p>
+	 * If the ConflictHandle is not set by the developers, this method will
+	 * use the default ConflictHandle implementation: if conflict between
+	 * the chain copy and the local copy, it will keep the local copy, but
+	 * update the local metadata with the chain copy.
+	 * </p>
+	 *
+	 * @param handle an application defined handle to process the conflict
+	 * 				 between the chain copy and the local copy
+	 * @param window the number of the DIDs to resolve in one batch
+	 * @param gapLimit the number of the consecutive not existing DIDs that
+	 * 				 stop the scan
+	 * @throws DIDResolveException if an error occurred when resolving DID
+	 * @throws DIDStoreException if an error occurred when accessing the store
+	 */
+	public void synchronize(ConflictHandle handle, int window, int gapLimit)
+			throws DIDResolveException, DIDStoreException {
+		checkArgument(window > 0, "Invalid window");
+		checkArgument(gapLimit > 0, "Invalid gap limit");
+
 		log.info("Synchronize root identity {}...", getId());
 
+		if (handle == null)
+			handle = DIDStore.defaultConflictHandle;
+
 		int lastIndex = getIndex() - 1;
 		int blanks = 0;
 		int i = 0;
 
-		while (i < lastIndex || blanks < 20) {
-			boolean exists = synchronize(i, handle);
-			if (exists) {
-				if (i > lastIndex)
-					lastIndex = i;
+		while (i < lastIndex || blanks < gapLimit) {
+			// The known indexes must be probed anyway, cover them in one batch
+			int size = Math.max(window, Math.min(lastIndex - i, MAX_SYNC_WINDOW));
+			List<DID> dids = getDids(i, size);
 
-				blanks = 0;
-			} else {
-				if (i > lastIndex)
-					blanks++;
-			}
+			Map<DID, DIDDocument> docs = DIDBackend.getInstance().resolveDids(dids, true);
+
+			for (DID did : dids) {
+				if (!(i < lastIndex || blanks < gapLimit))
+					break;
 
-			i++;
+				log.info("Synchronize {}/{}...", did.toString(), i);
+				boolean exists = synchronize(i, did, docs.get(did), handle);
+				if (exists) {
+					if (i > lastIndex)
+						lastIndex = i;
+
+					blanks = 0;
+				} else {
+					if (i > lastIndex)
+						blanks++;
+				}
+
+				i++;
+			}
 		}
 
 		if (lastIndex >= getIndex())
@@ -847,7 +934,7 @@ public final class RootIdentity {
 			} catch (DIDResolveException | DIDStoreException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -55,7 +55,6 @@ import org.elastos.did.exception.DIDStoreException;
 import org.elastos.did.exception.DIDSyntaxException;
 import org.elastos.did.exception.InvalidKeyException;
 import org.elastos.did.exception.MalformedCredentialException;
-import org.elastos.did.exception.MalformedDIDURLException;
 import org.elastos.did.exception.NotAttachedWithStoreException;
 import org.elastos.did.exception.UnknownInternalException;
 import org.slf4j.Logger;
@@ -604,6 +603,24 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 		return issuer.equals(subject.id);
 	}
 
+	/**
+	 * Resolve the issuer's and the owner's documents in asynchronous mode,
+	 * the following checks will get them from the resolve cache.
+	 *
+	 * @return a new CompletableStage
+	 */
+	private CompletableFuture<Void> prefetchDocumentsAsync() {
+		DIDBackend backend = DIDBackend.getInstance();
+
+		CompletableFuture<Void> future = isSelfProclaimed() ?
+				CompletableFuture.allOf(backend.resolveDidAsync(issuer, false)) :
+				CompletableFuture.allOf(backend.resolveDidAsync(issuer, false),
+						backend.resolveDidAsync(subject.id, false));
+
+		// The errors will be reported by the following checks
+		return future.exceptionally((e) -> null);
+	}
+
 	/**
 	 * Check if this credential object is expired or not.
 	 *
@@ -641,13 +658,13 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 *         The boolean result is expired or not
 	 */
 	public CompletableFuture<Boolean> isExpiredAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
+		CompletableFuture<Boolean> future = prefetchDocumentsAsync().thenApplyAsync((v) -> {
 			try {
 				return isExpired();
 			} catch (DIDResolveException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -666,6 +683,28 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 		if (issuerDoc == null)
 			throw new DIDNotFoundException(issuer.toString());
 
+		DIDDocument controllerDoc = isSelfProclaimed() ? null : subject.id.resolve();
+		return checkGenuine(issuerDoc, controllerDoc);
+	}
+
+	/**
+	 * Check whether this credential object is genuine with the resolved
+	 * documents.
+	 *
+	 * @param issuerDoc the issuer's document
+	 * @param controllerDoc the owner's document, or null if not exists or the
+	 * 		  credential is self proclaimed
+	 * @return whether the credential object is genuine
+	 */
+	boolean isGenuine(DIDDocument issuerDoc, DIDDocument controllerDoc) {
+		if (!getId().getDid().equals(getSubject().getId()))
+			return false;
+
+		return checkGenuine(issuerDoc, controllerDoc);
+	}
+
+	// The checks with the documents, after the credential's own checks
+	private boolean checkGenuine(DIDDocument issuerDoc, DIDDocument controllerDoc) {
 		if (!issuerDoc.isGenuine())
 			return false;
 
@@ -683,11 +722,8 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 				proof.getSignature(), json.getBytes()))
 			return false;
 
-		if (!isSelfProclaimed()) {
-			DIDDocument controllerDoc = subject.id.resolve();
-			if (controllerDoc != null && !controllerDoc.isGenuine())
-				return false;
-		}
+		if (controllerDoc != null && !controllerDoc.isGenuine())
+			return false;
 
 		return true;
 	}
@@ -699,13 +735,13 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 *         The boolean result is genuine or not
 	 */
 	public CompletableFuture<Boolean> isGenuineAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
+		CompletableFuture<Boolean> future = prefetchDocumentsAsync().thenApplyAsync((v) -> {
 			try {
 				return isGenuine();
 			} catch (DIDResolveException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -720,14 +756,8 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 		if (getMetadata().isRevoked())
 			return true;
 
-		CredentialBiography bio = DIDBackend.getInstance().resolveCredentialBiography(
-				getId(), getIssuer());
-		boolean revoked = bio.getStatus() == CredentialBiography.Status.REVOKED;
-
-		if (revoked)
-			getMetadata().setRevoked(revoked);
-
-		return revoked;
+		return checkRevoked(DIDBackend.getInstance().resolveCredentialBiography(
+				getId(), getIssuer()));
 	}
 
 	/**
@@ -737,15 +767,22 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 *         The boolean result is revoked or not
 	 */
 	public CompletableFuture<Boolean> isRevokedAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return isRevoked();
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
+		if (getMetadata().isRevoked())
+			return CompletableFuture.completedFuture(true);
 
-		return future;
+		return DIDBackend.getInstance().resolveCredentialBiographyAsync(
+				getId(), getIssuer()).thenApply(this::checkRevoked);
+	}
+
+	// The revoked check with the resolved biography, for both the sync and
+	// the async versions
+	private boolean checkRevoked(CredentialBiography bio) {
+		boolean revoked = bio.getStatus() == CredentialBiography.Status.REVOKED;
+
+		if (revoked)
+			getMetadata().setRevoked(revoked);
+
+		return revoked;
 	}
 
 	/**
@@ -755,20 +792,47 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * @throws DIDResolveException if error occurs when resolve the DIDs
 	 */
 	public boolean isValid() throws DIDResolveException {
-		if (expirationDate != null) {
-			Calendar now = Calendar.getInstance(Constants.UTC);
-
-			Calendar expireDate  = Calendar.getInstance(Constants.UTC);
-			expireDate.setTime(expirationDate);
-
-			if (now.after(expireDate))
-				return false;
-		}
+		if (isExpirationDatePassed())
+			return false;
 
 		DIDDocument issuerDoc = issuer.resolve();
 		if (issuerDoc == null)
 			throw new DIDNotFoundException(issuer.toString());
 
+		DIDDocument controllerDoc = isSelfProclaimed() ? null : subject.id.resolve();
+		return checkValid(issuerDoc, controllerDoc);
+	}
+
+	/**
+	 * Check whether this credential object is valid with the resolved
+	 * documents.
+	 *
+	 * @param issuerDoc the issuer's document
+	 * @param controllerDoc the owner's document, or null if not exists or the
+	 * 		  credential is self proclaimed
+	 * @return whether the credential object is valid
+	 */
+	boolean isValid(DIDDocument issuerDoc, DIDDocument controllerDoc) {
+		if (isExpirationDatePassed())
+			return false;
+
+		return checkValid(issuerDoc, controllerDoc);
+	}
+
+	private boolean isExpirationDatePassed() {
+		if (expirationDate == null)
+			return false;
+
+		Calendar now = Calendar.getInstance(Constants.UTC);
+
+		Calendar expireDate  = Calendar.getInstance(Constants.UTC);
+		expireDate.setTime(expirationDate);
+
+		return now.after(expireDate);
+	}
+
+	// The checks with the documents, after the credential's own checks
+	private boolean checkValid(DIDDocument issuerDoc, DIDDocument controllerDoc) {
 		if (!issuerDoc.isValid())
 			return false;
 
@@ -786,15 +850,10 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 				proof.getSignature(), json.getBytes()))
 			return false;
 
-
-		if (!isSelfProclaimed()) {
-			DIDDocument controllerDoc = subject.id.resolve();
-			if (controllerDoc != null && !controllerDoc.isValid())
-				return false;
-		}
+		if (controllerDoc != null && !controllerDoc.isValid())
+			return false;
 
 		return true;
-
 	}
 
 	/**
@@ -804,13 +863,13 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 	       The boolean result is valid or not
 	 */
 	public CompletableFuture<Boolean> isValidAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
+		CompletableFuture<Boolean> future = prefetchDocumentsAsync().thenApplyAsync((v) -> {
 			try {
 				return isValid();
 			} catch (DIDResolveException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -822,18 +881,8 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * @throws DIDResolveException if error occurs when resolve the DIDs
 	 */
 	public boolean wasDeclared() throws DIDResolveException {
-		CredentialBiography bio = DIDBackend.getInstance().resolveCredentialBiography(
-				getId(), getIssuer());
-
-		if (bio.getStatus() == CredentialBiography.Status.NOT_FOUND)
-			return false;
-
-		for (CredentialTransaction tx : bio.getAllTransactions()) {
-			if (tx.getRequest().getOperation() == IDChainRequest.Operation.DECLARE)
-				return true;
-		}
-
-		return false;
+		return checkDeclared(DIDBackend.getInstance().resolveCredentialBiography(
+				getId(), getIssuer()));
 	}
 
 	/**
@@ -843,15 +892,22 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 	       The boolean result was declared or not
 	 */
 	public CompletableFuture<Boolean> wasDeclaredAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return wasDeclared();
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
+		return DIDBackend.getInstance().resolveCredentialBiographyAsync(
+				getId(), getIssuer()).thenApply(VerifiableCredential::checkDeclared);
+	}
 
-		return future;
+	// The declared check with the resolved biography, for both the sync and
+	// the async versions
+	private static boolean checkDeclared(CredentialBiography bio) {
+		if (bio.getStatus() == CredentialBiography.Status.NOT_FOUND)
+			return false;
+
+		for (CredentialTransaction tx : bio.getAllTransactions()) {
+			if (tx.getRequest().getOperation() == IDChainRequest.Operation.DECLARE)
+				return true;
+		}
+
+		return false;
 	}
 
 	/**
@@ -1032,7 +1088,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -1077,7 +1133,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -1441,7 +1497,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -1487,7 +1543,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -1828,7 +1884,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -1868,7 +1924,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 			} catch (DIDException e) {
 				throw new CompletionException(e);
 			}
-		});
+		}, DIDBackend.getInstance().getAsyncExecutor());
 
 		return future;
 	}
@@ -2114,12 +2170,15 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			VerifiableCredential object if success; null otherwise
 	 */
 	public static CompletableFuture<VerifiableCredential> resolveAsync(DIDURL id, DID issuer, boolean force) {
-		CompletableFuture<VerifiableCredential> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolve(id, issuer, force);
-			} catch (DIDBackendException e) {
-				throw new CompletionException(e);
-			}
+		if (id == null)
+			return failedFuture(new IllegalArgumentException("Invalid credential id"));
+
+		CompletableFuture<VerifiableCredential> future = DIDBackend.getInstance()
+				.resolveCredentialAsync(id, issuer, force).thenApply((vc) -> {
+			if (vc != null)
+				id.setMetadata(vc.getMetadata());
+
+			return vc;
 		});
 
 		return future;
@@ -2139,15 +2198,16 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			VerifiableCredential object if success; null otherwise
 	 */
 	public static CompletableFuture<VerifiableCredential> resolveAsync(String id, String issuer, boolean force) {
-		CompletableFuture<VerifiableCredential> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolve(id, issuer, force);
-			} catch (DIDBackendException | MalformedDIDURLException e) {
-				throw new CompletionException(e);
-			}
-		});
+		DIDURL credentialId;
+		DID issuerDid;
+		try {
+			credentialId = DIDURL.valueOf(id);
+			issuerDid = DID.valueOf(issuer);
+		} catch (IllegalArgumentException e) {
+			return failedFuture(e);
+		}
 
-		return future;
+		return resolveAsync(credentialId, issuerDid, force);
 	}
 
 	/**
@@ -2315,15 +2375,10 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			CredentialBiography object if success; null otherwise
 	 */
 	public static CompletableFuture<CredentialBiography> resolveBiographyAsync(DIDURL id, DID issuer) {
-		CompletableFuture<CredentialBiography> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolveBiography(id, issuer);
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
+		if (id == null)
+			return failedFuture(new IllegalArgumentException("Invalid credential id"));
 
-		return future;
+		return DIDBackend.getInstance().resolveCredentialBiographyAsync(id, issuer);
 	}
 
 	/**
@@ -2334,15 +2389,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			CredentialBiography object if success; null otherwise
 	 */
 	public static CompletableFuture<CredentialBiography> resolveBiographyAsync(DIDURL id) {
-		CompletableFuture<CredentialBiography> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolveBiography(id);
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return resolveBiographyAsync(id, null);
 	}
 
 	/**
@@ -2354,14 +2401,23 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			CredentialBiography object if success; null otherwise
 	 */
 	public static CompletableFuture<CredentialBiography> resolveBiographyAsync(String id, String issuer) {
-		CompletableFuture<CredentialBiography> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolveBiography(id, issuer);
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
+		DIDURL credentialId;
+		DID issuerDid;
+		try {
+			credentialId = DIDURL.valueOf(id);
+			issuerDid = DID.valueOf(issuer);
+		} catch (IllegalArgumentException e) {
+			return failedFuture(e);
+		}
+
+		return resolveBiographyAsync(credentialId, issuerDid);
+	}
 
+	// Same as the resolves in the future, the async APIs report the invalid
+	// arguments by the returned future
+	private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		future.completeExceptionally(e);
 		return future;
 	}
 
@@ -2373,15 +2429,7 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 			CredentialBiography object if success; null otherwise
 	 */
 	public static CompletableFuture<CredentialBiography> resolveBiographyAsync(String id) {
-		CompletableFuture<CredentialBiography> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return resolveBiography(id);
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return resolveBiographyAsync(id, null);
 	}
 
 	/**
@@ -2445,15 +2493,10 @@ public class VerifiableCredential extends DIDEntity<VerifiableCredential> implem
 	 * 		   denoting the credentials
 	 */
 	public static CompletableFuture<List<DIDURL>> listAsync(DID did, int skip, int limit) {
-		CompletableFuture<List<DIDURL>> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return list(did, skip, limit);
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
+		if (did == null)
+			return failedFuture(new IllegalArgumentException("Invalid did"));
 
-		return future;
+		return DIDBackend.getInstance().listCredentialsAsync(did, skip, limit);
 	}
 
 	/**
@@ -37,7 +37,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 
 import org.elastos.did.exception.AlreadySealedException;
 import org.elastos.did.exception.DIDNotFoundException;
@@ -381,41 +380,18 @@ public class VerifiablePresentation extends DIDEntity<VerifiablePresentation> {
 	/**
 	 * Check whether the presentation is genuine or not.
 	 *
+	 * <p>
+	 * The DIDs of the holder, the issuers and the owners are resolved in a
+	 * batch, and the credentials are checked in parallel, see
+	 * PresentationVerifier for the details.
+	 * </p>
+	 *
 	 * @return whether the credential object is genuine
 	 * @throws DIDResolveException if error occurs when resolving the DIDs
+	 * @throws DIDNotFoundException if the issuer of a credential not exists
 	 */
 	public boolean isGenuine() throws DIDResolveException {
-		DIDDocument holderDoc = getHolder().resolve();
-		if (holderDoc == null)
-			return false;
-
-		// Check the integrity of holder' document.
-		if (!holderDoc.isGenuine())
-			return false;
-
-		// Unsupported public key type;
-		if (!proof.getType().equals(Constants.DEFAULT_PUBLICKEY_TYPE))
-			return false;
-
-		// credential should signed by authentication key.
-		if (!holderDoc.isAuthenticationKey(proof.getVerificationMethod()))
-			return false;
-
-		// All credentials should owned by holder
-		for (VerifiableCredential vc : credentials.values()) {
-			if (!vc.getSubject().getId().equals(getHolder()))
-				return false;
-
-			if (!vc.isGenuine())
-				return false;
-		}
-
-		VerifiablePresentation vp = new VerifiablePresentation(this, false);
-		String json = vp.serialize(true);
-
-		return holderDoc.verify(proof.getVerificationMethod(),
-				proof.getSignature(), json.getBytes(),
-				proof.getRealm().getBytes(), proof.getNonce().getBytes());
+		return isPassed(new PresentationVerifier().verifyGenuine(this));
 	}
 
 	/**
@@ -425,49 +401,79 @@ public class VerifiablePresentation extends DIDEntity<VerifiablePresentation> {
 	 *         The boolean result is genuine or not
 	 */
 	public CompletableFuture<Boolean> isGenuineAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return isGenuine();
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
+		return new PresentationVerifier().verifyGenuineAsync(this)
+				.thenApply(this::isPassed);
 	}
 
 	/**
 	 * Check whether the presentation is valid or not.
 	 *
+	 * <p>
+	 * The DIDs of the holder, the issuers and the owners are resolved in a
+	 * batch, and the credentials are checked in parallel, see
+	 * PresentationVerifier for the details.
+	 * </p>
+	 *
 	 * @return whether the credential object is valid
 	 * @throws DIDResolveException if error occurs when resolve the DIDs
+	 * @throws DIDNotFoundException if the issuer of a credential not exists
 	 */
 	public boolean isValid() throws DIDResolveException {
-		DIDDocument holderDoc = getHolder().resolve();
-		if (holderDoc == null)
-			return false;
+		return isPassed(new PresentationVerifier().verifyValidity(this));
+	}
 
-		// Check the validity of holder' document.
-		if (!holderDoc.isValid())
-			return false;
+	/**
+	 * Check whether the credential is valid in asynchronous mode.
+	 *
+	 * @return the new CompletableStage if success.
+	 * 	       The boolean result is valid or not
+	 */
+	public CompletableFuture<Boolean> isValidAsync() {
+		return new PresentationVerifier().verifyValidityAsync(this)
+				.thenApply(this::isPassed);
+	}
+
+	// Same as VerifiableCredential.isGenuine() and isValid(), a credential
+	// issued by a not existing DID is an error rather than a failed check,
+	// if it is the first failure in the check order
+	private boolean isPassed(PresentationVerifier.Verdict verdict) {
+		for (Map.Entry<DIDURL, PresentationVerifier.Status> status :
+				verdict.getCredentialStatuses().entrySet()) {
+			if (status.getValue() == PresentationVerifier.Status.NOT_FOUND)
+				throw new DIDNotFoundException(
+						getCredential(status.getKey()).getIssuer().toString());
+
+			if (status.getValue() != PresentationVerifier.Status.PASSED)
+				return false;
+		}
+
+		return verdict.isPassed();
+	}
 
+	/**
+	 * Check the presentation proof type and the signing key with the
+	 * resolved holder's document.
+	 *
+	 * @param holderDoc the holder's document
+	 * @return whether the proof type and the key are acceptable
+	 */
+	boolean isProofSupported(DIDDocument holderDoc) {
 		// Unsupported public key type;
 		if (!proof.getType().equals(Constants.DEFAULT_PUBLICKEY_TYPE))
 			return false;
 
 		// credential should signed by authentication key.
-		if (!holderDoc.isAuthenticationKey(proof.getVerificationMethod()))
-			return false;
-
-		// All credentials should owned by holder
-		for (VerifiableCredential vc : credentials.values()) {
-			if (!vc.getSubject().getId().equals(getHolder()))
-				return false;
-
-			if (!vc.isValid())
-				return false;
-		}
+		return holderDoc.isAuthenticationKey(proof.getVerificationMethod());
+	}
 
+	/**
+	 * Check the presentation proof signature with the resolved holder's
+	 * document.
+	 *
+	 * @param holderDoc the holder's document
+	 * @return whether the proof is genuine
+	 */
+	boolean isProofGenuine(DIDDocument holderDoc) {
 		VerifiablePresentation vp = new VerifiablePresentation(this, false);
 		String json = vp.serialize(true);
 
@@ -476,24 +482,6 @@ public class VerifiablePresentation extends DIDEntity<VerifiablePresentation> {
 				proof.getRealm().getBytes(), proof.getNonce().getBytes());
 	}
 
-	/**
-	 * Check whether the credential is valid in asynchronous mode.
-	 *
-	 * @return the new CompletableStage if success.
-	 * 	       The boolean result is valid or not
-	 */
-	public CompletableFuture<Boolean> isValidAsync() {
-		CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-			try {
-				return isValid();
-			} catch (DIDResolveException e) {
-				throw new CompletionException(e);
-			}
-		});
-
-		return future;
-	}
-
 	/**
 	 * Parse a VerifiablePresentation object from a string JSON
 	 * representation.
@@ -208,6 +208,30 @@ public class DIDBiography extends ResolveResult<DIDBiography>
 		return Collections.unmodifiableList(txs != null ? txs : Collections.emptyList());
 	}
 
+	/**
+	 * Get the head part of this biography, it is same as the result of the
+	 * resolve request without the 'all' flag: only the last transaction,
+	 * or the deactivate transaction and the last transaction if the DID is
+	 * deactivated.
+	 *
+	 * @return a DIDBiography object of the head transactions
+	 */
+	public DIDBiography getHead() {
+		DIDBiography head = new DIDBiography(did, status);
+
+		int limit = status == Status.DEACTIVATED ? 2 : 1;
+		if (txs != null) {
+			for (DIDTransaction tx : txs) {
+				if (limit-- == 0)
+					break;
+
+				head.addTransaction(tx);
+			}
+		}
+
+		return head;
+	}
+
 	/**
 	 * Appends the specified credential transaction to the end of this
 	 * biography object.
@@ -0,0 +1,651 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.backend;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.elastos.did.DIDEntity;
+import org.elastos.did.exception.DIDSyntaxException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The persistent second level cache for the DID and credential resolve
+ * results.
+ *
+ * <p>
+ * The DIDBiography and CredentialBiography results are appended to a single
+ * log file in the cache directory, together with the request, the write time
+ * and the expiration time. The file is memory-mapped for reading. When the
+ * file grows over the size limit, the new results are not written and the
+ * file is compacted to the live entries in the background, the entries
+ * that expire first are dropped if still too large. The application can
+ * also call compact() as a maintenance task.
+ * </p>
+ *
+ * <p>
+ * Record layout: length(4) | crc32(4) | created(8) | expires(8) | kind(1) |
+ * request length(4) | request JSON | result length(4) | result JSON.
+ * A record with an empty result is the tombstone of the request.
+ * </p>
+ */
+public class PersistentResolveCache implements Closeable {
+	private static final String CACHE_FILE = "resolve.cache";
+	private static final String CACHE_FILE_TMP = "resolve.cache.tmp";
+
+	// length + crc
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private static final byte KIND_DID = 0;
+	private static final byte KIND_CREDENTIAL = 1;
+
+	private File file;
+	private long maxSize;
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+	private long size;
+
+	private Map<String, Record> index;
+
+	// Changed when the file is reopened, cleared or closed
+	private long generation;
+	private boolean compacting;
+	// Serializes the compactions, they share the temporary file
+	private final Object compactLock = new Object();
+
+	private static final Logger log = LoggerFactory.getLogger(PersistentResolveCache.class);
+
+	/**
+	 * The location of a live record in the cache file.
+	 */
+	private static class Record {
+		private final long offset;
+		private final int length;
+		private final long expires;
+
+		Record(long offset, int length, long expires) {
+			this.offset = offset;
+			this.length = length;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * The executor of the background compactions, shared by all the cache
+	 * instances and created on first use.
+	 */
+	private static class CompactExecutorHolder {
+		private static final Executor executor;
+
+		static {
+			ThreadPoolExecutor tpe = new ThreadPoolExecutor(1, 1,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), (r) -> {
+						Thread t = new Thread(r, "PersistentResolveCache-compact");
+						t.setDaemon(true);
+						return t;
+					});
+			tpe.allowCoreThreadTimeOut(true);
+			executor = tpe;
+		}
+	}
+
+	/**
+	 * A resolve result that read from the persistent cache.
+	 */
+	public static class Entry {
+		private ResolveRequest<?, ?> request;
+		private ResolveResult<?> result;
+		private long created;
+		private long expires;
+
+		private Entry(ResolveRequest<?, ?> request, ResolveResult<?> result,
+				long created, long expires) {
+			this.request = request;
+			this.result = result;
+			this.created = created;
+			this.expires = expires;
+		}
+
+		/**
+		 * Get the resolve request.
+		 *
+		 * @return the ResolveRequest object
+		 */
+		public ResolveRequest<?, ?> getRequest() {
+			return request;
+		}
+
+		/**
+		 * Get the resolve result.
+		 *
+		 * @return the ResolveResult object
+		 */
+		public ResolveResult<?> getResult() {
+			return result;
+		}
+
+		/**
+		 * Get the time that the result was written, in milliseconds.
+		 *
+		 * @return the write time
+		 */
+		public long getCreated() {
+			return created;
+		}
+
+		/**
+		 * Get the expiration time of the result, in milliseconds.
+		 *
+		 * @return the expiration time
+		 */
+		public long getExpires() {
+			return expires;
+		}
+	}
+
+	/**
+	 * Open or create a persistent resolve cache in the given directory.
+	 *
+	 * @param dir the cache directory
+	 * @param maxSize the size limit of the cache file in bytes
+	 * @throws IOException if an error occurred when opening the cache file
+	 */
+	public PersistentResolveCache(File dir, long maxSize) throws IOException {
+		checkArgument(dir != null, "Invalid cache directory");
+		checkArgument(maxSize > 0 && maxSize < Integer.MAX_VALUE, "Invalid max size");
+
+		if (!dir.exists() && !dir.mkdirs())
+			throw new IOException("Can not create the cache directory " + dir);
+
+		this.file = new File(dir, CACHE_FILE);
+		this.maxSize = maxSize;
+
+		open();
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		index = new HashMap<String, Record>();
+		mapped = null;
+		size = 0;
+		generation++;
+
+		long fileSize = channel.size();
+		if (fileSize == 0)
+			return;
+
+		mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+		ByteBuffer buf = mapped.duplicate();
+		while (buf.remaining() >= RECORD_HEADER_SIZE) {
+			long offset = buf.position();
+			int length = buf.getInt();
+			int crc = buf.getInt();
+			if (length <= 0 || length > buf.remaining())
+				break;
+
+			ByteBuffer body = buf.slice();
+			body.limit(length);
+			if (crc != crc32(body.duplicate()))
+				break;
+
+			buf.position(buf.position() + length);
+			size = buf.position();
+
+			body.getLong(); // created
+			long expires = body.getLong();
+			byte kind = body.get();
+			String key = getKey(kind, readString(body));
+			int resultLength = body.getInt();
+			if (resultLength == 0)
+				index.remove(key);
+			else
+				index.put(key, new Record(offset, length + RECORD_HEADER_SIZE, expires));
+		}
+
+		if (size < fileSize) {
+			log.warn("Persistent resolve cache {} is corrupted at {}, truncated", file, size);
+			channel.truncate(size);
+			mapped = null;
+		}
+
+		log.debug("Persistent resolve cache {} opened, {} entries", file, index.size());
+	}
+
+	// The records appended after the file mapped are read by the positional
+	// reads, the file is remapped only when it doubled since the last map,
+	// so the cache keeps one live mapping and remaps O(log n) times
+	private ByteBuffer read(long offset, int length) throws IOException {
+		long end = offset + length;
+		if (mapped == null || (mapped.capacity() < end && size >= 2L * mapped.capacity()))
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+		if (mapped.capacity() >= end) {
+			ByteBuffer buf = mapped.duplicate();
+			buf.limit((int)end);
+			buf.position((int)offset);
+			return buf.slice();
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, offset + buf.position()) < 0)
+				throw new IOException("Persistent resolve cache truncated");
+		}
+
+		buf.flip();
+		return buf;
+	}
+
+	private static int crc32(ByteBuffer buf) {
+		CRC32 crc = new CRC32();
+		crc.update(buf);
+		return (int)crc.getValue();
+	}
+
+	private static String readString(ByteBuffer buf) {
+		int len = buf.getInt();
+		byte[] bytes = new byte[len];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String getKey(ResolveRequest<?, ?> request) {
+		return request.getMethod() + " " + request.toString();
+	}
+
+	private static String getKey(byte kind, String requestJson) {
+		try {
+			return getKey(parseRequest(kind, requestJson));
+		} catch (DIDSyntaxException e) {
+			// Should never happen, the record passed the CRC check
+			return requestJson;
+		}
+	}
+
+	private static ResolveRequest<?, ?> parseRequest(byte kind, String json)
+			throws DIDSyntaxException {
+		if (kind == KIND_CREDENTIAL)
+			return DIDEntity.parse(json, CredentialResolveRequest.class);
+		else
+			return DIDEntity.parse(json, DIDResolveRequest.class);
+	}
+
+	private static boolean isCacheable(ResolveRequest<?, ?> request) {
+		return request instanceof DIDResolveRequest ||
+				request instanceof CredentialResolveRequest;
+	}
+
+	private static ByteBuffer encode(ResolveRequest<?, ?> request,
+			ResolveResult<?> result, long created, long expires) {
+		byte[] req = request.serialize(true).getBytes(StandardCharsets.UTF_8);
+		byte[] res = result == null ? new byte[0] :
+				result.serialize(true).getBytes(StandardCharsets.UTF_8);
+
+		int length = 8 + 8 + 1 + 4 + req.length + 4 + res.length;
+		ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+		buf.putInt(length);
+		buf.putInt(0); // crc placeholder
+		buf.putLong(created);
+		buf.putLong(expires);
+		buf.put(request instanceof CredentialResolveRequest ? KIND_CREDENTIAL : KIND_DID);
+		buf.putInt(req.length);
+		buf.put(req);
+		buf.putInt(res.length);
+		buf.put(res);
+
+		ByteBuffer body = buf.duplicate();
+		body.position(RECORD_HEADER_SIZE);
+		body.limit(buf.capacity());
+		buf.putInt(4, crc32(body));
+
+		buf.flip();
+		return buf;
+	}
+
+	private Entry decode(Record record) throws DIDSyntaxException, IOException {
+		ByteBuffer buf = read(record.offset, record.length);
+		buf.position(RECORD_HEADER_SIZE);
+
+		long created = buf.getLong();
+		long expires = buf.getLong();
+		byte kind = buf.get();
+		ResolveRequest<?, ?> request = parseRequest(kind, readString(buf));
+		String result = readString(buf);
+
+		ResolveResult<?> rr;
+		if (kind == KIND_CREDENTIAL)
+			rr = DIDEntity.parse(result, CredentialBiography.class);
+		else
+			rr = DIDEntity.parse(result, DIDBiography.class);
+
+		return new Entry(request, rr, created, expires);
+	}
+
+	private void append(ByteBuffer buf) throws IOException {
+		long offset = size;
+		int length = buf.remaining();
+		while (buf.hasRemaining())
+			channel.write(buf, size + (length - buf.remaining()));
+
+		size = offset + length;
+	}
+
+	/**
+	 * Put a resolve result into the cache.
+	 *
+	 * @param request the resolve request
+	 * @param result the resolve result
+	 * @param expires the expiration time of the result, in milliseconds
+	 */
+	public synchronized void put(ResolveRequest<?, ?> request,
+			ResolveResult<?> result, long expires) {
+		checkArgument(request != null, "Invalid request");
+		checkArgument(result != null, "Invalid result");
+
+		if (channel == null || !isCacheable(request))
+			return;
+
+		try {
+			ByteBuffer buf = encode(request, result, System.currentTimeMillis(), expires);
+			int length = buf.remaining();
+			if (size + length > maxSize) {
+				scheduleCompact();
+				return;
+			}
+
+			long offset = size;
+			append(buf);
+			index.put(getKey(request), new Record(offset, length, expires));
+		} catch (IOException e) {
+			log.warn("Write persistent resolve cache failed", e);
+		}
+	}
+
+	/**
+	 * Get the unexpired resolve result of the request.
+	 *
+	 * @param request the resolve request
+	 * @return the Entry object, or null if not exists or expired
+	 */
+	public synchronized Entry get(ResolveRequest<?, ?> request) {
+		checkArgument(request != null, "Invalid request");
+
+		if (channel == null || !isCacheable(request))
+			return null;
+
+		Record record = index.get(getKey(request));
+		if (record == null || record.expires <= System.currentTimeMillis())
+			return null;
+
+		try {
+			return decode(record);
+		} catch (DIDSyntaxException | IOException e) {
+			log.warn("Read persistent resolve cache failed", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Remove the result of the request from the cache.
+	 *
+	 * @param request the resolve request
+	 */
+	public synchronized void remove(ResolveRequest<?, ?> request) {
+		checkArgument(request != null, "Invalid request");
+
+		if (channel == null || index.remove(getKey(request)) == null)
+			return;
+
+		try {
+			// The tombstone is always written, otherwise the entry comes
+			// back when the file is reopened before the compaction
+			ByteBuffer buf = encode(request, null, System.currentTimeMillis(), 0);
+			append(buf);
+			if (size > maxSize)
+				scheduleCompact();
+		} catch (IOException e) {
+			log.warn("Write persistent resolve cache failed", e);
+		}
+	}
+
+	/**
+	 * Get all the unexpired entries in the cache, used to prefill the
+	 * in-memory cache.
+	 *
+	 * @return a list of the Entry objects, the newer entries come later
+	 */
+	public synchronized List<Entry> entries() {
+		List<Entry> entries = new ArrayList<Entry>(index.size());
+		if (channel == null)
+			return entries;
+
+		long now = System.currentTimeMillis();
+		List<Record> records = new ArrayList<Record>(index.values());
+		records.sort(Comparator.comparingLong((r) -> r.offset));
+		for (Record record : records) {
+			if (record.expires <= now)
+				continue;
+
+			try {
+				entries.add(decode(record));
+			} catch (DIDSyntaxException | IOException e) {
+				log.warn("Read persistent resolve cache failed", e);
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Get the number of the entries in the cache, include the expired ones
+	 * that not compacted yet.
+	 *
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	private void scheduleCompact() {
+		if (compacting)
+			return;
+
+		compacting = true;
+		CompactExecutorHolder.executor.execute(() -> {
+			try {
+				compact();
+			} catch (IOException e) {
+				log.warn("Compact persistent resolve cache failed", e);
+			} finally {
+				synchronized (this) {
+					compacting = false;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Rewrite the cache file with the live entries only. The entries that
+	 * expire first will be dropped if the live entries exceed 3/4 of the
+	 * size limit.
+	 *
+	 * <p>
+	 * The live entries are copied without holding the cache lock, so the
+	 * concurrent reads and writes are not blocked. The cache runs the
+	 * compaction in the background when the file reaches the size limit,
+	 * the application also can call this method as a maintenance task.
+	 * </p>
+	 *
+	 * @throws IOException if an error occurred when rewriting the cache file
+	 */
+	public void compact() throws IOException {
+		synchronized (compactLock) {
+			FileChannel src;
+			long gen;
+			long copied;
+			List<Record> records;
+
+			synchronized (this) {
+				if (channel == null)
+					return;
+
+				long now = System.currentTimeMillis();
+				records = new ArrayList<Record>(index.values());
+				records.removeIf((r) -> r.expires <= now);
+
+				long limit = maxSize * 3 / 4;
+				long total = 0;
+				for (Record record : records)
+					total += record.length;
+
+				if (total > limit) {
+					records.sort(Comparator.comparingLong((r) -> r.expires));
+					while (total > limit && !records.isEmpty())
+						total -= records.remove(0).length;
+				}
+
+				records.sort(Comparator.comparingLong((r) -> r.offset));
+
+				src = channel;
+				gen = generation;
+				copied = size;
+			}
+
+			File tmp = new File(file.getParentFile(), CACHE_FILE_TMP);
+			try {
+				// The records before the copied size are never rewritten,
+				// read them with the positional reads outside the lock
+				try (FileChannel out = FileChannel.open(tmp.toPath(),
+						StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+					for (Record record : records)
+						transfer(src, record.offset, record.length, out);
+				}
+
+				synchronized (this) {
+					if (channel == null || generation != gen) {
+						log.debug("Persistent resolve cache {} changed, compaction skipped", file);
+						return;
+					}
+
+					// Replay the records written during the copy, include the
+					// tombstones, the index is rebuilt when reopened
+					try (FileChannel out = FileChannel.open(tmp.toPath(),
+							StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+						transfer(channel, copied, size - copied, out);
+						out.force(true);
+					}
+
+					log.debug("Compacting persistent resolve cache {}, {} -> {} entries",
+							file, index.size(), records.size());
+
+					close();
+					try {
+						Files.move(tmp.toPath(), file.toPath(),
+								StandardCopyOption.REPLACE_EXISTING,
+								StandardCopyOption.ATOMIC_MOVE);
+					} catch (IOException e) {
+						// Keep using the original file
+						open();
+						throw e;
+					}
+
+					open();
+				}
+			} finally {
+				tmp.delete();
+			}
+		}
+	}
+
+	private static void transfer(FileChannel src, long offset, long length,
+			FileChannel out) throws IOException {
+		long end = offset + length;
+		while (offset < end) {
+			long n = src.transferTo(offset, end - offset, out);
+			if (n <= 0)
+				throw new IOException("Persistent resolve cache changed");
+
+			offset += n;
+		}
+	}
+
+	/**
+	 * Remove all the entries in the cache.
+	 */
+	public synchronized void clear() {
+		if (channel == null)
+			return;
+
+		try {
+			channel.truncate(0);
+			index.clear();
+			mapped = null;
+			size = 0;
+			generation++;
+		} catch (IOException e) {
+			log.warn("Clear persistent resolve cache failed", e);
+		}
+	}
+
+	/**
+	 * Close the cache file.
+	 */
+	@Override
+	public synchronized void close() {
+		if (channel == null)
+			return;
+
+		try {
+			channel.force(true);
+			channel.close();
+		} catch (IOException ignore) {
+		}
+
+		channel = null;
+		mapped = null;
+		generation++;
+	}
+}
@@ -49,6 +49,7 @@ import org.elastos.did.DIDDocument;
 import org.elastos.did.DIDURL;
 import org.elastos.did.VerifiableCredential;
 import org.elastos.did.exception.DIDResolveException;
+import org.elastos.did.exception.DIDSyntaxException;
 import org.elastos.did.exception.DIDTransactionException;
 import org.elastos.did.exception.UnknownInternalException;
 import org.slf4j.Logger;
@@ -755,6 +756,33 @@ public class SimulatedIDChain {
 	}
 
 	private class ResolveHandler implements HttpHandler {
+		private ResolveResponse<?, ?> resolve(JsonNode requestJson)
+				throws DIDSyntaxException {
+			JsonNode method = requestJson.get(ResolveRequest.METHOD);
+			if (method == null) {
+				log.error("Invalid resolve request, missing resolve method");
+				return null;
+			}
+
+			switch (method.asText()) {
+			case DIDResolveRequest.METHOD_NAME:
+				DIDResolveRequest drr = DIDResolveRequest.parse(requestJson, DIDResolveRequest.class);
+				return resolveDid(drr);
+
+			case CredentialResolveRequest.METHOD_NAME:
+				CredentialResolveRequest crr = CredentialResolveRequest.parse(requestJson, CredentialResolveRequest.class);
+				return resolveCredential(crr);
+
+			case CredentialListRequest.METHOD_NAME:
+				CredentialListRequest clr = CredentialListRequest.parse(requestJson, CredentialListRequest.class);
+				return listCredentials(clr);
+
+			default:
+				log.error("Invalid resolve request, unknown resolve method");
+				return null;
+			}
+		}
+
 		@Override
 		public void handle(HttpExchange exchange) throws IOException {
 			if (!exchange.getRequestMethod().equals("POST")) {
@@ -768,38 +796,40 @@ public class SimulatedIDChain {
 				ObjectMapper mapper = new ObjectMapper();
 				InputStream is = exchange.getRequestBody();
 				JsonNode requestJson = mapper.readTree(is);
-				JsonNode method = requestJson.get(ResolveRequest.METHOD);
-				if (method == null) {
-					log.error("Invalid resolve request, missing resolve method");
-					exchange.sendResponseHeaders(400, 0);
-					exchange.getResponseBody().close();
-					return;
-				}
-
-				ResolveResponse<?, ?> response;
-				switch (method.asText()) {
-				case DIDResolveRequest.METHOD_NAME:
-					DIDResolveRequest drr = DIDResolveRequest.parse(requestJson, DIDResolveRequest.class);
-					response = resolveDid(drr);
-					break;
 
-				case CredentialResolveRequest.METHOD_NAME:
-					CredentialResolveRequest crr = CredentialResolveRequest.parse(requestJson, CredentialResolveRequest.class);
-					response = resolveCredential(crr);
-					break;
-
-				case CredentialListRequest.METHOD_NAME:
-					CredentialListRequest clr = CredentialListRequest.parse(requestJson, CredentialListRequest.class);
-					response = listCredentials(clr);
-					break;
-
-				default:
-					log.error("Invalid resolve request, unknown resolve method");
-					exchange.sendResponseHeaders(400, 0);
-					return;
+				byte[] json;
+				if (requestJson.isArray()) {
+					// JSON-RPC batch request
+					log.trace("Batch resolve {} requests", requestJson.size());
+
+					StringBuilder sb = new StringBuilder();
+					sb.append('[');
+					for (JsonNode node : requestJson) {
+						ResolveResponse<?, ?> response = resolve(node);
+						if (response == null) {
+							exchange.sendResponseHeaders(400, 0);
+							exchange.getResponseBody().close();
+							return;
+						}
+
+						if (sb.length() > 1)
+							sb.append(',');
+						sb.append(response.serialize(true));
+					}
+					sb.append(']');
+
+					json = sb.toString().getBytes();
+				} else {
+					ResolveResponse<?, ?> response = resolve(requestJson);
+					if (response == null) {
+						exchange.sendResponseHeaders(400, 0);
+						exchange.getResponseBody().close();
+						return;
+					}
+
+					json = response.serialize(true).getBytes();
 				}
 
-				byte[] json = response.serialize(true).getBytes();
 				Headers headers = exchange.getResponseHeaders();
 				headers.set("Content-Type", "application/json");
 				exchange.sendResponseHeaders(200, json.length);
@@ -30,12 +30,16 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 import org.elastos.did.DefaultDIDAdapter;
+import org.elastos.did.HttpTransport;
+import org.elastos.did.exception.DIDResolveException;
 import org.elastos.did.exception.DIDTransactionException;
+import org.elastos.did.exception.NetworkException;
 
 /**
  * The DIDAdapter implementation for the Simulated ID chain.
  */
 public class SimulatedIDChainAdapter extends DefaultDIDAdapter {
+	private URL resolveEndpoint;
 	private URL idtxEndpoint;
 
 	/**
@@ -46,9 +50,44 @@ public class SimulatedIDChainAdapter extends DefaultDIDAdapter {
 	 */
 	public SimulatedIDChainAdapter(URL endpoint) throws MalformedURLException {
 		super(new URL(endpoint, "resolve"));
+		resolveEndpoint = new URL(endpoint, "resolve");
 		idtxEndpoint = new URL(endpoint, "idtx");
 	}
 
+	/**
+	 * Create a SimulatedIDChainAdapter instance at the endpoint with the
+	 * given HTTP transport.
+	 *
+	 * @param endpoint the HTTP server endpoint of the simulated ID chain
+	 * @param transport the HttpTransport object
+	 * @throws MalformedURLException if the endpoint is malformed
+	 */
+	public SimulatedIDChainAdapter(URL endpoint, HttpTransport transport)
+			throws MalformedURLException {
+		super(new URL(endpoint, "resolve"), transport);
+		resolveEndpoint = new URL(endpoint, "resolve");
+		idtxEndpoint = new URL(endpoint, "idtx");
+	}
+
+	/**
+	 * Perform a batch of resolve requests in one HTTP request, the simulated
+	 * ID chain supports the JSON-RPC batch.
+	 *
+	 * @param request a string representation of the batch resolve request
+	 * @return the batch resolve result
+	 * @throws DIDResolveException if error occurred when resolving
+	 */
+	@Override
+	public InputStream resolveBatch(String request) throws DIDResolveException {
+		checkArgument(request != null && !request.isEmpty(), "Invalid request");
+
+		try {
+			return performRequest(resolveEndpoint, request);
+		} catch (IOException e) {
+			throw new NetworkException("Network error.", e);
+		}
+	}
+
 	/**
 	 * Create and publish the ID transaction.
 	 *
@@ -26,14 +26,40 @@ import static org.bitcoinj.core.ECKey.CURVE;
 import static org.bitcoinj.core.ECKey.CURVE_PARAMS;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import org.spongycastle.crypto.digests.SHA256Digest;
 import org.spongycastle.crypto.params.ECPrivateKeyParameters;
 import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.spongycastle.crypto.signers.ECDSASigner;
 import org.spongycastle.crypto.signers.RandomDSAKCalculator;
+import org.spongycastle.math.ec.ECAlgorithms;
+import org.spongycastle.math.ec.ECPoint;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class EcdsaSigner {
+	private static final int PUBLIC_KEY_CACHE_SIZE = 1024;
+
+	// The decoded public keys, keyed by the encoded key bytes. The WNAF
+	// tables that ECDSA verification precomputes are attached to the point
+	// object, so reusing the point also reuses the tables of the hot keys.
+	private static final Cache<ByteBuffer, ECPublicKeyParameters> publicKeys =
+			CacheBuilder.newBuilder()
+			.maximumSize(PUBLIC_KEY_CACHE_SIZE)
+			.build();
+
+	// A full size scalar, makes the precomputation build the widest tables
+	// that the verification will use
+	private static final BigInteger PRECOMPUTE_SCALAR = new BigInteger(1,
+			sha256Digest("EcdsaSigner".getBytes())).mod(CURVE.getN());
+
+	static {
+		// The generator is shared by all the verifications
+		precompute(CURVE.getG());
+	}
+
 	public static byte[] sign(byte[] privateKey, byte[] digest) {
 		BigInteger keyInt = new BigInteger(1, privateKey);
 
@@ -65,8 +91,7 @@ public class EcdsaSigner {
 			return false;
 		}
 
-		ECPublicKeyParameters keyParams = new ECPublicKeyParameters(
-				CURVE_PARAMS.getCurve().decodePoint(publicKey), CURVE);
+		ECPublicKeyParameters keyParams = getPublicKeyParameters(publicKey);
 
 		ECDSASigner signer = new ECDSASigner(
 				new RandomDSAKCalculator());
@@ -82,6 +107,36 @@ public class EcdsaSigner {
 		return signer.verifySignature(digest, r, s);
 	}
 
+	static ECPublicKeyParameters getPublicKeyParameters(byte[] publicKey) {
+		ECPublicKeyParameters keyParams = publicKeys.getIfPresent(
+				ByteBuffer.wrap(publicKey));
+		if (keyParams == null) {
+			ECPoint point = CURVE_PARAMS.getCurve().decodePoint(publicKey).normalize();
+			// Build the tables before the point is shared, the concurrent
+			// verifications only read them then
+			precompute(point);
+			keyParams = new ECPublicKeyParameters(point, CURVE);
+			// Copy the key bytes, the caller may reuse the array
+			publicKeys.put(ByteBuffer.wrap(publicKey.clone()), keyParams);
+		}
+
+		return keyParams;
+	}
+
+	/*
+	 * Spongycastle precomputes the WNAF tables of a point lazily in the
+	 * first multiplications, and updates them without synchronization. Run
+	 * the same multiplication as the ECDSA verification once, under the
+	 * lock, so the tables are complete before the point is used by the
+	 * concurrent verifications.
+	 */
+	private static void precompute(ECPoint point) {
+		synchronized (publicKeys) {
+			ECAlgorithms.sumOfTwoMultiplies(CURVE.getG(), PRECOMPUTE_SCALAR,
+					point, PRECOMPUTE_SCALAR);
+		}
+	}
+
 	public static boolean verifyData(byte[] publicKey, byte[] sig, byte[] ...data) {
 		return verify(publicKey, sig, sha256Digest(data));
 	}
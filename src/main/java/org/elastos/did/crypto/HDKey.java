@@ -35,6 +35,9 @@ import java.security.spec.ECParameterSpec;
 import java.security.spec.ECPrivateKeySpec;
 import java.security.spec.ECPublicKeySpec;
 import java.security.spec.InvalidKeySpecException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.bitcoinj.core.ECKey.ECDSASignature;
 import org.bitcoinj.core.Sha256Hash;
@@ -51,6 +54,9 @@ import org.spongycastle.crypto.digests.SHA256Digest;
 import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.spongycastle.jce.spec.ECNamedCurveSpec;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 public class HDKey {
 	public static final int PUBLICKEY_BYTES = 33;
 	public static final int PRIVATEKEY_BYTES = 32;
@@ -63,7 +69,12 @@ public class HDKey {
 	private final static byte PADDING_IDENTITY	= 0x67;
 	private final static byte PADDING_STANDARD	= (byte)0xAD;
 
+	private final static int MAX_CACHED_NODES = 8;
+	private final static int PARALLEL_DERIVE_THRESHOLD = 16;
+
 	private DeterministicKey key;
+	// Cached intermediate nodes, keyed by the derive path, lazy created
+	private Cache<String, DeterministicKey> nodes;
 
 	// Derive path: m/44'/0'/0'/0/index
 	public static final String DERIVE_PATH_PREFIX = "44H/0H/0H/0/";
@@ -167,8 +178,21 @@ public class HDKey {
 	}
 
 	public HDKey derive(String path) {
-		HDPath derivePath = HDPath.parsePath(path);
+		int pos = path.lastIndexOf('/');
+		if (pos < 0)
+			return derive(HDPath.parsePath(path));
+
+		DeterministicKey parent = getNode(path.substring(0, pos));
+		HDPath leaf = HDPath.parsePath(path.substring(pos + 1));
+
+		DeterministicKey child = parent;
+		for (ChildNumber childNumber: leaf)
+			child = HDKeyDerivation.deriveChildKey(child, childNumber);
+
+		return new HDKey(child);
+	}
 
+	private HDKey derive(HDPath derivePath) {
 		DeterministicKey child = key;
 		for (ChildNumber childNumber: derivePath)
 			child = HDKeyDerivation.deriveChildKey(child, childNumber);
@@ -176,6 +200,70 @@ public class HDKey {
 		return new HDKey(child);
 	}
 
+	// Get the intermediate node, derive and cache it if not cached
+	private DeterministicKey getNode(String path) {
+		Cache<String, DeterministicKey> cache;
+		synchronized (this) {
+			if (nodes == null)
+				nodes = CacheBuilder.newBuilder()
+						.maximumSize(MAX_CACHED_NODES)
+						.build();
+
+			cache = nodes;
+		}
+
+		DeterministicKey node = cache.getIfPresent(path);
+		if (node != null)
+			return node;
+
+		node = key;
+		for (ChildNumber childNumber: HDPath.parsePath(path))
+			node = HDKeyDerivation.deriveChildKey(node, childNumber);
+
+		cache.put(path, node);
+		return node;
+	}
+
+	/**
+	 * Derive a range of the non-hardened children under the given path.
+	 *
+	 * The intermediate node of the path is derived once and cached, then
+	 * each child costs only one child key derivation.
+	 *
+	 * @param path the path of the parent node, empty for this key
+	 * @param start the index of the first child
+	 * @param count the number of the children
+	 * @param parallel derive the children in parallel if true
+	 * @return the derived children in the index order
+	 */
+	public List<HDKey> deriveRange(String path, int start, int count,
+			boolean parallel) {
+		if (start < 0 || count < 0 || (long)start + count > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid range");
+
+		DeterministicKey parent = path == null || path.isEmpty() ?
+				key : getNode(path);
+
+		IntStream indexes = IntStream.range(start, start + count);
+		if (parallel && count >= PARALLEL_DERIVE_THRESHOLD)
+			indexes = indexes.parallel();
+
+		return indexes.mapToObj((i) -> new HDKey(HDKeyDerivation.deriveChildKey(
+						parent, new ChildNumber(i, false))))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Derive a range of the non-hardened children of this key.
+	 *
+	 * @param start the index of the first child
+	 * @param count the number of the children
+	 * @return the derived children in the index order
+	 */
+	public List<HDKey> deriveRange(int start, int count) {
+		return deriveRange(null, start, count, false);
+	}
+
 	public HDKey derive(int index, boolean hardened) {
 		ChildNumber childNumber = new ChildNumber(index, hardened);
 		return new HDKey(HDKeyDerivation.deriveChildKey(key, childNumber));
@@ -323,6 +411,13 @@ public class HDKey {
 	}
 
 	public void wipe() {
-		// TODO:
+		// DeterministicKey is immutable and its key material can not be
+		// cleared, so only the cached intermediate nodes are dropped
+		synchronized (this) {
+			if (nodes != null) {
+				nodes.invalidateAll();
+				nodes = null;
+			}
+		}
 	}
 }
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.jwt;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.elastos.did.DID;
+import org.elastos.did.DIDBackend;
+import org.elastos.did.DIDDocument;
+import org.elastos.did.DIDURL;
+import org.elastos.did.exception.InvalidKeyException;
+import org.elastos.did.exception.MalformedDIDException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+
+/**
+ * A long-lived and thread-safe verifier for the JWS signed by DIDs.
+ *
+ * <p>
+ * Unlike the parser created by {@link JwtParserBuilder}, one verifier can
+ * be shared by all threads. The verifier finds the sign key through the
+ * {@code iss} claim, the parsed issuer DIDs are cached by the verifier, and
+ * the resolved documents and keys are cached by the DIDBackend, so the
+ * keys follow the resolve cache policy of the DIDBackend.
+ * </p>
+ *
+ * <p>
+ * The verifier records the time spent in each stage of the verification:
+ * decoding the token, looking up the sign key and verifying the signature
+ * and the claims.
+ * </p>
+ */
+public class JwtVerifier {
+	private static final int MAX_ISSUERS = 1024;
+	// The chunks for each thread, balances the uneven verify time
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int MAX_CHUNK_SIZE = 64;
+
+	private final JwtParser parser;
+	private final Executor executor;
+	private final Cache<String, DID> issuers;
+	private final ObjectMapper mapper;
+
+	// The stage timestamps of the verification in current thread
+	private final ThreadLocal<long[]> stages;
+
+	private final LongAdder verified;
+	private final LongAdder failed;
+	private final LongAdder decodeNanos;
+	private final LongAdder keyLookupNanos;
+	private final LongAdder verifyNanos;
+
+	private static final Logger log = LoggerFactory.getLogger(JwtVerifier.class);
+
+	/**
+	 * The verification result of a JWS in a bulk verification.
+	 */
+	public static class Result {
+		private final String token;
+		private final Jws<Claims> jws;
+		private final Exception error;
+
+		private Result(String token, Jws<Claims> jws, Exception error) {
+			this.token = token;
+			this.jws = jws;
+			this.error = error;
+		}
+
+		/**
+		 * Get the token string.
+		 *
+		 * @return the token string
+		 */
+		public String getToken() {
+			return token;
+		}
+
+		/**
+		 * Check the token is verified or not.
+		 *
+		 * @return true if the token is verified, false otherwise
+		 */
+		public boolean isVerified() {
+			return jws != null;
+		}
+
+		/**
+		 * Get the verified JWS object.
+		 *
+		 * @return the JWS object, or null if the token is not verified
+		 */
+		public Jws<Claims> getJws() {
+			return jws;
+		}
+
+		/**
+		 * Get the reason why the token is not verified.
+		 *
+		 * @return the exception, or null if the token is verified
+		 */
+		public Exception getError() {
+			return error;
+		}
+	}
+
+	/**
+	 * Constructs a JwtVerifier that verifies the bulk tokens with the
+	 * asynchronous executor of the DIDBackend.
+	 */
+	public JwtVerifier() {
+		this(0, null);
+	}
+
+	/**
+	 * Constructs a JwtVerifier with the given settings.
+	 *
+	 * @param allowedClockSkewSeconds the number of seconds to tolerate for
+	 * 			clock skew when verifying {@code exp} or {@code nbf} claims
+	 * @param executor the executor to verify the bulk tokens, or null to use
+	 * 			the asynchronous executor of the DIDBackend
+	 */
+	public JwtVerifier(long allowedClockSkewSeconds, Executor executor) {
+		checkArgument(allowedClockSkewSeconds >= 0, "Invalid clock skew");
+
+		this.executor = executor;
+		this.issuers = CacheBuilder.newBuilder()
+				.maximumSize(MAX_ISSUERS)
+				.build();
+		this.mapper = new ObjectMapper();
+		this.stages = ThreadLocal.withInitial(() -> new long[3]);
+
+		this.verified = new LongAdder();
+		this.failed = new LongAdder();
+		this.decodeNanos = new LongAdder();
+		this.keyLookupNanos = new LongAdder();
+		this.verifyNanos = new LongAdder();
+
+		this.parser = new JwtParser(Jwts.parserBuilder()
+				.setAllowedClockSkewSeconds(allowedClockSkewSeconds)
+				.setSigningKeyResolver(new SigningKeyResolverAdapter() {
+					@SuppressWarnings("rawtypes")
+					@Override
+					public Key resolveSigningKey(io.jsonwebtoken.JwsHeader header,
+							io.jsonwebtoken.Claims claims) {
+						long[] marks = stages.get();
+						marks[1] = System.nanoTime();
+						try {
+							return lookupKey(claims.getIssuer(), header.getKeyId());
+						} finally {
+							marks[2] = System.nanoTime();
+						}
+					}
+				}).build());
+	}
+
+	private DID getIssuer(String iss) {
+		if (iss == null)
+			throw new IllegalArgumentException("Missing iss field");
+
+		try {
+			return issuers.get(iss, () -> new DID(iss));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw new IllegalArgumentException("iss field is not a valid DID",
+					e.getCause());
+		}
+	}
+
+	private Key lookupKey(String iss, String keyid) {
+		DID did = getIssuer(iss);
+
+		try {
+			DIDDocument doc = did.resolve();
+			if (doc == null)
+				throw new DIDResolveException("Can not resolve the iss's DID");
+
+			return doc.getKeyPair(DIDURL.valueOf(doc.getSubject(), keyid)).getPublic();
+		} catch (InvalidKeyException e) {
+			throw new InvalidSignKeyException("Invalid sign key", e);
+		} catch (MalformedDIDException e) {
+			throw new IllegalArgumentException("Invalid sign key id", e);
+		} catch (org.elastos.did.exception.DIDResolveException e) {
+			throw new DIDResolveException("Failed to resolve the iss's DID", e);
+		}
+	}
+
+	/**
+	 * Verify the signed claims JWS.
+	 *
+	 * @param claimsJws the compact serialized claims JWS
+	 * @return the verified JWS object
+	 * @throws ExpiredJwtException if the JWT is expired
+	 * @throws UnsupportedJwtException if the token is not a claims JWS
+	 * @throws MalformedJwtException if the token is malformed
+	 * @throws JwsSignatureException if the signature is invalid
+	 */
+	public Jws<Claims> verify(String claimsJws) throws ExpiredJwtException,
+			UnsupportedJwtException, MalformedJwtException,
+			JwsSignatureException {
+		long[] marks = stages.get();
+		marks[0] = System.nanoTime();
+		marks[1] = 0;
+		marks[2] = 0;
+
+		boolean success = false;
+		try {
+			Jws<Claims> jws = parser.parseClaimsJws(claimsJws);
+			success = true;
+			return jws;
+		} finally {
+			record(marks, System.nanoTime(), success);
+		}
+	}
+
+	private void record(long[] marks, long end, boolean success) {
+		if (marks[1] == 0) {
+			decodeNanos.add(end - marks[0]);
+		} else {
+			decodeNanos.add(marks[1] - marks[0]);
+			keyLookupNanos.add(marks[2] - marks[1]);
+			verifyNanos.add(end - marks[2]);
+		}
+
+		if (success)
+			verified.increment();
+		else
+			failed.increment();
+	}
+
+	// Peek the issuer from the token payload, without verifying the token
+	private String peekIssuer(String token) {
+		int begin = token.indexOf('.');
+		int end = begin < 0 ? -1 : token.indexOf('.', begin + 1);
+		if (end < 0)
+			return null;
+
+		try {
+			byte[] payload = Base64.getUrlDecoder().decode(
+					token.substring(begin + 1, end));
+			JsonNode node = mapper.readTree(new String(payload,
+					StandardCharsets.UTF_8));
+			JsonNode iss = node == null ? null : node.get("iss");
+			return iss == null || !iss.isTextual() ? null : iss.asText();
+		} catch (IllegalArgumentException | IOException e) {
+			return null;
+		}
+	}
+
+	private Result verifyQuietly(String token) {
+		try {
+			return new Result(token, verify(token), null);
+		} catch (Exception e) {
+			return new Result(token, null, e);
+		}
+	}
+
+	/**
+	 * Verify a list of signed claims JWS.
+	 *
+	 * <p>
+	 * The tokens are grouped by the issuers, the issuer DIDs are resolved
+	 * in one batch, then the tokens are split into chunks in the order of
+	 * the groups, and the chunks are verified in parallel, so the tokens
+	 * of one issuer are verified in parallel too. The calling thread also
+	 * verifies the chunks that have not started yet, so it never waits for a
+	 * busy executor, even if it is a thread of the executor.
+	 * </p>
+	 *
+	 * @param tokens the compact serialized claims JWS list
+	 * @return the results in the same order of the tokens
+	 */
+	public List<Result> verifyAll(List<String> tokens) {
+		checkArgument(tokens != null, "Invalid tokens");
+
+		if (tokens.isEmpty())
+			return Collections.emptyList();
+
+		// Group the token indexes by the issuers, keep the token order
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		List<DID> dids = new ArrayList<DID>();
+		for (int i = 0; i < tokens.size(); i++) {
+			String token = tokens.get(i);
+			String iss = token == null ? null : peekIssuer(token);
+
+			List<Integer> group = groups.get(iss);
+			if (group == null) {
+				group = new ArrayList<Integer>();
+				groups.put(iss, group);
+
+				if (iss != null) {
+					try {
+						dids.add(getIssuer(iss));
+					} catch (IllegalArgumentException ignore) {
+						// Reported by the verification of the tokens
+					}
+				}
+			}
+
+			group.add(i);
+		}
+
+		// Warm up the resolve cache, the failures are reported per token
+		try {
+			if (!dids.isEmpty())
+				DIDBackend.getInstance().resolveDids(dids, false);
+		} catch (Exception e) {
+			log.warn("Batch resolving the issuers failed", e);
+		}
+
+		Executor exec = executor != null ? executor :
+				DIDBackend.getInstance().getAsyncExecutor();
+
+		int[] order = new int[tokens.size()];
+		int n = 0;
+		for (List<Integer> group : groups.values()) {
+			for (int i : group)
+				order[n++] = i;
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE,
+				order.length / (threads * CHUNKS_PER_THREAD)));
+		int chunks = (order.length + chunkSize - 1) / chunkSize;
+
+		Result[] results = new Result[tokens.size()];
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(chunks);
+
+		Runnable worker = () -> {
+			int c;
+			while ((c = next.getAndIncrement()) < chunks) {
+				try {
+					int end = Math.min((c + 1) * chunkSize, order.length);
+					for (int k = c * chunkSize; k < end; k++) {
+						int i = order[k];
+						String token = tokens.get(i);
+						results[i] = token == null || token.isEmpty() ?
+								new Result(token, null, new MalformedJwtException("Empty token")) :
+								verifyQuietly(token);
+					}
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		// The helpers that started after all chunks were claimed exit
+		// immediately
+		int helpers = Math.min(threads, chunks) - 1;
+		try {
+			for (int i = 0; i < helpers; i++)
+				exec.execute(worker);
+		} catch (RejectedExecutionException e) {
+			log.debug("Verify helper rejected, continue in the calling thread");
+		}
+
+		worker.run();
+		Uninterruptibles.awaitUninterruptibly(done);
+
+		return Collections.unmodifiableList(Arrays.asList(results));
+	}
+
+	/**
+	 * Get the number of the verified tokens.
+	 *
+	 * @return the verified count
+	 */
+	public long getVerifiedCount() {
+		return verified.sum();
+	}
+
+	/**
+	 * Get the number of the tokens that failed the verification.
+	 *
+	 * @return the failed count
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * Get the total time spent in decoding the tokens, in nanoseconds.
+	 *
+	 * @return the decode time
+	 */
+	public long getDecodeNanos() {
+		return decodeNanos.sum();
+	}
+
+	/**
+	 * Get the total time spent in looking up the sign keys, in nanoseconds.
+	 *
+	 * @return the key lookup time
+	 */
+	public long getKeyLookupNanos() {
+		return keyLookupNanos.sum();
+	}
+
+	/**
+	 * Get the total time spent in verifying the signatures and the claims,
+	 * in nanoseconds.
+	 *
+	 * @return the verify time
+	 */
+	public long getVerifyNanos() {
+		return verifyNanos.sum();
+	}
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.parser;
+
+/**
+ * A single pass scanner for the DID and DIDURL strings.
+ *
+ * <p>
+ * The scanner implements the DIDURL grammar by hand, it accepts and rejects
+ * the same strings as the ANTLR generated parser, and reports the syntax
+ * errors at the same positions. The grammar(DIDURL.g4) and the generated
+ * parser are kept in the tests as the conformance oracle. Like the generated parser, the
+ * scanner reads at most two tokens ahead, and stops at the end of the rule,
+ * the trailing input after a complete DID or DIDURL is not checked.
+ * </p>
+ *
+ * <p>
+ * The parsed components are delivered to the {@link Handler} in the order
+ * of the input after the whole string is scanned, so a handler never sees
+ * the components of a malformed string.
+ * </p>
+ */
+public final class DIDURLScanner {
+	// The token types, same as the ANTLR lexer
+	private static final int EOF = -1;
+	private static final int SEMICOLON = 1;
+	private static final int SLASH = 2;
+	private static final int QUESTION = 3;
+	private static final int HASH = 4;
+	private static final int DID = 5;
+	private static final int COLON = 6;
+	private static final int EQUALS = 7;
+	private static final int AMPERSAND = 8;
+	private static final int STRING = 9;
+	private static final int SPACE = 11;
+
+	// The component events, replayed to the handler
+	private static final int EVENT_DID = 1;
+	private static final int EVENT_PARAM = 2;
+	private static final int EVENT_PATH = 3;
+	private static final int EVENT_QUERY = 4;
+	private static final int EVENT_FRAGMENT = 5;
+	private static final int EVENT_SIZE = 7;
+
+	private final String input;
+	private final int length;
+
+	// The lexer position
+	private int next;
+	private int column;
+
+	// The lookahead tokens, LT(1) and LT(2)
+	private final int[] types = new int[2];
+	private final int[] starts = new int[2];
+	private final int[] ends = new int[2];
+	private final int[] columns = new int[2];
+	private int buffered;
+
+	private int[] events;
+	private int eventCount;
+
+	/**
+	 * The callback interface to receive the parsed components.
+	 */
+	public interface Handler {
+		/**
+		 * Called with the DID part of the string.
+		 *
+		 * @param method the DID method
+		 * @param methodSpecificId the method specific id
+		 */
+		default void did(String method, String methodSpecificId) {}
+
+		/**
+		 * Called with each DIDURL parameter.
+		 *
+		 * @param method the parameter method, or null if not specified
+		 * @param name the qualified parameter name, include the method
+		 * @param value the parameter value, or null if not specified
+		 */
+		default void param(String method, String name, String value) {}
+
+		/**
+		 * Called with the DIDURL path.
+		 *
+		 * @param path the path, include the leading '/'
+		 */
+		default void path(String path) {}
+
+		/**
+		 * Called with each DIDURL query parameter.
+		 *
+		 * @param name the query parameter name
+		 * @param value the query parameter value, or null if not specified
+		 */
+		default void query(String name, String value) {}
+
+		/**
+		 * Called with the DIDURL fragment.
+		 *
+		 * @param fragment the fragment string, without the leading '#'
+		 */
+		default void fragment(String fragment) {}
+	}
+
+	private DIDURLScanner(String input) {
+		this.input = input;
+		this.length = input.length();
+		this.events = new int[EVENT_SIZE * 4];
+	}
+
+	/**
+	 * Scan the DID or DIDURL string, and deliver the parsed components to
+	 * the handler.
+	 *
+	 * @param input the DID or DIDURL string
+	 * @param didOnly true to scan a DID, false to scan a DIDURL
+	 * @param handler the handler to receive the parsed components
+	 * @throws IllegalArgumentException if the string has syntax error
+	 */
+	public static void scan(String input, boolean didOnly, Handler handler) {
+		DIDURLScanner scanner = new DIDURLScanner(input);
+
+		if (didOnly)
+			scanner.did();
+		else
+			scanner.didurl();
+
+		scanner.replay(handler);
+	}
+
+	private static boolean isHex(char ch) {
+		return (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') ||
+				(ch >= 'A' && ch <= 'F');
+	}
+
+	private static boolean isLetterOrDigit(char ch) {
+		return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') ||
+				(ch >= '0' && ch <= '9');
+	}
+
+	// The end of the escaped octet at pos, or pos if not an escaped octet
+	private int escaped(int pos) {
+		if (pos + 2 < length && input.charAt(pos) == '%' &&
+				isHex(input.charAt(pos + 1)) && isHex(input.charAt(pos + 2)))
+			return pos + 3;
+		else
+			return pos;
+	}
+
+	private IllegalArgumentException recognitionError(int start, int failed) {
+		int end = failed >= length ? length :
+			failed + Character.charCount(input.codePointAt(failed));
+
+		return new IllegalArgumentException("At position " + column +
+				": token recognition error at: '" +
+				display(input.substring(start, end)) + "'");
+	}
+
+	// Lex the next token into the lookahead buffer
+	private void fetch() {
+		int slot = buffered++;
+		int start = next;
+
+		columns[slot] = column;
+		starts[slot] = start;
+
+		if (start >= length) {
+			types[slot] = EOF;
+			ends[slot] = start;
+			return;
+		}
+
+		int type;
+		int pos = start + 1;
+		char ch = input.charAt(start);
+		switch (ch) {
+		case ';':
+			type = SEMICOLON;
+			break;
+
+		case '/':
+			type = SLASH;
+			break;
+
+		case '?':
+			type = QUESTION;
+			break;
+
+		case '#':
+			type = HASH;
+			break;
+
+		case ':':
+			type = COLON;
+			break;
+
+		case '=':
+			type = EQUALS;
+			break;
+
+		case '&':
+			type = AMPERSAND;
+			break;
+
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\r':
+			type = SPACE;
+			while (pos < length) {
+				ch = input.charAt(pos);
+				if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r')
+					break;
+
+				pos++;
+			}
+			break;
+
+		default:
+			if (ch == '%') {
+				pos = escaped(start);
+				if (pos == start) {
+					int failed = start + 1;
+					if (failed < length && isHex(input.charAt(failed)))
+						failed++;
+
+					throw recognitionError(start, failed);
+				}
+			} else if (!isLetterOrDigit(ch) && ch != '~') {
+				throw recognitionError(start, start);
+			}
+
+			while (pos < length) {
+				ch = input.charAt(pos);
+				if (isLetterOrDigit(ch) || ch == '.' || ch == '_' || ch == '-') {
+					pos++;
+				} else {
+					int end = escaped(pos);
+					if (end == pos)
+						break;
+
+					pos = end;
+				}
+			}
+
+			// The literal 'did' wins the same length STRING
+			type = (pos - start == 3 && input.startsWith("did", start)) ?
+					DID : STRING;
+			break;
+		}
+
+		types[slot] = type;
+		ends[slot] = pos;
+		next = pos;
+
+		// The char position restarts from a new line
+		for (int i = start; i < pos; i++)
+			column = input.charAt(i) == '\n' ? 0 : column + 1;
+	}
+
+	// LA(i), fetch the tokens on demand, the EOF repeats at the end
+	private int la(int i) {
+		while (buffered < i)
+			fetch();
+
+		return types[i - 1];
+	}
+
+	// Consume LT(1), the next token is fetched immediately as ANTLR does
+	private int consume() {
+		int end = ends[0];
+		if (types[0] != EOF) {
+			types[0] = types[1];
+			starts[0] = starts[1];
+			ends[0] = ends[1];
+			columns[0] = columns[1];
+			buffered--;
+		}
+
+		la(1);
+		return end;
+	}
+
+	private static String display(String text) {
+		return text.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+	}
+
+	private static String tokenName(int type) {
+		switch (type) {
+		case EOF:
+			return "<EOF>";
+		case SEMICOLON:
+			return "';'";
+		case SLASH:
+			return "'/'";
+		case QUESTION:
+			return "'?'";
+		case HASH:
+			return "'#'";
+		case DID:
+			return "'did'";
+		case COLON:
+			return "':'";
+		case EQUALS:
+			return "'='";
+		case AMPERSAND:
+			return "'&'";
+		case STRING:
+			return "STRING";
+		default:
+			return "SPACE";
+		}
+	}
+
+	// The syntax error at LT(1), after the error recovery looked at LT(2)
+	private IllegalArgumentException syntaxError(int expected) {
+		la(2);
+
+		String offending = types[0] == EOF ? "<EOF>" :
+			display(input.substring(starts[0], ends[0]));
+		return new IllegalArgumentException("At position " + columns[0] +
+				": mismatched input '" + offending + "' expecting " +
+				tokenName(expected));
+	}
+
+	// Match LT(1) with the token type, returns the end of the token
+	private int match(int type) {
+		if (la(1) != type)
+			throw syntaxError(type);
+
+		return consume();
+	}
+
+	private void event(int type, int s1, int e1, int s2, int e2, int s3, int e3) {
+		int offset = eventCount * EVENT_SIZE;
+		if (offset + EVENT_SIZE > events.length) {
+			int[] grown = new int[events.length * 2];
+			System.arraycopy(events, 0, grown, 0, events.length);
+			events = grown;
+		}
+
+		events[offset] = type;
+		events[offset + 1] = s1;
+		events[offset + 2] = e1;
+		events[offset + 3] = s2;
+		events[offset + 4] = e2;
+		events[offset + 5] = s3;
+		events[offset + 6] = e3;
+		eventCount++;
+	}
+
+	// didurl : did? (';' params)? ('/' path)? ('?' query)? ('#' frag)? SPACE?
+	private void didurl() {
+		if (la(1) == DID)
+			did();
+
+		if (la(1) == SEMICOLON) {
+			consume();
+			params();
+		}
+
+		if (la(1) == SLASH)
+			path();
+
+		if (la(1) == QUESTION) {
+			consume();
+			query();
+		}
+
+		if (la(1) == HASH) {
+			consume();
+
+			// frag : STRING
+			int start = starts[0];
+			int end = match(STRING);
+			event(EVENT_FRAGMENT, start, end, 0, 0, 0, 0);
+		}
+
+		if (la(1) == SPACE)
+			consume();
+	}
+
+	// did : 'did' ':' method ':' methodSpecificString
+	private void did() {
+		match(DID);
+		match(COLON);
+
+		int methodStart = starts[0];
+		int methodEnd = match(STRING);
+		match(COLON);
+
+		int idStart = starts[0];
+		int idEnd = match(STRING);
+
+		event(EVENT_DID, methodStart, methodEnd, idStart, idEnd, 0, 0);
+	}
+
+	// params : param (';' param)*
+	private void params() {
+		param();
+
+		while (la(1) == SEMICOLON) {
+			consume();
+			param();
+		}
+	}
+
+	// param : ((paramMethod ':')? paramName) ('=' paramValue)?
+	private void param() {
+		int methodStart = -1;
+		int methodEnd = -1;
+
+		if (la(1) != STRING)
+			throw syntaxError(STRING);
+
+		if (la(2) == COLON) {
+			methodStart = starts[0];
+			methodEnd = consume();
+			consume();
+		}
+
+		int nameStart = methodStart >= 0 ? methodStart : starts[0];
+		int nameEnd = match(STRING);
+
+		int valueStart = -1;
+		int valueEnd = -1;
+		if (la(1) == EQUALS) {
+			consume();
+			valueStart = starts[0];
+			valueEnd = match(STRING);
+		}
+
+		event(EVENT_PARAM, methodStart, methodEnd, nameStart, nameEnd,
+				valueStart, valueEnd);
+	}
+
+	// '/' path, path : STRING ('/' STRING)*
+	private void path() {
+		int start = starts[0];
+		consume();
+
+		int end = match(STRING);
+		while (la(1) == SLASH) {
+			consume();
+			end = match(STRING);
+		}
+
+		event(EVENT_PATH, start, end, 0, 0, 0, 0);
+	}
+
+	// query : queryParam ('&' queryParam)*
+	private void query() {
+		queryParam();
+
+		while (la(1) == AMPERSAND) {
+			consume();
+			queryParam();
+		}
+	}
+
+	// queryParam : queryParamName ('=' queryParamValue)?
+	private void queryParam() {
+		int nameStart = starts[0];
+		int nameEnd = match(STRING);
+
+		int valueStart = -1;
+		int valueEnd = -1;
+		if (la(1) == EQUALS) {
+			consume();
+			valueStart = starts[0];
+			valueEnd = match(STRING);
+		}
+
+		event(EVENT_QUERY, nameStart, nameEnd, valueStart, valueEnd, 0, 0);
+	}
+
+	private String text(int start, int end) {
+		return start < 0 ? null : input.substring(start, end);
+	}
+
+	private void replay(Handler handler) {
+		for (int i = 0; i < eventCount; i++) {
+			int offset = i * EVENT_SIZE;
+			int[] e = events;
+
+			switch (e[offset]) {
+			case EVENT_DID:
+				handler.did(text(e[offset + 1], e[offset + 2]),
+						text(e[offset + 3], e[offset + 4]));
+				break;
+
+			case EVENT_PARAM:
+				handler.param(text(e[offset + 1], e[offset + 2]),
+						text(e[offset + 3], e[offset + 4]),
+						text(e[offset + 5], e[offset + 6]));
+				break;
+
+			case EVENT_PATH:
+				handler.path(text(e[offset + 1], e[offset + 2]));
+				break;
+
+			case EVENT_QUERY:
+				handler.query(text(e[offset + 1], e[offset + 2]),
+						text(e[offset + 3], e[offset + 4]));
+				break;
+
+			case EVENT_FRAGMENT:
+				handler.fragment(text(e[offset + 1], e[offset + 2]));
+				break;
+			}
+		}
+	}
+}
@@ -27,7 +27,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -383,6 +385,42 @@ public class DIDDocumentTest {
 		assertEquals(new DIDURL(user1.getSubject(), "#key3"), pks.get(0).getId());
 	}
 
+	@Test
+	public void testKeyPairCache() throws IOException, DIDException {
+		DIDDocument doc = testData.getInstantData().getUser1Document();
+		assertNotNull(doc);
+
+		// The JCE keys are built once for the same key material
+		java.security.PublicKey pk = doc.getKeyPair("#key2").getPublic();
+		assertSame(pk, doc.getKeyPair("#key2").getPublic());
+		assertSame(doc.getKeyPair().getPublic(), doc.getKeyPair("#primary").getPublic());
+		assertNotSame(pk, doc.getKeyPair("#primary").getPublic());
+
+		// A new version of the document shares the unchanged keys
+		DIDDocument.Builder db = doc.edit();
+		db.addPublicKey("#test1", doc.getSubject().toString(),
+				TestData.generateKeypair().getPublicKeyBase58());
+		DIDDocument updated = db.seal(TestConfig.storePass);
+		assertSame(pk, updated.getKeyPair("#key2").getPublic());
+
+		// The same key id with the different key material never hits
+		db = doc.edit();
+		db.removePublicKey("#key2", true);
+		db.addPublicKey("#key2", doc.getSubject().toString(),
+				TestData.generateKeypair().getPublicKeyBase58());
+		DIDDocument replaced = db.seal(TestConfig.storePass);
+		java.security.PublicKey other = replaced.getKeyPair("#key2").getPublic();
+		assertNotEquals(pk, other);
+		assertSame(pk, doc.getKeyPair("#key2").getPublic());
+		assertSame(other, replaced.getKeyPair("#key2").getPublic());
+
+		PublicKeyCache.clear();
+		java.security.PublicKey reloaded = doc.getKeyPair("#key2").getPublic();
+		assertNotSame(pk, reloaded);
+		assertEquals(pk, reloaded);
+		assertSame(reloaded, doc.getKeyPair("#key2").getPublic());
+	}
+
     @ParameterizedTest
     @ValueSource(ints = {1, 2})
 	public void testAddPublicKey(int version) throws DIDException, IOException {
@@ -2331,6 +2369,38 @@ public class DIDDocumentTest {
 		}
 	}
 
+    @ParameterizedTest
+    @CsvSource({
+    	"2,user1",
+    	"2,foobar",
+    	"2,baz"
+    })
+	public void testMemoizedGenuineVerdict(int version, String did)
+			throws DIDException, IOException {
+    	TestData.CompatibleData cd = testData.getCompatibleData(version);
+    	cd.loadAll();
+
+    	DIDDocument doc = DIDDocument.parse(cd.getDocumentJson(did, "normalized"));
+		assertNotNull(doc);
+
+		long misses = DIDDocument.getGenuineCacheStats().missCount();
+		assertTrue(doc.isGenuine());
+		assertTrue(DIDDocument.getGenuineCacheStats().missCount() > misses);
+
+		long hits = DIDDocument.getGenuineCacheStats().hitCount();
+		misses = DIDDocument.getGenuineCacheStats().missCount();
+		for (int i = 0; i < 10; i++)
+			assertTrue(doc.isGenuine());
+
+		assertEquals(hits + 10, DIDDocument.getGenuineCacheStats().hitCount());
+		assertEquals(misses, DIDDocument.getGenuineCacheStats().missCount());
+
+		// The verdict should be dropped after the metadata changed
+		doc.setMetadata(new DIDMetadata(doc.getSubject()));
+		assertTrue(doc.isGenuine());
+		assertEquals(misses + 1, DIDDocument.getGenuineCacheStats().missCount());
+	}
+
 	@Test
 	public void testSignAndVerify() throws DIDException, IOException {
 		RootIdentity identity = testData.getRootIdentity();
@@ -31,14 +31,24 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipInputStream;
 
+import org.elastos.did.crypto.HDKey;
 import org.elastos.did.exception.DIDException;
 import org.elastos.did.exception.DIDStoreException;
 import org.elastos.did.exception.WrongPasswordException;
@@ -198,6 +208,171 @@ public class DIDStoreTest {
 		assertEquals(80, remains.size());
 	}
 
+	@Test
+	public void testWriteAheadJournal() throws DIDException {
+		RootIdentity identity = testData.getRootIdentity();
+		assertEquals(DIDStore.Durability.GROUP, store.getDurability());
+
+		List<DIDDocument> docs = new ArrayList<DIDDocument>();
+		for (int i = 0; i < 10; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			doc.getMetadata().setAlias("my did " + i);
+			docs.add(doc);
+		}
+
+		store.sync();
+
+		File wal = new File(TestConfig.storeRoot, "wal");
+		assertTrue(wal.exists());
+
+		// Lost the writes that not flushed to the disk before the crash
+		for (int i = 0; i < docs.size(); i += 2) {
+			File file = getFile("ids", docs.get(i).getSubject().getMethodSpecificId(),
+					"document");
+			assertTrue(file.delete());
+		}
+
+		DIDStore reopened = DIDStore.open(TestConfig.storeRoot);
+		assertFalse(wal.exists());
+		for (int i = 0; i < docs.size(); i++) {
+			DIDDocument doc = reopened.loadDid(docs.get(i).getSubject());
+			assertNotNull(doc);
+			assertEquals(docs.get(i).toString(true), doc.toString(true));
+			assertEquals("my did " + i, doc.getMetadata().getAlias());
+		}
+		reopened.close();
+
+		store.setDurability(DIDStore.Durability.PER_OPERATION);
+		assertEquals(DIDStore.Durability.PER_OPERATION, store.getDurability());
+
+		DIDDocument doc = identity.newDid(TestConfig.storePass);
+		assertFalse(wal.exists());
+		assertTrue(getFile("ids", doc.getSubject().getMethodSpecificId(),
+				"document").exists());
+		assertEquals(11, store.listDids().size());
+	}
+
+	@Test
+	public void testStoreShortPrivateKeyId() throws DIDException {
+		RootIdentity identity = testData.getRootIdentity();
+		DIDDocument doc = identity.newDid(TestConfig.storePass);
+
+		// The key file name is as short as the fragment
+		DIDURL id1 = new DIDURL(doc.getSubject(), "#1");
+		store.storePrivateKey(id1, TestData.generateKeypair().serialize(),
+				TestConfig.storePass);
+
+		store.setDurability(DIDStore.Durability.PER_OPERATION);
+		DIDURL id2 = new DIDURL(doc.getSubject(), "#2");
+		store.storePrivateKey(id2, TestData.generateKeypair().serialize(),
+				TestConfig.storePass);
+
+		store.sync();
+
+		DIDStore reopened = DIDStore.open(TestConfig.storeRoot);
+		assertTrue(reopened.containsPrivateKey(id1));
+		assertTrue(reopened.containsPrivateKey(id2));
+		reopened.close();
+	}
+
+	@Test
+	public void testQuery() throws DIDException {
+		RootIdentity identity = testData.getRootIdentity();
+
+		DIDDocument issuerDoc = identity.newDid(TestConfig.storePass);
+		Issuer issuer = new Issuer(issuerDoc);
+
+		Calendar cal = Calendar.getInstance();
+		Date now = cal.getTime();
+
+		List<DID> dids = new ArrayList<DID>();
+		for (int i = 0; i < 10; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			if (i % 2 == 0)
+				doc.getMetadata().setAlias("user " + i);
+			dids.add(doc.getSubject());
+
+			VerifiableCredential vc = new Issuer(doc).issueFor(doc.getSubject())
+					.id("#profile")
+					.type("BasicProfileCredential", "SelfProclaimedCredential")
+					.property("name", "John " + i)
+					.seal(TestConfig.storePass);
+			store.storeCredential(vc);
+
+			if (i < 5) {
+				cal.setTime(now);
+				cal.add(Calendar.MONTH, i + 1);
+
+				vc = issuer.issueFor(doc.getSubject())
+						.id("#email")
+						.type("EmailCredential")
+						.property("email", "john" + i + "@example.com")
+						.expirationDate(cal.getTime())
+						.seal(TestConfig.storePass);
+				store.storeCredential(vc);
+				vc.getMetadata().setAlias("Email " + i);
+			}
+		}
+
+		cal.setTime(now);
+		cal.add(Calendar.MONTH, 3);
+		cal.add(Calendar.DATE, 1);
+		Date before = cal.getTime();
+
+		assertEquals(11, store.queryDids(new DIDStore.DIDQuery()).size());
+		assertEquals(11, store.queryDids(new DIDStore.DIDQuery()
+				.rootIdentity(identity.getId()).expiresAfter(now)).size());
+		List<DID> results = store.queryDids(new DIDStore.DIDQuery().alias("user 4"));
+		assertEquals(1, results.size());
+		assertEquals(dids.get(4), results.get(0));
+		assertEquals("user 4", results.get(0).getMetadata().getAlias());
+
+		assertEquals(10, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("BasicProfileCredential", "SelfProclaimedCredential")).size());
+		assertEquals(5, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential").issuer(issuerDoc.getSubject())).size());
+		assertEquals(3, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential").issuer(issuerDoc.getSubject())
+				.expiresBefore(before)).size());
+		assertEquals(2, store.queryCredentials(new DIDStore.CredentialQuery()
+				.subject(dids.get(3))).size());
+		assertEquals(0, store.queryCredentials(new DIDStore.CredentialQuery()
+				.subject(dids.get(3)).issuer(dids.get(4))).size());
+		List<DIDURL> ids = store.queryCredentials(new DIDStore.CredentialQuery().alias("Email 2"));
+		assertEquals(1, ids.size());
+		assertEquals(new DIDURL(dids.get(2), "#email"), ids.get(0));
+		assertEquals("Email 2", ids.get(0).getMetadata().getAlias());
+
+		// Keep consistent with the updates
+		assertTrue(store.deleteCredential(new DIDURL(dids.get(0), "#email")));
+		assertTrue(store.deleteDid(dids.get(1)));
+		store.loadDid(dids.get(2)).getMetadata().setAlias("renamed");
+
+		assertEquals(10, store.queryDids(new DIDStore.DIDQuery()).size());
+		assertEquals(0, store.queryDids(new DIDStore.DIDQuery().alias("user 2")).size());
+		assertEquals(dids.get(2), store.queryDids(new DIDStore.DIDQuery()
+				.alias("renamed")).get(0));
+		assertEquals(3, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential")).size());
+		assertEquals(1, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential").expiresBefore(before)).size());
+		assertEquals(9, store.queryCredentials(new DIDStore.CredentialQuery()
+				.type("SelfProclaimedCredential")).size());
+
+		// Rebuild from the storage
+		DIDStore reopened = DIDStore.open(TestConfig.storeRoot);
+		assertEquals(10, reopened.queryDids(new DIDStore.DIDQuery()).size());
+		assertEquals(dids.get(2), reopened.queryDids(new DIDStore.DIDQuery()
+				.alias("renamed")).get(0));
+		assertEquals(3, reopened.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential").issuer(issuerDoc.getSubject())).size());
+		assertEquals(1, reopened.queryCredentials(new DIDStore.CredentialQuery()
+				.type("EmailCredential").expiresBefore(before)).size());
+		assertEquals(1, reopened.queryCredentials(new DIDStore.CredentialQuery()
+				.alias("Email 3")).size());
+		reopened.close();
+	}
+
 	@Test
 	public void testStoreAndLoadDID() throws DIDException, IOException {
     	// Store test data into current store
@@ -239,6 +414,62 @@ public class DIDStoreTest {
 		assertEquals(2, dids.size());
 	}
 
+	@Test
+	public void testMetadataEdit() throws DIDException {
+		int[] saves = new int[1];
+		AbstractMetadata metadata = new AbstractMetadata() {
+			@Override
+			protected void save() {
+				saves[0]++;
+			}
+		};
+
+		metadata.setAlias("alias");
+		metadata.setExtra("name", "value");
+		assertEquals(2, saves[0]);
+
+		// Unchanged values and missing properties are not saved
+		metadata.setAlias("alias");
+		metadata.setExtra("name", "value");
+		metadata.removeExtra("missing");
+		assertEquals(2, saves[0]);
+
+		// Nested edits are saved once by the outermost edit
+		metadata.edit(() -> {
+			metadata.setAlias("another");
+			metadata.edit(() -> {
+				metadata.setExtra("name", "updated");
+				metadata.setExtra("flag", true);
+			});
+			metadata.removeExtra("name");
+			assertEquals(2, saves[0]);
+		});
+		assertEquals(3, saves[0]);
+
+		metadata.edit(() -> metadata.setAlias("another"));
+		assertEquals(3, saves[0]);
+
+		assertThrows(IllegalStateException.class, () -> {
+			metadata.edit(() -> {
+				metadata.setAlias("failed");
+				throw new IllegalStateException();
+			});
+		});
+		assertEquals(4, saves[0]);
+
+		// The batched changes are persisted in the store
+		DIDDocument doc = testData.getInstantData().getUser1Document();
+		DIDMetadata dm = doc.getMetadata();
+		dm.edit(() -> {
+			dm.setAlias("User 1");
+			dm.setExtra("title", "Alice");
+		});
+
+		doc = store.loadDid(doc.getSubject());
+		assertEquals("User 1", doc.getMetadata().getAlias());
+		assertEquals("Alice", doc.getMetadata().getExtra("title"));
+	}
+
 	@Test
 	public void testLoadCredentials() throws DIDException, IOException {
     	// Store test data into current store
@@ -457,6 +688,158 @@ public class DIDStoreTest {
 		assertArrayEquals(dids.toArray(), syncedDids.toArray());
 	}
 
+	@Test
+	public void testUnlockedSession() throws Exception {
+		RootIdentity identity = testData.getRootIdentity();
+		DIDDocument doc = identity.newDid(TestConfig.storePass);
+		byte[] data = "The quick brown fox jumps over the lazy dog.".getBytes();
+
+		assertFalse(store.isUnlocked());
+		assertThrows(WrongPasswordException.class, () -> {
+			store.unlock("wrongpass", 60000);
+		});
+		assertFalse(store.isUnlocked());
+
+		store.unlock(TestConfig.storePass, 60000);
+		assertTrue(store.isUnlocked());
+
+		for (int i = 0; i < 3; i++) {
+			String sig = doc.sign(TestConfig.storePass, data);
+			assertTrue(doc.verify(sig, data));
+		}
+
+		// The session only serves the same password
+		assertThrows(WrongPasswordException.class, () -> {
+			doc.sign("wrongpass", data);
+		});
+
+		// The replaced key should not be served from the session
+		DIDURL id = doc.getDefaultPublicKeyId();
+		HDKey key = TestData.generateKeypair();
+		store.storePrivateKey(id, key.serialize(), TestConfig.storePass);
+		assertFalse(doc.verify(doc.sign(TestConfig.storePass, data), data));
+
+		store.lock();
+		assertFalse(store.isUnlocked());
+
+		store.unlock(TestConfig.storePass, 1);
+		Thread.sleep(10);
+		assertFalse(store.isUnlocked());
+		assertFalse(doc.verify(doc.sign(TestConfig.storePass, data), data));
+	}
+
+	@Test
+	public void testUnlockedSessionExpiry() throws Exception {
+		DIDURL id = new DIDURL("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu#key");
+
+		// Closed at the expiry, without any access or lock()
+		KeySession session = new KeySession(TestConfig.storePass, 50);
+		session.put(id, new byte[] { 1, 2, 3 });
+		assertNotNull(session.get(id));
+		Thread.sleep(200);
+		assertNull(session.get(id));
+
+		// An expired session never drops the new one
+		store.unlock(TestConfig.storePass, 1);
+		Thread.sleep(10);
+		store.unlock(TestConfig.storePass, 60000);
+		assertTrue(store.isUnlocked());
+		store.lock();
+		assertFalse(store.isUnlocked());
+	}
+
+	@Test
+	public void testUnlockedSessionConcurrentLock() throws Exception {
+		RootIdentity identity = testData.getRootIdentity();
+		DIDDocument doc = identity.newDid(TestConfig.storePass);
+		byte[] data = "The quick brown fox jumps over the lazy dog.".getBytes();
+
+		store.unlock(TestConfig.storePass, 60000);
+
+		// Lock and unlock repeatedly while signing with the session keys
+		AtomicBoolean stop = new AtomicBoolean();
+		Thread locker = new Thread(() -> {
+			while (!stop.get()) {
+				store.lock();
+				try {
+					store.unlock(TestConfig.storePass, 60000);
+				} catch (DIDStoreException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		locker.start();
+
+		try {
+			for (int i = 0; i < 200; i++) {
+				String sig = doc.sign(TestConfig.storePass, data);
+				assertTrue(doc.verify(sig, data));
+			}
+		} finally {
+			stop.set(true);
+			locker.join();
+			store.lock();
+		}
+	}
+
+	@Test
+	public void testSynchronizer() throws Exception {
+		RootIdentity identity = testData.getRootIdentity();
+
+		for (int i = 0; i < 10; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			doc.getMetadata().setAlias("my did " + i);
+			doc.publish(TestConfig.storePass);
+		}
+
+		List<DID> dids = new ArrayList<DID>(store.listDids());
+		Collections.sort(dids);
+		for (DID did : dids)
+			assertTrue(store.deleteDid(did));
+
+		File checkpoint = new File(TestConfig.tempDir, "sync.checkpoint");
+		checkpoint.delete();
+
+		// Cancelled after the first batch
+		DIDStoreSynchronizer synchronizer = new DIDStoreSynchronizer(store)
+				.parallelism(1)
+				.batchSize(2)
+				.checkpoint(checkpoint);
+		synchronizer.progress((processed, total) -> synchronizer.cancel());
+
+		assertThrows(CancellationException.class, () -> {
+			synchronizer.synchronize();
+		});
+		assertTrue(synchronizer.isCancelled());
+		assertTrue(checkpoint.exists());
+		assertEquals(dids.get(1).toString(), new String(
+				Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8));
+
+		// Interrupted again, the checkpoint moves forward
+		assertThrows(CancellationException.class, () -> {
+			synchronizer.synchronize();
+		});
+		assertEquals(dids.get(3).toString(), new String(
+				Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8));
+
+		// Resume from the checkpoint
+		List<Integer> progress = new ArrayList<Integer>();
+		synchronizer.parallelism(4).progress((processed, total) -> {
+			assertEquals(10, total);
+			progress.add(processed);
+		});
+		synchronizer.synchronizeAsync().get();
+
+		assertFalse(checkpoint.exists());
+		assertEquals(3, progress.size());
+		assertTrue(progress.get(0) >= 6);
+		assertEquals(10, (int)progress.get(progress.size() - 1));
+
+		List<DID> syncedDids = new ArrayList<DID>(store.listDids());
+		Collections.sort(syncedDids);
+		assertArrayEquals(dids.toArray(), syncedDids.toArray());
+	}
+
 	// NOTICE:
 	// This case try to reproduce the errors from Elastos Essential.
 	// Caused by resolved metadata will overwrite the local metadata.
@@ -610,6 +993,127 @@ public class DIDStoreTest {
 		assertNotNull(doc);
 	}
 
+	@Test
+	public void testResumeChangePassword() throws DIDException {
+		RootIdentity identity = testData.getRootIdentity();
+
+		List<DID> dids = new ArrayList<DID>();
+		for (int i = 0; i < 200; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			dids.add(doc.getSubject());
+		}
+
+		File journal = new File(TestConfig.storeRoot, "password.journal");
+
+		// Interrupted, with the other new password
+		assertThrows(IllegalStateException.class, () -> {
+			store.changePassword(TestConfig.storePass, "otherpasswd", (processed, total) -> {
+				throw new IllegalStateException("interrupted");
+			});
+		});
+		assertTrue(journal.exists());
+
+		// No pending re-encrypt writes the journal after the failure
+		Map<String, Long> snapshot = snapshot(journal);
+		try {
+			Thread.sleep(500);
+		} catch (InterruptedException ignore) {
+		}
+		assertEquals(snapshot, snapshot(journal));
+
+		// Interrupted, the journal of the other password is discarded
+		assertThrows(IllegalStateException.class, () -> {
+			store.changePassword(TestConfig.storePass, "newpasswd", (processed, total) -> {
+				throw new IllegalStateException("interrupted");
+			});
+		});
+		assertTrue(journal.exists());
+
+		// Still the old password before the change finished
+		byte[] data = "Hello".getBytes();
+		assertNotNull(store.loadDid(dids.get(0)).sign(TestConfig.storePass, data));
+
+		// Resume
+		List<Integer> progress = new ArrayList<Integer>();
+		store.changePassword(TestConfig.storePass, "newpasswd", (processed, total) -> {
+			assertTrue(processed <= total);
+			progress.add(processed);
+		});
+		assertFalse(journal.exists());
+		assertFalse(progress.isEmpty());
+		// 200 DID keys + root private key and mnemonic
+		assertEquals(202, (int)progress.get(progress.size() - 1));
+
+		for (DID did : dids)
+			assertNotNull(store.loadDid(did).sign("newpasswd", data));
+
+		DIDDocument doc = identity.newDid("newpasswd");
+		assertNotNull(doc);
+	}
+
+	@Test
+	public void testResumeChangePasswordWithUncommittedEntry() throws Exception {
+		RootIdentity identity = testData.getRootIdentity();
+
+		List<DID> dids = new ArrayList<DID>();
+		for (int i = 0; i < 200; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			dids.add(doc.getSubject());
+		}
+
+		File journal = new File(TestConfig.storeRoot, "password.journal");
+
+		assertThrows(IllegalStateException.class, () -> {
+			store.changePassword(TestConfig.storePass, "newpasswd", (processed, total) -> {
+				throw new IllegalStateException("interrupted");
+			});
+		});
+		assertTrue(journal.exists());
+
+		// Crashed after writing the entry but before its commit marker, the
+		// broken entry is newer than the data entry
+		DID did = null;
+		for (DID d : dids) {
+			File marker = new File(journal, ".committed" + File.separator + "ids" +
+					File.separator + d.getMethodSpecificId() + File.separator +
+					"privatekeys" + File.separator + "#primary");
+			if (marker.exists()) {
+				assertTrue(marker.delete());
+				did = d;
+				break;
+			}
+		}
+		assertNotNull(did);
+
+		File staged = new File(journal, "ids" + File.separator +
+				did.getMethodSpecificId() + File.separator + "privatekeys" +
+				File.separator + "#primary");
+		Files.write(staged.toPath(), "broken".getBytes(StandardCharsets.UTF_8));
+		staged.setLastModified(System.currentTimeMillis() + 60000);
+
+		store.changePassword(TestConfig.storePass, "newpasswd");
+		assertFalse(journal.exists());
+
+		byte[] data = "Hello".getBytes();
+		for (DID d : dids)
+			assertNotNull(store.loadDid(d).sign("newpasswd", data));
+	}
+
+	private static Map<String, Long> snapshot(File dir) {
+		Map<String, Long> files = new HashMap<String, Long>();
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory())
+					files.putAll(snapshot(child));
+				else
+					files.put(child.getPath(), child.lastModified() ^ child.length());
+			}
+		}
+
+		return files;
+	}
+
 	@Test
 	public void testChangePasswordWithWrongPassword() throws DIDException {
 		RootIdentity identity = testData.getRootIdentity();
@@ -905,4 +1409,124 @@ public class DIDStoreTest {
 		assertTrue(restoreDir.exists());
 		assertTrue(Utils.equals(restoreDir, storeDir));
 	}
+
+	@Test
+	public void testArchiveResumeImport() throws DIDException, IOException {
+		RootIdentity identity = testData.getRootIdentity();
+		for (int i = 0; i < 20; i++) {
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			doc.getMetadata().setAlias("my did " + i);
+		}
+
+		File tempDir = new File(TestConfig.tempDir);
+		tempDir.mkdirs();
+		File exportFile = new File(tempDir, "storearchive.zip");
+
+		List<Integer> progress = new ArrayList<Integer>();
+		new DIDStoreArchive(store)
+				.parallelism(3)
+				.compressionLevel(9)
+				.progress((processed, total) -> {
+					assertEquals(21, total);
+					progress.add(processed);
+				})
+				.exportStore(exportFile, "password", TestConfig.storePass);
+		assertEquals(21, progress.size());
+		assertEquals(21, (int)progress.get(20));
+
+		File restoreDir = new File(tempDir, "restore");
+		Utils.deleteFile(restoreDir);
+		DIDStore store2 = DIDStore.open(restoreDir.getAbsolutePath());
+
+		File checkpoint = new File(tempDir, "import.checkpoint");
+		checkpoint.delete();
+
+		// Interrupted after 8 entries
+		assertThrows(IllegalStateException.class, () -> {
+			new DIDStoreArchive(store2)
+					.parallelism(2)
+					.checkpoint(checkpoint)
+					.progress((processed, total) -> {
+						if (processed == 8)
+							throw new IllegalStateException("interrupted");
+					})
+					.importStore(exportFile, "password", TestConfig.storePass);
+		});
+		assertTrue(checkpoint.exists());
+
+		// Resume from the checkpoint
+		progress.clear();
+		new DIDStoreArchive(store2)
+				.parallelism(2)
+				.checkpoint(checkpoint)
+				.progress((processed, total) -> progress.add(processed))
+				.importStore(exportFile, "password", TestConfig.storePass);
+		assertFalse(checkpoint.exists());
+		assertEquals(9, (int)progress.get(0));
+		assertEquals(21, (int)progress.get(progress.size() - 1));
+		store2.close();
+
+		assertTrue(Utils.equals(restoreDir, new File(TestConfig.storeRoot)));
+	}
+
+	@Test
+	public void testArchiveResumeImportWithOtherArchive() throws DIDException, IOException {
+		RootIdentity identity = testData.getRootIdentity();
+		for (int i = 0; i < 20; i++)
+			identity.newDid(TestConfig.storePass);
+
+		File tempDir = new File(TestConfig.tempDir);
+		tempDir.mkdirs();
+		File exportFile = new File(tempDir, "storearchive.zip");
+		new DIDStoreArchive(store).exportStore(exportFile, "password", TestConfig.storePass);
+
+		File restoreDir = new File(tempDir, "restore");
+		Utils.deleteFile(restoreDir);
+		DIDStore store2 = DIDStore.open(restoreDir.getAbsolutePath());
+
+		File checkpoint = new File(tempDir, "import.checkpoint");
+		checkpoint.delete();
+
+		// Interrupted after 8 entries
+		assertThrows(IllegalStateException.class, () -> {
+			new DIDStoreArchive(store2)
+					.checkpoint(checkpoint)
+					.progress((processed, total) -> {
+						if (processed == 8)
+							throw new IllegalStateException("interrupted");
+					})
+					.importStore(exportFile, "password", TestConfig.storePass);
+		});
+		assertTrue(checkpoint.exists());
+
+		// Regenerate the archive, the entries are different
+		for (int i = 0; i < 2; i++)
+			identity.newDid(TestConfig.storePass);
+		new DIDStoreArchive(store).exportStore(exportFile, "password", TestConfig.storePass);
+
+		// The zip stream can not start over
+		File copy = new File(tempDir, "import.checkpoint.copy");
+		Files.copy(checkpoint.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertThrows(DIDStoreException.class, () -> {
+			try (ZipInputStream in = new ZipInputStream(new FileInputStream(exportFile))) {
+				new DIDStoreArchive(store2)
+						.checkpoint(checkpoint)
+						.importStore(in, "password", TestConfig.storePass);
+			}
+		});
+		assertFalse(checkpoint.exists());
+
+		// The zip file starts over
+		Files.move(copy.toPath(), checkpoint.toPath());
+		List<Integer> progress = new ArrayList<Integer>();
+		new DIDStoreArchive(store2)
+				.checkpoint(checkpoint)
+				.progress((processed, total) -> progress.add(processed))
+				.importStore(exportFile, "password", TestConfig.storePass);
+		assertFalse(checkpoint.exists());
+		assertEquals(1, (int)progress.get(0));
+		assertEquals(23, (int)progress.get(progress.size() - 1));
+		assertEquals(22, store2.listDids().size());
+		store2.close();
+	}
 }
@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -214,6 +215,29 @@ public class DIDURLTest {
 		assertEquals("test", url.getFragment());
 	}
 
+	@Test
+	public void testInterning() {
+		String testURL = testDID + "#primary";
+		DIDURL url1 = new DIDURL(new String(testURL));
+		DIDURL url2 = new DIDURL(new String(testURL));
+
+		assertEquals(url1, url2);
+		assertSame(url1.getDid().getMethodSpecificId(),
+				url2.getDid().getMethodSpecificId());
+		assertSame(url1.getDid().toString(), url2.getDid().toString());
+		assertSame(url1.getFragment(), url2.getFragment());
+		assertSame(url1.toString(), url2.toString());
+		assertEquals(url1.hashCode(), url2.hashCode());
+
+		// The cached hash code and string follow the owner DID
+		DID other = new DID("did:elastos:foobar");
+		url2.setDid(other);
+		assertEquals(other + "#primary", url2.toString());
+		assertEquals(new DIDURL(other, "#primary"), url2);
+		assertEquals(new DIDURL(other, "#primary").hashCode(), url2.hashCode());
+		assertNotEquals(url1, url2);
+	}
+
 	@Test
 	public void testConstructorError1() {
 		assertThrows(MalformedDIDURLException.class, () -> {
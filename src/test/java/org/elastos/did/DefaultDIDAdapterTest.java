@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.elastos.did.exception.DIDResolveException;
+import org.elastos.did.exception.NetworkException;
+import org.junit.jupiter.api.Test;
+
+public class DefaultDIDAdapterTest {
+	private static final String RESOLVER = "http://localhost:1/resolve";
+	private static final String REQUEST = "{\"method\":\"did_resolveDID\"}";
+
+	// Never touches the network, counts the requests
+	private static class CountingTransport implements HttpTransport {
+		private LongAdder posts = new LongAdder();
+		private LongAdder asyncPosts = new LongAdder();
+
+		@Override
+		public InputStream post(URL url, String body) throws IOException {
+			posts.increment();
+			return stream("transport");
+		}
+
+		@Override
+		public CompletableFuture<InputStream> postAsync(URL url, String body,
+				Executor executor) {
+			asyncPosts.increment();
+			return CompletableFuture.completedFuture(stream("transport-async"));
+		}
+	}
+
+	private static InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(InputStream is) throws IOException {
+		try (InputStream in = is) {
+			StringBuilder sb = new StringBuilder();
+			int ch;
+			while ((ch = in.read()) != -1)
+				sb.append((char)ch);
+			return sb.toString();
+		}
+	}
+
+	@Test
+	public void testTransportAsync() throws IOException {
+		CountingTransport transport = new CountingTransport();
+		DefaultDIDAdapter adapter = new DefaultDIDAdapter(RESOLVER, transport);
+
+		assertEquals("transport-async", read(adapter.resolveAsync(REQUEST).join()));
+		assertEquals(1, transport.asyncPosts.sum());
+		assertEquals(0, transport.posts.sum());
+	}
+
+	@Test
+	public void testOverriddenPerformRequest() throws IOException {
+		CountingTransport transport = new CountingTransport();
+		LongAdder requests = new LongAdder();
+		DefaultDIDAdapter adapter = new DefaultDIDAdapter(RESOLVER, transport) {
+			@Override
+			protected InputStream performRequest(URL url, String body) throws IOException {
+				requests.increment();
+				return stream("custom-request");
+			}
+		};
+
+		assertEquals("custom-request", read(adapter.resolveAsync(REQUEST).join()));
+		assertEquals(1, requests.sum());
+		assertEquals(0, transport.asyncPosts.sum());
+	}
+
+	@Test
+	public void testOverriddenPerformRequestError() {
+		DefaultDIDAdapter adapter = new DefaultDIDAdapter(RESOLVER, new CountingTransport()) {
+			@Override
+			protected InputStream performRequest(URL url, String body) throws IOException {
+				throw new IOException("unreachable");
+			}
+		};
+
+		CompletionException e = assertThrows(CompletionException.class, () -> {
+			adapter.resolveAsync(REQUEST).join();
+		});
+		assertTrue(e.getCause() instanceof NetworkException);
+	}
+
+	@Test
+	public void testOverriddenResolve() throws IOException {
+		CountingTransport transport = new CountingTransport();
+		DefaultDIDAdapter adapter = new DefaultDIDAdapter(RESOLVER, transport) {
+			@Override
+			public InputStream resolve(String request) throws DIDResolveException {
+				return stream("custom-resolve");
+			}
+		};
+
+		assertEquals("custom-resolve", read(adapter.resolveAsync(REQUEST).join()));
+		assertEquals(0, transport.asyncPosts.sum());
+		assertEquals(0, transport.posts.sum());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elastos.did.exception.DIDException;
+import org.elastos.did.exception.DIDStoreException;
+import org.elastos.did.exception.WrongPasswordException;
+import org.elastos.did.utils.DIDTestExtension;
+import org.elastos.did.utils.TestConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DIDTestExtension.class)
+public class EmbeddedStorageTest {
+	private File storeFile;
+	private DIDStore store;
+	private RootIdentity identity;
+
+    @BeforeEach
+    public void beforeEach() throws DIDException {
+    	storeFile = new File(TestConfig.tempDir, "DIDStore.db");
+    	storeFile.delete();
+
+    	store = DIDStore.open(storeFile, DIDStore.StorageType.EMBEDDED);
+
+    	String mnemonic = Mnemonic.getInstance().generate();
+    	identity = RootIdentity.create(mnemonic, TestConfig.passphrase,
+    			true, store, TestConfig.storePass);
+    }
+
+    @AfterEach
+    public void afterEach() {
+    	if (store != null)
+    		store.close();
+
+    	storeFile.delete();
+    }
+
+    private void reopen() throws DIDStoreException {
+    	if (store != null)
+    		store.close();
+
+    	// Auto-detect the embedded store by the regular file
+    	store = DIDStore.open(storeFile.getPath());
+    	identity = store.loadRootIdentity();
+    }
+
+    private List<DID> createDids(int count) throws DIDException {
+    	List<DID> dids = new ArrayList<DID>(count);
+
+    	for (int i = 0; i < count; i++) {
+    		DIDDocument doc = identity.newDid(TestConfig.storePass);
+    		doc.getMetadata().setAlias("my did " + i);
+
+    		Map<String, Object> props = new HashMap<String, Object>();
+    		props.put("name", "John " + i);
+
+    		Issuer issuer = new Issuer(doc);
+    		VerifiableCredential vc = issuer.issueFor(doc.getSubject())
+    				.id("#profile")
+    				.type("BasicProfileCredential", "SelfProclaimedCredential")
+    				.properties(props)
+    				.seal(TestConfig.storePass);
+    		store.storeCredential(vc);
+
+    		dids.add(doc.getSubject());
+    	}
+
+    	return dids;
+    }
+
+	@Test
+	public void testCreateAndReopen() throws DIDException {
+		List<DID> dids = createDids(20);
+
+		reopen();
+
+		assertNotNull(identity);
+		assertEquals(20, identity.getIndex());
+		assertTrue(store.containsRootIdentityMnemonic(identity.getId()));
+		assertEquals(20, store.listDids().size());
+
+		for (int i = 0; i < dids.size(); i++) {
+			DID did = dids.get(i);
+
+			DIDDocument doc = store.loadDid(did);
+			assertNotNull(doc);
+			assertEquals("my did " + i, doc.getMetadata().getAlias());
+
+			List<DIDURL> vcs = store.listCredentials(did);
+			assertEquals(1, vcs.size());
+			assertEquals(new DIDURL(did, "#profile"), vcs.get(0));
+			VerifiableCredential vc = store.loadCredential(vcs.get(0));
+			assertEquals("John " + i, vc.getSubject().getProperty("name"));
+
+			assertTrue(store.containsPrivateKey(doc.getDefaultPublicKeyId()));
+		}
+
+		// Continue deriving from the persisted index
+		DIDDocument doc = identity.newDid(TestConfig.storePass);
+		assertFalse(dids.contains(doc.getSubject()));
+	}
+
+	@Test
+	public void testDelete() throws DIDException {
+		List<DID> dids = createDids(10);
+
+		for (int i = 0; i < dids.size(); i += 2) {
+			assertTrue(store.deleteDid(dids.get(i)));
+			assertFalse(store.deleteDid(dids.get(i)));
+		}
+
+		assertTrue(store.deleteCredential(new DIDURL(dids.get(1), "#profile")));
+		assertFalse(store.deleteCredential(new DIDURL(dids.get(1), "#profile")));
+
+		reopen();
+
+		assertEquals(5, store.listDids().size());
+		for (int i = 0; i < dids.size(); i++) {
+			if (i % 2 == 0) {
+				assertNull(store.loadDid(dids.get(i)));
+				assertFalse(store.containsPrivateKeys(dids.get(i)));
+			} else {
+				assertNotNull(store.loadDid(dids.get(i)));
+				assertEquals(i == 1 ? 0 : 1, store.listCredentials(dids.get(i)).size());
+			}
+		}
+	}
+
+	@Test
+	public void testRecovery() throws DIDException, IOException {
+		List<DID> dids = createDids(5);
+
+		DIDDocument doc = store.loadDid(dids.get(4));
+		long size = storeFile.length();
+		doc.getMetadata().setAlias("renamed");
+		assertTrue(storeFile.length() > size);
+
+		store.close();
+		store = null;
+
+		// Crash in the middle of the last batch
+		try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) {
+			file.setLength(size + 10);
+		}
+
+		reopen();
+		assertEquals(size, storeFile.length());
+		assertEquals(5, store.listDids().size());
+		assertEquals("my did 4", store.loadDid(dids.get(4)).getMetadata().getAlias());
+
+		store.close();
+		store = null;
+
+		// Garbage after the last batch
+		try (FileOutputStream out = new FileOutputStream(storeFile, true)) {
+			out.write(new byte[] { 0, 0, 0, 42, 1, 2, 3, 4, 5, 6, 7, 8 });
+		}
+
+		reopen();
+		assertEquals(size, storeFile.length());
+		assertEquals(5, store.listDids().size());
+	}
+
+	@Test
+	public void testChangePassword() throws DIDException {
+		List<DID> dids = createDids(5);
+
+		store.changePassword(TestConfig.storePass, "newpasswd");
+
+		reopen();
+
+		assertEquals(5, store.listDids().size());
+		DIDDocument doc = identity.newDid("newpasswd");
+		assertNotNull(doc);
+
+		assertThrows(WrongPasswordException.class, () -> {
+			identity.newDid(TestConfig.storePass);
+		});
+
+		doc = store.loadDid(dids.get(0));
+		assertNotNull(doc.sign("newpasswd", "test".getBytes()));
+	}
+}
@@ -24,6 +24,7 @@ package org.elastos.did;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -31,6 +32,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,13 +40,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 import org.elastos.did.DIDStore.ConflictHandle;
 import org.elastos.did.backend.DIDBiography;
+import org.elastos.did.backend.DIDRequest;
 import org.elastos.did.backend.DIDTransaction;
 import org.elastos.did.backend.IDChainRequest;
 import org.elastos.did.crypto.HDKey;
 import org.elastos.did.exception.DIDException;
+import org.elastos.did.exception.DIDResolveException;
+import org.elastos.did.exception.DIDTransactionException;
 import org.elastos.did.utils.DIDTestExtension;
 import org.elastos.did.utils.TestConfig;
 import org.elastos.did.utils.TestData;
@@ -72,6 +82,50 @@ public class IDChainOperationsTest {
 
 	private static final Logger log = LoggerFactory.getLogger(IDChainOperationsTest.class);
 
+	// Counts the resolve calls, optionally falls back to the default batch
+	private static class CountingAdapter implements DIDAdapter {
+		private DIDAdapter adapter;
+		private boolean batch;
+		private LongAdder resolves;
+		private LongAdder batches;
+		private volatile long delay;
+		// Delays the result after the chain was read
+		private volatile long lag;
+
+		CountingAdapter(DIDAdapter adapter, boolean batch) {
+			this.adapter = adapter;
+			this.batch = batch;
+			resolves = new LongAdder();
+			batches = new LongAdder();
+		}
+
+		@Override
+		public void createIdTransaction(String payload, String memo)
+				throws DIDTransactionException {
+			adapter.createIdTransaction(payload, memo);
+		}
+
+		@Override
+		public InputStream resolve(String request) throws DIDResolveException {
+			if (delay > 0)
+				sleep(delay);
+
+			InputStream is = adapter.resolve(request);
+			resolves.increment();
+			if (lag > 0)
+				sleep(lag);
+
+			return is;
+		}
+
+		@Override
+		public InputStream resolveBatch(String request) throws DIDResolveException {
+			batches.increment();
+			return batch ? adapter.resolveBatch(request) :
+				DIDAdapter.super.resolveBatch(request);
+		}
+	}
+
     @BeforeAll
     public static void beforeAll() throws DIDException {
     	testData = new TestData();
@@ -1144,6 +1198,378 @@ public class IDChainOperationsTest {
 		assertEquals(originalSignature, doc.getSignature());
 	}
 
+	@Test
+	@Order(21)
+	public void testBatchResolve() throws DIDException {
+		List<DID> targets = new ArrayList<DID>(dids);
+		DID unknown = new DID("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu");
+		targets.add(unknown);
+
+		Map<DID, DIDDocument> docs = DIDBackend.getInstance().resolveDids(targets, true);
+		assertEquals(targets.size(), docs.size());
+		assertNull(docs.get(unknown));
+
+		for (DID did : dids) {
+			DIDDocument doc = docs.get(did);
+			assertNotNull(doc);
+			assertEquals(did, doc.getSubject());
+			assertTrue(doc.isValid());
+			assertEquals(did.resolve().toString(true), doc.toString(true));
+		}
+
+		List<DIDURL> ids = new ArrayList<DIDURL>();
+		ids.add(new DIDURL(dids.get(3), "#test"));
+		ids.add(new DIDURL(unknown, "#1234"));
+
+		Map<DIDURL, VerifiableCredential> vcs = DIDBackend.getInstance().resolveCredentials(ids);
+		assertEquals(ids.size(), vcs.size());
+		for (DIDURL id : ids) {
+			assertTrue(vcs.containsKey(id));
+			assertNull(vcs.get(id));
+		}
+	}
+
+	@Test
+	@Order(22)
+	public void testCoalescedForceResolve() throws DIDException {
+		DIDBackend backend = DIDBackend.getInstance();
+		backend.clearCache();
+
+		DID did = dids.get(0);
+
+		// The non-all resolve should be served from the full biography
+		DIDBiography bio = did.resolveBiography();
+		assertNotNull(bio);
+		long hits = backend.getCrossVariantHitCount();
+		DIDDocument doc = did.resolve();
+		assertNotNull(doc);
+		assertEquals(hits + 1, backend.getCrossVariantHitCount());
+		assertEquals(bio.getTransaction(0).getRequest().getDocument().getSignature(),
+				doc.getSignature());
+
+		// The concurrent forced resolves should share the refresh
+		long joined = backend.getJoinedRefreshCount();
+		List<CompletableFuture<DIDDocument>> futures = new ArrayList<CompletableFuture<DIDDocument>>();
+		for (int i = 0; i < 8; i++)
+			futures.add(did.resolveAsync(true));
+
+		for (CompletableFuture<DIDDocument> future : futures)
+			assertEquals(doc.getSignature(), future.join().getSignature());
+
+		assertTrue(backend.getJoinedRefreshCount() > joined);
+	}
+
+	@Test
+	@Order(23)
+	public void testAsyncResolve() throws DIDException {
+		DIDBackend backend = DIDBackend.getInstance();
+		backend.clearCache();
+
+		LongAdder tasks = new LongAdder();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		backend.setAsyncExecutor((r) -> {
+			tasks.increment();
+			executor.execute(r);
+		});
+
+		try {
+			List<CompletableFuture<DIDDocument>> futures = new ArrayList<CompletableFuture<DIDDocument>>();
+			for (DID did : dids)
+				futures.add(did.resolveAsync());
+
+			for (int i = 0; i < dids.size(); i++) {
+				DIDDocument doc = futures.get(i).join();
+				assertNotNull(doc);
+				assertEquals(dids.get(i), doc.getSubject());
+				assertEquals(dids.get(i).resolve().toString(true), doc.toString(true));
+			}
+
+			assertTrue(tasks.sum() >= dids.size());
+
+			DID unknown = new DID("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu");
+			assertNull(unknown.resolveAsync(true).join());
+			assertNull(VerifiableCredential.resolveAsync(new DIDURL(unknown, "#1234")).join());
+		} finally {
+			backend.setAsyncExecutor(null);
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@Order(24)
+	public void testForceResolveSupersedesBiography() throws DIDException {
+		DIDBackend backend = DIDBackend.getInstance();
+		backend.clearCache();
+
+		DID did = dids.get(0);
+
+		// Cache the full biography, it answers the non-all resolves
+		DIDBiography bio = did.resolveBiography();
+		assertNotNull(bio);
+		DIDDocument doc = did.resolve();
+		assertEquals(bio.getTransaction(0).getRequest().getDocument().getSignature(),
+				doc.getSignature());
+
+		DIDDocument updated = updateBehindCache(bio, "#supersede");
+
+		// The forced head refresh should supersede the cached biography
+		DIDDocument resolved = did.resolve(true);
+		assertEquals(updated.getSignature(), resolved.getSignature());
+		resolved = did.resolve();
+		assertEquals(updated.getSignature(), resolved.getSignature());
+		resolved = did.resolveAsync().join();
+		assertEquals(updated.getSignature(), resolved.getSignature());
+	}
+
+	@Test
+	@Order(25)
+	public void testBatchResolveWithoutCache() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), true);
+		DIDBackend.initialize(adapter, new DIDBackend.CachePolicy().ttl(0));
+
+		try {
+			// All the DIDs should be resolved in one batch
+			Map<DID, DIDDocument> docs = DIDBackend.getInstance().resolveDids(dids);
+			assertEquals(dids.size(), docs.size());
+			for (DID did : dids)
+				assertEquals(did, docs.get(did).getSubject());
+
+			assertEquals(1, adapter.batches.sum());
+			assertEquals(0, adapter.resolves.sum());
+
+			List<DIDURL> ids = new ArrayList<DIDURL>();
+			ids.add(new DIDURL(dids.get(3), "#test"));
+			ids.add(new DIDURL(dids.get(4), "#test"));
+
+			Map<DIDURL, VerifiableCredential> vcs = DIDBackend.getInstance().resolveCredentials(ids);
+			assertEquals(ids.size(), vcs.size());
+			assertEquals(2, adapter.batches.sum());
+			assertEquals(0, adapter.resolves.sum());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+		}
+	}
+
+	@Test
+	@Order(26)
+	public void testForceBatchResolve() throws DIDException {
+		DIDBackend backend = DIDBackend.getInstance();
+		backend.clearCache();
+
+		// Cache the full biography, then update the DID behind it
+		DID did = dids.get(1);
+		DIDBiography bio = did.resolveBiography();
+		DIDDocument updated = updateBehindCache(bio, "#batch");
+
+		List<DID> targets = new ArrayList<DID>();
+		targets.add(did);
+		targets.add(dids.get(2));
+
+		Map<DID, DIDDocument> docs = backend.resolveDids(targets, true);
+		assertEquals(updated.getSignature(), docs.get(did).getSignature());
+		assertEquals(updated.getSignature(), did.resolve().getSignature());
+	}
+
+	@Test
+	@Order(27)
+	public void testDefaultBatchResolve() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), false);
+		DIDBackend.initialize(adapter);
+		DIDBackend backend = DIDBackend.getInstance();
+
+		LongAdder tasks = new LongAdder();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		backend.setAsyncExecutor((r) -> {
+			tasks.increment();
+			executor.execute(r);
+		});
+
+		try {
+			// The default batch runs the single resolves on the async executor
+			Map<DID, DIDDocument> docs = backend.resolveDids(dids);
+			assertEquals(dids.size(), docs.size());
+			for (DID did : dids)
+				assertEquals(did, docs.get(did).getSubject());
+
+			assertEquals(1, adapter.batches.sum());
+			assertEquals(dids.size(), adapter.resolves.sum());
+			assertEquals(dids.size(), tasks.sum());
+
+			// The calling thread runs the single resolves that are rejected
+			backend.clearCache();
+			backend.setAsyncExecutor((r) -> {
+				throw new RejectedExecutionException();
+			});
+
+			docs = backend.resolveDids(dids);
+			assertEquals(dids.size(), docs.size());
+			for (DID did : dids)
+				assertEquals(did, docs.get(did).getSubject());
+
+			assertEquals(2, adapter.batches.sum());
+			assertEquals(dids.size() * 2, adapter.resolves.sum());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@Order(28)
+	public void testStaleWhileRevalidate() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), true);
+		DIDBackend.initialize(adapter, new DIDBackend.CachePolicy()
+				.ttl(1000).staleWhileRevalidate(60000));
+
+		try {
+			DID did = dids.get(0);
+			DIDDocument doc = did.resolve();
+			assertNotNull(doc);
+			assertEquals(1, adapter.resolves.sum());
+
+			// The expired entry is served at once, and refreshed in background
+			sleep(1200);
+			adapter.delay = 500;
+			long start = System.currentTimeMillis();
+			assertEquals(doc.getSignature(), did.resolve().getSignature());
+			assertTrue(System.currentTimeMillis() - start < 400);
+			waitFor(() -> adapter.resolves.sum() == 2);
+
+			// Served from the refreshed entry
+			sleep(700);
+			adapter.delay = 0;
+			assertEquals(doc.getSignature(), did.resolve().getSignature());
+			assertEquals(2, adapter.resolves.sum());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+		}
+	}
+
+	@Test
+	@Order(29)
+	public void testNegativeTtl() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), true);
+		DIDBackend.initialize(adapter, new DIDBackend.CachePolicy()
+				.ttl(60000).negativeTtl(300));
+
+		try {
+			DID did = dids.get(0);
+			DID unknown = new DID("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu");
+
+			assertNotNull(did.resolve());
+			assertNull(unknown.resolve());
+			assertNull(unknown.resolve());
+			assertEquals(2, adapter.resolves.sum());
+
+			// Only the negative result expires
+			sleep(500);
+			assertNotNull(did.resolve());
+			assertNull(unknown.resolve());
+			assertEquals(3, adapter.resolves.sum());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+		}
+	}
+
+	@Test
+	@Order(31)
+	public void testCredentialTtl() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), true);
+		DIDBackend.initialize(adapter, new DIDBackend.CachePolicy()
+				.ttl(60000).credentialTtl(300));
+
+		try {
+			DID did = dids.get(0);
+			DIDURL id = new DIDURL(did, "#test");
+
+			assertNotNull(did.resolve());
+			VerifiableCredential.resolve(id);
+			assertEquals(2, adapter.resolves.sum());
+
+			// The credential expires before the DID
+			sleep(500);
+			assertNotNull(did.resolve());
+			VerifiableCredential.resolve(id);
+			assertEquals(3, adapter.resolves.sum());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+		}
+	}
+
+	@Test
+	@Order(32)
+	public void testInvalidateDuringRefresh() throws DIDException {
+		CountingAdapter adapter = new CountingAdapter(DIDTestExtension.getAdapter(), true);
+		DIDBackend.initialize(adapter);
+		DIDBackend backend = DIDBackend.getInstance();
+
+		try {
+			DID did = dids.get(2);
+			DIDBiography bio = did.resolveBiography();
+			DIDDocument doc = bio.getTransaction(0).getRequest().getDocument();
+			assertEquals(1, adapter.resolves.sum());
+
+			// The forced resolve got the current document, and it lags
+			adapter.lag = 2000;
+			CompletableFuture<DIDDocument> refresh = did.resolveAsync(true);
+			waitFor(() -> adapter.resolves.sum() == 2);
+			adapter.lag = 0;
+
+			// Update the DID while the refresh in flight, invalidates the cache
+			DIDDocument.Builder db = store.loadDid(did).edit();
+			db.addPublicKey("#invalidate", did.toString(),
+					TestData.generateKeypair().getPublicKeyBase58());
+			DIDDocument updated = db.seal(TestConfig.storePass);
+			store.storeDid(updated);
+			backend.updateDid(updated, bio.getTransaction(0).getTransactionId(),
+					updated.getDefaultPublicKeyId(), TestConfig.storePass, null);
+			testData.waitForWalletAvaliable();
+			assertFalse(refresh.isDone());
+
+			// The refresh completes with the old document, but not caches it
+			assertEquals(doc.getSignature(), refresh.join().getSignature());
+			assertEquals(updated.getSignature(), did.resolve().getSignature());
+		} finally {
+			DIDBackend.initialize(DIDTestExtension.getAdapter());
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void waitFor(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Timeout");
+			sleep(50);
+		}
+	}
+
+	private DIDDocument updateBehindCache(DIDBiography bio, String keyId)
+			throws DIDException {
+		// Update the DID behind the local cache, like another client does
+		DID did = bio.getDid();
+		DIDDocument.Builder db = store.loadDid(did).edit();
+		db.addPublicKey(keyId, did.toString(),
+				TestData.generateKeypair().getPublicKeyBase58());
+		DIDDocument updated = db.seal(TestConfig.storePass);
+		store.storeDid(updated);
+
+		DIDRequest request = DIDRequest.update(updated,
+				bio.getTransaction(0).getTransactionId(),
+				updated.getDefaultPublicKeyId(), TestConfig.storePass);
+		String payload = request.serialize(true);
+		DIDTestExtension.getAdapter().createIdTransaction(payload, payload);
+		testData.waitForWalletAvaliable();
+
+		return updated;
+	}
+
     @Test
     @Order(30)
     // TODO: Temp case, should remove after all DID2 features online.
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elastos.did.exception.DIDException;
+import org.elastos.did.exception.WrongPasswordException;
+import org.elastos.did.utils.DIDTestExtension;
+import org.elastos.did.utils.TestConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(DIDTestExtension.class)
+public class InMemoryStorageTest {
+	private InMemoryStorage storage;
+	private DIDStore store;
+	private RootIdentity identity;
+
+    @BeforeEach
+    public void beforeEach() throws DIDException {
+    	storage = new InMemoryStorage();
+    	store = DIDStore.openInMemory(storage);
+
+    	String mnemonic = Mnemonic.getInstance().generate();
+    	identity = RootIdentity.create(mnemonic, TestConfig.passphrase,
+    			true, store, TestConfig.storePass);
+    }
+
+    @AfterEach
+    public void afterEach() {
+    	store.close();
+    }
+
+    private List<DID> createDids(int count) throws DIDException {
+    	List<DID> dids = new ArrayList<DID>(count);
+
+    	for (int i = 0; i < count; i++) {
+    		DIDDocument doc = identity.newDid(TestConfig.storePass);
+    		doc.getMetadata().setAlias("my did " + i);
+
+    		Map<String, Object> props = new HashMap<String, Object>();
+    		props.put("name", "John " + i);
+
+    		Issuer issuer = new Issuer(doc);
+    		VerifiableCredential vc = issuer.issueFor(doc.getSubject())
+    				.id("#profile")
+    				.type("BasicProfileCredential", "SelfProclaimedCredential")
+    				.properties(props)
+    				.seal(TestConfig.storePass);
+    		store.storeCredential(vc);
+
+    		dids.add(doc.getSubject());
+    	}
+
+    	return dids;
+    }
+
+	@Test
+	public void testCreateAndDelete() throws DIDException {
+		List<DID> dids = createDids(10);
+
+		assertEquals(10, store.listDids().size());
+		assertEquals(1, store.listRootIdentities().size());
+
+		for (int i = 0; i < dids.size(); i += 2) {
+			assertTrue(store.deleteDid(dids.get(i)));
+			assertFalse(store.deleteDid(dids.get(i)));
+		}
+
+		assertTrue(store.deleteCredential(new DIDURL(dids.get(1), "#profile")));
+		assertFalse(store.deleteCredential(new DIDURL(dids.get(1), "#profile")));
+
+		// Load through the storage, bypass the store cache
+		assertEquals(5, storage.listDids().size());
+		for (int i = 0; i < dids.size(); i++) {
+			if (i % 2 == 0) {
+				assertNull(storage.loadDid(dids.get(i)));
+				assertFalse(storage.containsPrivateKeys(dids.get(i)));
+			} else {
+				DIDDocument doc = storage.loadDid(dids.get(i));
+				assertNotNull(doc);
+				assertEquals("my did " + i, storage.loadDidMetadata(dids.get(i)).getAlias());
+				assertEquals(i == 1 ? 0 : 1, storage.listCredentials(dids.get(i)).size());
+				assertEquals(1, storage.listPrivateKeys(dids.get(i)).size());
+			}
+		}
+	}
+
+	@Test
+	public void testChangePassword() throws DIDException {
+		List<DID> dids = createDids(5);
+
+		store.changePassword(TestConfig.storePass, "newpasswd");
+
+		DIDDocument doc = identity.newDid("newpasswd");
+		assertNotNull(doc);
+
+		assertThrows(WrongPasswordException.class, () -> {
+			identity.newDid(TestConfig.storePass);
+		});
+
+		doc = store.loadDid(dids.get(0));
+		assertNotNull(doc.sign("newpasswd", "test".getBytes()));
+	}
+
+	@Test
+	public void testChangePasswordWithConcurrentUpdates() throws Exception {
+		InMemoryStorage storage = new InMemoryStorage();
+		DIDURL key = new DIDURL("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu#key");
+		storage.storeRootIdentity("root1", "mnemonic1", "sk1", "pk1", 0);
+		storage.storeRootIdentity("root2", "mnemonic2", "sk2", "pk2", 0);
+		storage.storePrivateKey(key, "old");
+
+		// Updates the storage in the middle of the re-encryption
+		Thread updater = new Thread(() -> {
+			storage.deleteRootIdentity("root2");
+			storage.storePrivateKey(key, "new");
+		});
+
+		storage.changePassword((data) -> {
+			if (updater.getState() == Thread.State.NEW) {
+				updater.start();
+				try {
+					updater.join(200);
+				} catch (InterruptedException ignore) {
+				}
+			}
+
+			return "re:" + data;
+		});
+
+		updater.join();
+
+		// The updates are applied after the change, not reverted by it
+		assertEquals("re:sk1", storage.loadRootIdentityPrivateKey("root1"));
+		assertNull(storage.loadRootIdentity("root2"));
+		assertEquals("new", storage.loadPrivateKey(key));
+	}
+
+	@Test
+	public void testSnapshotAndRestore() throws DIDException {
+		List<DID> dids = createDids(10);
+
+		File snapshot = new File(TestConfig.tempDir, "DIDStore.snapshot");
+		snapshot.delete();
+
+		try {
+			storage.snapshot(snapshot);
+			assertTrue(snapshot.isFile());
+
+			store.close();
+			storage = InMemoryStorage.restore(snapshot);
+			store = DIDStore.openInMemory(storage);
+
+			identity = store.loadRootIdentity();
+			assertNotNull(identity);
+			assertTrue(store.containsRootIdentityMnemonic(identity.getId()));
+			assertEquals(10, store.listDids().size());
+
+			for (int i = 0; i < dids.size(); i++) {
+				DIDDocument doc = store.loadDid(dids.get(i));
+				assertNotNull(doc);
+				assertEquals("my did " + i, doc.getMetadata().getAlias());
+				assertEquals(1, store.listCredentials(dids.get(i)).size());
+				assertNotNull(doc.sign(TestConfig.storePass, "test".getBytes()));
+			}
+
+			// Continue deriving from the restored index
+			DIDDocument doc = identity.newDid(TestConfig.storePass);
+			assertFalse(dids.contains(doc.getSubject()));
+
+			// The snapshot is an embedded store file
+			DIDStore embedded = DIDStore.open(snapshot);
+			assertEquals(10, embedded.listDids().size());
+			embedded.close();
+		} finally {
+			snapshot.delete();
+		}
+	}
+}
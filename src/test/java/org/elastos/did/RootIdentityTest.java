@@ -7,6 +7,9 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.elastos.did.exception.DIDAlreadyExistException;
 import org.elastos.did.exception.DIDException;
 import org.elastos.did.utils.DIDTestExtension;
@@ -178,6 +181,41 @@ public class RootIdentityTest {
 	    assertEquals(did, doc.getSubject());
 	}
 
+	@Test
+	public void testSynchronizeWithGap() throws DIDException {
+	    RootIdentity identity = testData.getRootIdentity();
+
+	    List<DID> dids = new ArrayList<DID>();
+	    for (int i = 0; i < 3; i++) {
+		    DIDDocument doc = identity.newDid(TestConfig.storePass);
+		    doc.publish(TestConfig.storePass);
+		    dids.add(doc.getSubject());
+	    }
+
+	    DIDDocument doc = identity.newDid(24, TestConfig.storePass);
+	    doc.publish(TestConfig.storePass);
+	    DID farDid = doc.getSubject();
+
+	    for (DID did : dids)
+		    assertTrue(store.deleteDid(did));
+	    assertTrue(store.deleteDid(farDid));
+	    assertEquals(3, identity.getIndex());
+
+	    // The gap between index 2 and 24 exceeds the default gap limit
+	    identity.synchronize(null, 7, 20);
+	    assertEquals(3, store.listDids().size());
+	    for (DID did : dids)
+		    assertNotNull(store.loadDid(did));
+	    assertNull(store.loadDid(farDid));
+	    assertEquals(3, identity.getIndex());
+
+	    identity.synchronize(null, 5, 30);
+	    assertEquals(4, store.listDids().size());
+	    assertNotNull(store.loadDid(farDid));
+	    assertEquals(24, store.loadDid(farDid).getMetadata().getIndex());
+	    assertEquals(25, identity.getIndex());
+	}
+
 	@Test
 	public void testGetDid() throws DIDException {
 	    RootIdentity identity = testData.getRootIdentity();
@@ -190,6 +228,11 @@ public class RootIdentityTest {
 
 		    assertEquals(doc.getSubject(), did);
 	    }
+
+	    List<DID> dids = identity.getDids(0, 100);
+	    assertEquals(100, dids.size());
+	    for (int i = 0; i < 100; i++)
+		    assertEquals(identity.getDid(i), dids.get(i));
 	}
 
 }
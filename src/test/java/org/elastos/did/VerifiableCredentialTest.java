@@ -32,6 +32,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.elastos.did.backend.CredentialBiography;
 import org.elastos.did.backend.IDChainRequest;
@@ -39,6 +41,7 @@ import org.elastos.did.exception.CredentialAlreadyExistException;
 import org.elastos.did.exception.CredentialRevokedException;
 import org.elastos.did.exception.DIDException;
 import org.elastos.did.exception.DIDTransactionException;
+import org.elastos.did.exception.MalformedDIDURLException;
 import org.elastos.did.utils.DIDTestExtension;
 import org.elastos.did.utils.TestConfig;
 import org.elastos.did.utils.TestData;
@@ -1112,4 +1115,23 @@ public class VerifiableCredentialTest {
     	}
     	assertEquals(0, index);
     }
+
+    @Test
+    public void testAsyncWithInvalidArguments() {
+    	// The invalid arguments are reported by the returned futures
+    	CompletableFuture<VerifiableCredential> vf =
+    			VerifiableCredential.resolveAsync("did:elastos:#foo", null);
+    	assertTrue(vf.isCompletedExceptionally());
+    	CompletionException e = assertThrows(CompletionException.class, () -> vf.join());
+    	assertTrue(e.getCause() instanceof MalformedDIDURLException);
+
+    	CompletableFuture<CredentialBiography> bf =
+    			VerifiableCredential.resolveBiographyAsync("did:elastos:#foo", null);
+    	assertTrue(bf.isCompletedExceptionally());
+    	e = assertThrows(CompletionException.class, () -> bf.join());
+    	assertTrue(e.getCause() instanceof MalformedDIDURLException);
+
+    	assertTrue(VerifiableCredential.resolveAsync((DIDURL)null).isCompletedExceptionally());
+    	assertTrue(VerifiableCredential.listAsync(null, 0, 0).isCompletedExceptionally());
+    }
 }
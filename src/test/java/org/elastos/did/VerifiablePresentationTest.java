@@ -23,14 +23,17 @@
 package org.elastos.did;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.util.List;
 
 import org.elastos.did.exception.DIDException;
+import org.elastos.did.exception.DIDNotFoundException;
 import org.elastos.did.utils.DIDTestExtension;
 import org.elastos.did.utils.TestConfig;
 import org.elastos.did.utils.TestData;
@@ -201,6 +204,206 @@ public class VerifiablePresentationTest {
 		assertTrue(vp.isValid());
 	}
 
+	@Test
+	public void testPresentationVerifier() throws DIDException, IOException {
+		TestData.InstantData td = testData.getInstantData();
+		DIDDocument doc = td.getUser1Document();
+
+		VerifiablePresentation.Builder pb = VerifiablePresentation.createFor(
+				doc.getSubject(), store);
+
+		VerifiablePresentation vp = pb
+				.credentials(doc.getCredential("#profile"))
+				.credentials(doc.getCredential("#email"))
+				.credentials(td.getUser1TwitterCredential())
+				.credentials(td.getUser1PassportCredential())
+				.realm("https://example.com/")
+				.nonce("873172f58701a9ee686f0630204fee59")
+				.seal(TestConfig.storePass);
+
+		PresentationVerifier verifier = new PresentationVerifier().parallelism(4);
+
+		PresentationVerifier.Verdict verdict = verifier.verifyValidity(vp);
+		assertTrue(verdict.isPassed());
+		assertEquals(PresentationVerifier.Status.PASSED, verdict.getStatus());
+		assertEquals(4, verdict.getCredentialStatuses().size());
+		for (PresentationVerifier.Status s : verdict.getCredentialStatuses().values())
+			assertEquals(PresentationVerifier.Status.PASSED, s);
+
+		assertTrue(verifier.verifyGenuineAsync(vp).join().isPassed());
+		assertTrue(new PresentationVerifier().parallelism(1)
+				.verifyValidity(vp).isPassed());
+
+		// Tamper the twitter credential, breaks both the credential and
+		// the presentation proof
+		VerifiablePresentation tampered = VerifiablePresentation.parse(
+				vp.toString().replace("@john", "@jane"));
+
+		verdict = new PresentationVerifier().failFast(false).verifyGenuine(tampered);
+		assertFalse(verdict.isPassed());
+		assertEquals(PresentationVerifier.Status.NOT_GENUINE, verdict.getStatus());
+		assertEquals(PresentationVerifier.Status.NOT_GENUINE, verdict.getCredentialStatus(
+				new DIDURL(doc.getSubject(), "#twitter")));
+		assertEquals(PresentationVerifier.Status.PASSED, verdict.getCredentialStatus(
+				new DIDURL(doc.getSubject(), "#passport")));
+
+		assertFalse(tampered.isGenuine());
+		assertFalse(tampered.isValid());
+	}
+
+	@Test
+	public void testPresentationWithUnpublishedIssuer() throws DIDException, IOException {
+		TestData.InstantData td = testData.getInstantData();
+		DIDDocument doc = td.getUser1Document();
+
+		// The issuer only lives in the local store
+		DIDDocument issuerDoc = testData.getRootIdentity().newDid(TestConfig.storePass);
+		VerifiableCredential vc = new Issuer(issuerDoc).issueFor(doc.getSubject())
+				.id("#unpublished")
+				.type("BasicProfileCredential", "SelfProofCredential")
+				.property("name", "John")
+				.seal(TestConfig.storePass);
+		store.storeCredential(vc);
+
+		VerifiablePresentation vp = VerifiablePresentation.createFor(
+				doc.getSubject(), store)
+				.credentials(vc)
+				.credentials(td.getUser1TwitterCredential())
+				.realm("https://example.com/")
+				.nonce("873172f58701a9ee686f0630204fee59")
+				.seal(TestConfig.storePass);
+
+		PresentationVerifier.Verdict verdict = new PresentationVerifier()
+				.failFast(false).verifyGenuine(vp);
+		assertFalse(verdict.isPassed());
+		assertEquals(PresentationVerifier.Status.PASSED, verdict.getStatus());
+		assertEquals(PresentationVerifier.Status.NOT_FOUND,
+				verdict.getCredentialStatus(vc.getId()));
+		assertEquals(PresentationVerifier.Status.PASSED,
+				verdict.getCredentialStatus(td.getUser1TwitterCredential().getId()));
+
+		assertThrows(DIDNotFoundException.class, () -> vp.isGenuine());
+		assertThrows(DIDNotFoundException.class, () -> vp.isValid());
+		assertThrows(DIDNotFoundException.class, () -> vc.isGenuine());
+	}
+
+	@Test
+	public void testPresentationWithBadAndUnpublishedIssuer() throws DIDException, IOException {
+		TestData.InstantData td = testData.getInstantData();
+		DIDDocument doc = td.getUser1Document();
+
+		DIDDocument issuerDoc = testData.getRootIdentity().newDid(TestConfig.storePass);
+		VerifiableCredential vc = new Issuer(issuerDoc).issueFor(doc.getSubject())
+				.id("#unpublished")
+				.type("BasicProfileCredential", "SelfProofCredential")
+				.property("name", "John")
+				.seal(TestConfig.storePass);
+		store.storeCredential(vc);
+
+		VerifiablePresentation vp = VerifiablePresentation.createFor(
+				doc.getSubject(), store)
+				.credentials(td.getUser1TwitterCredential())
+				.credentials(vc)
+				.realm("https://example.com/")
+				.nonce("873172f58701a9ee686f0630204fee59")
+				.seal(TestConfig.storePass);
+
+		// Tamper the twitter credential, breaks both the credential and
+		// the presentation proof, checked before the unpublished one
+		VerifiablePresentation tampered = VerifiablePresentation.parse(
+				vp.toString().replace("@john", "@jane"));
+
+		PresentationVerifier.Verdict verdict = new PresentationVerifier()
+				.parallelism(4).verifyGenuine(tampered);
+		assertFalse(verdict.isPassed());
+		assertEquals(PresentationVerifier.Status.SKIPPED, verdict.getStatus());
+		assertEquals(PresentationVerifier.Status.NOT_GENUINE,
+				verdict.getCredentialStatus(td.getUser1TwitterCredential().getId()));
+
+		verdict = new PresentationVerifier().failFast(false).verifyGenuine(tampered);
+		assertFalse(verdict.isPassed());
+		assertEquals(PresentationVerifier.Status.NOT_GENUINE, verdict.getStatus());
+		assertEquals(PresentationVerifier.Status.NOT_GENUINE,
+				verdict.getCredentialStatus(td.getUser1TwitterCredential().getId()));
+		assertEquals(PresentationVerifier.Status.NOT_FOUND,
+				verdict.getCredentialStatus(vc.getId()));
+
+		// The bad credential fails first, not depends on the check timing
+		for (int i = 0; i < 20; i++) {
+			assertFalse(tampered.isGenuine());
+			assertFalse(tampered.isValid());
+		}
+
+		// The credentials are checked in the id order, the unpublished one
+		// is checked first if its id sorts before the bad one
+		VerifiableCredential first = new Issuer(issuerDoc).issueFor(doc.getSubject())
+				.id("#account")
+				.type("BasicProfileCredential", "SelfProofCredential")
+				.property("name", "John")
+				.seal(TestConfig.storePass);
+		store.storeCredential(first);
+
+		VerifiablePresentation reversed = VerifiablePresentation.parse(
+				VerifiablePresentation.createFor(doc.getSubject(), store)
+				.credentials(first)
+				.credentials(td.getUser1TwitterCredential())
+				.realm("https://example.com/")
+				.nonce("873172f58701a9ee686f0630204fee59")
+				.seal(TestConfig.storePass)
+				.toString().replace("@john", "@jane"));
+
+		for (int i = 0; i < 20; i++) {
+			assertThrows(DIDNotFoundException.class, () -> reversed.isGenuine());
+			assertThrows(DIDNotFoundException.class, () -> reversed.isValid());
+		}
+	}
+
+	@Test
+	public void testPresentationWithBadHolderAndUnpublishedIssuer()
+			throws DIDException, IOException {
+		TestData.InstantData td = testData.getInstantData();
+		DIDDocument doc = td.getUser1Document();
+
+		DIDDocument issuerDoc = testData.getRootIdentity().newDid(TestConfig.storePass);
+		VerifiableCredential vc = new Issuer(issuerDoc).issueFor(doc.getSubject())
+				.id("#unpublished")
+				.type("BasicProfileCredential", "SelfProofCredential")
+				.property("name", "John")
+				.seal(TestConfig.storePass);
+		store.storeCredential(vc);
+
+		VerifiablePresentation vp = VerifiablePresentation.createFor(
+				doc.getSubject(), store)
+				.credentials(vc)
+				.credentials(td.getUser1TwitterCredential())
+				.realm("https://example.com/")
+				.nonce("873172f58701a9ee686f0630204fee59")
+				.seal(TestConfig.storePass);
+
+		// The holder's document resolves to a tampered one
+		DIDDocument holderDoc = DIDDocument.parse(doc.toString(true)
+				.replaceFirst("\"expires\":\"\\d{4}", "\"expires\":\"2099"));
+		assertFalse(holderDoc.isGenuine());
+
+		DIDBackend.getInstance().setResolveHandle(
+				(d) -> d.equals(doc.getSubject()) ? holderDoc : null);
+
+		try {
+			PresentationVerifier.Verdict verdict = new PresentationVerifier()
+					.failFast(false).verifyGenuine(vp);
+			assertFalse(verdict.isPassed());
+			assertEquals(PresentationVerifier.Status.NOT_GENUINE, verdict.getStatus());
+			assertEquals(PresentationVerifier.Status.SKIPPED,
+					verdict.getCredentialStatus(vc.getId()));
+
+			// Same as the holder check fails before the credential checks
+			assertFalse(vp.isGenuine());
+			assertFalse(vp.isValid());
+		} finally {
+			DIDBackend.getInstance().setResolveHandle(null);
+		}
+	}
+
 	@Test
 	public void testBuildNonemptyWithOptionalAttrs() throws DIDException, IOException {
 		TestData.InstantData td = testData.getInstantData();
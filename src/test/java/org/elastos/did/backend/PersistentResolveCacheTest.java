@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.elastos.did.DID;
+import org.elastos.did.DIDURL;
+import org.elastos.did.exception.DIDException;
+import org.elastos.did.utils.TestConfig;
+import org.elastos.did.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PersistentResolveCacheTest {
+	private File dir;
+
+	@BeforeEach
+	public void beforeEach() {
+		dir = new File(TestConfig.tempDir + File.separator + "ResolveCache");
+		Utils.deleteFile(dir);
+	}
+
+	@AfterEach
+	public void afterEach() {
+		Utils.deleteFile(dir);
+	}
+
+	private static DIDResolveRequest didRequest(int i) throws DIDException {
+		DIDResolveRequest request = new DIDResolveRequest("req-" + i);
+		request.setParameters(new DID("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxd" + (char)('a' + i)), true);
+		return request;
+	}
+
+	private static DIDBiography notFound(DIDResolveRequest request) {
+		return new DIDBiography(request.getDid(), DIDBiography.Status.NOT_FOUND);
+	}
+
+	@Test
+	public void testPutAndGet() throws DIDException, IOException {
+		long expires = System.currentTimeMillis() + 60000;
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			for (int i = 0; i < 10; i++) {
+				DIDResolveRequest request = didRequest(i);
+				cache.put(request, notFound(request), expires);
+			}
+
+			CredentialResolveRequest request = new CredentialResolveRequest("vc");
+			request.setParameters(new DIDURL("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu#1234"), null);
+			cache.put(request, new CredentialBiography(request.getId(),
+					CredentialBiography.Status.NOT_FOUND), expires);
+
+			// Expired entry
+			DIDResolveRequest expired = didRequest(10);
+			cache.put(expired, notFound(expired), System.currentTimeMillis() - 1);
+			assertNull(cache.get(expired));
+
+			cache.remove(didRequest(0));
+			assertNull(cache.get(didRequest(0)));
+		}
+
+		// Reopen
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			assertNull(cache.get(didRequest(0)));
+			for (int i = 1; i < 10; i++) {
+				PersistentResolveCache.Entry entry = cache.get(didRequest(i));
+				assertNotNull(entry);
+				assertEquals(expires, entry.getExpires());
+				DIDBiography bio = (DIDBiography)entry.getResult();
+				assertEquals(didRequest(i).getDid(), bio.getDid());
+				assertEquals(DIDBiography.Status.NOT_FOUND, bio.getStatus());
+			}
+
+			CredentialResolveRequest request = new CredentialResolveRequest("vc2");
+			request.setParameters(new DIDURL("did:elastos:iZrzd9TFbVhRBgcnjoGYQhqkHf7emhxdYu#1234"), null);
+			PersistentResolveCache.Entry entry = cache.get(request);
+			assertNotNull(entry);
+			assertTrue(entry.getResult() instanceof CredentialBiography);
+
+			List<PersistentResolveCache.Entry> entries = cache.entries();
+			assertEquals(10, entries.size());
+		}
+	}
+
+	@Test
+	public void testCompaction() throws DIDException, IOException {
+		long expires = System.currentTimeMillis() + 60000;
+		long maxSize = 4096;
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, maxSize)) {
+			for (int round = 0; round < 20; round++) {
+				for (int i = 0; i < 10; i++) {
+					DIDResolveRequest request = didRequest(i);
+					cache.put(request, notFound(request), expires + round);
+				}
+			}
+
+			File file = new File(dir, "resolve.cache");
+			assertTrue(file.length() <= maxSize);
+
+			// Removed after the size limit reached, still persisted
+			cache.remove(didRequest(0));
+
+			cache.compact();
+			assertTrue(file.length() <= maxSize * 3 / 4);
+			assertFalse(new File(dir, "resolve.cache.tmp").exists());
+			assertNull(cache.get(didRequest(0)));
+			assertEquals(9, cache.size());
+
+			// The latest written entries should be kept
+			for (int i = 1; i < 10; i++)
+				assertNotNull(cache.get(didRequest(i)));
+
+			DIDResolveRequest request = didRequest(0);
+			cache.put(request, notFound(request), expires + 20);
+			assertEquals(expires + 20, cache.get(request).getExpires());
+		}
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, maxSize)) {
+			assertEquals(10, cache.size());
+			assertEquals(expires + 20, cache.get(didRequest(0)).getExpires());
+		}
+	}
+
+	@Test
+	public void testReadAfterAppend() throws DIDException, IOException {
+		long expires = System.currentTimeMillis() + 60000;
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			// Read each record right after appended, and the older ones
+			for (int round = 0; round < 10; round++) {
+				for (int i = 0; i < 10; i++) {
+					DIDResolveRequest request = didRequest(i);
+					cache.put(request, notFound(request), expires + round);
+					assertEquals(expires + round, cache.get(request).getExpires());
+					assertNotNull(cache.get(didRequest(0)));
+				}
+			}
+
+			assertEquals(10, cache.entries().size());
+		}
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			for (int i = 0; i < 10; i++)
+				assertEquals(expires + 9, cache.get(didRequest(i)).getExpires());
+		}
+	}
+
+	@Test
+	public void testRemoveOverLimit() throws DIDException, IOException {
+		long expires = System.currentTimeMillis() + 60000;
+		long maxSize = 4096;
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, maxSize)) {
+			for (int i = 0; i < 26; i++) {
+				DIDResolveRequest request = didRequest(i);
+				cache.put(request, notFound(request), expires);
+			}
+
+			assertNotNull(cache.get(didRequest(0)));
+			cache.remove(didRequest(0));
+		}
+
+		// Reopened before the background compaction done
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, maxSize)) {
+			assertNull(cache.get(didRequest(0)));
+		}
+	}
+
+	@Test
+	public void testTruncatedFile() throws DIDException, IOException {
+		long expires = System.currentTimeMillis() + 60000;
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			for (int i = 0; i < 3; i++) {
+				DIDResolveRequest request = didRequest(i);
+				cache.put(request, notFound(request), expires);
+			}
+		}
+
+		// Simulate a torn write of the last record
+		File file = new File(dir, "resolve.cache");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 5);
+		}
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			assertNotNull(cache.get(didRequest(0)));
+			assertNotNull(cache.get(didRequest(1)));
+			assertNull(cache.get(didRequest(2)));
+			assertEquals(2, cache.size());
+
+			DIDResolveRequest request = didRequest(2);
+			cache.put(request, notFound(request), expires);
+		}
+
+		try (PersistentResolveCache cache = new PersistentResolveCache(dir, 1024 * 1024)) {
+			assertEquals(3, cache.size());
+			assertNotNull(cache.get(didRequest(2)));
+		}
+	}
+}
@@ -24,12 +24,20 @@ package org.elastos.did.crypto;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.elastos.did.Mnemonic;
 import org.elastos.did.exception.DIDException;
+import org.spongycastle.crypto.params.ECPublicKeyParameters;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -115,4 +123,66 @@ public class EcdsaSignerTest {
 		result = EcdsaSigner.verifyData(pk, sig, input.getBytes());
 		assertTrue(result);
 	}
+
+	@Test
+	public void testPublicKeyCache() throws DIDException {
+		HDKey root = new HDKey(Mnemonic.getInstance().generate(), "");
+		HDKey key1 = root.derive(HDKey.DERIVE_PATH_PREFIX + 0);
+		HDKey key2 = root.derive(HDKey.DERIVE_PATH_PREFIX + 1);
+
+		byte[] pk = key1.getPublicKeyBytes();
+		ECPublicKeyParameters params = EcdsaSigner.getPublicKeyParameters(pk);
+
+		// Hit, with an equal but different array
+		assertSame(params, EcdsaSigner.getPublicKeyParameters(pk.clone()));
+
+		// Changing the caller's array does not change the cached key
+		byte[] reused = pk.clone();
+		EcdsaSigner.getPublicKeyParameters(reused);
+		reused[5] ^= 1;
+		assertSame(params, EcdsaSigner.getPublicKeyParameters(pk));
+
+		// Miss
+		assertNotSame(params, EcdsaSigner.getPublicKeyParameters(key2.getPublicKeyBytes()));
+
+		byte[] sig1 = EcdsaSigner.signData(key1.getPrivateKeyBytes(), plain.getBytes());
+		byte[] sig2 = EcdsaSigner.signData(key2.getPrivateKeyBytes(), plain.getBytes());
+		assertTrue(EcdsaSigner.verifyData(pk, sig1, plain.getBytes()));
+		assertTrue(EcdsaSigner.verifyData(pk, sig1, plain.getBytes()));
+		assertFalse(EcdsaSigner.verifyData(pk, sig2, plain.getBytes()));
+		assertTrue(EcdsaSigner.verifyData(key2.getPublicKeyBytes(), sig2, plain.getBytes()));
+	}
+
+	@Test
+	public void testConcurrentVerify() throws Exception {
+		HDKey root = new HDKey(Mnemonic.getInstance().generate(), "");
+
+		// Fresh keys, the first verifications of them race too
+		int keys = 4;
+		byte[][] pks = new byte[keys][];
+		byte[][] sigs = new byte[keys][];
+		for (int i = 0; i < keys; i++) {
+			HDKey key = root.derive(HDKey.DERIVE_PATH_PREFIX + i);
+			pks[i] = key.getPublicKeyBytes();
+			sigs[i] = EcdsaSigner.signData(key.getPrivateKeyBytes(), plain.getBytes());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 400; i++) {
+				int k = i % keys;
+				boolean good = i % 5 != 0;
+				results.add(executor.submit(() -> {
+					byte[] sig = good ? sigs[k] : sigs[(k + 1) % keys];
+					return EcdsaSigner.verifyData(pks[k], sig, plain.getBytes()) == good;
+				}));
+			}
+
+			for (Future<Boolean> result : results)
+				assertTrue(result.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
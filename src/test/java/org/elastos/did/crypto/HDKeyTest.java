@@ -29,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.Signature;
+import java.util.List;
 
 import org.bitcoinj.core.Sha256Hash;
 import org.elastos.did.exception.DIDException;
@@ -113,6 +114,33 @@ public class HDKeyTest {
 		}
 	}
 
+	@Test
+	public void testDeriveRange() {
+		String mnemonic = "pact reject sick voyage foster fence warm luggage cabbage any subject carbon";
+		String passphrase = "helloworld";
+
+		HDKey root = new HDKey(mnemonic, passphrase);
+		HDKey preDerivedPub = HDKey.deserializeBase58(root.derive(
+				HDKey.PRE_DERIVED_PUBLICKEY_PATH).serializePublicKeyBase58());
+
+		List<HDKey> keys = root.deriveRange("44H/0H/0H/0", 10, 100, true);
+		List<HDKey> pubKeys = preDerivedPub.deriveRange("0", 10, 100, false);
+		assertEquals(100, keys.size());
+		assertEquals(100, pubKeys.size());
+
+		for (int i = 0; i < 100; i++) {
+			HDKey key = root.derive(HDKey.DERIVE_PATH_PREFIX + (i + 10));
+
+			assertEquals(key.getPrivateKeyBase58(), keys.get(i).getPrivateKeyBase58());
+			assertEquals(key.getAddress(), keys.get(i).getAddress());
+			assertEquals(key.getAddress(), pubKeys.get(i).getAddress());
+		}
+
+		root.wipe();
+		assertEquals(root.derive(HDKey.DERIVE_PATH_PREFIX + 10).getAddress(),
+				keys.get(0).getAddress());
+	}
+
 	@Test
 	public void testJWTCompatible() throws DIDException, GeneralSecurityException {
 		byte[] input = "The quick brown fox jumps over the lazy dog.".getBytes();
@@ -23,14 +23,20 @@
 package org.elastos.did.jwt;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.elastos.did.DIDDocument;
 import org.elastos.did.DIDURL;
@@ -819,6 +825,126 @@ public class JwtTest {
 		});
 	}
 
+	@Test
+	public void testVerifier() throws Exception {
+		DIDDocument issuer = testData.getInstantData().getIssuerDocument();
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(Calendar.MILLISECOND, 0);
+		Date iat = cal.getTime();
+		cal.add(Calendar.MONTH, 1);
+		Date exp = cal.getTime();
+
+		List<String> tokens = new ArrayList<String>();
+		for (int i = 0; i < 8; i++) {
+			DIDDocument signer = i % 2 == 0 ? doc : issuer;
+			tokens.add(signer.jwtBuilder()
+					.setSubject("JwtTest")
+					.setId(String.valueOf(i))
+					.setIssuedAt(iat)
+					.setExpiration(exp)
+					.sign(TestConfig.storePass)
+					.compact());
+		}
+
+		tokens.add(doc.jwtBuilder()
+				.setSubject("JwtTest")
+				.setId("key2")
+				.setExpiration(exp)
+				.signWith("#key2", TestConfig.storePass)
+				.compact());
+
+		// Tampered, expired and malformed tokens
+		String token = tokens.get(0);
+		int pos = token.lastIndexOf('.') + 1;
+		char c = token.charAt(pos) == 'A' ? 'B' : 'A';
+		tokens.add(token.substring(0, pos) + c + token.substring(pos + 1));
+
+		cal.add(Calendar.MONTH, -2);
+		tokens.add(doc.jwtBuilder()
+				.setSubject("JwtTest")
+				.setExpiration(cal.getTime())
+				.sign(TestConfig.storePass)
+				.compact());
+
+		tokens.add("foobar");
+
+		JwtVerifier verifier = new JwtVerifier();
+		List<JwtVerifier.Result> results = verifier.verifyAll(tokens);
+		assertEquals(tokens.size(), results.size());
+
+		for (int i = 0; i < 8; i++) {
+			JwtVerifier.Result r = results.get(i);
+			assertTrue(r.isVerified());
+			assertEquals(tokens.get(i), r.getToken());
+			assertEquals(String.valueOf(i), r.getJws().getBody().getId());
+			assertEquals((i % 2 == 0 ? doc : issuer).getSubject().toString(),
+					r.getJws().getBody().getIssuer());
+		}
+
+		assertTrue(results.get(8).isVerified());
+		assertEquals("key2", results.get(8).getJws().getBody().getId());
+
+		assertFalse(results.get(9).isVerified());
+		assertTrue(results.get(9).getError() instanceof JwsSignatureException);
+		assertFalse(results.get(10).isVerified());
+		assertTrue(results.get(10).getError() instanceof ExpiredJwtException);
+		assertFalse(results.get(11).isVerified());
+		assertTrue(results.get(11).getError() instanceof MalformedJwtException);
+
+		assertEquals(9, verifier.getVerifiedCount());
+		assertEquals(3, verifier.getFailedCount());
+		assertTrue(verifier.getDecodeNanos() > 0);
+		assertTrue(verifier.getKeyLookupNanos() > 0);
+		assertTrue(verifier.getVerifyNanos() > 0);
+
+		// Single token verification with the shared verifier
+		Jws<Claims> jws = verifier.verify(tokens.get(1));
+		assertEquals(issuer.getSubject().toString(), jws.getBody().getIssuer());
+		assertThrows(JwsSignatureException.class, () -> {
+			verifier.verify(tokens.get(9));
+		});
+		assertEquals(10, verifier.getVerifiedCount());
+		assertEquals(4, verifier.getFailedCount());
+	}
+
+	@Test
+	public void testVerifierOnOwnExecutor() throws Exception {
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.MONTH, 1);
+		Date exp = cal.getTime();
+
+		List<String> tokens = new ArrayList<String>();
+		for (int i = 0; i < 64; i++) {
+			tokens.add(doc.jwtBuilder()
+					.setSubject("JwtTest")
+					.setId(String.valueOf(i))
+					.setExpiration(exp)
+					.sign(TestConfig.storePass)
+					.compact());
+		}
+
+		// verifyAll called from the only thread of the verifier's executor
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			JwtVerifier verifier = new JwtVerifier(0, executor);
+			List<JwtVerifier.Result> results = executor.submit(
+					() -> verifier.verifyAll(tokens)).get(30, TimeUnit.SECONDS);
+
+			assertEquals(tokens.size(), results.size());
+			for (int i = 0; i < tokens.size(); i++) {
+				JwtVerifier.Result r = results.get(i);
+				assertTrue(r.isVerified());
+				assertEquals(String.valueOf(i), r.getJws().getBody().getId());
+			}
+
+			assertEquals(64, verifier.getVerifiedCount());
+			assertEquals(0, verifier.getFailedCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	private Map<String, Object> loadJson(String json) {
 		ObjectMapper mapper = new ObjectMapper();
 		try {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2019 Elastos Foundation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.elastos.did.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the hand written scanner against the ANTLR generated parser, the
+ * generated parser is the conformance oracle of the grammar.
+ */
+public class DIDURLScannerTest {
+	private static final String[] FRAGMENTS = {
+		"did", "did:", "did:elastos:", "elastos", "DID", "foo", "a", "0", "~",
+		"x.y", "a-b", "c_d", ":", ";", "/", "?", "#", "=", "&", "%41", "%4",
+		"%", "%zz", "%4g", " ", "\n", "\t", "\r", ".", "-", "_", "!", "@",
+		"é", "😀", "icJ4z2DULrHEzYSvjKNJpKyhqFDxvYV7pN"
+	};
+
+	private static final String ALPHABET = "d:;/?#=&%4 \na.~!";
+
+	// Parse with the generated parser, returns the events or the error
+	private static String antlr(String input, boolean didOnly) {
+		List<String> events = new ArrayList<String>();
+
+		try {
+			ParserHelper.parse(input, didOnly, new DIDURLBaseListener() {
+				@Override
+				public void exitDid(DIDURLParser.DidContext ctx) {
+					events.add("did(" + ctx.method().getText() + ", " +
+							ctx.methodSpecificString().getText() + ")");
+				}
+
+				@Override
+				public void exitParam(DIDURLParser.ParamContext ctx) {
+					DIDURLParser.ParamQNameContext qname = ctx.paramQName();
+					events.add("param(" + (qname.paramMethod() == null ? null :
+							qname.paramMethod().getText()) + ", " +
+							qname.getText() + ", " + (ctx.paramValue() == null ?
+							null : ctx.paramValue().getText()) + ")");
+				}
+
+				@Override
+				public void exitPath(DIDURLParser.PathContext ctx) {
+					events.add("path(/" + ctx.getText() + ")");
+				}
+
+				@Override
+				public void exitQueryParam(DIDURLParser.QueryParamContext ctx) {
+					events.add("query(" + ctx.queryParamName().getText() + ", " +
+							(ctx.queryParamValue() == null ? null :
+							ctx.queryParamValue().getText()) + ")");
+				}
+
+				@Override
+				public void exitFrag(DIDURLParser.FragContext ctx) {
+					events.add("fragment(" + ctx.getText() + ")");
+				}
+			});
+		} catch (IllegalArgumentException e) {
+			return position(e);
+		}
+
+		return events.toString();
+	}
+
+	// Parse with the scanner, returns the events or the error
+	private static String scan(String input, boolean didOnly) {
+		List<String> events = new ArrayList<String>();
+
+		try {
+			DIDURLScanner.scan(input, didOnly, new DIDURLScanner.Handler() {
+				@Override
+				public void did(String method, String methodSpecificId) {
+					events.add("did(" + method + ", " + methodSpecificId + ")");
+				}
+
+				@Override
+				public void param(String method, String name, String value) {
+					events.add("param(" + method + ", " + name + ", " + value + ")");
+				}
+
+				@Override
+				public void path(String path) {
+					events.add("path(" + path + ")");
+				}
+
+				@Override
+				public void query(String name, String value) {
+					events.add("query(" + name + ", " + value + ")");
+				}
+
+				@Override
+				public void fragment(String fragment) {
+					events.add("fragment(" + fragment + ")");
+				}
+			});
+		} catch (IllegalArgumentException e) {
+			return position(e);
+		}
+
+		return events.toString();
+	}
+
+	private static String position(IllegalArgumentException e) {
+		String msg = e.getMessage();
+		assertTrue(msg.startsWith("At position "), msg);
+		return "error" + msg.substring(11, msg.indexOf(':'));
+	}
+
+	private static void check(String input) {
+		assertEquals(antlr(input, true), scan(input, true), input);
+		assertEquals(antlr(input, false), scan(input, false), input);
+	}
+
+	@Test
+	public void testComponents() {
+		String url = "did:elastos:icJ4z2DULrHEzYSvjKNJpKyhqFDxvYV7pN;elastos:foo=bar;keyonly/path/to/res?q1=v1&q2#frag";
+		assertEquals("[did(elastos, icJ4z2DULrHEzYSvjKNJpKyhqFDxvYV7pN), " +
+				"param(elastos, elastos:foo, bar), param(null, keyonly, null), " +
+				"path(/path/to/res), query(q1, v1), query(q2, null), " +
+				"fragment(frag)]", scan(url, false));
+		assertEquals("[did(elastos, icJ4z2DULrHEzYSvjKNJpKyhqFDxvYV7pN)]",
+				scan(url, true));
+
+		assertEquals("[fragment(~%41b.c-d_e)]", scan("#~%41b.c-d_e", false));
+		assertEquals("[path(/a/b)]", scan("/a/b", false));
+		assertEquals("[]", scan(" ", false));
+	}
+
+	@Test
+	public void testErrors() {
+		// The lexer errors
+		assertEquals("error 12", scan("did:elastos:.abc", true));
+		assertEquals("error 2", scan("#a!", false));
+		assertEquals("error 1", scan("#%4x", false));
+		// The position is counted from the beginning of the line
+		assertEquals("error 1", scan(" \n !", false));
+
+		// The parser errors
+		assertEquals("error 3", scan("did", true));
+		assertEquals("error 4", scan("did:did:abc", true));
+		assertEquals("error 1", scan("#did", false));
+		assertEquals("error 16", scan("did:elastos:abc;", false));
+
+		// The trailing input after a complete DID is not checked
+		assertEquals("[did(elastos, abc)]", scan("did:elastos:abc#x", true));
+	}
+
+	@Test
+	public void testConformance() {
+		String[] cases = {
+			"did:elastos:abc", "did:elastos:abc#", "did:elastos:abc#did",
+			"did:elastos:abc#x#y", "did:elastos:abc;", "did:elastos:abc;=x",
+			"did:elastos:abc;=!", "did:elastos:abc;a:", "did:elastos:abc;a:b:c",
+			"did:elastos:abc;a=b=c", "did:elastos:abc;a&b", "did:elastos:abc/",
+			"did:elastos:abc//", "did:elastos:abc/a/", "did:elastos:abc?",
+			"did:elastos:abc?a&", "did:elastos:abc?a=&b", "did:elastos:abc !",
+			"did:elastos:abc \n !", "did:elastos:abc\n\t#x", "did:elastos:ab%",
+			"did:elastos:ab%4", "did:elastos:ab%4!", "did:elastos:%41",
+			"did:elastos:abc😀", "😀", "did:foo:bar",
+			"did::abc", "did:elastos", "did:elastos:", "did;a", "didx:elastos:abc",
+			"#", "##", "?", "/", ";", "#abc", "/a/b?c=d#e", ";a;b=c/d",
+			"did:elastos:abc;a:b=c;d;e=f/x/y?p=q&r#s", "did:elastos:abc#f g",
+			"%", "%zz", "~", "~~", "a~b", "DID:elastos:abc"
+		};
+
+		for (String input : cases)
+			check(input);
+	}
+
+	@Test
+	public void testExhaustive() {
+		// All strings up to 3 chars of the alphabet, alone and after a DID
+		List<String> inputs = new ArrayList<String>();
+		inputs.add("");
+		int n = ALPHABET.length();
+		for (int len = 1; len <= 3; len++) {
+			int total = (int)Math.pow(n, len);
+			for (int i = 0; i < total; i++) {
+				StringBuilder sb = new StringBuilder();
+				for (int k = 0, v = i; k < len; k++, v /= n)
+					sb.append(ALPHABET.charAt(v % n));
+
+				inputs.add(sb.toString());
+			}
+		}
+
+		for (String input : inputs) {
+			if (!input.isEmpty())
+				check(input);
+
+			check("did:elastos:abc" + input);
+			check("#a" + input);
+		}
+	}
+
+	@Test
+	public void testFuzz() {
+		Random rnd = new Random(0x5eed);
+
+		for (int i = 0; i < 50000; i++) {
+			StringBuilder sb = new StringBuilder();
+			if (rnd.nextBoolean())
+				sb.append("did:elastos:abc");
+
+			int count = 1 + rnd.nextInt(10);
+			for (int k = 0; k < count; k++)
+				sb.append(FRAGMENTS[rnd.nextInt(FRAGMENTS.length)]);
+
+			check(sb.toString());
+		}
+	}
+}
@@ -35,6 +35,9 @@ public class Utils {
 	private static String[] removeIgnoredFiles(String[] names) {
 		List<String> lst = new ArrayList<String>(Arrays.asList(names));
 		lst.remove(".DS_Store");
+		// The write-ahead journal and the temporary files of the store
+		lst.remove("wal");
+		lst.remove("tmp");
 		return lst.toArray(new String[0]);
 	}
 